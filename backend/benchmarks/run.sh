@@ -0,0 +1,14 @@
+#!/bin/bash
+# Builds the backend and the benchmarks, runs JMH and writes results/<commit>.json.
+# Extra arguments go straight to JMH, e.g.  ./run.sh PortfolioBenchmark -p backend=fake
+set -e
+cd "$(dirname "$0")"
+(cd ../portfolio_manager && mvn -B -q install -DskipTests)
+mvn -B -q package
+mkdir -p results
+commit=$(git rev-parse --short HEAD)
+if ! git diff --quiet HEAD -- ../portfolio_manager/src; then
+    commit="$commit-dirty"
+fi
+java -jar target/benchmarks.jar -rf json -rff "results/$commit.json" "$@"
+echo "Results written to results/$commit.json"
@@ -0,0 +1,82 @@
+package com.portfolio.benchmarks;
+
+import com.portfolio.backend.entity.PriceTarget;
+import com.portfolio.backend.entity.StockPrice;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Alert evaluation: one incoming price against its ticker's target book, a full price write
+ * (PriceService.createPrice, which upserts and then evaluates), and the periodic reconciliation
+ * sweep that AlertService runs. Generated targets sit far from the price walk, so nothing triggers
+ * and the books keep their size.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class AlertBenchmark {
+
+    @Param({Backend.FAKE, Backend.H2})
+    public String backend;
+
+    @Param({"1000", "100000"})
+    public int targets;
+
+    private Backend services;
+    private String ticker;
+    private BigDecimal[] prices;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Dataset ds = new Dataset(1_000, targets, Dataset.TICKERS * 30);
+        services = Backend.create(backend, ds);
+        ticker = ds.ticker(0);
+        prices = new BigDecimal[64];
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = ds.close(0, i);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        services.close();
+    }
+
+    private BigDecimal nextPrice() {
+        return prices[next++ & (prices.length - 1)];
+    }
+
+    @Benchmark
+    public List<PriceTarget> evaluateTick() {
+        return services.alertEngine.onPrice(ticker, nextPrice());
+    }
+
+    @Benchmark
+    public StockPrice createPrice() {
+        return services.priceService.createPrice(ticker, nextPrice());
+    }
+
+    @Benchmark
+    public List<PriceTarget> reconcile() {
+        return services.alertEngine.reconcile();
+    }
+}
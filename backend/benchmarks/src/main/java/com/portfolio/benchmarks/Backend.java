@@ -0,0 +1,63 @@
+package com.portfolio.benchmarks;
+
+import com.portfolio.backend.service.AlertEngine;
+import com.portfolio.backend.service.AssetService;
+import com.portfolio.backend.service.PortfolioService;
+import com.portfolio.backend.service.PortfolioSummaryCache;
+import com.portfolio.backend.service.PriceSeriesStore;
+import com.portfolio.backend.service.PriceService;
+import com.portfolio.backend.service.StockPriceService;
+import com.portfolio.backend.service.TickIngestService;
+import com.portfolio.backend.service.XirrService;
+
+/**
+ * The services under test, wired either to in-memory fake repositories or to a Spring context on
+ * an in-memory H2 database, and loaded with one {@link Dataset}.
+ */
+public final class Backend implements AutoCloseable {
+
+    public static final String FAKE = "fake";
+    public static final String H2 = "h2";
+
+    public final PortfolioService portfolioService;
+    public final PortfolioSummaryCache summaryCache;
+    public final XirrService xirrService;
+    public final AssetService assetService;
+    public final PriceService priceService;
+    public final AlertEngine alertEngine;
+    public final StockPriceService stockPriceService;
+    public final PriceSeriesStore priceSeriesStore;
+    public final TickIngestService tickIngestService;
+    private final AutoCloseable onClose;
+
+    Backend(PortfolioService portfolioService, PortfolioSummaryCache summaryCache, XirrService xirrService,
+            AssetService assetService, PriceService priceService, AlertEngine alertEngine,
+            StockPriceService stockPriceService, PriceSeriesStore priceSeriesStore,
+            TickIngestService tickIngestService, AutoCloseable onClose) {
+        this.portfolioService = portfolioService;
+        this.summaryCache = summaryCache;
+        this.xirrService = xirrService;
+        this.assetService = assetService;
+        this.priceService = priceService;
+        this.alertEngine = alertEngine;
+        this.stockPriceService = stockPriceService;
+        this.priceSeriesStore = priceSeriesStore;
+        this.tickIngestService = tickIngestService;
+        this.onClose = onClose;
+    }
+
+    public static Backend create(String kind, Dataset dataset) {
+        return switch (kind) {
+            case FAKE -> FakeBackend.create(dataset);
+            case H2 -> H2Backend.create(dataset);
+            default -> throw new IllegalArgumentException("Unknown backend " + kind + ", expected fake or h2");
+        };
+    }
+
+    @Override
+    public void close() throws Exception {
+        xirrService.shutdown();
+        assetService.shutdown();
+        onClose.close();
+    }
+}
@@ -0,0 +1,110 @@
+package com.portfolio.benchmarks;
+
+import com.portfolio.backend.entity.Asset;
+import com.portfolio.backend.entity.Portfolio;
+import com.portfolio.backend.entity.PriceTarget;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Deterministic synthetic portfolio: a fixed set of tickers, {@code lots} lots spread evenly across
+ * them, {@code targets} untriggered price targets, and {@code priceRows} daily closes ending today.
+ * The same sizes always produce the same data, so runs on different commits are comparable.
+ */
+public final class Dataset {
+
+    public static final int TICKERS = 50;
+    private static final long SEED = 20240601L;
+
+    public final int lots;
+    public final int targets;
+    public final int priceRows;
+    public final int daysPerTicker;
+    public final LocalDate lastDay;
+    public final List<String> tickers;
+
+    public Dataset(int lots, int targets, int priceRows) {
+        this.lots = lots;
+        this.targets = targets;
+        this.priceRows = priceRows;
+        this.daysPerTicker = Math.max(1, priceRows / TICKERS);
+        this.lastDay = LocalDate.now();
+        List<String> t = new ArrayList<>(TICKERS);
+        for (int i = 0; i < TICKERS; i++) {
+            t.add(String.format("T%03d", i));
+        }
+        this.tickers = List.copyOf(t);
+    }
+
+    public String ticker(int i) {
+        return tickers.get(i % TICKERS);
+    }
+
+    public LocalDate firstDay() {
+        return lastDay.minusDays(daysPerTicker - 1L);
+    }
+
+    /**
+     * Base price of a ticker, between 20 and 500.
+     */
+    public double basePrice(int tickerIndex) {
+        return 20 + (tickerIndex * 37 % 480);
+    }
+
+    /**
+     * Close of ticker {@code t} on day {@code d} (0 = first day): a seeded random walk that stays
+     * positive. Computed on demand so 10M rows never need to be held in memory at once.
+     */
+    public BigDecimal close(int t, int d) {
+        double base = basePrice(t);
+        double wave = Math.sin((d + t * 13) / 40.0) * 0.15 + Math.sin((d * 7 + t) / 9.0) * 0.03;
+        return BigDecimal.valueOf(Math.round(base * (1 + wave) * 100), 2);
+    }
+
+    public BigDecimal latestClose(int t) {
+        return close(t, daysPerTicker - 1);
+    }
+
+    public List<Asset> generateLots() {
+        SplittableRandom rnd = new SplittableRandom(SEED);
+        List<Asset> out = new ArrayList<>(lots);
+        for (int i = 0; i < lots; i++) {
+            int t = i % TICKERS;
+            Asset a = new Asset();
+            a.setPortfolioId(Portfolio.DEFAULT_ID);
+            a.setTicker(ticker(t));
+            a.setQuantity(1 + rnd.nextInt(200));
+            a.setBuyPrice(BigDecimal.valueOf(Math.round(basePrice(t) * (0.7 + rnd.nextDouble(0.6)) * 100), 2));
+            a.setBuyDate(lastDay.minusDays(1 + rnd.nextInt(5 * 365)));
+            out.add(a);
+        }
+        return out;
+    }
+
+    public List<PriceTarget> generateTargets() {
+        SplittableRandom rnd = new SplittableRandom(SEED + 1);
+        List<PriceTarget> out = new ArrayList<>(targets);
+        for (int i = 0; i < targets; i++) {
+            int t = i % TICKERS;
+            boolean buy = rnd.nextBoolean();
+            // BUY well below and SELL well above anything the random walk reaches
+            double factor = buy ? 0.2 + rnd.nextDouble(0.4) : 1.5 + rnd.nextDouble(1.0);
+            PriceTarget p = new PriceTarget();
+            p.setPortfolioId(Portfolio.DEFAULT_ID);
+            p.setTicker(ticker(t));
+            p.setAction(buy ? "BUY" : "SELL");
+            p.setTargetPrice(BigDecimal.valueOf(Math.round(basePrice(t) * factor * 100), 2));
+            out.add(p);
+        }
+        return out;
+    }
+
+    @Override
+    public String toString() {
+        return "Dataset[lots=" + lots + ", targets=" + targets + ", priceRows=" + priceRows + "]";
+    }
+}
@@ -0,0 +1,335 @@
+package com.portfolio.benchmarks;
+
+import com.portfolio.backend.dto.OhlcBar;
+import com.portfolio.backend.dto.PricePoint;
+import com.portfolio.backend.entity.Asset;
+import com.portfolio.backend.entity.AssetSale;
+import com.portfolio.backend.entity.Portfolio;
+import com.portfolio.backend.entity.Position;
+import com.portfolio.backend.entity.PriceTarget;
+import com.portfolio.backend.entity.Stock;
+import com.portfolio.backend.entity.StockPrice;
+import com.portfolio.backend.repo.AlertOutboxRepository;
+import com.portfolio.backend.repo.AssetBatchRepository;
+import com.portfolio.backend.repo.AssetRepository;
+import com.portfolio.backend.repo.AssetSaleRepository;
+import com.portfolio.backend.repo.PortfolioRepository;
+import com.portfolio.backend.repo.PositionRepository;
+import com.portfolio.backend.repo.PriceRollupRepository;
+import com.portfolio.backend.repo.PriceTargetRepository;
+import com.portfolio.backend.repo.StockPriceBatchRepository;
+import com.portfolio.backend.repo.StockPriceRepository;
+import com.portfolio.backend.repo.StockRepository;
+import com.portfolio.backend.service.AlertEngine;
+import com.portfolio.backend.service.AlertOutbox;
+import com.portfolio.backend.service.AlertPipeline;
+import com.portfolio.backend.service.AssetService;
+import com.portfolio.backend.service.DataVersion;
+import com.portfolio.backend.service.LatestPriceIndex;
+import com.portfolio.backend.service.PortfolioHistoryService;
+import com.portfolio.backend.service.PortfolioRegistry;
+import com.portfolio.backend.service.PortfolioRing;
+import com.portfolio.backend.service.PortfolioService;
+import com.portfolio.backend.service.PortfolioSummaryCache;
+import com.portfolio.backend.service.PositionService;
+import com.portfolio.backend.service.PriceSeriesStore;
+import com.portfolio.backend.service.PriceService;
+import com.portfolio.backend.service.PrimaryReads;
+import com.portfolio.backend.service.RecentAlerts;
+import com.portfolio.backend.service.RiskService;
+import com.portfolio.backend.service.StockPriceService;
+import com.portfolio.backend.service.TaxLotIndex;
+import com.portfolio.backend.service.TickIngestService;
+import com.portfolio.backend.service.TickerLocks;
+import com.portfolio.backend.service.ValuationStream;
+import com.portfolio.backend.service.XirrService;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Services wired by hand to {@link FakeRepository} proxies. Measures the service code alone, with
+ * no JDBC, Hibernate or transaction overhead. Price history is generated from the dataset on
+ * demand, so 10M rows cost nothing until a ticker is actually loaded.
+ */
+final class FakeBackend {
+
+    private FakeBackend() {
+    }
+
+    static Backend create(Dataset ds) {
+        StockPriceRepository priceRepository = priceRepository(ds);
+
+        FakeRepository<Portfolio, Long> portfolios = new FakeRepository<>(Portfolio.class, Portfolio::getId, "id");
+        portfolios.save(new Portfolio());
+        PortfolioRepository portfolioRepository = portfolios.proxy(PortfolioRepository.class);
+
+        FakeRepository<PriceTarget, Long> targets = new FakeRepository<>(PriceTarget.class, PriceTarget::getId, "id");
+        targets.on("findByTriggeredFalseAndPortfolioIdIn", a -> targets.all().stream()
+                .filter(t -> !t.isTriggered() && ((Collection<?>) a[0]).contains(t.getPortfolioId()))
+                .toList());
+        PriceTargetRepository targetRepository = targets.proxy(PriceTargetRepository.class);
+
+        // every lot of the dataset is in the default portfolio, so the index is by position
+        FakeRepository<Asset, Long> lots = new FakeRepository<>(Asset.class, Asset::getId, "id")
+                .indexBy(a -> a.getPortfolioId() + "|" + a.getTicker());
+        lots.on("findByPortfolioIdAndTickerOrderByBuyDateAsc", a -> {
+            List<Asset> list = lots.byIndex(a[0] + "|" + a[1]);
+            list.sort(Comparator.comparing(Asset::getBuyDate).thenComparing(Asset::getId));
+            return list;
+        });
+        lots.on("findByPortfolioId", a -> inPortfolios(lots.all(), List.of(a[0]), Asset::getPortfolioId));
+        lots.on("findByPortfolioIdIn", a -> inPortfolios(lots.all(), (Collection<?>) a[0], Asset::getPortfolioId));
+        lots.on("aggregateForPortfolios",
+                a -> aggregate(inPortfolios(lots.all(), (Collection<?>) a[0], Asset::getPortfolioId)));
+        lots.on("aggregateForTicker", a -> aggregate(lots.byIndex(a[0] + "|" + a[1])));
+        AssetRepository assetRepository = lots.proxy(AssetRepository.class);
+
+        FakeRepository<Position, String> positions = new FakeRepository<>(Position.class,
+                p -> p.getPortfolioId() + "|" + p.getTicker(), null);
+        positions.on("findForUpdate", a -> positions.get(a[0] + "|" + a[1]));
+        positions.on("findByPortfolioId", a -> inPortfolios(positions.all(), List.of(a[0]), Position::getPortfolioId));
+        positions.on("findByPortfolioIdIn",
+                a -> inPortfolios(positions.all(), (Collection<?>) a[0], Position::getPortfolioId));
+        positions.on("deleteByPortfolioIds", a -> {
+            List<Position> doomed = inPortfolios(positions.all(), (Collection<?>) a[0], Position::getPortfolioId);
+            doomed.forEach(positions::delete);
+            return doomed.size();
+        });
+        PositionRepository positionRepository = positions.proxy(PositionRepository.class);
+
+        FakeRepository<AssetSale, Long> sales = new FakeRepository<>(AssetSale.class, AssetSale::getId, "id")
+                .indexBy(s -> s.getPortfolioId() + "|" + s.getTicker());
+        sales.on("findByPortfolioIdAndTicker", a -> sales.byIndex(a[0] + "|" + a[1]));
+        sales.on("findByPortfolioId", a -> inPortfolios(sales.all(), List.of(a[0]), AssetSale::getPortfolioId));
+        AssetSaleRepository saleRepository = sales.proxy(AssetSaleRepository.class);
+
+        for (Asset a : ds.generateLots()) {
+            lots.save(a);
+        }
+        for (PriceTarget t : ds.generateTargets()) {
+            targets.save(t);
+        }
+
+        DataVersion dataVersion = new DataVersion();
+        PortfolioRegistry portfolioRegistry = new PortfolioRegistry(portfolioRepository,
+                new PortfolioRing("", "", 1), 0);
+        LatestPriceIndex latestPriceIndex = new LatestPriceIndex(priceRepository, PrimaryReads.direct(), 1000);
+        NoRollups rollups = new NoRollups();
+        PriceSeriesStore priceSeriesStore = new PriceSeriesStore(priceRepository, rollups, PrimaryReads.direct());
+        AlertEngine alertEngine = new AlertEngine(targetRepository, latestPriceIndex, portfolioRegistry,
+                noAlertDelivery(portfolioRegistry), new TransactionTemplate(new NoTransactions()));
+        RecentAlerts recentAlerts = new RecentAlerts(50);
+        PositionService positionService = new PositionService(positionRepository, assetRepository, dataVersion,
+                portfolioRegistry);
+        ValuationStream valuationStream = new ValuationStream(positionService, latestPriceIndex, dataVersion, 64, 1, 0);
+        AlertPipeline alertPipeline = new AlertPipeline(alertEngine, latestPriceIndex, recentAlerts, dataVersion,
+                valuationStream);
+        RiskService riskService = new RiskService(positionService, priceSeriesStore, 252, 0, 1000);
+        PortfolioHistoryService portfolioHistoryService = new PortfolioHistoryService(assetRepository, saleRepository,
+                priceSeriesStore, dataVersion);
+        PriceService priceService = new PriceService(priceRepository, latestPriceIndex, priceSeriesStore, alertPipeline,
+                dataVersion, valuationStream, riskService, portfolioHistoryService);
+        TaxLotIndex taxLotIndex = new TaxLotIndex(assetRepository, portfolioRegistry, 730, new BigDecimal("0.22"), new BigDecimal("0.15"));
+        AssetBatchRepository assetBatchRepository = new FakeAssetBatchRepository(assetRepository);
+        AssetService assetService = new AssetService(assetRepository, assetBatchRepository, positionService,
+                saleRepository, priceService, new TransactionTemplate(new NoTransactions()), new TickerLocks(0),
+                taxLotIndex, dataVersion, 4);
+        PortfolioService portfolioService = new PortfolioService(assetRepository, priceService, positionService, taxLotIndex,
+                recentAlerts);
+        PortfolioSummaryCache summaryCache = new PortfolioSummaryCache(portfolioService, dataVersion, new JsonMapper());
+        XirrService xirrService = new XirrService(assetRepository, saleRepository, priceService, 0);
+        StockPriceService stockPriceService = new StockPriceService(priceSeriesStore, rollups);
+        TickIngestService tickIngestService = new TickIngestService(stockRepository(ds), new NoBatchWrites(),
+                new TransactionTemplate(new NoTransactions()), latestPriceIndex, priceSeriesStore, alertPipeline,
+                valuationStream, dataVersion, riskService, portfolioHistoryService, new JsonMapper(), 4096, 1000);
+
+        latestPriceIndex.warm();
+        positionService.rebuild();
+        taxLotIndex.rebuild();
+        alertEngine.reconcile();
+
+        return new Backend(portfolioService, summaryCache, xirrService, assetService, priceService, alertEngine,
+                stockPriceService, priceSeriesStore, tickIngestService, () -> {
+                    tickIngestService.shutdown();
+                    riskService.shutdown();
+                    alertPipeline.shutdown();
+                    valuationStream.shutdown();
+                    portfolioRegistry.shutdown();
+                });
+    }
+
+    /**
+     * Lots live in the fake repository, which has no versions to check.
+     */
+    private static final class FakeAssetBatchRepository extends AssetBatchRepository {
+        private final AssetRepository lots;
+
+        FakeAssetBatchRepository(AssetRepository lots) {
+            super(null);
+            this.lots = lots;
+        }
+
+        @Override
+        public int deleteLots(List<Asset> consumed) {
+            for (Asset lot : consumed) {
+                lots.deleteById(lot.getId());
+            }
+            return consumed.size();
+        }
+    }
+
+    /**
+     * Commits and rollbacks are no-ops; the fakes write straight through.
+     */
+    private static final class NoTransactions implements PlatformTransactionManager {
+        @Override
+        public TransactionStatus getTransaction(TransactionDefinition definition) {
+            return new SimpleTransactionStatus();
+        }
+
+        @Override
+        public void commit(TransactionStatus status) {
+        }
+
+        @Override
+        public void rollback(TransactionStatus status) {
+        }
+    }
+
+    /**
+     * The synthetic history is all daily rows; nothing has been compacted.
+     */
+    private static final class NoRollups extends PriceRollupRepository {
+        NoRollups() {
+            super(null);
+        }
+
+        @Override
+        public List<OhlcBar> findBars(Tier tier, String ticker, LocalDate from, LocalDate to) {
+            return List.of();
+        }
+
+        @Override
+        public LocalDate findLastRolledUpDate(String ticker) {
+            return null;
+        }
+    }
+
+    /**
+     * Closes flushed by the tick path are dropped; the price history stays the generated one.
+     */
+    private static final class NoBatchWrites extends StockPriceBatchRepository {
+        NoBatchWrites() {
+            super(null);
+        }
+
+        @Override
+        public void upsertAll(List<PricePoint> rows) {
+        }
+    }
+
+    /**
+     * An outbox with no sinks enabled: triggered alerts are not queued for delivery at all.
+     */
+    private static AlertOutbox noAlertDelivery(PortfolioRegistry portfolioRegistry) {
+        return new AlertOutbox(new AlertOutboxRepository(null, null), portfolioRegistry, List.of(),
+                new SimpleMeterRegistry(), "", 100, 1, 1000, 10, 1000, 300_000, 60_000, 168);
+    }
+
+    private static StockRepository stockRepository(Dataset ds) {
+        FakeRepository<Stock, String> stocks = new FakeRepository<>(Stock.class, Stock::getTicker, "ticker");
+        for (int t = 0; t < Dataset.TICKERS; t++) {
+            Stock s = new Stock();
+            s.setTicker(ds.ticker(t));
+            stocks.save(s);
+        }
+        return stocks.proxy(StockRepository.class);
+    }
+
+    private static StockPriceRepository priceRepository(Dataset ds) {
+        // generated history is read-only; rows written by createPrice are kept by (ticker, date)
+        FakeRepository<StockPrice, Long> prices = new FakeRepository<>(StockPrice.class, StockPrice::getId, "id")
+                .indexBy(sp -> sp.getTicker() + "|" + sp.getPriceDate());
+        prices.on("findLatestPerTicker", a -> latest(ds, ds.tickers));
+        prices.on("findLatestForTickers", a -> latest(ds, (Collection<?>) a[0]));
+        prices.on("findLatestPrice", a -> {
+            List<StockPrice> one = latest(ds, List.of(a[0]));
+            return one.isEmpty() ? null : one.get(0);
+        });
+        prices.on("findByTickerAndPriceDate", a -> {
+            List<StockPrice> found = prices.byIndex(a[0] + "|" + a[1]);
+            return found.isEmpty() ? null : found.get(0);
+        });
+        prices.on("findDateAndCloseByTicker", a -> {
+            int t = ds.tickers.indexOf(a[0]);
+            if (t < 0) {
+                return List.of();
+            }
+            LocalDate first = ds.firstDay();
+            List<Object[]> rows = new ArrayList<>(ds.daysPerTicker);
+            for (int d = 0; d < ds.daysPerTicker; d++) {
+                rows.add(new Object[]{first.plusDays(d), ds.close(t, d)});
+            }
+            return rows;
+        });
+        return prices.proxy(StockPriceRepository.class);
+    }
+
+    private static List<StockPrice> latest(Dataset ds, Collection<?> tickers) {
+        List<StockPrice> out = new ArrayList<>();
+        for (Object ticker : tickers) {
+            int t = ds.tickers.indexOf(ticker);
+            if (t >= 0) {
+                StockPrice sp = new StockPrice();
+                sp.setTicker((String) ticker);
+                sp.setPriceDate(ds.lastDay);
+                sp.setClosePrice(ds.latestClose(t));
+                out.add(sp);
+            }
+        }
+        return out;
+    }
+
+    private static <E> List<E> inPortfolios(Collection<E> rows, Collection<?> portfolioIds,
+                                            Function<E, Long> portfolioOf) {
+        List<E> out = new ArrayList<>();
+        for (E e : rows) {
+            if (portfolioIds.contains(portfolioOf.apply(e))) {
+                out.add(e);
+            }
+        }
+        return out;
+    }
+
+    // same shape as AssetRepository.aggregateForPortfolios:
+    // portfolio id, ticker, SUM(qty), SUM(qty * price), MIN(date), COUNT
+    private static List<Object[]> aggregate(Collection<Asset> assets) {
+        Map<String, Object[]> byPosition = new LinkedHashMap<>();
+        for (Asset a : assets) {
+            Object[] row = byPosition.computeIfAbsent(a.getPortfolioId() + "|" + a.getTicker(),
+                    k -> new Object[]{a.getPortfolioId(), a.getTicker(), 0L, BigDecimal.ZERO, null, 0L});
+            row[2] = (Long) row[2] + a.getQuantity();
+            row[3] = ((BigDecimal) row[3]).add(a.getBuyPrice().multiply(BigDecimal.valueOf(a.getQuantity())));
+            if (row[4] == null || a.getBuyDate().isBefore((LocalDate) row[4])) {
+                row[4] = a.getBuyDate();
+            }
+            row[5] = (Long) row[5] + 1;
+        }
+        return new ArrayList<>(byPosition.values());
+    }
+}
@@ -0,0 +1,214 @@
+package com.portfolio.benchmarks;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+
+/**
+ * In-memory stand-in for a Spring Data repository, exposed through a JDK dynamic proxy. The common
+ * CRUD methods work on a map keyed by id; derived and {@code @Query} methods are supplied per
+ * repository with {@link #on}. Anything not covered fails loudly instead of returning a default.
+ *
+ * <p>An optional secondary index (e.g. by ticker) plays the part of the database index a real
+ * query would use, so per-ticker lookups do not degrade into full scans.
+ */
+public final class FakeRepository<E, ID extends Comparable<ID>> implements InvocationHandler {
+
+    private final ConcurrentSkipListMap<ID, E> rows = new ConcurrentSkipListMap<>();
+    private final Function<E, ID> idOf;
+    private final Field idField;
+    private final AtomicLong sequence = new AtomicLong();
+    private final Map<String, Function<Object[], Object>> queries = new HashMap<>();
+    private Function<E, Object> indexKey;
+    private final Map<Object, Set<ID>> index = new ConcurrentHashMap<>();
+
+    /**
+     * @param idOf    reads the id of an entity
+     * @param idField name of a generated {@code Long} id field to assign on save, or null for assigned ids
+     */
+    public FakeRepository(Class<E> type, Function<E, ID> idOf, String idField) {
+        this.idOf = idOf;
+        try {
+            this.idField = idField == null ? null : type.getDeclaredField(idField);
+        } catch (NoSuchFieldException e) {
+            throw new IllegalArgumentException(e);
+        }
+        if (this.idField != null) {
+            this.idField.setAccessible(true);
+        }
+    }
+
+    public FakeRepository<E, ID> indexBy(Function<E, Object> key) {
+        this.indexKey = key;
+        return this;
+    }
+
+    public FakeRepository<E, ID> on(String method, Function<Object[], Object> impl) {
+        queries.put(method, impl);
+        return this;
+    }
+
+    @SuppressWarnings("unchecked")
+    public <R> R proxy(Class<R> repositoryType) {
+        return (R) Proxy.newProxyInstance(repositoryType.getClassLoader(), new Class<?>[]{repositoryType}, this);
+    }
+
+    public E get(ID id) {
+        return rows.get(id);
+    }
+
+    public Collection<E> all() {
+        return rows.values();
+    }
+
+    public List<E> byIndex(Object key) {
+        Set<ID> ids = index.get(key);
+        List<E> out = new ArrayList<>();
+        if (ids != null) {
+            for (ID id : ids) {
+                E e = rows.get(id);
+                if (e != null) {
+                    out.add(e);
+                }
+            }
+        }
+        return out;
+    }
+
+    public E save(E entity) {
+        ID id = idOf.apply(entity);
+        if (id == null) {
+            id = assignId(entity);
+        }
+        E previous = rows.put(id, entity);
+        if (indexKey != null) {
+            if (previous != null) {
+                unindex(id, previous);
+            }
+            index.computeIfAbsent(indexKey.apply(entity), k -> ConcurrentHashMap.newKeySet()).add(id);
+        }
+        return entity;
+    }
+
+    public void delete(E entity) {
+        remove(idOf.apply(entity));
+    }
+
+    public void clear() {
+        rows.clear();
+        index.clear();
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        String name = method.getName();
+        Function<Object[], Object> query = queries.get(name);
+        if (query != null) {
+            return query.apply(args);
+        }
+        if (method.getDeclaringClass() == Object.class) {
+            return switch (name) {
+                case "equals" -> proxy == args[0];
+                case "hashCode" -> System.identityHashCode(proxy);
+                default -> "FakeRepository(" + proxy.getClass().getInterfaces()[0].getSimpleName() + ")";
+            };
+        }
+        int arity = args == null ? 0 : args.length;
+        switch (name) {
+            case "findAll":
+                if (arity == 0) {
+                    return new ArrayList<>(rows.values());
+                }
+                break;
+            case "findById":
+                return Optional.ofNullable(rows.get((ID) args[0]));
+            case "existsById":
+                return rows.containsKey((ID) args[0]);
+            case "count":
+                return (long) rows.size();
+            case "save":
+            case "saveAndFlush":
+                return save((E) args[0]);
+            case "saveAll":
+            case "saveAllAndFlush": {
+                List<E> saved = new ArrayList<>();
+                for (Object e : (Iterable<?>) args[0]) {
+                    saved.add(save((E) e));
+                }
+                return saved;
+            }
+            case "delete":
+                remove(idOf.apply((E) args[0]));
+                return null;
+            case "deleteById":
+                remove((ID) args[0]);
+                return null;
+            case "deleteAllByIdInBatch":
+            case "deleteAllById":
+                for (Object id : (Iterable<?>) args[0]) {
+                    remove((ID) id);
+                }
+                return null;
+            case "deleteAll":
+            case "deleteAllInBatch":
+                if (arity == 0) {
+                    clear();
+                } else {
+                    for (Object e : (Iterable<?>) args[0]) {
+                        remove(idOf.apply((E) e));
+                    }
+                }
+                return null;
+            case "flush":
+                return null;
+            default:
+                break;
+        }
+        if (method.isDefault()) {
+            return InvocationHandler.invokeDefault(proxy, method, args);
+        }
+        throw new UnsupportedOperationException("Fake repository does not implement " + method);
+    }
+
+    private ID assignId(E entity) {
+        if (idField == null) {
+            throw new IllegalStateException("Entity has no id and no generated id field");
+        }
+        Long id = sequence.incrementAndGet();
+        try {
+            idField.set(entity, id);
+        } catch (IllegalAccessException e) {
+            throw new IllegalStateException(e);
+        }
+        @SuppressWarnings("unchecked")
+        ID typed = (ID) id;
+        return typed;
+    }
+
+    private void remove(ID id) {
+        E removed = rows.remove(id);
+        if (removed != null && indexKey != null) {
+            unindex(id, removed);
+        }
+    }
+
+    private void unindex(ID id, E entity) {
+        Set<ID> ids = index.get(indexKey.apply(entity));
+        if (ids != null) {
+            ids.remove(id);
+        }
+    }
+}
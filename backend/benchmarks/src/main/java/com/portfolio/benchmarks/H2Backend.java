@@ -0,0 +1,120 @@
+package com.portfolio.benchmarks;
+
+import com.portfolio.backend.PortfolioManagerApplication;
+import com.portfolio.backend.entity.Asset;
+import com.portfolio.backend.entity.PriceTarget;
+import com.portfolio.backend.service.AlertEngine;
+import com.portfolio.backend.service.AssetService;
+import com.portfolio.backend.service.LatestPriceIndex;
+import com.portfolio.backend.service.PortfolioService;
+import com.portfolio.backend.service.PortfolioSummaryCache;
+import com.portfolio.backend.service.PositionService;
+import com.portfolio.backend.service.PriceSeriesStore;
+import com.portfolio.backend.service.PriceService;
+import com.portfolio.backend.service.StockPriceService;
+import com.portfolio.backend.service.TaxLotIndex;
+import com.portfolio.backend.service.TickIngestService;
+import com.portfolio.backend.service.XirrService;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * The real application context (JPA, transactions, schema.sql) on an in-memory H2 database in
+ * MySQL mode. The dataset is loaded with plain JDBC batches after startup, replacing the demo rows
+ * from data.sql, and the in-memory indexes are then rebuilt the same way they are on startup.
+ */
+final class H2Backend {
+
+    private static final int LOAD_BATCH = 10_000;
+    private static final AtomicInteger DATABASES = new AtomicInteger();
+
+    private H2Backend() {
+    }
+
+    static Backend create(Dataset ds) {
+        SpringApplication app = new SpringApplication(PortfolioManagerApplication.class);
+        app.setWebApplicationType(WebApplicationType.NONE);
+        ConfigurableApplicationContext ctx = app.run(
+                "--spring.profiles.active=bench",
+                "--spring.main.banner-mode=off",
+                "--logging.level.root=WARN",
+                "--spring.datasource.url=jdbc:h2:mem:bench" + DATABASES.incrementAndGet()
+                        + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1",
+                "--spring.datasource.driver-class-name=org.h2.Driver",
+                "--spring.datasource.username=sa",
+                "--spring.datasource.password=",
+                "--spring.jpa.database-platform=org.hibernate.dialect.H2Dialect",
+                "--spring.jpa.hibernate.ddl-auto=none",
+                "--spring.jpa.show-sql=false",
+                "--spring.sql.init.mode=always",
+                "--portfolio.alerts.reconcile-interval-ms=86400000");
+
+        load(ctx.getBean(JdbcTemplate.class), ds);
+        ctx.getBean(LatestPriceIndex.class).warm();
+        ctx.getBean(PositionService.class).rebuild();
+        ctx.getBean(TaxLotIndex.class).rebuild();
+        ctx.getBean(AlertEngine.class).reconcile();
+
+        return new Backend(ctx.getBean(PortfolioService.class), ctx.getBean(PortfolioSummaryCache.class),
+                ctx.getBean(XirrService.class),
+                ctx.getBean(AssetService.class), ctx.getBean(PriceService.class), ctx.getBean(AlertEngine.class),
+                ctx.getBean(StockPriceService.class), ctx.getBean(PriceSeriesStore.class),
+                ctx.getBean(TickIngestService.class), ctx::close);
+    }
+
+    private static void load(JdbcTemplate jdbc, Dataset ds) {
+        for (String table : List.of("asset_sale", "ticker_position", "price_target", "stock_price", "asset", "stock")) {
+            jdbc.update("DELETE FROM " + table);
+        }
+        for (String ticker : ds.tickers) {
+            jdbc.update("INSERT INTO stock (ticker, company_name) VALUES (?, ?)", ticker, "Synthetic " + ticker);
+        }
+
+        List<Object[]> batch = new ArrayList<>(LOAD_BATCH);
+        for (Asset a : ds.generateLots()) {
+            batch.add(new Object[]{a.getTicker(), a.getQuantity(), a.getBuyPrice(), Date.valueOf(a.getBuyDate())});
+            batch = flushIfFull(jdbc, "INSERT INTO asset (ticker, quantity, buy_price, buy_date) VALUES (?, ?, ?, ?)", batch);
+        }
+        flush(jdbc, "INSERT INTO asset (ticker, quantity, buy_price, buy_date) VALUES (?, ?, ?, ?)", batch);
+
+        batch = new ArrayList<>(LOAD_BATCH);
+        for (PriceTarget t : ds.generateTargets()) {
+            batch.add(new Object[]{t.getTicker(), t.getTargetPrice(), t.getAction(), false});
+            batch = flushIfFull(jdbc, "INSERT INTO price_target (ticker, target_price, action, triggered) VALUES (?, ?, ?, ?)", batch);
+        }
+        flush(jdbc, "INSERT INTO price_target (ticker, target_price, action, triggered) VALUES (?, ?, ?, ?)", batch);
+
+        String priceSql = "INSERT INTO stock_price (ticker, price_date, close_price) VALUES (?, ?, ?)";
+        batch = new ArrayList<>(LOAD_BATCH);
+        LocalDate first = ds.firstDay();
+        for (int t = 0; t < ds.tickers.size(); t++) {
+            for (int d = 0; d < ds.daysPerTicker; d++) {
+                batch.add(new Object[]{ds.tickers.get(t), Date.valueOf(first.plusDays(d)), ds.close(t, d)});
+                batch = flushIfFull(jdbc, priceSql, batch);
+            }
+        }
+        flush(jdbc, priceSql, batch);
+    }
+
+    private static List<Object[]> flushIfFull(JdbcTemplate jdbc, String sql, List<Object[]> batch) {
+        if (batch.size() < LOAD_BATCH) {
+            return batch;
+        }
+        flush(jdbc, sql, batch);
+        return new ArrayList<>(LOAD_BATCH);
+    }
+
+    private static void flush(JdbcTemplate jdbc, String sql, List<Object[]> batch) {
+        if (!batch.isEmpty()) {
+            jdbc.batchUpdate(sql, batch);
+        }
+    }
+}
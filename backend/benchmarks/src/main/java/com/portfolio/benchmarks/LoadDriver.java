@@ -0,0 +1,398 @@
+package com.portfolio.benchmarks;
+
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.SplittableRandom;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Open-loop HTTP load against a running portfolio_manager, entirely local. It optionally starts
+ * the built-in market simulator, creates a portfolio holding the simulated tickers, then fires a
+ * weighted mix of summary, price-history, XIRR and sell requests at a fixed rate and prints
+ * p50/p99/p999 latency and throughput per request type.
+ *
+ * <p>Requests are sent on schedule whether or not earlier ones have returned, and latency is
+ * measured from the scheduled send time, so a stalled server shows up as latency rather than as a
+ * lower request rate. Requests that would exceed {@code --max-in-flight} are not sent and are
+ * reported as skipped.
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar com.portfolio.benchmarks.LoadDriver --url=http://localhost:8081 --rps=200
+ * </pre>
+ */
+public final class LoadDriver {
+
+    enum Op { PORTFOLIO, PRICES, XIRR, SELL }
+
+    private static final JsonMapper JSON = new JsonMapper();
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .followRedirects(HttpClient.Redirect.NORMAL)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private final Options options;
+    private final String base;
+    private final SplittableRandom random;
+    private List<String> tickers;
+    private long portfolioId;
+
+    private LoadDriver(Options options) {
+        this.options = options;
+        this.base = options.url.endsWith("/") ? options.url.substring(0, options.url.length() - 1) : options.url;
+        this.random = new SplittableRandom(options.seed);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        if (options == null) {
+            System.out.println(Options.USAGE);
+            return;
+        }
+        new LoadDriver(options).run();
+    }
+
+    private void run() throws IOException, InterruptedException {
+        boolean startedSimulator = false;
+        if (options.simulate > 0) {
+            HttpResponse<String> r = post("/api/simulator/start",
+                    "{\"tickers\":" + options.tickers + ",\"ticksPerSecond\":" + options.simulate + "}");
+            startedSimulator = r.statusCode() == 200;
+            if (!startedSimulator && r.statusCode() != 409) {
+                throw new IllegalStateException("starting the simulator failed: " + r.statusCode() + " " + r.body());
+            }
+        }
+        try {
+            tickers = tickers();
+            portfolioId = options.portfolio > 0 ? options.portfolio : createPortfolio();
+            System.out.printf(Locale.ROOT, "portfolio %d, %d tickers, %d rps, mix %s%n",
+                    portfolioId, tickers.size(), options.rps, options.mix);
+
+            if (options.warmup > 0) {
+                System.out.printf(Locale.ROOT, "warming up for %ds%n", options.warmup);
+                drive(options.warmup, new Stats());
+            }
+            System.out.printf(Locale.ROOT, "measuring for %ds%n", options.duration);
+            Stats stats = new Stats();
+            long elapsed = drive(options.duration, stats);
+            stats.print(elapsed, options.rps);
+        } finally {
+            if (startedSimulator) {
+                HttpResponse<String> r = post("/api/simulator/stop", "");
+                System.out.println("simulator: " + r.body());
+            }
+        }
+    }
+
+    /**
+     * Sends requests on a fixed schedule for the given number of seconds, then waits for the ones
+     * still in flight. Returns the elapsed nanoseconds.
+     */
+    private long drive(int seconds, Stats stats) throws InterruptedException {
+        Semaphore inFlight = new Semaphore(options.maxInFlight);
+        long interval = Math.max(1, 1_000_000_000L / options.rps);
+        long start = System.nanoTime();
+        long end = start + TimeUnit.SECONDS.toNanos(seconds);
+        for (long i = 0; ; i++) {
+            long intended = start + i * interval;
+            if (intended >= end) {
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Op op = options.pick(random);
+            if (!inFlight.tryAcquire()) {
+                stats.skipped(op);
+                continue;
+            }
+            client.sendAsync(request(op), HttpResponse.BodyHandlers.discarding())
+                    .whenComplete((response, error) -> {
+                        inFlight.release();
+                        stats.record(op, System.nanoTime() - intended,
+                                error == null && response.statusCode() < 400);
+                    });
+        }
+        if (!inFlight.tryAcquire(options.maxInFlight, 30, TimeUnit.SECONDS)) {
+            System.out.println("some requests were still in flight after 30s");
+        }
+        return System.nanoTime() - start;
+    }
+
+    private HttpRequest request(Op op) {
+        String ticker = tickers.get(random.nextInt(tickers.size()));
+        return switch (op) {
+            case PORTFOLIO -> get("/api/portfolio?portfolioId=" + portfolioId);
+            case PRICES -> get("/api/prices/" + ticker);
+            case XIRR -> get("/api/portfolio/xirr/" + ticker + "?portfolioId=" + portfolioId);
+            case SELL -> HttpRequest.newBuilder(URI.create(base + "/api/assets/sell?portfolioId=" + portfolioId))
+                    .timeout(Duration.ofSeconds(30))
+                    .header("Content-Type", "application/json")
+                    .POST(HttpRequest.BodyPublishers.ofString("{\"ticker\":\"" + ticker + "\",\"quantity\":1}"))
+                    .build();
+        };
+    }
+
+    private List<String> tickers() throws IOException, InterruptedException {
+        List<String> result = new ArrayList<>();
+        JsonNode status = JSON.readTree(send(get("/api/simulator")).body());
+        for (JsonNode t : status.path("tickers")) {
+            result.add(t.asString());
+        }
+        if (result.isEmpty()) {
+            // no simulator: trade what the default portfolio holds
+            for (JsonNode lot : JSON.readTree(send(get("/api/assets")).body())) {
+                String t = lot.path("ticker").asString();
+                if (!result.contains(t)) {
+                    result.add(t);
+                }
+            }
+        }
+        if (result.isEmpty()) {
+            throw new IllegalStateException("no tickers to trade; start the simulator or hold some lots");
+        }
+        return result.subList(0, Math.min(result.size(), options.tickers));
+    }
+
+    /**
+     * A fresh portfolio with {@code --lots} large lots per ticker, bought on dates spread over the
+     * last few years so the XIRR and tax paths have something to work with.
+     */
+    private long createPortfolio() throws IOException, InterruptedException {
+        HttpResponse<String> created = post("/api/portfolios", "{\"name\":\"load-" + System.currentTimeMillis() / 1000 + "\"}");
+        long id = JSON.readTree(created.body()).path("id").asLong();
+        if (created.statusCode() != 200 || id == 0) {
+            throw new IllegalStateException("creating the portfolio failed: " + created.body());
+        }
+        LocalDate today = LocalDate.now();
+        for (String ticker : tickers) {
+            HttpResponse<String> latest = send(get("/api/prices/latest/" + ticker));
+            String price = "100";
+            if (latest.statusCode() == 200 && !latest.body().isBlank()) {
+                JsonNode close = JSON.readTree(latest.body()).path("closePrice");
+                price = close.isMissingNode() || close.isNull() ? price : close.asString();
+            }
+            for (int k = 0; k < options.lots; k++) {
+                String body = String.format(Locale.ROOT,
+                        "{\"ticker\":\"%s\",\"quantity\":10000,\"buyPrice\":%s,\"buyDate\":\"%s\"}",
+                        ticker, price, today.minusDays(30 + 300L * k));
+                HttpResponse<String> r = post("/api/assets?portfolioId=" + id, body);
+                if (r.statusCode() != 200) {
+                    throw new IllegalStateException("buying " + ticker + " failed: " + r.body());
+                }
+            }
+        }
+        return id;
+    }
+
+    private HttpRequest get(String path) {
+        return HttpRequest.newBuilder(URI.create(base + path)).timeout(Duration.ofSeconds(30)).GET().build();
+    }
+
+    private HttpResponse<String> post(String path, String json) throws IOException, InterruptedException {
+        return send(HttpRequest.newBuilder(URI.create(base + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(json))
+                .build());
+    }
+
+    private HttpResponse<String> send(HttpRequest request) throws IOException, InterruptedException {
+        return client.send(request, HttpResponse.BodyHandlers.ofString());
+    }
+
+    /**
+     * Latencies and outcomes per request type. Every latency is kept, which is fine for the minutes
+     * a run lasts.
+     */
+    static final class Stats {
+        private final Map<Op, Recorder> recorders = new EnumMap<>(Op.class);
+
+        Stats() {
+            for (Op op : Op.values()) {
+                recorders.put(op, new Recorder());
+            }
+        }
+
+        void record(Op op, long nanos, boolean ok) {
+            recorders.get(op).record(nanos, ok);
+        }
+
+        void skipped(Op op) {
+            recorders.get(op).skipped.incrementAndGet();
+        }
+
+        void print(long elapsedNanos, int targetRps) {
+            double seconds = elapsedNanos / 1e9;
+            System.out.printf(Locale.ROOT, "%-10s %9s %7s %8s %10s %9s %9s %9s %9s%n",
+                    "request", "count", "errors", "skipped", "req/s", "p50 ms", "p99 ms", "p999 ms", "max ms");
+            Recorder all = new Recorder();
+            for (Map.Entry<Op, Recorder> e : recorders.entrySet()) {
+                Recorder r = e.getValue();
+                if (r.count() + r.skipped.get() == 0) {
+                    continue;
+                }
+                r.print(e.getKey().name().toLowerCase(Locale.ROOT), seconds);
+                all.merge(r);
+            }
+            all.print("all", seconds);
+            System.out.printf(Locale.ROOT, "target %d req/s over %.1fs%n", targetRps, seconds);
+        }
+    }
+
+    static final class Recorder {
+        private long[] latencies = new long[1024];
+        private int size;
+        private long errors;
+        final AtomicLong skipped = new AtomicLong();
+
+        synchronized void record(long nanos, boolean ok) {
+            if (size == latencies.length) {
+                latencies = Arrays.copyOf(latencies, size * 2);
+            }
+            latencies[size++] = nanos;
+            if (!ok) {
+                errors++;
+            }
+        }
+
+        synchronized int count() {
+            return size;
+        }
+
+        synchronized void merge(Recorder other) {
+            synchronized (other) {
+                for (int i = 0; i < other.size; i++) {
+                    record(other.latencies[i], true);
+                }
+                errors += other.errors;
+                skipped.addAndGet(other.skipped.get());
+            }
+        }
+
+        synchronized void print(String name, double seconds) {
+            long[] sorted = Arrays.copyOf(latencies, size);
+            Arrays.sort(sorted);
+            System.out.printf(Locale.ROOT, "%-10s %9d %7d %8d %10.1f %9.2f %9.2f %9.2f %9.2f%n",
+                    name, size, errors, skipped.get(), size / seconds,
+                    millis(sorted, 0.50), millis(sorted, 0.99), millis(sorted, 0.999),
+                    size == 0 ? 0.0 : sorted[size - 1] / 1e6);
+        }
+
+        // nearest-rank percentile
+        private static double millis(long[] sorted, double p) {
+            if (sorted.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(p * sorted.length);
+            return sorted[Math.max(0, rank - 1)] / 1e6;
+        }
+    }
+
+    static final class Options {
+        static final String USAGE = """
+                usage: LoadDriver [--url=http://localhost:8081] [--rps=100] [--duration=30] [--warmup=5]
+                                  [--mix=portfolio=50,prices=30,xirr=10,sell=10] [--tickers=20]
+                                  [--simulate=1] [--portfolio=0] [--lots=4] [--max-in-flight=256] [--seed=1]
+                  --simulate     ticks per second for the built-in market simulator; 0 leaves it alone
+                  --portfolio    portfolio to load; 0 creates one holding --lots lots of every ticker
+                """;
+
+        String url = "http://localhost:8081";
+        int rps = 100;
+        int duration = 30;
+        int warmup = 5;
+        String mix = "portfolio=50,prices=30,xirr=10,sell=10";
+        int tickers = 20;
+        double simulate = 1;
+        long portfolio;
+        int lots = 4;
+        int maxInFlight = 256;
+        long seed = 1;
+        private final double[] cumulative = new double[Op.values().length];
+
+        static Options parse(String[] args) {
+            Options o = new Options();
+            for (String arg : args) {
+                if (arg.equals("-h") || arg.equals("--help")) {
+                    return null;
+                }
+                int eq = arg.indexOf('=');
+                if (!arg.startsWith("--") || eq < 0) {
+                    throw new IllegalArgumentException("expected --name=value, got " + arg);
+                }
+                String name = arg.substring(2, eq);
+                String value = arg.substring(eq + 1);
+                switch (name) {
+                    case "url" -> o.url = value;
+                    case "rps" -> o.rps = Integer.parseInt(value);
+                    case "duration" -> o.duration = Integer.parseInt(value);
+                    case "warmup" -> o.warmup = Integer.parseInt(value);
+                    case "mix" -> o.mix = value;
+                    case "tickers" -> o.tickers = Integer.parseInt(value);
+                    case "simulate" -> o.simulate = Double.parseDouble(value);
+                    case "portfolio" -> o.portfolio = Long.parseLong(value);
+                    case "lots" -> o.lots = Integer.parseInt(value);
+                    case "max-in-flight" -> o.maxInFlight = Integer.parseInt(value);
+                    case "seed" -> o.seed = Long.parseLong(value);
+                    default -> throw new IllegalArgumentException("unknown option --" + name);
+                }
+            }
+            if (o.rps < 1 || o.duration < 1 || o.tickers < 1 || o.maxInFlight < 1) {
+                throw new IllegalArgumentException("rps, duration, tickers and max-in-flight must be positive");
+            }
+            o.parseMix();
+            return o;
+        }
+
+        private void parseMix() {
+            Map<Op, Double> weights = new LinkedHashMap<>();
+            for (String part : mix.split(",")) {
+                String[] kv = part.split("=");
+                if (kv.length != 2) {
+                    throw new IllegalArgumentException("bad mix entry " + part);
+                }
+                weights.put(Op.valueOf(kv[0].strip().toUpperCase(Locale.ROOT)), Double.parseDouble(kv[1]));
+            }
+            double total = 0;
+            for (Op op : Op.values()) {
+                total += weights.getOrDefault(op, 0.0);
+                cumulative[op.ordinal()] = total;
+            }
+            if (total <= 0) {
+                throw new IllegalArgumentException("the mix needs at least one positive weight");
+            }
+            for (int i = 0; i < cumulative.length; i++) {
+                cumulative[i] /= total;
+            }
+        }
+
+        Op pick(SplittableRandom random) {
+            double x = random.nextDouble();
+            for (Op op : Op.values()) {
+                if (x < cumulative[op.ordinal()]) {
+                    return op;
+                }
+            }
+            return Op.values()[Op.values().length - 1];
+        }
+    }
+}
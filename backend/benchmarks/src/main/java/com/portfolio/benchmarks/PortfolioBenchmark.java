@@ -0,0 +1,81 @@
+package com.portfolio.benchmarks;
+
+import com.portfolio.backend.dto.PortfolioSummary;
+import com.portfolio.backend.entity.Portfolio;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Read paths over the whole portfolio: the summary, cold and cached, and the tax liability
+ * (PortfolioService and PortfolioSummaryCache) and XIRR for every ticker plus the total (XirrService).
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class PortfolioBenchmark {
+
+    @Param({Backend.FAKE, Backend.H2})
+    public String backend;
+
+    @Param({"1000", "100000", "1000000"})
+    public int lots;
+
+    private Backend services;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        services = Backend.create(backend, new Dataset(lots, 1_000, Dataset.TICKERS * 250));
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        services.close();
+    }
+
+    @Benchmark
+    public PortfolioSummary portfolioSummary() {
+        return services.portfolioService.getPortfolioSummary(Portfolio.DEFAULT_ID);
+    }
+
+    /**
+     * A poll with nothing written since the last one: the ETag is current and nothing is rebuilt.
+     */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public String portfolioSummaryUnchanged() {
+        return services.summaryCache.currentEtag(Portfolio.DEFAULT_ID);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public byte[] portfolioSummaryCachedBytes() {
+        return services.summaryCache.get(Portfolio.DEFAULT_ID).json();
+    }
+
+    @Benchmark
+    public Map<String, Object> taxLiability() {
+        return services.portfolioService.getTaxLiability(Portfolio.DEFAULT_ID);
+    }
+
+    @Benchmark
+    public Map<String, Object> xirrAll() {
+        return services.xirrService.computeAll(Portfolio.DEFAULT_ID);
+    }
+}
@@ -0,0 +1,84 @@
+package com.portfolio.benchmarks;
+
+import com.portfolio.backend.dto.PricePoint;
+import com.portfolio.backend.service.PriceSeries;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Price history reads for one ticker out of {@code priceRows} rows spread over
+ * {@link Dataset#TICKERS} tickers: the full history and a one-year window from a loaded series,
+ * and a cold load of one ticker's series from the repository.
+ *
+ * <p>Loading 10M rows into H2 takes a few minutes and several GB of heap; pass
+ * {@code -p priceRows=100000,1000000} for a quick run.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx8g")
+public class PriceHistoryBenchmark {
+
+    @Param({Backend.FAKE, Backend.H2})
+    public String backend;
+
+    @Param({"100000", "1000000", "10000000"})
+    public int priceRows;
+
+    private Backend services;
+    private String ticker;
+    private LocalDate yearStart;
+    private LocalDate yearEnd;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Dataset ds = new Dataset(1_000, 100, priceRows);
+        services = Backend.create(backend, ds);
+        ticker = ds.ticker(7);
+        yearEnd = ds.lastDay;
+        yearStart = yearEnd.minusYears(1);
+        services.priceSeriesStore.get(ticker);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        services.close();
+    }
+
+    @Benchmark
+    public List<PricePoint> fullHistory() {
+        return services.stockPriceService.getPriceHistory(ticker);
+    }
+
+    @Benchmark
+    public List<PricePoint> oneYearWindow() {
+        return services.priceSeriesStore.getHistory(ticker, yearStart, yearEnd);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 2, batchSize = 1)
+    @Measurement(iterations = 5, batchSize = 1)
+    public PriceSeries coldLoad() {
+        services.priceSeriesStore.evict(ticker);
+        return services.priceSeriesStore.get(ticker);
+    }
+}
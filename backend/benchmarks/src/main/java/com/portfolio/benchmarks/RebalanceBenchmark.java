@@ -0,0 +1,107 @@
+package com.portfolio.benchmarks;
+
+import com.portfolio.backend.service.RebalancePlanner;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * The planning phase of the batch rebalance: {@link RebalancePlanner} over many portfolios already
+ * laid out as primitive arrays, one after the other and in parallel on a fork-join pool the size
+ * of the machine, as RebalanceService does it. Loading from the database is left out; every
+ * portfolio holds {@code lotsPerTicker} lots of each of the {@link Dataset#TICKERS} tickers, has
+ * drifted randomly from equal target weights, and about half of them need trades.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class RebalanceBenchmark {
+
+    @Param({"1000", "10000"})
+    public int portfolios;
+
+    @Param({"4"})
+    public int lotsPerTicker;
+
+    private static final double TOLERANCE = 0.02;
+
+    private double[] price;
+    private long[][] quantity;
+    private double[][] weight;
+    private int[] lotTicker;
+    private int[][] lotQuantity;
+    private ForkJoinPool pool;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Dataset ds = new Dataset(0, 0, Dataset.TICKERS);
+        int n = Dataset.TICKERS;
+        price = new double[n];
+        for (int t = 0; t < n; t++) {
+            price[t] = ds.latestClose(t).doubleValue();
+        }
+        SplittableRandom random = new SplittableRandom(42);
+        quantity = new long[portfolios][n];
+        weight = new double[portfolios][n];
+        lotQuantity = new int[portfolios][n * lotsPerTicker];
+        lotTicker = new int[n * lotsPerTicker];
+        for (int l = 0; l < lotTicker.length; l++) {
+            lotTicker[l] = l / lotsPerTicker;
+        }
+        for (int p = 0; p < portfolios; p++) {
+            boolean drifted = random.nextBoolean();
+            for (int t = 0; t < n; t++) {
+                weight[p][t] = 1.0 / n;
+                // an equal-weight book of about 1M, skewed by up to +-60% when drifted
+                double skew = drifted ? 1 + (random.nextDouble() - 0.5) * 1.2 : 1;
+                int perLot = (int) Math.max(1, 1_000_000.0 / n / price[t] * skew / lotsPerTicker);
+                for (int k = 0; k < lotsPerTicker; k++) {
+                    lotQuantity[p][t * lotsPerTicker + k] = perLot;
+                    quantity[p][t] += perLot;
+                }
+            }
+        }
+        pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public void planSequential(Blackhole bh) {
+        for (int p = 0; p < portfolios; p++) {
+            bh.consume(plan(p));
+        }
+    }
+
+    @Benchmark
+    public void planParallel(Blackhole bh) {
+        pool.submit(() -> IntStream.range(0, portfolios).parallel().forEach(p -> bh.consume(plan(p)))).join();
+    }
+
+    private int[] plan(int p) {
+        RebalancePlanner.Plan plan = RebalancePlanner.plan(quantity[p], price, weight[p], price.length, 0, TOLERANCE);
+        return RebalancePlanner.takeLots(plan.shares(), lotTicker, lotQuantity[p], lotTicker.length);
+    }
+}
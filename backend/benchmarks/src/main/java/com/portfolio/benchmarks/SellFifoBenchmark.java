@@ -0,0 +1,97 @@
+package com.portfolio.benchmarks;
+
+import com.portfolio.backend.entity.Asset;
+import com.portfolio.backend.entity.Portfolio;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * FIFO sell through AssetService.sellAsset. Setup adds one very large lot dated before every other
+ * lot of the ticker, so each invocation sells a single share from it and the dataset stays the
+ * same size for the whole run; the cost measured is loading and walking the ticker's lots.
+ *
+ * <p>{@code sellOneShareParallel} runs four threads, each selling its own ticker, to show that sells
+ * on different tickers do not serialize on each other.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class SellFifoBenchmark {
+
+    @Param({Backend.FAKE, Backend.H2})
+    public String backend;
+
+    @Param({"1000", "100000", "1000000"})
+    public int lots;
+
+    static final int PARALLEL_TICKERS = 4;
+
+    private Dataset dataset;
+    private Backend services;
+    private String ticker;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Dataset ds = new Dataset(lots, 100, Dataset.TICKERS * 30);
+        dataset = ds;
+        services = Backend.create(backend, ds);
+        ticker = ds.ticker(0);
+
+        for (int t = 0; t < PARALLEL_TICKERS; t++) {
+            Asset oldest = new Asset();
+            oldest.setTicker(ds.ticker(t));
+            oldest.setQuantity(1_000_000_000);
+            oldest.setBuyPrice(BigDecimal.valueOf(ds.basePrice(t)));
+            oldest.setBuyDate(LocalDate.of(2000, 1, 3));
+            services.assetService.addAsset(Portfolio.DEFAULT_ID, oldest);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        services.close();
+    }
+
+    @Benchmark
+    public void sellOneShare() {
+        services.assetService.sellAsset(Portfolio.DEFAULT_ID, ticker, 1);
+    }
+
+    @Benchmark
+    @Threads(PARALLEL_TICKERS)
+    public void sellOneShareParallel(PerThread thread) {
+        services.assetService.sellAsset(Portfolio.DEFAULT_ID, thread.ticker, 1);
+    }
+
+    @State(Scope.Thread)
+    public static class PerThread {
+        private static final AtomicInteger NEXT = new AtomicInteger();
+
+        String ticker;
+
+        @Setup(Level.Trial)
+        public void setUp(SellFifoBenchmark benchmark) {
+            ticker = benchmark.dataset.ticker(NEXT.getAndIncrement() % PARALLEL_TICKERS);
+        }
+    }
+}
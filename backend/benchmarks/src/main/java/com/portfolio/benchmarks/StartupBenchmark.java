@@ -0,0 +1,198 @@
+package com.portfolio.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.net.ConnectException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarFile;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Time from launching a portfolio_manager JVM to its first successful {@code /api/portfolio}
+ * response, over several fresh processes. Each process is started from the given jar with the
+ * given JVM flags, polled until the endpoint answers 200, then shut down gracefully before the
+ * next one starts. Prints every run, with Spring's own "Started ... in" time next to it, and the
+ * min, median and max.
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar com.portfolio.benchmarks.StartupBenchmark \
+ *     --jar=../portfolio_manager/target/fast-start/backend-0.0.1-SNAPSHOT-exec.jar \
+ *     --jvm="-XX:SharedArchiveFile=app.jsa -Dspring.aot.enabled=true" -- --spring.profiles.active=prod
+ * </pre>
+ */
+public final class StartupBenchmark {
+
+    private static final Pattern STARTED = Pattern.compile("Started \\S+ in ([0-9.]+) seconds");
+
+    private final HttpClient client = HttpClient.newBuilder()
+            .connectTimeout(Duration.ofSeconds(1))
+            .build();
+    private final Options options;
+
+    private StartupBenchmark(Options options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        if (options == null) {
+            System.out.println(Options.USAGE);
+            return;
+        }
+        new StartupBenchmark(options).run();
+    }
+
+    private void run() throws IOException, InterruptedException {
+        List<String> command = command();
+        System.out.println(String.join(" ", command));
+        double[] ready = new double[options.runs];
+        for (int i = 0; i < options.runs; i++) {
+            Path log = Files.createTempFile("startup-" + (i + 1) + "-", ".log");
+            long start = System.nanoTime();
+            Process process = new ProcessBuilder(command)
+                    .directory(new File(options.jar).getAbsoluteFile().getParentFile())
+                    .redirectErrorStream(true)
+                    .redirectOutput(log.toFile())
+                    .start();
+            try {
+                ready[i] = awaitFirstResponse(process, start) / 1e6;
+            } finally {
+                stop(process);
+            }
+            System.out.printf(Locale.ROOT, "run %d: first %s after %8.1f ms (Spring: started in %s s)  log %s%n",
+                    i + 1, options.path, ready[i], startedIn(log), log);
+        }
+        double[] sorted = ready.clone();
+        Arrays.sort(sorted);
+        System.out.printf(Locale.ROOT, "min %.1f ms, median %.1f ms, max %.1f ms over %d runs%n",
+                sorted[0], sorted[sorted.length / 2], sorted[sorted.length - 1], sorted.length);
+    }
+
+    private List<String> command() throws IOException {
+        String mainClass;
+        try (JarFile jar = new JarFile(options.jar)) {
+            mainClass = jar.getManifest().getMainAttributes().getValue("Main-Class");
+        }
+        List<String> command = new ArrayList<>();
+        command.add(Path.of(System.getProperty("java.home"), "bin", "java").toString());
+        if (!options.jvm.isBlank()) {
+            command.addAll(Arrays.asList(options.jvm.strip().split("\\s+")));
+        }
+        command.add("-cp");
+        String jarName = new File(options.jar).getName();
+        command.add(options.extraClasspath.isEmpty() ? jarName
+                : jarName + File.pathSeparator + new File(options.extraClasspath).getAbsolutePath());
+        command.add(mainClass);
+        command.add("--server.port=" + options.port);
+        command.addAll(options.appArgs);
+        return command;
+    }
+
+    /**
+     * Polls until the endpoint answers 200 and returns the nanoseconds since {@code start}.
+     */
+    private long awaitFirstResponse(Process process, long start) throws IOException, InterruptedException {
+        HttpRequest request = HttpRequest.newBuilder(URI.create("http://localhost:" + options.port + options.path))
+                .timeout(Duration.ofSeconds(10))
+                .GET()
+                .build();
+        long deadline = start + TimeUnit.SECONDS.toNanos(options.timeout);
+        while (System.nanoTime() < deadline) {
+            if (!process.isAlive()) {
+                throw new IllegalStateException("the server exited with " + process.exitValue() + " before answering");
+            }
+            try {
+                HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+                if (response.statusCode() == 200) {
+                    return System.nanoTime() - start;
+                }
+            } catch (ConnectException e) {
+                // not listening yet
+            }
+            Thread.sleep(options.pollMs);
+        }
+        throw new IllegalStateException("no 200 from " + options.path + " within " + options.timeout + "s");
+    }
+
+    private static void stop(Process process) throws InterruptedException {
+        process.destroy();
+        if (!process.waitFor(30, TimeUnit.SECONDS)) {
+            process.destroyForcibly().waitFor();
+        }
+    }
+
+    private static String startedIn(Path log) throws IOException {
+        Matcher m = STARTED.matcher(Files.readString(log));
+        return m.find() ? m.group(1) : "?";
+    }
+
+    static final class Options {
+        static final String USAGE = """
+                usage: StartupBenchmark --jar=<app jar> [--jvm="<flags>"] [--extra-classpath=<jar>] [--runs=5]
+                                        [--port=18090] [--path=/api/portfolio] [--timeout=120] [--poll-ms=10]
+                                        [-- <application arguments>]
+                  --jar              the repackaged or extracted application jar; it is run from its own directory
+                  --extra-classpath  appended to the class path, e.g. a JDBC driver the jar does not bundle
+                """;
+
+        String jar;
+        String jvm = "";
+        String extraClasspath = "";
+        int runs = 5;
+        int port = 18090;
+        String path = "/api/portfolio";
+        int timeout = 120;
+        int pollMs = 10;
+        final List<String> appArgs = new ArrayList<>();
+
+        static Options parse(String[] args) {
+            Options o = new Options();
+            for (int i = 0; i < args.length; i++) {
+                String arg = args[i];
+                if (arg.equals("-h") || arg.equals("--help")) {
+                    return null;
+                }
+                if (arg.equals("--")) {
+                    o.appArgs.addAll(Arrays.asList(args).subList(i + 1, args.length));
+                    break;
+                }
+                int eq = arg.indexOf('=');
+                if (!arg.startsWith("--") || eq < 0) {
+                    throw new IllegalArgumentException("expected --name=value, got " + arg);
+                }
+                String name = arg.substring(2, eq);
+                String value = arg.substring(eq + 1);
+                switch (name) {
+                    case "jar" -> o.jar = value;
+                    case "jvm" -> o.jvm = value;
+                    case "extra-classpath" -> o.extraClasspath = value;
+                    case "runs" -> o.runs = Integer.parseInt(value);
+                    case "port" -> o.port = Integer.parseInt(value);
+                    case "path" -> o.path = value;
+                    case "timeout" -> o.timeout = Integer.parseInt(value);
+                    case "poll-ms" -> o.pollMs = Integer.parseInt(value);
+                    default -> throw new IllegalArgumentException("unknown option --" + name);
+                }
+            }
+            if (o.jar == null) {
+                return null;
+            }
+            if (o.runs < 1 || o.timeout < 1 || o.pollMs < 1) {
+                throw new IllegalArgumentException("runs, timeout and poll-ms must be positive");
+            }
+            return o;
+        }
+    }
+}
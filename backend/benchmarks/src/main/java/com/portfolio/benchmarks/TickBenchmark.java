@@ -0,0 +1,75 @@
+package com.portfolio.benchmarks;
+
+import com.portfolio.backend.service.PriceSeries;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Intraday tick ingestion: TickIngestService.accept from several threads at once, spread over the
+ * dataset's tickers. Reports ticks per second; the aggregator, alerts and latest prices run behind
+ * it as they do in the server, and nothing touches the database until a flush.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+@Threads(4)
+public class TickBenchmark {
+
+    @Param({Backend.FAKE, Backend.H2})
+    public String backend;
+
+    private Backend services;
+    private String[] tickers;
+    private long[] prices;
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int next;
+    }
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        Dataset ds = new Dataset(1_000, 1_000, Dataset.TICKERS * 30);
+        services = Backend.create(backend, ds);
+        tickers = new String[Dataset.TICKERS];
+        for (int i = 0; i < tickers.length; i++) {
+            tickers[i] = ds.ticker(i);
+        }
+        prices = new long[64];
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = PriceSeries.toFixed(ds.close(0, i));
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        Map<String, Object> stats = services.tickIngestService.getStats();
+        System.out.println("\n" + stats);
+        services.close();
+    }
+
+    @Benchmark
+    public boolean acceptTick(Cursor c) {
+        int i = c.next++;
+        return services.tickIngestService.accept(tickers[i % tickers.length], System.currentTimeMillis(),
+                prices[i & (prices.length - 1)]);
+    }
+}
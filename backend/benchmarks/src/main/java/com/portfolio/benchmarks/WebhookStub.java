@@ -0,0 +1,137 @@
+package com.portfolio.benchmarks;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.Locale;
+import java.util.Set;
+import java.util.SplittableRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A local stand-in for an alert webhook, to watch the outbox's batching and retries without an
+ * outside service. It accepts the JSON arrays portfolio_manager POSTs, answers 503 to a share of
+ * them, optionally after a delay, and prints once a second how many batches and alerts it
+ * received, how many it failed, and how many alerts it had already accepted before.
+ *
+ * <pre>
+ * java -cp target/benchmarks.jar com.portfolio.benchmarks.WebhookStub --port=18095 --fail-rate=0.3
+ * # server: --portfolio.alerts.sinks=webhook --portfolio.alerts.webhook.url=http://localhost:18095/alerts
+ * </pre>
+ */
+public final class WebhookStub {
+
+    private static final JsonMapper JSON = new JsonMapper();
+
+    private final Options options;
+    private final SplittableRandom random;
+    private final Set<Long> accepted = ConcurrentHashMap.newKeySet();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong alerts = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+
+    private WebhookStub(Options options) {
+        this.options = options;
+        this.random = new SplittableRandom(options.seed);
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        if (options == null) {
+            System.out.println(Options.USAGE);
+            return;
+        }
+        new WebhookStub(options).run();
+    }
+
+    private void run() throws IOException, InterruptedException {
+        HttpServer server = HttpServer.create(new InetSocketAddress(options.port), 0);
+        server.createContext("/", this::handle);
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        System.out.println("listening on http://localhost:" + options.port + "/alerts");
+        long last = 0;
+        while (true) {
+            Thread.sleep(1000);
+            long now = alerts.get();
+            System.out.printf(Locale.ROOT, "%d alerts/s  total: %d batches, %d alerts, %d failed, %d duplicates%n",
+                    now - last, batches.get(), now, failed.get(), duplicates.get());
+            last = now;
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            byte[] body = exchange.getRequestBody().readAllBytes();
+            if (options.delayMs > 0) {
+                Thread.sleep(options.delayMs);
+            }
+            boolean fail;
+            synchronized (random) {
+                fail = random.nextDouble() < options.failRate;
+            }
+            if (fail) {
+                failed.incrementAndGet();
+                exchange.sendResponseHeaders(503, -1);
+                return;
+            }
+            JsonNode batch = JSON.readTree(body);
+            batches.incrementAndGet();
+            for (JsonNode alert : batch) {
+                alerts.incrementAndGet();
+                if (!accepted.add(alert.path("id").asLong())) {
+                    duplicates.incrementAndGet();
+                }
+            }
+            exchange.sendResponseHeaders(204, -1);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    static final class Options {
+        static final String USAGE = """
+                usage: WebhookStub [--port=18095] [--fail-rate=0] [--delay-ms=0] [--seed=42]
+                  --fail-rate  share of batches answered with 503, between 0 and 1
+                  --delay-ms   time to hold every request before answering
+                """;
+
+        int port = 18095;
+        double failRate;
+        long delayMs;
+        long seed = 42;
+
+        static Options parse(String[] args) {
+            Options o = new Options();
+            for (String arg : args) {
+                if (arg.equals("-h") || arg.equals("--help")) {
+                    return null;
+                }
+                int eq = arg.indexOf('=');
+                if (!arg.startsWith("--") || eq < 0) {
+                    throw new IllegalArgumentException("expected --name=value, got " + arg);
+                }
+                String name = arg.substring(2, eq);
+                String value = arg.substring(eq + 1);
+                switch (name) {
+                    case "port" -> o.port = Integer.parseInt(value);
+                    case "fail-rate" -> o.failRate = Double.parseDouble(value);
+                    case "delay-ms" -> o.delayMs = Long.parseLong(value);
+                    case "seed" -> o.seed = Long.parseLong(value);
+                    default -> throw new IllegalArgumentException("unknown option --" + name);
+                }
+            }
+            if (o.failRate < 0 || o.failRate > 1 || o.delayMs < 0) {
+                throw new IllegalArgumentException("fail-rate must be within [0, 1] and delay-ms not negative");
+            }
+            return o;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.portfolio.benchmarks;
+
+import com.portfolio.backend.service.XirrSolver;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * One {@link XirrSolver#solve} over {@code flows} dated cash flows: monthly-sized buys spread over
+ * four years and a single final value, the shape XirrService hands it for a busy ticker. The solve
+ * is expected to stay well under a millisecond at 1000 flows. No backend.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class XirrSolverBenchmark {
+
+    @Param({"100", "1000"})
+    public int flows;
+
+    private double[] amounts;
+    private double[] years;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        amounts = new double[flows];
+        years = new double[flows];
+        for (int i = 0; i < flows - 1; i++) {
+            amounts[i] = -100.0 - (i % 7) * 10.0;
+            years[i] = i * 4.0 / flows;
+        }
+        amounts[flows - 1] = 250.0 * flows;
+        years[flows - 1] = 4.0;
+    }
+
+    @Benchmark
+    public XirrSolver.Result solve() {
+        return XirrSolver.solve(amounts, years, flows);
+    }
+}
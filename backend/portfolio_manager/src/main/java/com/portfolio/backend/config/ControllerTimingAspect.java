@@ -0,0 +1,63 @@
+package com.portfolio.backend.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.stereotype.Component;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Times every public controller method as {@code portfolio.method}, tagged with layer, class,
+ * method and exception. Only calls through the Spring proxy are seen. Service entry points are
+ * timed under the same name and tags by Micrometer's {@link io.micrometer.core.annotation.Timed},
+ * see {@link MetricsConfig#timedAspect}; service methods on the price and tick paths are left
+ * unannotated, so they are called without a timer and without adding timers per ticker-sized call.
+ */
+@Aspect
+@Component
+public class ControllerTimingAspect {
+
+    private static final String METRIC = "portfolio.method";
+    private static final String NONE = "none";
+
+    private final MeterRegistry meterRegistry;
+    // timers of successful calls, by method, so the common path does no tag building or registry lookup
+    private final ConcurrentHashMap<Method, Timer> timers = new ConcurrentHashMap<>();
+
+    public ControllerTimingAspect(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Around("execution(public * com.portfolio.backend.controller..*(..))")
+    public Object time(ProceedingJoinPoint pjp) throws Throwable {
+        long start = System.nanoTime();
+        Object result;
+        try {
+            result = pjp.proceed();
+        } catch (Throwable t) {
+            timer(pjp, t.getClass().getSimpleName()).record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            throw t;
+        }
+        Method method = ((MethodSignature) pjp.getSignature()).getMethod();
+        Timer timer = timers.get(method);
+        if (timer == null) {
+            timer = timers.computeIfAbsent(method, m -> timer(pjp, NONE));
+        }
+        timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        return result;
+    }
+
+    private Timer timer(ProceedingJoinPoint pjp, String exception) {
+        return Timer.builder(METRIC)
+                .description("Controller and service method execution time")
+                .tags(MetricsConfig.methodTags("controller", pjp))
+                .tag("exception", exception)
+                .register(meterRegistry);
+    }
+}
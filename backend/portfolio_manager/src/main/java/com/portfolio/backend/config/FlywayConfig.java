@@ -0,0 +1,26 @@
+package com.portfolio.backend.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.flyway.autoconfigure.FlywayMigrationStrategy;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Applies the versioned migrations under {@code db/migration} when Flyway is enabled, which the
+ * prod profile does. {@code portfolio.flyway.migrate-on-start=false} skips them; unlike
+ * {@code spring.flyway.enabled}, which an AOT-processed build fixes at build time, it is read at
+ * run time, so the AppCDS training run can refresh the prod context without a database.
+ */
+@Configuration
+public class FlywayConfig {
+
+    @Bean
+    public FlywayMigrationStrategy flywayMigrationStrategy(
+            @Value("${portfolio.flyway.migrate-on-start:true}") boolean migrateOnStart) {
+        return flyway -> {
+            if (migrateOnStart) {
+                flyway.migrate();
+            }
+        };
+    }
+}
@@ -0,0 +1,55 @@
+package com.portfolio.backend.config;
+
+import io.micrometer.core.aop.TimedAspect;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
+import org.aspectj.lang.JoinPoint;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.hibernate.cfg.AvailableSettings;
+import org.springframework.boot.hibernate.autoconfigure.HibernatePropertiesCustomizer;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+import java.util.function.Function;
+
+/**
+ * Per-request query counting: one statement inspector shared with Hibernate and an interceptor that
+ * turns its count into a metric for each endpoint. Also times the service methods annotated with
+ * Micrometer's {@code @Timed}, tagged like the controller timers of {@link ControllerTimingAspect}.
+ */
+@Configuration
+public class MetricsConfig implements WebMvcConfigurer {
+
+    private final QueryCountInspector queryCountInspector = new QueryCountInspector();
+    private final MeterRegistry meterRegistry;
+
+    public MetricsConfig(MeterRegistry meterRegistry) {
+        this.meterRegistry = meterRegistry;
+    }
+
+    @Bean
+    public HibernatePropertiesCustomizer queryCountCustomizer() {
+        return properties -> properties.put(AvailableSettings.STATEMENT_INSPECTOR, queryCountInspector);
+    }
+
+    @Bean
+    public TimedAspect timedAspect() {
+        Function<ProceedingJoinPoint, Iterable<Tag>> tags = pjp -> methodTags("service", pjp);
+        return new TimedAspect(meterRegistry, tags);
+    }
+
+    static Tags methodTags(String layer, JoinPoint pjp) {
+        return Tags.of("layer", layer,
+                "class", pjp.getSignature().getDeclaringType().getSimpleName(),
+                "method", pjp.getSignature().getName());
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new QueryCountInterceptor(queryCountInspector, meterRegistry))
+                .excludePathPatterns("/actuator/**");
+    }
+}
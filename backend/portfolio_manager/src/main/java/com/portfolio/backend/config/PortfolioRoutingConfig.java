@@ -0,0 +1,28 @@
+package com.portfolio.backend.config;
+
+import com.portfolio.backend.service.PortfolioRegistry;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+/**
+ * Routes the portfolio-scoped APIs to the owning node. Prices, stocks and the portfolio list are
+ * shared and served by any node.
+ */
+@Configuration
+public class PortfolioRoutingConfig implements WebMvcConfigurer {
+
+    private final PortfolioRegistry registry;
+
+    public PortfolioRoutingConfig(PortfolioRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        registry.addInterceptor(new PortfolioRoutingInterceptor(this.registry))
+                .addPathPatterns("/api/portfolio/**", "/api/assets/**", "/api/targets/**", "/api/alerts/**",
+                        "/api/positions/**")
+                .excludePathPatterns("/api/alerts/engine/**");
+    }
+}
@@ -0,0 +1,59 @@
+package com.portfolio.backend.config;
+
+import com.portfolio.backend.entity.Portfolio;
+import com.portfolio.backend.service.PortfolioRegistry;
+import com.portfolio.backend.service.PortfolioRing;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.cors.CorsUtils;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import java.io.IOException;
+
+/**
+ * Sends each portfolio-scoped request to the node that owns the portfolio on the
+ * {@link PortfolioRing}. Requests for a portfolio pinned elsewhere get a 307 to the same path on
+ * the owner, which keeps the method and body; requests for a portfolio that does not exist get a
+ * 404. Without a {@code portfolioId} parameter the request is for the default portfolio.
+ */
+public class PortfolioRoutingInterceptor implements HandlerInterceptor {
+
+    static final String PARAM = "portfolioId";
+
+    private final PortfolioRegistry registry;
+
+    public PortfolioRoutingInterceptor(PortfolioRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws IOException {
+        if (CorsUtils.isPreFlightRequest(request)) {
+            return true;
+        }
+        String raw = request.getParameter(PARAM);
+        long portfolioId;
+        try {
+            portfolioId = raw == null ? Portfolio.DEFAULT_ID : Long.parseLong(raw);
+        } catch (NumberFormatException e) {
+            // let the controller's parameter binding reject it
+            return true;
+        }
+        PortfolioRing ring = registry.ring();
+        if (!ring.owns(portfolioId)) {
+            String query = request.getQueryString();
+            response.setStatus(HttpStatus.TEMPORARY_REDIRECT.value());
+            response.setHeader(HttpHeaders.LOCATION,
+                    ring.ownerOf(portfolioId) + request.getRequestURI() + (query == null ? "" : "?" + query));
+            return false;
+        }
+        if (!registry.exists(portfolioId)) {
+            response.sendError(HttpStatus.NOT_FOUND.value(), "Unknown portfolio " + portfolioId);
+            return false;
+        }
+        return true;
+    }
+}
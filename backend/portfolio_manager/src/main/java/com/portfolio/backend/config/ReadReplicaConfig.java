@@ -0,0 +1,73 @@
+package com.portfolio.backend.config;
+
+import com.portfolio.backend.service.DataVersion;
+import com.zaxxer.hikari.HikariDataSource;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.jdbc.DataSourceBuilder;
+import org.springframework.boot.jdbc.autoconfigure.DataSourceProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Primary;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+
+/**
+ * Splits reads from writes once {@code portfolio.datasource.replica.url} is set: a primary pool
+ * from the usual {@code spring.datasource.*} properties, a replica pool, and a routing data source
+ * in front of both that everything else uses. Without a replica URL Spring Boot's own data source
+ * is used and nothing changes.
+ */
+@Configuration
+@ConditionalOnProperty(name = "portfolio.datasource.replica.url")
+public class ReadReplicaConfig {
+
+    @Bean
+    public HikariDataSource primaryDataSource(DataSourceProperties properties,
+                                              @Value("${portfolio.datasource.primary.pool-size:10}") int poolSize) {
+        HikariDataSource dataSource = properties.initializeDataSourceBuilder().type(HikariDataSource.class).build();
+        dataSource.setPoolName("primary");
+        dataSource.setMaximumPoolSize(poolSize);
+        return dataSource;
+    }
+
+    /**
+     * The replica pool. With {@code portfolio.datasource.replica.init-schema} the schema and seed
+     * data are run against it first, for a stand-in replica that nothing replicates to.
+     */
+    @Bean
+    public HikariDataSource replicaDataSource(
+            @Value("${portfolio.datasource.replica.url}") String url,
+            @Value("${portfolio.datasource.replica.username:${spring.datasource.username:}}") String username,
+            @Value("${portfolio.datasource.replica.password:${spring.datasource.password:}}") String password,
+            @Value("${portfolio.datasource.replica.pool-size:10}") int poolSize,
+            @Value("${portfolio.datasource.replica.init-schema:false}") boolean initSchema) {
+        HikariDataSource dataSource = DataSourceBuilder.create().type(HikariDataSource.class)
+                .url(url).username(username).password(password).build();
+        dataSource.setPoolName("replica");
+        dataSource.setMaximumPoolSize(poolSize);
+        if (initSchema) {
+            new ResourceDatabasePopulator(new ClassPathResource("schema.sql"), new ClassPathResource("data.sql"))
+                    .execute(dataSource);
+        }
+        return dataSource;
+    }
+
+    @Bean
+    @Primary
+    public DataSource dataSource(HikariDataSource primaryDataSource, HikariDataSource replicaDataSource,
+                                 MeterRegistry meterRegistry) {
+        return new LazyConnectionDataSourceProxy(
+                new ReadWriteRoutingDataSource(primaryDataSource, replicaDataSource, meterRegistry));
+    }
+
+    @Bean
+    public ReplicaReadAspect replicaReadAspect(DataVersion dataVersion, MeterRegistry meterRegistry,
+                                               @Value("${portfolio.datasource.replica.sticky-ms:5000}") long stickyMs) {
+        return new ReplicaReadAspect(dataVersion, stickyMs, meterRegistry);
+    }
+}
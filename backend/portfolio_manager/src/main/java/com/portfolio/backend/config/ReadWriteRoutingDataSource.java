@@ -0,0 +1,68 @@
+package com.portfolio.backend.config;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.jdbc.datasource.lookup.AbstractRoutingDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.util.Map;
+
+/**
+ * Hands out replica connections to read-only transactions that {@link ReplicaReadAspect} cleared
+ * for the replica, and primary connections to everything else: writes, work outside of
+ * transactions, and the read-only transactions Spring Data opens around a single repository call.
+ * Caches filled inside a replica read load in a read-write transaction of their own, see
+ * {@link com.portfolio.backend.service.PrimaryReads}. Meant to sit behind a
+ * {@link org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy}, so the choice is made
+ * at the first statement, once the transaction is marked read-only.
+ */
+public class ReadWriteRoutingDataSource extends AbstractRoutingDataSource {
+
+    enum Route {PRIMARY, REPLICA}
+
+    // decision of the outermost routed service method on this thread; null outside of one
+    private static final ThreadLocal<Route> DECIDED = new ThreadLocal<>();
+
+    private final Counter primaryConnections;
+    private final Counter replicaConnections;
+
+    public ReadWriteRoutingDataSource(DataSource primary, DataSource replica, MeterRegistry meterRegistry) {
+        setTargetDataSources(Map.of(Route.PRIMARY, primary, Route.REPLICA, replica));
+        setDefaultTargetDataSource(primary);
+        afterPropertiesSet();
+        this.primaryConnections = Counter.builder("portfolio.datasource.connections").tag("route", "primary")
+                .description("Connections handed out, by pool").register(meterRegistry);
+        this.replicaConnections = Counter.builder("portfolio.datasource.connections").tag("route", "replica")
+                .description("Connections handed out, by pool").register(meterRegistry);
+    }
+
+    static Route decided() {
+        return DECIDED.get();
+    }
+
+    static void decide(Route route) {
+        if (route == null) {
+            DECIDED.remove();
+        } else {
+            DECIDED.set(route);
+        }
+    }
+
+    /**
+     * True if a statement run on this thread now would read the replica.
+     */
+    public static boolean readsReplica() {
+        return DECIDED.get() == Route.REPLICA && TransactionSynchronizationManager.isCurrentTransactionReadOnly();
+    }
+
+    @Override
+    protected Object determineCurrentLookupKey() {
+        if (readsReplica()) {
+            replicaConnections.increment();
+            return Route.REPLICA;
+        }
+        primaryConnections.increment();
+        return Route.PRIMARY;
+    }
+}
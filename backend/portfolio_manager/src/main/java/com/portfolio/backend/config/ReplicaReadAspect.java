@@ -0,0 +1,77 @@
+package com.portfolio.backend.config;
+
+import com.portfolio.backend.config.ReadWriteRoutingDataSource.Route;
+import com.portfolio.backend.service.DataVersion;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.aspectj.lang.ProceedingJoinPoint;
+import org.aspectj.lang.annotation.Around;
+import org.aspectj.lang.annotation.Aspect;
+import org.aspectj.lang.reflect.MethodSignature;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Lets service methods annotated {@code @Transactional(readOnly = true)} read from the replica.
+ * A method with a {@code portfolioId} parameter stays on the primary for a while after that
+ * portfolio's own data last changed, so a client reads its own trades back, and so responses
+ * cached under a {@link DataVersion} are never rebuilt from a replica that has not caught up. The
+ * outermost routed method decides for the whole call; methods it calls follow.
+ */
+@Aspect
+public class ReplicaReadAspect {
+
+    private final DataVersion dataVersion;
+    private final long stickyNanos;
+    private final Counter stickyReads;
+    // index of the portfolioId parameter, or -1, by method
+    private final ConcurrentHashMap<Method, Integer> portfolioParams = new ConcurrentHashMap<>();
+
+    public ReplicaReadAspect(DataVersion dataVersion, long stickyMs, MeterRegistry meterRegistry) {
+        this.dataVersion = dataVersion;
+        this.stickyNanos = TimeUnit.MILLISECONDS.toNanos(stickyMs);
+        this.stickyReads = Counter.builder("portfolio.datasource.sticky.reads")
+                .description("Read-only calls kept on the primary after a write to their portfolio")
+                .register(meterRegistry);
+    }
+
+    @Around("execution(public * com.portfolio.backend.service..*(..)) && @annotation(transactional)")
+    public Object route(ProceedingJoinPoint pjp, Transactional transactional) throws Throwable {
+        if (!transactional.readOnly() || ReadWriteRoutingDataSource.decided() != null) {
+            return pjp.proceed();
+        }
+        ReadWriteRoutingDataSource.decide(recentlyWritten(pjp) ? Route.PRIMARY : Route.REPLICA);
+        try {
+            return pjp.proceed();
+        } finally {
+            ReadWriteRoutingDataSource.decide(null);
+        }
+    }
+
+    private boolean recentlyWritten(ProceedingJoinPoint pjp) {
+        MethodSignature signature = (MethodSignature) pjp.getSignature();
+        int param = portfolioParams.computeIfAbsent(signature.getMethod(), m -> indexOf(signature));
+        if (param < 0 || !(pjp.getArgs()[param] instanceof Long portfolioId)) {
+            return false;
+        }
+        if (dataVersion.nanosSinceWrite(portfolioId) < stickyNanos) {
+            stickyReads.increment();
+            return true;
+        }
+        return false;
+    }
+
+    private static int indexOf(MethodSignature signature) {
+        String[] names = signature.getParameterNames();
+        Class<?>[] types = signature.getParameterTypes();
+        for (int i = 0; names != null && i < names.length; i++) {
+            if ("portfolioId".equals(names[i]) && (types[i] == long.class || types[i] == Long.class)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
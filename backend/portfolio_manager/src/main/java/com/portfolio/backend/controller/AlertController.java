@@ -1,10 +1,17 @@
 package com.portfolio.backend.controller;
 
+import com.portfolio.backend.dto.OutboxAlert;
+import com.portfolio.backend.dto.TriggeredAlert;
 import com.portfolio.backend.entity.PriceTarget;
 import com.portfolio.backend.repo.PriceTargetRepository;
+import com.portfolio.backend.service.AlertEngine;
+import com.portfolio.backend.service.AlertOutbox;
+import com.portfolio.backend.service.QueueAlertSink;
+import com.portfolio.backend.service.RecentAlerts;
 import org.springframework.web.bind.annotation.*;
 
 import java.util.List;
+import java.util.Map;
 
 @RestController
 @RequestMapping("/api/alerts")
@@ -12,18 +19,56 @@ import java.util.List;
 public class AlertController {
 
     private final PriceTargetRepository priceTargetRepository;
+    private final AlertEngine alertEngine;
+    private final RecentAlerts recentAlerts;
+    private final AlertOutbox alertOutbox;
+    private final QueueAlertSink queueAlertSink;
 
-    public AlertController(PriceTargetRepository priceTargetRepository) {
+    public AlertController(PriceTargetRepository priceTargetRepository, AlertEngine alertEngine,
+                           RecentAlerts recentAlerts, AlertOutbox alertOutbox, QueueAlertSink queueAlertSink) {
         this.priceTargetRepository = priceTargetRepository;
+        this.alertEngine = alertEngine;
+        this.recentAlerts = recentAlerts;
+        this.alertOutbox = alertOutbox;
+        this.queueAlertSink = queueAlertSink;
     }
 
     @GetMapping
-    public List<PriceTarget> getAllAlerts() {
-        return priceTargetRepository.findAll();
+    public List<PriceTarget> getAllAlerts(@RequestParam(defaultValue = "1") long portfolioId) {
+        return priceTargetRepository.findByPortfolioId(portfolioId);
     }
 
     @GetMapping("/active")
-    public List<PriceTarget> getActiveAlerts() {
-        return priceTargetRepository.findByTriggeredFalse();
+    public List<PriceTarget> getActiveAlerts(@RequestParam(defaultValue = "1") long portfolioId) {
+        return priceTargetRepository.findByPortfolioIdAndTriggeredFalse(portfolioId);
+    }
+
+    /**
+     * The portfolio's alerts triggered most recently, newest first.
+     */
+    @GetMapping("/recent")
+    public List<TriggeredAlert> getRecentAlerts(@RequestParam(defaultValue = "1") long portfolioId) {
+        return recentAlerts.snapshot(portfolioId);
+    }
+
+    @GetMapping("/engine/stats")
+    public Map<String, Object> getEngineStats() {
+        return alertEngine.getStats();
+    }
+
+    /**
+     * Delivery counters since start and the outbox rows by sink and status, for every portfolio.
+     */
+    @GetMapping("/engine/outbox")
+    public Map<String, Object> getOutboxStats() {
+        return alertOutbox.getStats();
+    }
+
+    /**
+     * Takes up to {@code max} alerts off this node's in-memory queue sink, oldest first.
+     */
+    @PostMapping("/engine/queue/poll")
+    public List<OutboxAlert> pollQueue(@RequestParam(defaultValue = "100") int max) {
+        return queueAlertSink.poll(max);
     }
 }
@@ -1,14 +1,20 @@
 package com.portfolio.backend.controller;
 
+import com.portfolio.backend.dto.TradeOrder;
+import com.portfolio.backend.dto.TradeResult;
 import com.portfolio.backend.entity.Asset;
 import com.portfolio.backend.service.AssetService;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.server.ResponseStatusException;
 
+import java.math.BigDecimal;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.CONFLICT;
 
 @RestController
 @RequestMapping("/api/assets")
@@ -23,17 +29,21 @@ public class AssetController {
     }
 
     @GetMapping
-    public List<Asset> getAssets() {
-        return service.getAllAssets();
+    public List<Asset> getAssets(@RequestParam(defaultValue = "1") long portfolioId) {
+        return service.getAllAssets(portfolioId);
     }
 
     @PostMapping
-    public Asset addAsset(@RequestBody Asset asset) {
-        return service.addAsset(asset);
+    public Asset addAsset(@RequestParam(defaultValue = "1") long portfolioId, @RequestBody Asset asset) {
+        try {
+            return service.addAsset(portfolioId, asset);
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(BAD_REQUEST, ex.getMessage());
+        }
     }
 
     @PostMapping("/sell")
-    public Map<String, Object> sellAsset(@RequestBody Map<String, Object> body) {
+    public Map<String, Object> sellAsset(@RequestParam(defaultValue = "1") long portfolioId, @RequestBody Map<String, Object> body) {
         String ticker = (String) body.get("ticker");
         Object qtyObj = body.get("quantity");
         if (ticker == null || qtyObj == null) {
@@ -47,16 +57,39 @@ public class AssetController {
             quantity = Integer.parseInt(String.valueOf(qtyObj));
         }
 
+        Object priceObj = body.get("price");
+        BigDecimal price = priceObj == null ? null : new BigDecimal(String.valueOf(priceObj));
+
         try {
-            service.sellAsset(ticker, quantity);
+            service.sellAsset(portfolioId, ticker, quantity, price);
         } catch (IllegalArgumentException ex) {
             throw new ResponseStatusException(BAD_REQUEST, ex.getMessage());
+        } catch (OptimisticLockingFailureException ex) {
+            throw new ResponseStatusException(CONFLICT, "Lots of " + ticker + " changed concurrently, try again");
         }
         return Map.of("ticker", ticker, "quantitySold", quantity);
     }
 
+    /**
+     * Buys and sells in one call. Orders for the same ticker are applied in order and all-or-nothing;
+     * different tickers are independent and run in parallel.
+     */
+    @PostMapping("/orders")
+    public Map<String, Object> executeOrders(@RequestParam(defaultValue = "1") long portfolioId, @RequestBody List<TradeOrder> orders) {
+        if (orders == null || orders.isEmpty()) {
+            throw new ResponseStatusException(BAD_REQUEST, "at least one order is required");
+        }
+        List<TradeResult> results = service.executeOrders(portfolioId, orders);
+        long executed = results.stream().filter(r -> r.status() == TradeResult.Status.EXECUTED).count();
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("executed", executed);
+        body.put("rejected", results.size() - executed);
+        body.put("orders", results);
+        return body;
+    }
+
     @DeleteMapping("/{id}")
-    public void deleteAsset(@PathVariable Long id) {
-        service.deleteAsset(id);
+    public void deleteAsset(@RequestParam(defaultValue = "1") long portfolioId, @PathVariable Long id) {
+        service.deleteAsset(portfolioId, id);
     }
 }
@@ -20,7 +20,9 @@ public class HomeController {
                         "assets", "/api/assets",
                         "prices", "/api/prices",
                         "targets", "/api/targets",
-                        "portfolio", "/api/portfolio"
+                        "positions", "/api/positions",
+                        "portfolio", "/api/portfolio",
+                        "metrics", "/actuator/prometheus"
                 )
         );
     }
@@ -1,14 +1,36 @@
 package com.portfolio.backend.controller;
 
+import com.portfolio.backend.service.PortfolioHistoryService;
 import com.portfolio.backend.service.PortfolioService;
+import com.portfolio.backend.service.PortfolioSummaryCache;
+import com.portfolio.backend.service.RebalanceService;
+import com.portfolio.backend.service.RiskService;
+import com.portfolio.backend.service.ValuationStream;
 import com.portfolio.backend.service.XirrService;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
 import java.util.Map;
 
 @RestController
@@ -16,31 +38,150 @@ import java.util.Map;
 @CrossOrigin(origins = "*")
 public class PortfolioController {
 
+    private static final Logger log = LoggerFactory.getLogger(PortfolioController.class);
+
     private final PortfolioService portfolioService;
+    private final PortfolioSummaryCache summaryCache;
     private final XirrService xirrService;
+    private final ValuationStream valuationStream;
+    private final RiskService riskService;
+    private final PortfolioHistoryService portfolioHistoryService;
+    private final RebalanceService rebalanceService;
 
-    public PortfolioController(PortfolioService portfolioService, XirrService xirrService) {
+    public PortfolioController(PortfolioService portfolioService, PortfolioSummaryCache summaryCache,
+                               XirrService xirrService, ValuationStream valuationStream, RiskService riskService,
+                               PortfolioHistoryService portfolioHistoryService, RebalanceService rebalanceService) {
         this.portfolioService = portfolioService;
+        this.summaryCache = summaryCache;
         this.xirrService = xirrService;
+        this.valuationStream = valuationStream;
+        this.riskService = riskService;
+        this.portfolioHistoryService = portfolioHistoryService;
+        this.rebalanceService = rebalanceService;
     }
 
+    /**
+     * The summary as cached JSON bytes. Clients revalidate with If-None-Match and get a 304 while
+     * nothing has been written to the portfolio since their copy.
+     */
     @GetMapping
-    public Map<String, Object> getPortfolio() {
-        return portfolioService.getPortfolioSummary();
+    public ResponseEntity<byte[]> getPortfolio(@RequestParam(defaultValue = "1") long portfolioId, @RequestHeader HttpHeaders headers) {
+        String etag = summaryCache.currentEtag(portfolioId);
+        if (matches(headers.getIfNoneMatch(), etag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(etag).cacheControl(CacheControl.noCache()).build();
+        }
+        PortfolioSummaryCache.Entry entry = summaryCache.get(portfolioId);
+        return ResponseEntity.ok()
+                .eTag(entry.etag())
+                .cacheControl(CacheControl.noCache())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(entry.json());
+    }
+
+    /**
+     * Live valuation as Server-Sent Events: a snapshot, then a delta per repriced position and the
+     * alerts as they trigger.
+     */
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamPortfolio(@RequestParam(defaultValue = "1") long portfolioId) {
+        return valuationStream.subscribe(portfolioId);
+    }
+
+    @GetMapping("/tax")
+    public Map<String, Object> getTaxLiability(@RequestParam(defaultValue = "1") long portfolioId) {
+        return portfolioService.getTaxLiability(portfolioId);
+    }
+
+    @GetMapping("/xirr")
+    public Map<String, Object> getAllXirr(@RequestParam(defaultValue = "1") long portfolioId) {
+        return xirrService.computeAll(portfolioId);
     }
 
     @GetMapping("/xirr/{ticker}")
-    public Map<String, Object> getXirr(@PathVariable String ticker) {
+    public Map<String, Object> getXirr(@RequestParam(defaultValue = "1") long portfolioId, @PathVariable String ticker) {
         try {
-            Double pct = xirrService.computeXirrForTicker(ticker);
+            Double pct = xirrService.computeXirrForTicker(portfolioId, ticker);
             Map<String, Object> result = new java.util.HashMap<>();
             result.put("ticker", ticker);
             result.put("xirrPercent", pct);
             return result;
         } catch (Exception e) {
-            System.err.println("Error computing XIRR for " + ticker + ": " + e.getMessage());
-            e.printStackTrace();
+            log.warn("Error computing XIRR for {}", ticker, e);
             return Map.of("ticker", ticker, "xirrPercent", null, "error", e.getMessage());
         }
     }
+
+    /**
+     * Volatility, covariance, one-day VaR and drawdown of the open positions over the configured
+     * window of daily closes.
+     */
+    @GetMapping("/risk")
+    public Map<String, Object> getRisk(@RequestParam(defaultValue = "1") long portfolioId,
+                                       @RequestParam(defaultValue = "0.95") double confidence) {
+        try {
+            return riskService.compute(portfolioId, confidence);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * Value, cost basis and unrealized P&L every {@code step} days between {@code from} and
+     * {@code to}.
+     */
+    @GetMapping("/history")
+    public Map<String, Object> getHistory(@RequestParam(defaultValue = "1") long portfolioId,
+                                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                          @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                          @RequestParam(defaultValue = "1") int step) {
+        try {
+            return portfolioHistoryService.history(portfolioId, from, to, step);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * Target weight per ticker, as a fraction of the portfolio's value.
+     */
+    @GetMapping("/allocation")
+    public Map<String, BigDecimal> getAllocation(@RequestParam(defaultValue = "1") long portfolioId) {
+        return rebalanceService.getTargetWeights(portfolioId);
+    }
+
+    @PutMapping("/allocation")
+    public Map<String, BigDecimal> setAllocation(@RequestParam(defaultValue = "1") long portfolioId,
+                                                 @RequestBody Map<String, BigDecimal> weights) {
+        try {
+            return rebalanceService.setTargetWeights(portfolioId, weights);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    /**
+     * The whole-share trades that bring the portfolio within {@code tolerance} of its target
+     * weights, investing {@code cash} on top. Nothing is executed; {@code orders} can be posted to
+     * {@code /api/assets/orders} as they are.
+     */
+    @GetMapping("/rebalance")
+    public Map<String, Object> getRebalancePlan(@RequestParam(defaultValue = "1") long portfolioId,
+                                                @RequestParam(required = false) Double tolerance,
+                                                @RequestParam(defaultValue = "0") double cash) {
+        try {
+            return rebalanceService.plan(portfolioId, tolerance, cash);
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage());
+        }
+    }
+
+    private static boolean matches(List<String> ifNoneMatch, String etag) {
+        for (String candidate : ifNoneMatch) {
+            String tag = candidate.startsWith("W/") ? candidate.substring(2) : candidate;
+            if (tag.equals(etag) || tag.equals("*")) {
+                return true;
+            }
+        }
+        return false;
+    }
 }
@@ -0,0 +1,92 @@
+package com.portfolio.backend.controller;
+
+import com.portfolio.backend.entity.Portfolio;
+import com.portfolio.backend.service.PortfolioRegistry;
+import com.portfolio.backend.service.PortfolioRing;
+import com.portfolio.backend.service.PortfolioService;
+import com.portfolio.backend.service.RebalanceService;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+
+/**
+ * The portfolios and the node each one is pinned to. Not routed: any node can answer, and the
+ * totals of the portfolios this node owns are computed in parallel.
+ */
+@RestController
+@RequestMapping("/api/portfolios")
+@CrossOrigin(origins = "*")
+public class PortfoliosController {
+
+    private final PortfolioRegistry registry;
+    private final PortfolioService portfolioService;
+    private final RebalanceService rebalanceService;
+
+    public PortfoliosController(PortfolioRegistry registry, PortfolioService portfolioService,
+                                RebalanceService rebalanceService) {
+        this.registry = registry;
+        this.portfolioService = portfolioService;
+        this.rebalanceService = rebalanceService;
+    }
+
+    @GetMapping
+    public Map<String, Object> getPortfolios() {
+        PortfolioRing ring = registry.ring();
+        List<Portfolio> all = registry.all();
+        List<Long> owned = new ArrayList<>();
+        for (Portfolio p : all) {
+            if (ring.owns(p.getId())) {
+                owned.add(p.getId());
+            }
+        }
+        Map<Long, Map<String, Object>> totals = registry.computeEach(owned, portfolioService::getTotals);
+
+        List<Map<String, Object>> rows = new ArrayList<>(all.size());
+        for (Portfolio p : all) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("id", p.getId());
+            row.put("name", p.getName());
+            row.put("owner", ring.ownerOf(p.getId()));
+            row.put("local", ring.owns(p.getId()));
+            row.put("totals", totals.get(p.getId()));
+            rows.add(row);
+        }
+        Map<String, Object> body = new LinkedHashMap<>();
+        body.put("node", ring.self());
+        body.put("nodes", ring.nodes());
+        body.put("portfolios", rows);
+        return body;
+    }
+
+    @PostMapping
+    public Map<String, Object> createPortfolio(@RequestBody Map<String, Object> body) {
+        Object name = body.get("name");
+        try {
+            Portfolio p = registry.create(name == null ? null : String.valueOf(name));
+            return Map.of("id", p.getId(), "name", p.getName(), "owner", registry.ring().ownerOf(p.getId()));
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(BAD_REQUEST, ex.getMessage());
+        }
+    }
+
+    /**
+     * Rebalance plans for the listed portfolios this node owns, or for all of them without a body,
+     * computed in parallel. Each plan carries its own timing; {@code details} adds its trades.
+     */
+    @PostMapping("/rebalance")
+    public Map<String, Object> rebalance(@RequestBody(required = false) List<Long> portfolioIds,
+                                         @RequestParam(required = false) Double tolerance,
+                                         @RequestParam(defaultValue = "false") boolean details) {
+        try {
+            return rebalanceService.planAll(portfolioIds, tolerance, details);
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(BAD_REQUEST, ex.getMessage());
+        }
+    }
+}
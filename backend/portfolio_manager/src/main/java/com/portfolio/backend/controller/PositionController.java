@@ -0,0 +1,35 @@
+package com.portfolio.backend.controller;
+
+import com.portfolio.backend.entity.Position;
+import com.portfolio.backend.service.PositionService;
+import org.springframework.web.bind.annotation.*;
+
+import java.util.List;
+import java.util.Map;
+
+@RestController
+@RequestMapping("/api/positions")
+@CrossOrigin(origins = "*")
+public class PositionController {
+
+    private final PositionService service;
+
+    public PositionController(PositionService service) {
+        this.service = service;
+    }
+
+    @GetMapping
+    public List<Position> getPositions(@RequestParam(defaultValue = "1") long portfolioId) {
+        return service.getAllPositions(portfolioId);
+    }
+
+    @PostMapping("/rebuild")
+    public Map<String, Object> rebuild(@RequestParam(defaultValue = "1") long portfolioId) {
+        return Map.of("positions", service.rebuild(List.of(portfolioId)));
+    }
+
+    @GetMapping("/check")
+    public Map<String, Object> check(@RequestParam(defaultValue = "1") long portfolioId) {
+        return service.checkConsistency(portfolioId);
+    }
+}
@@ -3,9 +3,12 @@ package com.portfolio.backend.controller;
 import com.portfolio.backend.entity.PriceTarget;
 import com.portfolio.backend.service.PriceTargetService;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
 
 import java.util.List;
 
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+
 @RestController
 @RequestMapping("/api/targets")
 // @CrossOrigin(origins = "http://localhost:3000")
@@ -19,12 +22,16 @@ public class PriceTargetController {
     }
 
     @GetMapping
-    public List<PriceTarget> getTargets() {
-        return service.getActiveTargets();
+    public List<PriceTarget> getTargets(@RequestParam(defaultValue = "1") long portfolioId) {
+        return service.getActiveTargets(portfolioId);
     }
 
     @PostMapping
-    public PriceTarget addTarget(@RequestBody PriceTarget target) {
-        return service.saveTarget(target);
+    public PriceTarget addTarget(@RequestParam(defaultValue = "1") long portfolioId, @RequestBody PriceTarget target) {
+        try {
+            return service.saveTarget(portfolioId, target);
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(BAD_REQUEST, ex.getMessage());
+        }
     }
 }
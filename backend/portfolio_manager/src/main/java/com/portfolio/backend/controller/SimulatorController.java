@@ -0,0 +1,66 @@
+package com.portfolio.backend.controller;
+
+import com.portfolio.backend.service.MarketSimulator;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.Map;
+
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.CONFLICT;
+
+/**
+ * Starts and stops the local {@link MarketSimulator}. Not routed: each node runs its own. Absent,
+ * like the simulator, unless {@code portfolio.simulator.enabled} is set.
+ */
+@RestController
+@ConditionalOnProperty(name = "portfolio.simulator.enabled", havingValue = "true")
+@RequestMapping("/api/simulator")
+@CrossOrigin(origins = "*")
+public class SimulatorController {
+
+    private final MarketSimulator simulator;
+
+    public SimulatorController(MarketSimulator simulator) {
+        this.simulator = simulator;
+    }
+
+    @GetMapping
+    public Map<String, Object> getStatus() {
+        return simulator.status();
+    }
+
+    /**
+     * Optional body: {@code tickers}, {@code ticksPerSecond} and {@code seed}; the configured
+     * defaults fill in the rest.
+     */
+    @PostMapping("/start")
+    public Map<String, Object> start(@RequestBody(required = false) Map<String, Object> body) {
+        Map<String, Object> params = body != null ? body : Map.of();
+        try {
+            Number tickers = number(params.get("tickers"));
+            Number rate = number(params.get("ticksPerSecond"));
+            Number seed = number(params.get("seed"));
+            return simulator.start(tickers == null ? null : tickers.intValue(),
+                    rate == null ? null : rate.doubleValue(),
+                    seed == null ? null : seed.longValue());
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(BAD_REQUEST, ex.getMessage());
+        } catch (IllegalStateException ex) {
+            throw new ResponseStatusException(CONFLICT, ex.getMessage());
+        }
+    }
+
+    @PostMapping("/stop")
+    public Map<String, Object> stop() {
+        return simulator.stop();
+    }
+
+    private static Number number(Object value) {
+        if (value == null || value instanceof Number) {
+            return (Number) value;
+        }
+        return Double.valueOf(String.valueOf(value));
+    }
+}
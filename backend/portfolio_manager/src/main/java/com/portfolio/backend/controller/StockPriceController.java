@@ -1,14 +1,32 @@
 package com.portfolio.backend.controller;
 
+import com.portfolio.backend.dto.OhlcBar;
+import com.portfolio.backend.dto.PricePage;
+import com.portfolio.backend.dto.PricePoint;
 import com.portfolio.backend.entity.StockPrice;
+import com.portfolio.backend.service.BulkPriceIngestService;
+import com.portfolio.backend.service.LatestPriceIndex;
+import com.portfolio.backend.service.PriceCompactionService;
+import com.portfolio.backend.service.PriceHistoryStreamer;
 import com.portfolio.backend.service.PriceService;
 import com.portfolio.backend.service.StockPriceService;
+import com.portfolio.backend.service.TickIngestService;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Map;
 
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+
 @RestController
 @RequestMapping("/api/prices")
 // @CrossOrigin(origins = "http://localhost:3000")
@@ -17,15 +35,102 @@ public class StockPriceController {
 
     private final StockPriceService historyService;
     private final PriceService priceService;
+    private final LatestPriceIndex latestPriceIndex;
+    private final BulkPriceIngestService bulkPriceIngestService;
+    private final PriceHistoryStreamer priceHistoryStreamer;
+    private final PriceCompactionService priceCompactionService;
+    private final TickIngestService tickIngestService;
 
-    public StockPriceController(StockPriceService historyService, PriceService priceService) {
+    public StockPriceController(StockPriceService historyService, PriceService priceService,
+                                LatestPriceIndex latestPriceIndex,
+                                BulkPriceIngestService bulkPriceIngestService,
+                                PriceHistoryStreamer priceHistoryStreamer,
+                                PriceCompactionService priceCompactionService,
+                                TickIngestService tickIngestService) {
         this.historyService = historyService;
         this.priceService = priceService;
+        this.latestPriceIndex = latestPriceIndex;
+        this.bulkPriceIngestService = bulkPriceIngestService;
+        this.priceHistoryStreamer = priceHistoryStreamer;
+        this.priceCompactionService = priceCompactionService;
+        this.tickIngestService = tickIngestService;
+    }
+
+    @GetMapping("/latest/{ticker}")
+    public StockPrice getLatestPrice(@PathVariable String ticker) {
+        return priceService.getLatestPriceForTicker(ticker);
+    }
+
+    @GetMapping("/latest/stats")
+    public Map<String, Object> getLatestPriceStats() {
+        return latestPriceIndex.getStats();
     }
 
+    /**
+     * Daily closes in date order, optionally restricted to [from, to] (ISO dates, both inclusive).
+     */
     @GetMapping("/{ticker}")
-    public List<StockPrice> getPriceHistory(@PathVariable String ticker) {
-        return historyService.getPriceHistory(ticker);
+    public List<PricePoint> getPriceHistory(@PathVariable String ticker,
+                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        checkRange(from, to);
+        return historyService.getPriceHistory(ticker, from, to);
+    }
+
+    /**
+     * Keyset pagination on price_date: pass the returned nextAfter back as after for the next page.
+     */
+    @GetMapping("/{ticker}/page")
+    public PricePage getPricePage(@PathVariable String ticker,
+                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                  @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate after,
+                                  @RequestParam(defaultValue = "500") int limit) {
+        checkRange(from, to);
+        try {
+            return historyService.getPricePage(ticker, from, to, after, limit);
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(BAD_REQUEST, ex.getMessage());
+        }
+    }
+
+    @GetMapping("/{ticker}/ohlc")
+    public List<OhlcBar> getOhlc(@PathVariable String ticker,
+                                 @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                 @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to,
+                                 @RequestParam(defaultValue = "100") int buckets) {
+        checkRange(from, to);
+        try {
+            return historyService.getOhlc(ticker, from, to, buckets);
+        } catch (IllegalArgumentException ex) {
+            throw new ResponseStatusException(BAD_REQUEST, ex.getMessage());
+        }
+    }
+
+    /**
+     * Same rows as {@link #getPriceHistory} but read through a database cursor and written to the
+     * response as they arrive, for histories too long to hold in memory.
+     */
+    @GetMapping("/{ticker}/stream")
+    public ResponseEntity<StreamingResponseBody> streamPriceHistory(@PathVariable String ticker,
+                                                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+                                                                    @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        checkRange(from, to);
+        StreamingResponseBody body = out -> priceHistoryStreamer.stream(ticker, from, to, out);
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(body);
+    }
+
+    @GetMapping("/store/stats")
+    public Map<String, Object> getStoreStats() {
+        return historyService.getStoreStats();
+    }
+
+    /**
+     * Runs the retention compaction now instead of waiting for the nightly schedule.
+     */
+    @PostMapping("/compact")
+    public Map<String, Object> compact() {
+        return priceCompactionService.compact();
     }
 
     @PostMapping
@@ -40,4 +145,58 @@ public class StockPriceController {
         }
         return priceService.createPrice(ticker, price);
     }
+
+    /**
+     * Streams a CSV (ticker,price_date,close_price) or NDJSON body straight from the request into
+     * batched upserts. NDJSON is selected by a JSON content type or format=ndjson.
+     */
+    @PostMapping("/bulk")
+    public Map<String, Object> addPricesBulk(HttpServletRequest request,
+                                             @RequestParam(required = false) String format,
+                                             @RequestParam(required = false) Integer batchSize) throws IOException {
+        String contentType = request.getContentType() == null ? "" : request.getContentType().toLowerCase();
+        BulkPriceIngestService.Format fmt = "ndjson".equalsIgnoreCase(format) || contentType.contains("json")
+                ? BulkPriceIngestService.Format.NDJSON
+                : BulkPriceIngestService.Format.CSV;
+        return bulkPriceIngestService.ingest(request.getInputStream(), fmt, batchSize);
+    }
+
+    /**
+     * Accepts intraday ticks as CSV (ticker,price[,time]) or NDJSON. They update the latest prices
+     * and alerts at once and reach {@code stock_price} as daily closes on the next flush.
+     */
+    @PostMapping("/ticks")
+    public Map<String, Object> addTicks(HttpServletRequest request,
+                                        @RequestParam(required = false) String format) throws IOException {
+        String contentType = request.getContentType() == null ? "" : request.getContentType().toLowerCase();
+        BulkPriceIngestService.Format fmt = "ndjson".equalsIgnoreCase(format) || contentType.contains("json")
+                ? BulkPriceIngestService.Format.NDJSON
+                : BulkPriceIngestService.Format.CSV;
+        return tickIngestService.ingest(request.getInputStream(), fmt);
+    }
+
+    @GetMapping("/ticks/stats")
+    public Map<String, Object> getTickStats() {
+        return tickIngestService.getStats();
+    }
+
+    /**
+     * Writes the pending intraday closes now instead of waiting for the next scheduled flush.
+     */
+    @PostMapping("/ticks/flush")
+    public Map<String, Object> flushTicks() {
+        return Map.of("rowsWritten", tickIngestService.flush());
+    }
+
+    @GetMapping("/{ticker}/intraday")
+    public Map<String, Object> getIntraday(@PathVariable String ticker,
+                                           @RequestParam(defaultValue = "100") int limit) {
+        return tickIngestService.intraday(ticker, limit);
+    }
+
+    private static void checkRange(LocalDate from, LocalDate to) {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new ResponseStatusException(BAD_REQUEST, "from must not be after to");
+        }
+    }
 }
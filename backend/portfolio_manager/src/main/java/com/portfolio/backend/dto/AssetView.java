@@ -0,0 +1,10 @@
+package com.portfolio.backend.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * One lot of the portfolio summary, valued at the latest close.
+ */
+public record AssetView(LotView asset, BigDecimal marketValue, BigDecimal cost, BigDecimal latestPrice,
+                        BigDecimal unrealizedGain, BigDecimal taxLiability, String taxType, long holdingDays) {
+}
@@ -0,0 +1,10 @@
+package com.portfolio.backend.dto;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * One intraday trade price.
+ */
+public record IntradayTick(Instant time, BigDecimal price) {
+}
@@ -0,0 +1,10 @@
+package com.portfolio.backend.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * The fields of one lot the summary exposes.
+ */
+public record LotView(Long id, String ticker, int quantity, BigDecimal buyPrice, LocalDate buyDate) {
+}
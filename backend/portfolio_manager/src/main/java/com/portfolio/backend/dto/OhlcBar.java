@@ -0,0 +1,12 @@
+package com.portfolio.backend.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Open, high, low and close of the daily closes falling in one bucket. {@code start} and
+ * {@code end} are the dates of the first and last close in the bucket.
+ */
+public record OhlcBar(LocalDate start, LocalDate end, BigDecimal open, BigDecimal high,
+                      BigDecimal low, BigDecimal close, int points) {
+}
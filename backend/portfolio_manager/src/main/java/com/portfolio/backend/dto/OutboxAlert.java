@@ -0,0 +1,12 @@
+package com.portfolio.backend.dto;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * One triggered alert on its way to one sink, as stored in {@code alert_outbox}. {@code attempts}
+ * counts the deliveries that failed so far.
+ */
+public record OutboxAlert(long id, long portfolioId, long targetId, String sink, String ticker, String action,
+                          BigDecimal targetPrice, BigDecimal price, Instant triggeredAt, int attempts) {
+}
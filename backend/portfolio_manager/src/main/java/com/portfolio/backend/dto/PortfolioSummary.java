@@ -0,0 +1,12 @@
+package com.portfolio.backend.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Response of {@code GET /api/portfolio}.
+ */
+public record PortfolioSummary(List<AssetView> assets, BigDecimal totalValue, BigDecimal totalCost,
+                               BigDecimal totalProfit, BigDecimal totalTaxLiability, BigDecimal shortTermTax,
+                               BigDecimal longTermTax, List<String> alerts) {
+}
@@ -0,0 +1,11 @@
+package com.portfolio.backend.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * One ticker's position valued at its latest close; price is null while the ticker has none.
+ */
+public record PositionValue(String ticker, long quantity, BigDecimal cost, BigDecimal price, LocalDate priceDate,
+                            BigDecimal marketValue, BigDecimal unrealizedGain) {
+}
@@ -0,0 +1,11 @@
+package com.portfolio.backend.dto;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * One page of price history in date order. {@code nextAfter} is the cursor for the next page (pass
+ * it back as {@code after}), or null on the last page.
+ */
+public record PricePage(String ticker, List<PricePoint> points, LocalDate nextAfter) {
+}
@@ -0,0 +1,10 @@
+package com.portfolio.backend.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * One daily close as returned by the price history endpoints.
+ */
+public record PricePoint(String ticker, LocalDate priceDate, BigDecimal closePrice) {
+}
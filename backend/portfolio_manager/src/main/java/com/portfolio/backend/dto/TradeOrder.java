@@ -0,0 +1,13 @@
+package com.portfolio.backend.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * One order of a batch. A BUY opens a lot at {@code price} on {@code buyDate} (today if absent);
+ * a SELL consumes lots FIFO at {@code price}, or at the latest close if absent.
+ */
+public record TradeOrder(Side side, String ticker, Integer quantity, BigDecimal price, LocalDate buyDate) {
+
+    public enum Side { BUY, SELL }
+}
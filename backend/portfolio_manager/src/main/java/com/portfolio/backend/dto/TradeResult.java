@@ -0,0 +1,10 @@
+package com.portfolio.backend.dto;
+
+/**
+ * Outcome of one order of a batch, in submission order. {@code error} is null for executed orders.
+ */
+public record TradeResult(int index, TradeOrder.Side side, String ticker, Integer quantity,
+                          Status status, String error) {
+
+    public enum Status { EXECUTED, REJECTED }
+}
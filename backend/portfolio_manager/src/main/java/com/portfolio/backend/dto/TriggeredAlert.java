@@ -0,0 +1,11 @@
+package com.portfolio.backend.dto;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+
+/**
+ * A target that fired, with the close that crossed it.
+ */
+public record TriggeredAlert(Long targetId, Long portfolioId, String ticker, String action, BigDecimal targetPrice,
+                             BigDecimal price, Instant triggeredAt, String message) {
+}
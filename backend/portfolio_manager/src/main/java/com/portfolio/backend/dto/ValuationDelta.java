@@ -0,0 +1,9 @@
+package com.portfolio.backend.dto;
+
+import java.math.BigDecimal;
+
+/**
+ * A position revalued at a new close, with the portfolio totals after it.
+ */
+public record ValuationDelta(long portfolioId, PositionValue position, BigDecimal totalValue, BigDecimal totalProfit) {
+}
@@ -0,0 +1,11 @@
+package com.portfolio.backend.dto;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * Every position of a portfolio at the latest closes; what a stream subscriber starts from.
+ */
+public record ValuationSnapshot(long portfolioId, BigDecimal totalValue, BigDecimal totalCost, BigDecimal totalProfit,
+                                List<PositionValue> positions) {
+}
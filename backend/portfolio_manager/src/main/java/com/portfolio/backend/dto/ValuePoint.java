@@ -0,0 +1,10 @@
+package com.portfolio.backend.dto;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * A portfolio's holdings on one day, valued at each ticker's latest close up to that day.
+ */
+public record ValuePoint(LocalDate date, BigDecimal value, BigDecimal costBasis, BigDecimal unrealizedPnl) {
+}
@@ -12,6 +12,8 @@ public class Asset {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    private Long portfolioId;
+
     private String ticker;
 
     private int quantity;
@@ -20,10 +22,21 @@ public class Asset {
 
     private LocalDate buyDate;
 
+    @Version
+    private long version;
+
     public Long getId() {
         return id;
     }
 
+    public Long getPortfolioId() {
+        return portfolioId;
+    }
+
+    public void setPortfolioId(Long portfolioId) {
+        this.portfolioId = portfolioId;
+    }
+
     public String getTicker() {
         return ticker;
     }
@@ -55,4 +68,8 @@ public class Asset {
     public void setBuyDate(LocalDate buyDate) {
         this.buyDate = buyDate;
     }
+
+    public long getVersion() {
+        return version;
+    }
 }
@@ -0,0 +1,33 @@
+package com.portfolio.backend.entity;
+
+import jakarta.persistence.*;
+
+/**
+ * One client book. Every lot, sale, position and price target belongs to exactly one portfolio.
+ */
+@Entity
+public class Portfolio {
+
+    /**
+     * The portfolio requests without a portfolioId refer to.
+     */
+    public static final long DEFAULT_ID = 1;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    private String name;
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public void setName(String name) {
+        this.name = name;
+    }
+}
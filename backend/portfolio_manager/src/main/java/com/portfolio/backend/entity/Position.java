@@ -0,0 +1,83 @@
+package com.portfolio.backend.entity;
+
+import jakarta.persistence.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Materialized per-ticker aggregate over one portfolio's {@link Asset} lots, maintained by
+ * AssetService on every lot write.
+ */
+@Entity
+@Table(name = "ticker_position")
+@IdClass(PositionId.class)
+public class Position {
+
+    @Id
+    private Long portfolioId;
+
+    @Id
+    private String ticker;
+
+    private long totalQuantity;
+
+    private BigDecimal totalCost;
+
+    private LocalDate earliestBuyDate;
+
+    private int lotCount;
+
+    public Position() {
+    }
+
+    public Position(Long portfolioId, String ticker) {
+        this.portfolioId = portfolioId;
+        this.ticker = ticker;
+        this.totalCost = BigDecimal.ZERO;
+    }
+
+    public Long getPortfolioId() {
+        return portfolioId;
+    }
+
+    public String getTicker() {
+        return ticker;
+    }
+
+    public void setTicker(String ticker) {
+        this.ticker = ticker;
+    }
+
+    public long getTotalQuantity() {
+        return totalQuantity;
+    }
+
+    public void setTotalQuantity(long totalQuantity) {
+        this.totalQuantity = totalQuantity;
+    }
+
+    public BigDecimal getTotalCost() {
+        return totalCost;
+    }
+
+    public void setTotalCost(BigDecimal totalCost) {
+        this.totalCost = totalCost;
+    }
+
+    public LocalDate getEarliestBuyDate() {
+        return earliestBuyDate;
+    }
+
+    public void setEarliestBuyDate(LocalDate earliestBuyDate) {
+        this.earliestBuyDate = earliestBuyDate;
+    }
+
+    public int getLotCount() {
+        return lotCount;
+    }
+
+    public void setLotCount(int lotCount) {
+        this.lotCount = lotCount;
+    }
+}
@@ -0,0 +1,41 @@
+package com.portfolio.backend.entity;
+
+import java.io.Serializable;
+import java.util.Objects;
+
+/**
+ * Key of a {@link Position}: one position per ticker within a portfolio.
+ */
+public class PositionId implements Serializable {
+
+    private Long portfolioId;
+    private String ticker;
+
+    public PositionId() {
+    }
+
+    public PositionId(Long portfolioId, String ticker) {
+        this.portfolioId = portfolioId;
+        this.ticker = ticker;
+    }
+
+    public Long getPortfolioId() {
+        return portfolioId;
+    }
+
+    public String getTicker() {
+        return ticker;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        return o instanceof PositionId other
+                && Objects.equals(portfolioId, other.portfolioId)
+                && Objects.equals(ticker, other.ticker);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(portfolioId, ticker);
+    }
+}
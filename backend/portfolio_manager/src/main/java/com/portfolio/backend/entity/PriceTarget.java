@@ -11,6 +11,8 @@ public class PriceTarget {
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    private Long portfolioId;
+
     private String ticker;
 
     private BigDecimal targetPrice;
@@ -23,6 +25,14 @@ public class PriceTarget {
         return id;
     }
 
+    public Long getPortfolioId() {
+        return portfolioId;
+    }
+
+    public void setPortfolioId(Long portfolioId) {
+        this.portfolioId = portfolioId;
+    }
+
     public String getTicker() {
         return ticker;
     }
@@ -0,0 +1,162 @@
+package com.portfolio.backend.repo;
+
+import com.portfolio.backend.dto.OutboxAlert;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowMapper;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Plain-JDBC access to {@code alert_outbox}. Inserts go out as one JDBC batch and join the
+ * caller's transaction; the dispatcher's claims and updates address rows by id in one statement
+ * per batch.
+ */
+@Repository
+public class AlertOutboxRepository {
+
+    private static final RowMapper<OutboxAlert> ROW_MAPPER = (rs, i) -> new OutboxAlert(rs.getLong(1), rs.getLong(2),
+            rs.getLong(3), rs.getString(4), rs.getString(5), rs.getString(6), rs.getBigDecimal(7),
+            rs.getBigDecimal(8), rs.getTimestamp(9).toInstant(), rs.getInt(10));
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate named;
+
+    public AlertOutboxRepository(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate named) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.named = named;
+    }
+
+    /**
+     * Inserts the rows as due now. Their ids and attempts are ignored.
+     */
+    public void insertAll(List<OutboxAlert> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate("""
+                INSERT INTO alert_outbox (portfolio_id, target_id, sink, ticker, action, target_price, price,
+                                          triggered_at, status, attempts, next_attempt_at)
+                VALUES (?, ?, ?, ?, ?, ?, ?, ?, 'PENDING', 0, ?)""", rows, rows.size(), (ps, row) -> {
+            Timestamp at = Timestamp.from(row.triggeredAt());
+            ps.setLong(1, row.portfolioId());
+            ps.setLong(2, row.targetId());
+            ps.setString(3, row.sink());
+            ps.setString(4, row.ticker());
+            ps.setString(5, row.action());
+            ps.setBigDecimal(6, row.targetPrice());
+            ps.setBigDecimal(7, row.price());
+            ps.setTimestamp(8, at);
+            ps.setTimestamp(9, at);
+        });
+    }
+
+    /**
+     * Up to {@code limit} pending rows of the given portfolios that are due at {@code now}, oldest
+     * first.
+     */
+    public List<OutboxAlert> findDue(Collection<Long> portfolioIds, Instant now, int limit) {
+        if (portfolioIds.isEmpty()) {
+            return List.of();
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("portfolios", portfolioIds)
+                .addValue("now", Timestamp.from(now))
+                .addValue("limit", limit);
+        return named.query("""
+                SELECT id, portfolio_id, target_id, sink, ticker, action, target_price, price, triggered_at, attempts
+                FROM alert_outbox
+                WHERE status = 'PENDING' AND next_attempt_at <= :now AND portfolio_id IN (:portfolios)
+                ORDER BY id
+                LIMIT :limit""", params, ROW_MAPPER);
+    }
+
+    /**
+     * Leases those of the given rows that are still pending and due at {@code now} until
+     * {@code until}, so they are not picked up again while they are being delivered, nor after a
+     * crash before the lease runs out. Returns the rows this call leased, oldest first: a row
+     * another dispatcher leased since it was read is no longer due and is left out.
+     */
+    public List<OutboxAlert> claim(Collection<Long> ids, Instant now, Instant until) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("ids", ids)
+                .addValue("now", Timestamp.from(now))
+                .addValue("until", Timestamp.from(until))
+                .addValue("token", UUID.randomUUID().toString());
+        int leased = named.update("""
+                UPDATE alert_outbox SET next_attempt_at = :until, lease_token = :token
+                WHERE id IN (:ids) AND status = 'PENDING' AND next_attempt_at <= :now""", params);
+        if (leased == 0) {
+            return List.of();
+        }
+        return named.query("""
+                SELECT id, portfolio_id, target_id, sink, ticker, action, target_price, price, triggered_at, attempts
+                FROM alert_outbox
+                WHERE id IN (:ids) AND lease_token = :token
+                ORDER BY id""", params, ROW_MAPPER);
+    }
+
+    public void markSent(Collection<Long> ids) {
+        update("UPDATE alert_outbox SET status = 'SENT', last_error = NULL WHERE id IN (:ids)", ids, null, null);
+    }
+
+    /**
+     * Counts a failed attempt and schedules the next one at {@code next}.
+     */
+    public void markRetry(Collection<Long> ids, Instant next, String error) {
+        update("""
+                UPDATE alert_outbox SET attempts = attempts + 1, next_attempt_at = :at, last_error = :error
+                WHERE id IN (:ids)""", ids, next, error);
+    }
+
+    /**
+     * Counts a failed attempt and gives up on the rows.
+     */
+    public void markDead(Collection<Long> ids, String error) {
+        update("""
+                UPDATE alert_outbox SET attempts = attempts + 1, status = 'DEAD', last_error = :error
+                WHERE id IN (:ids)""", ids, null, error);
+    }
+
+    /**
+     * Removes delivered rows triggered before {@code cutoff}. Returns the number of rows deleted.
+     */
+    public int deleteSentBefore(Instant cutoff) {
+        return jdbcTemplate.update("DELETE FROM alert_outbox WHERE status = 'SENT' AND triggered_at < ?",
+                Timestamp.from(cutoff));
+    }
+
+    /**
+     * Number of rows per sink and status.
+     */
+    public Map<String, Map<String, Long>> countBySinkAndStatus() {
+        Map<String, Map<String, Long>> counts = new LinkedHashMap<>();
+        jdbcTemplate.query("SELECT sink, status, COUNT(*) FROM alert_outbox GROUP BY sink, status ORDER BY sink, status",
+                rs -> {
+                    counts.computeIfAbsent(rs.getString(1), s -> new LinkedHashMap<>())
+                            .put(rs.getString(2), rs.getLong(3));
+                });
+        return counts;
+    }
+
+    private void update(String sql, Collection<Long> ids, Instant at, String error) {
+        if (ids.isEmpty()) {
+            return;
+        }
+        named.update(sql, new MapSqlParameterSource()
+                .addValue("ids", ids)
+                .addValue("at", at == null ? null : Timestamp.from(at))
+                .addValue("error", error));
+    }
+}
@@ -0,0 +1,45 @@
+package com.portfolio.backend.repo;
+
+import com.portfolio.backend.entity.Asset;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Plain-JDBC bulk delete for lots consumed by a sale. Each statement removes up to
+ * {@link #CHUNK} lots matched on (id, version), so a lot changed by another writer since it was
+ * read is left alone and shows up as a short row count.
+ */
+@Repository
+public class AssetBatchRepository {
+
+    static final int CHUNK = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public AssetBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * Deletes the given lots at the versions they were read with. Returns the number of rows deleted.
+     */
+    public int deleteLots(List<Asset> lots) {
+        int deleted = 0;
+        for (int from = 0; from < lots.size(); from += CHUNK) {
+            List<Asset> chunk = lots.subList(from, Math.min(lots.size(), from + CHUNK));
+            StringBuilder sql = new StringBuilder("DELETE FROM asset WHERE (id, version) IN (");
+            List<Object> args = new ArrayList<>(chunk.size() * 2);
+            for (int i = 0; i < chunk.size(); i++) {
+                sql.append(i == 0 ? "(?, ?)" : ", (?, ?)");
+                args.add(chunk.get(i).getId());
+                args.add(chunk.get(i).getVersion());
+            }
+            sql.append(')');
+            deleted += jdbcTemplate.update(sql.toString(), args.toArray());
+        }
+        return deleted;
+    }
+}
@@ -2,10 +2,37 @@ package com.portfolio.backend.repo;
 
 import com.portfolio.backend.entity.Asset;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 @Repository
 public interface AssetRepository extends JpaRepository<Asset, Long> {
-	List<Asset> findByTickerOrderByBuyDateAsc(String ticker);
+	List<Asset> findByPortfolioId(long portfolioId);
+
+	List<Asset> findByPortfolioIdIn(Collection<Long> portfolioIds);
+
+	List<Asset> findByPortfolioIdAndTickerOrderByBuyDateAsc(long portfolioId, String ticker);
+
+	/**
+	 * Per-position (portfolio id, ticker, total quantity, total cost, earliest buy date, lot count)
+	 * straight from the lots of the given portfolios.
+	 */
+	@Query("""
+	SELECT a.portfolioId, a.ticker, SUM(a.quantity), SUM(a.quantity * a.buyPrice), MIN(a.buyDate), COUNT(a)
+	FROM Asset a
+	WHERE a.portfolioId IN :portfolioIds
+	GROUP BY a.portfolioId, a.ticker
+""")
+	List<Object[]> aggregateForPortfolios(@Param("portfolioIds") Collection<Long> portfolioIds);
+
+	@Query("""
+	SELECT a.portfolioId, a.ticker, SUM(a.quantity), SUM(a.quantity * a.buyPrice), MIN(a.buyDate), COUNT(a)
+	FROM Asset a
+	WHERE a.portfolioId = :portfolioId AND a.ticker = :ticker
+	GROUP BY a.portfolioId, a.ticker
+""")
+	List<Object[]> aggregateForTicker(@Param("portfolioId") long portfolioId, @Param("ticker") String ticker);
 }
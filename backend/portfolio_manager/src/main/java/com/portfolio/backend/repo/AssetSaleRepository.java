@@ -0,0 +1,15 @@
+package com.portfolio.backend.repo;
+
+import com.portfolio.backend.entity.AssetSale;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface AssetSaleRepository extends JpaRepository<AssetSale, Long> {
+
+    List<AssetSale> findByPortfolioId(long portfolioId);
+
+    List<AssetSale> findByPortfolioIdAndTicker(long portfolioId, String ticker);
+}
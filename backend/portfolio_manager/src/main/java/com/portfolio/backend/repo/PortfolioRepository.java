@@ -0,0 +1,9 @@
+package com.portfolio.backend.repo;
+
+import com.portfolio.backend.entity.Portfolio;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface PortfolioRepository extends JpaRepository<Portfolio, Long> {
+}
@@ -0,0 +1,32 @@
+package com.portfolio.backend.repo;
+
+import com.portfolio.backend.entity.Position;
+import com.portfolio.backend.entity.PositionId;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface PositionRepository extends JpaRepository<Position, PositionId> {
+
+    List<Position> findByPortfolioId(long portfolioId);
+
+    List<Position> findByPortfolioIdIn(Collection<Long> portfolioIds);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM Position p WHERE p.portfolioId = :portfolioId AND p.ticker = :ticker")
+    Position findForUpdate(@Param("portfolioId") long portfolioId, @Param("ticker") String ticker);
+
+    @Modifying
+    @Transactional
+    @Query("DELETE FROM Position p WHERE p.portfolioId IN :portfolioIds")
+    int deleteByPortfolioIds(@Param("portfolioIds") Collection<Long> portfolioIds);
+}
@@ -0,0 +1,169 @@
+package com.portfolio.backend.repo;
+
+import com.portfolio.backend.dto.OhlcBar;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.stereotype.Repository;
+
+import java.sql.DatabaseMetaData;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Weekly and monthly OHLC rollups of compacted daily closes. Upserts merge into an existing bar
+ * (earliest open, latest close, widest range, summed points), so a period compacted in two passes,
+ * or backfilled later, still ends up with the right bar. MySQL merges with
+ * {@code ON DUPLICATE KEY UPDATE}, H2 with a standard {@code MERGE}.
+ */
+@Repository
+public class PriceRollupRepository {
+
+    public enum Tier {
+        WEEKLY("stock_price_weekly"),
+        MONTHLY("stock_price_monthly");
+
+        private final String table;
+
+        Tier(String table) {
+            this.table = table;
+        }
+    }
+
+    // open and close are assigned before first_date and last_date so they compare against the
+    // stored dates, not the merged ones
+    private static final String MYSQL_UPSERT = """
+            INSERT INTO %s (ticker, period_start, first_date, last_date,
+                            open_price, high_price, low_price, close_price, points)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE
+                open_price = CASE WHEN VALUES(first_date) < first_date THEN VALUES(open_price) ELSE open_price END,
+                close_price = CASE WHEN VALUES(last_date) > last_date THEN VALUES(close_price) ELSE close_price END,
+                high_price = GREATEST(high_price, VALUES(high_price)),
+                low_price = LEAST(low_price, VALUES(low_price)),
+                first_date = LEAST(first_date, VALUES(first_date)),
+                last_date = GREATEST(last_date, VALUES(last_date)),
+                points = points + VALUES(points)""";
+
+    // standard MERGE for H2 in any compatibility mode; SET reads the stored row on the right-hand side
+    private static final String H2_UPSERT = """
+            MERGE INTO %s t
+            USING (VALUES (CAST(? AS VARCHAR(10)), CAST(? AS DATE), CAST(? AS DATE), CAST(? AS DATE),
+                           CAST(? AS DECIMAL(10,2)), CAST(? AS DECIMAL(10,2)), CAST(? AS DECIMAL(10,2)),
+                           CAST(? AS DECIMAL(10,2)), CAST(? AS INT)))
+                AS s (ticker, period_start, first_date, last_date,
+                      open_price, high_price, low_price, close_price, points)
+            ON t.ticker = s.ticker AND t.period_start = s.period_start
+            WHEN MATCHED THEN UPDATE SET
+                open_price = CASE WHEN s.first_date < t.first_date THEN s.open_price ELSE t.open_price END,
+                close_price = CASE WHEN s.last_date > t.last_date THEN s.close_price ELSE t.close_price END,
+                high_price = GREATEST(t.high_price, s.high_price),
+                low_price = LEAST(t.low_price, s.low_price),
+                first_date = LEAST(t.first_date, s.first_date),
+                last_date = GREATEST(t.last_date, s.last_date),
+                points = t.points + s.points
+            WHEN NOT MATCHED THEN INSERT (ticker, period_start, first_date, last_date,
+                                          open_price, high_price, low_price, close_price, points)
+                VALUES (s.ticker, s.period_start, s.first_date, s.last_date,
+                        s.open_price, s.high_price, s.low_price, s.close_price, s.points)""";
+
+    private static final String FIND = """
+            SELECT first_date, last_date, open_price, high_price, low_price, close_price, points
+            FROM %s
+            WHERE ticker = ? AND period_start >= ? AND period_start <= ? AND last_date >= ?
+            ORDER BY period_start""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile String upsertSql;
+
+    public PriceRollupRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * @param bars bar per period start date
+     */
+    public void upsertAll(Tier tier, String ticker, Map<LocalDate, OhlcBar> bars) {
+        if (bars.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<LocalDate, OhlcBar>> rows = new ArrayList<>(bars.entrySet());
+        jdbcTemplate.batchUpdate(upsertSql().formatted(tier.table), rows, rows.size(), (ps, e) -> {
+            OhlcBar bar = e.getValue();
+            ps.setString(1, ticker);
+            ps.setDate(2, Date.valueOf(e.getKey()));
+            ps.setDate(3, Date.valueOf(bar.start()));
+            ps.setDate(4, Date.valueOf(bar.end()));
+            ps.setBigDecimal(5, bar.open());
+            ps.setBigDecimal(6, bar.high());
+            ps.setBigDecimal(7, bar.low());
+            ps.setBigDecimal(8, bar.close());
+            ps.setInt(9, bar.points());
+        });
+    }
+
+    /**
+     * Bars with at least one close in [from, to], in date order. Null bounds are open.
+     */
+    public List<OhlcBar> findBars(Tier tier, String ticker, LocalDate from, LocalDate to) {
+        LocalDate lo = from != null ? from : LocalDate.of(1, 1, 1);
+        LocalDate hi = to != null ? to : LocalDate.of(9999, 12, 31);
+        // a bar can start up to a month before the first close it holds
+        return jdbcTemplate.query(FIND.formatted(tier.table),
+                (rs, i) -> new OhlcBar(rs.getDate(1).toLocalDate(), rs.getDate(2).toLocalDate(),
+                        rs.getBigDecimal(3), rs.getBigDecimal(4), rs.getBigDecimal(5), rs.getBigDecimal(6),
+                        rs.getInt(7)),
+                ticker, Date.valueOf(lo.minusMonths(1)), Date.valueOf(hi), Date.valueOf(lo));
+    }
+
+    /**
+     * Rollup bars in [from, to]: weekly where they are kept (if wanted), monthly for anything
+     * older. A month that straddles the oldest weekly bar is left to the weekly bars.
+     */
+    public List<OhlcBar> findTieredBars(String ticker, LocalDate from, LocalDate to, boolean preferWeekly) {
+        List<OhlcBar> weekly = preferWeekly ? findBars(Tier.WEEKLY, ticker, from, to) : List.of();
+        LocalDate weeklyStart = weekly.isEmpty() ? null : weekly.get(0).start();
+        if (weeklyStart != null && from != null && !from.isBefore(weeklyStart)) {
+            return weekly;
+        }
+        List<OhlcBar> bars = new ArrayList<>();
+        for (OhlcBar bar : findBars(Tier.MONTHLY, ticker, from, weeklyStart == null ? to : weeklyStart.minusDays(1))) {
+            if (weeklyStart == null || bar.end().isBefore(weeklyStart)) {
+                bars.add(bar);
+            }
+        }
+        bars.addAll(weekly);
+        return bars;
+    }
+
+    /**
+     * Date of the last close rolled up for the ticker, or null if nothing was compacted.
+     */
+    public LocalDate findLastRolledUpDate(String ticker) {
+        List<Date> dates = jdbcTemplate.queryForList(
+                "SELECT MAX(last_date) FROM " + Tier.MONTHLY.table + " WHERE ticker = ?", Date.class, ticker);
+        return dates.isEmpty() || dates.get(0) == null ? null : dates.get(0).toLocalDate();
+    }
+
+    public int deleteBefore(Tier tier, LocalDate periodStart) {
+        return jdbcTemplate.update("DELETE FROM " + tier.table + " WHERE period_start < ?", Date.valueOf(periodStart));
+    }
+
+    private String upsertSql() {
+        String sql = upsertSql;
+        if (sql == null) {
+            String product;
+            try {
+                product = JdbcUtils.extractDatabaseMetaData(jdbcTemplate.getDataSource(),
+                        DatabaseMetaData::getDatabaseProductName);
+            } catch (Exception e) {
+                throw new IllegalStateException("Could not determine database product", e);
+            }
+            sql = product != null && product.toUpperCase().contains("H2") ? H2_UPSERT : MYSQL_UPSERT;
+            upsertSql = sql;
+        }
+        return sql;
+    }
+}
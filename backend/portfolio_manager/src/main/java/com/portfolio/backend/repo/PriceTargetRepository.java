@@ -4,9 +4,14 @@ import com.portfolio.backend.entity.PriceTarget;
 import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 @Repository
 public interface PriceTargetRepository extends JpaRepository<PriceTarget, Long> {
 
-    List<PriceTarget> findByTriggeredFalse();
+    List<PriceTarget> findByPortfolioId(long portfolioId);
+
+    List<PriceTarget> findByPortfolioIdAndTriggeredFalse(long portfolioId);
+
+    List<PriceTarget> findByTriggeredFalseAndPortfolioIdIn(Collection<Long> portfolioIds);
 }
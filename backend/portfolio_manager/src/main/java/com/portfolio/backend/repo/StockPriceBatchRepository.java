@@ -0,0 +1,70 @@
+package com.portfolio.backend.repo;
+
+import com.portfolio.backend.dto.PricePoint;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.stereotype.Repository;
+
+import java.sql.DatabaseMetaData;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * Plain-JDBC write path for bulk price loads and compaction. Rows go out as one JDBC batch per call and are
+ * upserted on (ticker, price_date); ids come from the column's AUTO_INCREMENT, which does not get
+ * in the way of statement batching the way Hibernate's IDENTITY generation does.
+ */
+@Repository
+public class StockPriceBatchRepository {
+
+    private static final String MYSQL_UPSERT = """
+            INSERT INTO stock_price (ticker, price_date, close_price) VALUES (?, ?, ?)
+            ON DUPLICATE KEY UPDATE close_price = VALUES(close_price)""";
+
+    private static final String H2_UPSERT = """
+            MERGE INTO stock_price (ticker, price_date, close_price) KEY (ticker, price_date)
+            VALUES (?, ?, ?)""";
+
+    private final JdbcTemplate jdbcTemplate;
+    private volatile String upsertSql;
+
+    public StockPriceBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void upsertAll(List<PricePoint> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        jdbcTemplate.batchUpdate(upsertSql(), rows, rows.size(), (ps, row) -> {
+            ps.setString(1, row.ticker());
+            ps.setDate(2, Date.valueOf(row.priceDate()));
+            ps.setBigDecimal(3, row.closePrice());
+        });
+    }
+
+    /**
+     * Removes a ticker's daily rows dated before {@code cutoff}. Returns the number of rows deleted.
+     */
+    public int deleteBefore(String ticker, LocalDate cutoff) {
+        return jdbcTemplate.update("DELETE FROM stock_price WHERE ticker = ? AND price_date < ?",
+                ticker, Date.valueOf(cutoff));
+    }
+
+    private String upsertSql() {
+        String sql = upsertSql;
+        if (sql == null) {
+            String product;
+            try {
+                product = JdbcUtils.extractDatabaseMetaData(jdbcTemplate.getDataSource(),
+                        DatabaseMetaData::getDatabaseProductName);
+            } catch (Exception e) {
+                throw new IllegalStateException("Could not determine database product", e);
+            }
+            sql = product != null && product.toUpperCase().contains("H2") ? H2_UPSERT : MYSQL_UPSERT;
+            upsertSql = sql;
+        }
+        return sql;
+    }
+}
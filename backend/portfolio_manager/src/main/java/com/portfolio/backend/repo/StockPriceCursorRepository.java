@@ -0,0 +1,58 @@
+package com.portfolio.backend.repo;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.support.JdbcUtils;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.DatabaseMetaData;
+import java.sql.Date;
+import java.time.LocalDate;
+
+/**
+ * Forward-only cursor reads of {@code stock_price} for streaming responses. Rows are handed to the
+ * callback as the driver fetches them and nothing is collected, so memory stays flat however long
+ * the history is.
+ */
+@Repository
+public class StockPriceCursorRepository {
+
+    private static final String RANGE_SQL = """
+            SELECT price_date, close_price FROM stock_price
+            WHERE ticker = ? AND price_date >= ? AND price_date <= ?
+            ORDER BY price_date""";
+
+    private static final int FETCH_SIZE = 1000;
+
+    private final DataSource dataSource;
+    private volatile JdbcTemplate cursorTemplate;
+
+    public StockPriceCursorRepository(DataSource dataSource) {
+        this.dataSource = dataSource;
+    }
+
+    public void forEachInRange(String ticker, LocalDate from, LocalDate to, RowCallbackHandler handler) {
+        cursorTemplate().query(RANGE_SQL, handler, ticker,
+                Date.valueOf(from != null ? from : LocalDate.of(1, 1, 1)),
+                Date.valueOf(to != null ? to : LocalDate.of(9999, 12, 31)));
+    }
+
+    private JdbcTemplate cursorTemplate() {
+        JdbcTemplate template = cursorTemplate;
+        if (template == null) {
+            String product;
+            try {
+                product = JdbcUtils.extractDatabaseMetaData(dataSource, DatabaseMetaData::getDatabaseProductName);
+            } catch (Exception e) {
+                throw new IllegalStateException("Could not determine database product", e);
+            }
+            template = new JdbcTemplate(dataSource);
+            // MySQL Connector/J only streams a result set row by row with this sentinel fetch size;
+            // any other value buffers the whole result on the client
+            template.setFetchSize(product != null && product.toUpperCase().contains("MYSQL") ? Integer.MIN_VALUE : FETCH_SIZE);
+            cursorTemplate = template;
+        }
+        return template;
+    }
+}
@@ -6,28 +6,66 @@ import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.util.Collection;
 import java.util.List;
 @Repository
 public interface StockPriceRepository extends JpaRepository<StockPrice, Long> {
 
     List<StockPrice> findByTickerOrderByPriceDate(String ticker);
+
+    StockPrice findByTickerAndPriceDate(String ticker, LocalDate priceDate);
     @Query("""
     SELECT sp FROM StockPrice sp
     WHERE sp.ticker = :ticker
-    ORDER BY sp.priceDate DESC
+    ORDER BY sp.priceDate DESC, sp.id DESC
     LIMIT 1
 """)
     StockPrice findLatestPrice(@Param("ticker") String ticker);
 
-    // Provide the method the rest of the app expects (findTopByTickerOrderByFetchedAtDesc)
-    // We implement it as a default method that uses the existing ordered list so we don't
-    // need to change the entity or the database schema.
+    /**
+     * Latest row (by price date, then id) for every ticker in one statement. Used to warm the
+     * in-memory latest-price index on startup.
+     */
+    @Query("""
+    SELECT sp FROM StockPrice sp
+    WHERE sp.id IN (
+        SELECT MAX(s2.id) FROM StockPrice s2
+        WHERE s2.priceDate = (SELECT MAX(s3.priceDate) FROM StockPrice s3 WHERE s3.ticker = s2.ticker)
+        GROUP BY s2.ticker
+    )
+""")
+    List<StockPrice> findLatestPerTicker();
+
+    /**
+     * Same as {@link #findLatestPerTicker()} restricted to the given tickers, so a batch of cache
+     * misses costs one round trip instead of one query per ticker.
+     */
+    @Query("""
+    SELECT sp FROM StockPrice sp
+    WHERE sp.id IN (
+        SELECT MAX(s2.id) FROM StockPrice s2
+        WHERE s2.ticker IN :tickers
+          AND s2.priceDate = (SELECT MAX(s3.priceDate) FROM StockPrice s3 WHERE s3.ticker = s2.ticker)
+        GROUP BY s2.ticker
+    )
+""")
+    List<StockPrice> findLatestForTickers(@Param("tickers") Collection<String> tickers);
+
+    /**
+     * (priceDate, closePrice) pairs for one ticker in date order, without hydrating entities.
+     */
+    @Query("""
+    SELECT sp.priceDate, sp.closePrice FROM StockPrice sp
+    WHERE sp.ticker = :ticker
+    ORDER BY sp.priceDate, sp.id
+""")
+    List<Object[]> findDateAndCloseByTicker(@Param("ticker") String ticker);
+
+    // Kept for callers that still use the old name; resolves to the single-row query instead of
+    // loading the whole history.
     default StockPrice findTopByTickerOrderByFetchedAtDesc(String ticker) {
-        List<StockPrice> list = findByTickerOrderByPriceDate(ticker);
-        if (list == null || list.isEmpty()) {
-            return null;
-        }
-        return list.get(list.size() - 1);
+        return findLatestPrice(ticker);
     }
 
 }
@@ -0,0 +1,75 @@
+package com.portfolio.backend.repo;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Plain-JDBC access to {@code target_allocation}. A portfolio's weights are always read and
+ * replaced as a whole; the batch planner loads those of many portfolios with one query.
+ */
+@Repository
+public class TargetAllocationRepository {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate named;
+
+    public TargetAllocationRepository(JdbcTemplate jdbcTemplate, NamedParameterJdbcTemplate named) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.named = named;
+    }
+
+    /**
+     * The portfolio's weights by ticker, in ticker order; empty if it has none.
+     */
+    public Map<String, BigDecimal> findByPortfolioId(long portfolioId) {
+        Map<String, BigDecimal> weights = new TreeMap<>();
+        jdbcTemplate.query("SELECT ticker, weight FROM target_allocation WHERE portfolio_id = ?",
+                rs -> {
+                    weights.put(rs.getString(1), rs.getBigDecimal(2));
+                }, portfolioId);
+        return weights;
+    }
+
+    /**
+     * The weights of the given portfolios. Portfolios without weights have no entry.
+     */
+    public Map<Long, Map<String, BigDecimal>> findByPortfolioIdIn(Collection<Long> portfolioIds) {
+        Map<Long, Map<String, BigDecimal>> weights = new HashMap<>();
+        if (portfolioIds.isEmpty()) {
+            return weights;
+        }
+        named.query("SELECT portfolio_id, ticker, weight FROM target_allocation WHERE portfolio_id IN (:portfolios)",
+                new MapSqlParameterSource("portfolios", portfolioIds), rs -> {
+                    weights.computeIfAbsent(rs.getLong(1), id -> new TreeMap<>())
+                            .put(rs.getString(2), rs.getBigDecimal(3));
+                });
+        return weights;
+    }
+
+    /**
+     * Replaces all weights of the portfolio. Meant to run in the caller's transaction.
+     */
+    public void replace(long portfolioId, Map<String, BigDecimal> weights) {
+        jdbcTemplate.update("DELETE FROM target_allocation WHERE portfolio_id = ?", portfolioId);
+        if (weights.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<String, BigDecimal>> rows = new ArrayList<>(weights.entrySet());
+        jdbcTemplate.batchUpdate("INSERT INTO target_allocation (portfolio_id, ticker, weight) VALUES (?, ?, ?)",
+                rows, rows.size(), (ps, row) -> {
+                    ps.setLong(1, portfolioId);
+                    ps.setString(2, row.getKey());
+                    ps.setBigDecimal(3, row.getValue());
+                });
+    }
+}
@@ -0,0 +1,176 @@
+package com.portfolio.backend.service;
+
+import com.portfolio.backend.entity.PriceTarget;
+import com.portfolio.backend.entity.StockPrice;
+import com.portfolio.backend.repo.PriceTargetRepository;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Event-driven evaluation of price targets. Untriggered targets live in one {@link TargetBook} per
+ * ticker; each new price only touches the book of its own ticker and only the targets it crosses.
+ * The books hold the targets of the portfolios this node owns and no others.
+ */
+@Component
+public class AlertEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(AlertEngine.class);
+
+    private final PriceTargetRepository priceTargetRepository;
+    private final LatestPriceIndex latestPriceIndex;
+    private final PortfolioRegistry portfolioRegistry;
+    private final AlertOutbox alertOutbox;
+    private final TransactionTemplate transactionTemplate;
+    private final ConcurrentHashMap<String, TargetBook> books = new ConcurrentHashMap<>();
+
+    private final LongAdder evaluations = new LongAdder();
+    private final LongAdder evaluationNanos = new LongAdder();
+    private final AtomicLong maxEvaluationNanos = new AtomicLong();
+    private final AtomicLong lastEvaluationNanos = new AtomicLong();
+    private final LongAdder targetsScanned = new LongAdder();
+    private final AtomicLong lastTargetsScanned = new AtomicLong();
+    private final LongAdder triggeredCount = new LongAdder();
+    private final LongAdder reconciliations = new LongAdder();
+
+    public AlertEngine(PriceTargetRepository priceTargetRepository, LatestPriceIndex latestPriceIndex,
+                       PortfolioRegistry portfolioRegistry, AlertOutbox alertOutbox,
+                       TransactionTemplate transactionTemplate) {
+        this.priceTargetRepository = priceTargetRepository;
+        this.latestPriceIndex = latestPriceIndex;
+        this.portfolioRegistry = portfolioRegistry;
+        this.alertOutbox = alertOutbox;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Adds, updates or (once triggered) removes a target. Checking it against the latest price is
+     * left to the {@link AlertPipeline}.
+     */
+    public void register(PriceTarget target) {
+        if (target == null || target.getTicker() == null || target.getId() == null) {
+            return;
+        }
+        TargetBook book = books.computeIfAbsent(target.getTicker(), TargetBook::new);
+        if (target.isTriggered()) {
+            book.remove(target.getId());
+        } else {
+            book.add(target);
+        }
+    }
+
+    public void unregister(PriceTarget target) {
+        TargetBook book = books.get(target.getTicker());
+        if (book != null && target.getId() != null) {
+            book.remove(target.getId());
+        }
+    }
+
+    /**
+     * Evaluates a newly recorded price for one ticker and persists the targets it crossed, together
+     * with their {@link AlertOutbox} rows. Delivery happens later, off this thread.
+     */
+    public List<PriceTarget> onPrice(String ticker, BigDecimal price) {
+        TargetBook book = books.get(ticker);
+        if (book == null || price == null) {
+            return List.of();
+        }
+        long start = System.nanoTime();
+        List<PriceTarget> crossed = book.takeCrossed(price);
+        record(System.nanoTime() - start, crossed.size());
+        if (crossed.isEmpty()) {
+            return crossed;
+        }
+        for (PriceTarget t : crossed) {
+            t.setTriggered(true);
+        }
+        Instant now = Instant.now();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                priceTargetRepository.saveAll(crossed);
+                alertOutbox.enqueue(crossed, price, now);
+            });
+        } catch (RuntimeException e) {
+            // nothing was persisted: put the targets back so the next price can trigger them again
+            TargetBook current = books.computeIfAbsent(ticker, TargetBook::new);
+            for (PriceTarget t : crossed) {
+                t.setTriggered(false);
+                current.add(t);
+            }
+            throw e;
+        }
+        triggeredCount.add(crossed.size());
+        for (PriceTarget t : crossed) {
+            log.info("ALERT TRIGGERED → {} | Action: {} | Price: {}", t.getTicker(), t.getAction(), price);
+        }
+        return crossed;
+    }
+
+    /**
+     * Rebuilds every book from the database and evaluates it against the latest prices. This is the
+     * safety net for targets written behind the engine's back or prices it never saw.
+     */
+    @Timed("portfolio.method")
+    public List<PriceTarget> reconcile() {
+        reconciliations.increment();
+        Map<String, TargetBook> rebuilt = new ConcurrentHashMap<>();
+        for (PriceTarget t : priceTargetRepository.findByTriggeredFalseAndPortfolioIdIn(portfolioRegistry.owned())) {
+            if (t.getTicker() != null) {
+                rebuilt.computeIfAbsent(t.getTicker(), TargetBook::new).add(t);
+            }
+        }
+        books.keySet().retainAll(rebuilt.keySet());
+        books.putAll(rebuilt);
+
+        Map<String, StockPrice> latest = latestPriceIndex.getAll(rebuilt.keySet());
+        List<PriceTarget> triggered = new ArrayList<>();
+        for (StockPrice sp : latest.values()) {
+            if (sp.getClosePrice() != null) {
+                triggered.addAll(onPrice(sp.getTicker(), sp.getClosePrice()));
+            }
+        }
+        return triggered;
+    }
+
+    public Map<String, Object> getStats() {
+        long n = evaluations.sum();
+        int targets = 0;
+        for (TargetBook book : books.values()) {
+            targets += book.size();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("books", books.size());
+        stats.put("activeTargets", targets);
+        stats.put("evaluations", n);
+        stats.put("avgEvaluationNanos", n == 0 ? 0 : evaluationNanos.sum() / n);
+        stats.put("lastEvaluationNanos", lastEvaluationNanos.get());
+        stats.put("maxEvaluationNanos", maxEvaluationNanos.get());
+        stats.put("targetsScanned", targetsScanned.sum());
+        stats.put("lastTargetsScanned", lastTargetsScanned.get());
+        stats.put("avgTargetsScannedPerTick", n == 0 ? 0.0 : (double) targetsScanned.sum() / n);
+        stats.put("triggered", triggeredCount.sum());
+        stats.put("reconciliations", reconciliations.sum());
+        return stats;
+    }
+
+    private void record(long nanos, int scanned) {
+        evaluations.increment();
+        evaluationNanos.add(nanos);
+        lastEvaluationNanos.set(nanos);
+        maxEvaluationNanos.accumulateAndGet(nanos, Math::max);
+        targetsScanned.add(scanned);
+        lastTargetsScanned.set(scanned);
+    }
+}
@@ -0,0 +1,347 @@
+package com.portfolio.backend.service;
+
+import com.portfolio.backend.dto.OutboxAlert;
+import com.portfolio.backend.entity.PriceTarget;
+import com.portfolio.backend.repo.AlertOutboxRepository;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Durable delivery of triggered alerts. {@link #enqueue} writes one {@code alert_outbox} row per
+ * enabled sink inside the transaction that marks the targets triggered, so an alert is stored if
+ * and only if its target flipped, and survives restarts. Triggering never waits on a sink: it only
+ * inserts the rows and wakes the dispatcher once the transaction commits.
+ *
+ * <p>The dispatcher thread takes due rows of the portfolios this node owns in batches, leases them
+ * by moving their next attempt past the time a delivery may take, in one update that only matches
+ * rows still due so two dispatchers never both take a row, and hands each sink's share to a
+ * pool of {@code portfolio.alerts.outbox.concurrency} threads, waiting for a free one rather than
+ * queueing. A failed batch is retried with exponential backoff and jitter, and given up on after
+ * {@code portfolio.alerts.outbox.max-attempts}. Delivery is at least once: a crash between a sink
+ * accepting a batch and the rows being marked sent delivers it again once the lease runs out.
+ */
+@Component
+public class AlertOutbox {
+
+    private static final Logger log = LoggerFactory.getLogger(AlertOutbox.class);
+    private static final int MAX_ERROR_LENGTH = 500;
+
+    private final AlertOutboxRepository repository;
+    private final PortfolioRegistry portfolioRegistry;
+    private final Map<String, AlertSink> sinks = new LinkedHashMap<>();
+    private final int batchSize;
+    private final int concurrency;
+    private final long pollMs;
+    private final int maxAttempts;
+    private final long backoffMs;
+    private final long maxBackoffMs;
+    private final long leaseMs;
+    private final Duration retention;
+    private final Semaphore permits;
+    private final ExecutorService pool;
+    private final Map<String, Counter[]> delivered = new LinkedHashMap<>();
+
+    private final Object signal = new Object();
+    private boolean wakeRequested;
+    private volatile boolean running;
+    private Thread dispatcher;
+    private long lastPurgeNanos = System.nanoTime();
+
+    public AlertOutbox(AlertOutboxRepository repository, PortfolioRegistry portfolioRegistry,
+                       List<AlertSink> available, MeterRegistry meterRegistry,
+                       @Value("${portfolio.alerts.sinks:queue}") String enabled,
+                       @Value("${portfolio.alerts.outbox.batch-size:100}") int batchSize,
+                       @Value("${portfolio.alerts.outbox.concurrency:4}") int concurrency,
+                       @Value("${portfolio.alerts.outbox.poll-ms:1000}") long pollMs,
+                       @Value("${portfolio.alerts.outbox.max-attempts:10}") int maxAttempts,
+                       @Value("${portfolio.alerts.outbox.backoff-ms:1000}") long backoffMs,
+                       @Value("${portfolio.alerts.outbox.max-backoff-ms:300000}") long maxBackoffMs,
+                       @Value("${portfolio.alerts.outbox.lease-ms:60000}") long leaseMs,
+                       @Value("${portfolio.alerts.outbox.retention-hours:168}") long retentionHours) {
+        this.repository = repository;
+        this.portfolioRegistry = portfolioRegistry;
+        Map<String, AlertSink> byName = new TreeMap<>();
+        for (AlertSink sink : available) {
+            byName.put(sink.name(), sink);
+        }
+        for (String name : enabled.split(",")) {
+            name = name.strip();
+            if (name.isEmpty()) {
+                continue;
+            }
+            AlertSink sink = byName.get(name);
+            if (sink == null) {
+                throw new IllegalArgumentException("Unknown alert sink '" + name + "'; known: " + byName.keySet());
+            }
+            sinks.put(name, sink);
+            Counter[] counters = new Counter[3];
+            String[] outcomes = {"sent", "retry", "dead"};
+            for (int i = 0; i < outcomes.length; i++) {
+                counters[i] = Counter.builder("portfolio.alerts.outbox.delivered")
+                        .description("Alerts handed to a sink, by outcome of the attempt")
+                        .tag("sink", name).tag("outcome", outcomes[i])
+                        .register(meterRegistry);
+            }
+            delivered.put(name, counters);
+        }
+        this.batchSize = Math.max(1, batchSize);
+        this.concurrency = Math.max(1, concurrency);
+        this.pollMs = Math.max(1, pollMs);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.backoffMs = Math.max(1, backoffMs);
+        this.maxBackoffMs = Math.max(this.backoffMs, maxBackoffMs);
+        this.leaseMs = Math.max(1, leaseMs);
+        this.retention = Duration.ofHours(retentionHours);
+        this.permits = new Semaphore(this.concurrency);
+        AtomicInteger threads = new AtomicInteger();
+        this.pool = Executors.newFixedThreadPool(this.concurrency, r -> {
+            Thread t = new Thread(r, "alert-outbox-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * Stores the crossed targets for delivery to every enabled sink, in the caller's transaction.
+     */
+    public void enqueue(List<PriceTarget> crossed, BigDecimal price, Instant triggeredAt) {
+        if (sinks.isEmpty() || crossed.isEmpty()) {
+            return;
+        }
+        BigDecimal close = price.setScale(PriceSeries.SCALE, RoundingMode.HALF_UP);
+        List<OutboxAlert> rows = new ArrayList<>(crossed.size() * sinks.size());
+        for (PriceTarget t : crossed) {
+            for (String sink : sinks.keySet()) {
+                rows.add(new OutboxAlert(0, t.getPortfolioId(), t.getId(), sink, t.getTicker(), t.getAction(),
+                        t.getTargetPrice(), close, triggeredAt, 0));
+            }
+        }
+        repository.insertAll(rows);
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    wake();
+                }
+            });
+        } else {
+            wake();
+        }
+    }
+
+    /**
+     * Starts the dispatcher; rows stored before, including by an earlier run, are picked up then.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public synchronized void start() {
+        if (dispatcher != null || sinks.isEmpty()) {
+            return;
+        }
+        running = true;
+        dispatcher = new Thread(this::dispatch, "alert-outbox");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+    }
+
+    /**
+     * Stops taking rows and gives running deliveries a few seconds. Rows still out are delivered
+     * again after the next start, once their lease runs out.
+     */
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        running = false;
+        wake();
+        pool.shutdown();
+        pool.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    public void wake() {
+        synchronized (signal) {
+            wakeRequested = true;
+            signal.notifyAll();
+        }
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("sinks", List.copyOf(sinks.keySet()));
+        stats.put("running", running);
+        stats.put("deliveriesInFlight", concurrency - permits.availablePermits());
+        Map<String, Map<String, Double>> attempts = new LinkedHashMap<>();
+        delivered.forEach((sink, c) -> attempts.put(sink,
+                Map.of("sent", c[0].count(), "retry", c[1].count(), "dead", c[2].count())));
+        stats.put("alertsSinceStart", attempts);
+        stats.put("rows", repository.countBySinkAndStatus());
+        return stats;
+    }
+
+    /**
+     * Delay before the attempt after {@code failures} failed ones: {@code base} doubling per
+     * failure up to {@code max}, of which a random part of up to half is taken off so that batches
+     * that failed together do not retry together.
+     */
+    static long backoffMillis(int failures, long base, long max, double random) {
+        long delay = max;
+        if (failures <= 62 && base <= max >> Math.min(62, failures - 1)) {
+            delay = base << (failures - 1);
+        }
+        return delay - (long) (delay / 2 * random);
+    }
+
+    private void dispatch() {
+        while (running) {
+            try {
+                int taken = dispatchDue();
+                purgeIfDue();
+                if (taken < batchSize) {
+                    awaitWork();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.warn("Alert outbox dispatch failed; retrying in {} ms", pollMs, e);
+                try {
+                    Thread.sleep(pollMs);
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Leases one batch of due rows and hands it out per sink. Returns the number of due rows found;
+     * only those still due when the lease is taken are delivered, the others went to another
+     * dispatcher in between.
+     */
+    int dispatchDue() throws InterruptedException {
+        Instant now = Instant.now();
+        List<OutboxAlert> due = repository.findDue(portfolioRegistry.owned(), now, batchSize);
+        if (due.isEmpty()) {
+            return 0;
+        }
+        List<OutboxAlert> claimed = repository.claim(ids(due), now, Instant.now().plusMillis(leaseMs));
+        Map<String, List<OutboxAlert>> bySink = new LinkedHashMap<>();
+        for (OutboxAlert a : claimed) {
+            bySink.computeIfAbsent(a.sink(), s -> new ArrayList<>()).add(a);
+        }
+        for (Map.Entry<String, List<OutboxAlert>> e : bySink.entrySet()) {
+            AlertSink sink = sinks.get(e.getKey());
+            List<OutboxAlert> alerts = e.getValue();
+            if (sink == null) {
+                repository.markDead(ids(alerts), "sink '" + e.getKey() + "' is not enabled");
+                continue;
+            }
+            permits.acquire();
+            try {
+                pool.execute(() -> deliver(sink, alerts));
+            } catch (RuntimeException rejected) {
+                permits.release();
+                throw rejected;
+            }
+        }
+        return due.size();
+    }
+
+    private void deliver(AlertSink sink, List<OutboxAlert> alerts) {
+        Counter[] counters = delivered.get(sink.name());
+        try {
+            try {
+                sink.deliver(alerts);
+            } catch (Exception e) {
+                if (e instanceof InterruptedException) {
+                    Thread.currentThread().interrupt();
+                }
+                failed(alerts, e, counters);
+                return;
+            }
+            repository.markSent(ids(alerts));
+            counters[0].increment(alerts.size());
+        } catch (RuntimeException e) {
+            log.warn("Updating {} outbox row(s) for sink {} failed; they are retried once leased out",
+                    alerts.size(), sink.name(), e);
+        } finally {
+            permits.release();
+        }
+    }
+
+    private void failed(List<OutboxAlert> alerts, Exception e, Counter[] counters) {
+        String error = e.getClass().getSimpleName() + (e.getMessage() == null ? "" : ": " + e.getMessage());
+        if (error.length() > MAX_ERROR_LENGTH) {
+            error = error.substring(0, MAX_ERROR_LENGTH);
+        }
+        // rows of one batch can have failed a different number of times before
+        Map<Integer, List<Long>> byAttempts = new TreeMap<>();
+        for (OutboxAlert a : alerts) {
+            byAttempts.computeIfAbsent(a.attempts() + 1, n -> new ArrayList<>()).add(a.id());
+        }
+        Instant now = Instant.now();
+        for (Map.Entry<Integer, List<Long>> g : byAttempts.entrySet()) {
+            if (g.getKey() >= maxAttempts) {
+                repository.markDead(g.getValue(), error);
+                counters[2].increment(g.getValue().size());
+                log.warn("Giving up on {} alert(s) for sink {} after {} attempts: {}",
+                        g.getValue().size(), alerts.get(0).sink(), g.getKey(), error);
+            } else {
+                long delay = backoffMillis(g.getKey(), backoffMs, maxBackoffMs, ThreadLocalRandom.current().nextDouble());
+                repository.markRetry(g.getValue(), now.plusMillis(delay), error);
+                counters[1].increment(g.getValue().size());
+            }
+        }
+    }
+
+    private void awaitWork() throws InterruptedException {
+        synchronized (signal) {
+            if (!wakeRequested) {
+                signal.wait(pollMs);
+            }
+            wakeRequested = false;
+        }
+    }
+
+    private void purgeIfDue() {
+        if (System.nanoTime() - lastPurgeNanos < TimeUnit.HOURS.toNanos(1)) {
+            return;
+        }
+        lastPurgeNanos = System.nanoTime();
+        int purged = repository.deleteSentBefore(Instant.now().minus(retention));
+        if (purged > 0) {
+            log.info("Purged {} delivered alert(s) from the outbox", purged);
+        }
+    }
+
+    private static List<Long> ids(List<OutboxAlert> alerts) {
+        List<Long> ids = new ArrayList<>(alerts.size());
+        for (OutboxAlert a : alerts) {
+            ids.add(a.id());
+        }
+        return ids;
+    }
+}
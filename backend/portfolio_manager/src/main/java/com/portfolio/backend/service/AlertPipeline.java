@@ -0,0 +1,133 @@
+package com.portfolio.backend.service;
+
+import com.portfolio.backend.dto.TriggeredAlert;
+import com.portfolio.backend.entity.PriceTarget;
+import com.portfolio.backend.entity.StockPrice;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * The one place targets get triggered. Price writers only {@link #submit} the ticker; a single
+ * worker thread evaluates it against the latest close, persists the crossed targets through the
+ * {@link AlertEngine} and publishes them to their portfolios' {@link RecentAlerts} and
+ * {@link ValuationStream}. Submissions for a ticker that is already queued coalesce, since the
+ * worker reads the latest close when it gets to it.
+ *
+ * <p>Nothing on a read path writes targets, and no two evaluations ever race on the same rows.
+ */
+@Component
+public class AlertPipeline {
+
+    private static final Logger log = LoggerFactory.getLogger(AlertPipeline.class);
+
+    private final AlertEngine alertEngine;
+    private final LatestPriceIndex latestPriceIndex;
+    private final RecentAlerts recentAlerts;
+    private final DataVersion dataVersion;
+    private final ValuationStream valuationStream;
+    private final Set<String> queued = ConcurrentHashMap.newKeySet();
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "alert-pipeline");
+        t.setDaemon(true);
+        return t;
+    });
+
+    public AlertPipeline(AlertEngine alertEngine, LatestPriceIndex latestPriceIndex,
+                         RecentAlerts recentAlerts, DataVersion dataVersion, ValuationStream valuationStream) {
+        this.alertEngine = alertEngine;
+        this.latestPriceIndex = latestPriceIndex;
+        this.recentAlerts = recentAlerts;
+        this.dataVersion = dataVersion;
+        this.valuationStream = valuationStream;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warm() {
+        reconcile();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdown();
+    }
+
+    /**
+     * Queues an evaluation of the ticker's targets against its latest close.
+     */
+    public void submit(String ticker) {
+        if (ticker != null && queued.add(ticker)) {
+            worker.execute(() -> evaluate(ticker));
+        }
+    }
+
+    /**
+     * Runs {@link AlertEngine#reconcile()} on the pipeline's thread, after anything already queued.
+     */
+    public CompletableFuture<List<PriceTarget>> reconcile() {
+        return CompletableFuture.supplyAsync(() -> {
+            List<PriceTarget> triggered = alertEngine.reconcile();
+            publish(triggered);
+            return triggered;
+        }, worker);
+    }
+
+    /**
+     * Waits until everything submitted before this call has been evaluated.
+     */
+    public void awaitIdle() {
+        CompletableFuture.runAsync(() -> { }, worker).join();
+    }
+
+    private void evaluate(String ticker) {
+        // dequeue first, so a price written during the evaluation queues another one
+        queued.remove(ticker);
+        StockPrice latest = latestPriceIndex.get(ticker);
+        if (latest == null || latest.getClosePrice() == null) {
+            return;
+        }
+        try {
+            publish(alertEngine.onPrice(ticker, latest.getClosePrice()));
+        } catch (RuntimeException e) {
+            log.warn("Evaluating targets for {} failed; the next reconciliation will retry", ticker, e);
+        }
+    }
+
+    private void publish(List<PriceTarget> triggered) {
+        if (triggered.isEmpty()) {
+            return;
+        }
+        Instant now = Instant.now();
+        Map<Long, List<TriggeredAlert>> byPortfolio = new HashMap<>();
+        for (PriceTarget t : triggered) {
+            StockPrice sp = latestPriceIndex.get(t.getTicker());
+            BigDecimal price = sp != null ? sp.getClosePrice() : null;
+            String msg = String.format("Target %s %s hit: current %s target %s",
+                    t.getTicker(), t.getAction(), price == null ? "?" : price.toPlainString(),
+                    t.getTargetPrice().toPlainString());
+            byPortfolio.computeIfAbsent(t.getPortfolioId(), id -> new ArrayList<>())
+                    .add(new TriggeredAlert(t.getId(), t.getPortfolioId(), t.getTicker(), t.getAction(),
+                            t.getTargetPrice(), price, now, msg));
+        }
+        byPortfolio.forEach((portfolioId, alerts) -> {
+            recentAlerts.addAll(portfolioId, alerts);
+            dataVersion.bump(portfolioId);
+            valuationStream.publishAlerts(portfolioId, alerts);
+        });
+    }
+}
@@ -1,69 +1,49 @@
 package com.portfolio.backend.service;
 
 import com.portfolio.backend.entity.PriceTarget;
-import com.portfolio.backend.entity.StockPrice;
-import com.portfolio.backend.repo.PriceTargetRepository;
-import com.portfolio.backend.repo.StockPriceRepository;
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.annotation.Lazy;
 import org.springframework.scheduling.annotation.Scheduled;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
+@Lazy(false)
 @Service
 public class AlertService {
 
-    private final PriceTargetRepository priceTargetRepository;
-    private final StockPriceRepository stockPriceRepository;
+    private static final Logger log = LoggerFactory.getLogger(AlertService.class);
 
-    public AlertService(PriceTargetRepository priceTargetRepository,
-                        StockPriceRepository stockPriceRepository) {
-        this.priceTargetRepository = priceTargetRepository;
-        this.stockPriceRepository = stockPriceRepository;
+    private final AlertPipeline alertPipeline;
+    private final AtomicLong lastCheckNanos = new AtomicLong();
+
+    public AlertService(AlertPipeline alertPipeline, MeterRegistry meterRegistry) {
+        this.alertPipeline = alertPipeline;
+        Gauge.builder("portfolio.alerts.check.last.duration", lastCheckNanos, n -> n.get() / 1e9)
+                .description("Duration of the most recent alert reconciliation sweep")
+                .baseUnit("seconds")
+                .register(meterRegistry);
     }
 
     /**
-     * Runs every 10 seconds and evaluates all untriggered alerts.
+     * Low-frequency reconciliation sweep. Targets are normally triggered by the {@link AlertPipeline}
+     * as prices arrive; this rebuilds the target books from the database and re-evaluates them on the
+     * pipeline's thread in case anything was missed.
      */
-    @Scheduled(fixedRate = 10000)
+    @Scheduled(fixedRateString = "${portfolio.alerts.reconcile-interval-ms:300000}",
+            initialDelayString = "${portfolio.alerts.reconcile-interval-ms:300000}")
+    @Timed("portfolio.method")
     public void checkAlerts() {
-
-        List<PriceTarget> targets =
-                priceTargetRepository.findByTriggeredFalse();
-
-        for (PriceTarget target : targets) {
-
-            StockPrice latestPrice =
-                    stockPriceRepository.findLatestPrice(target.getTicker());
-
-            if (latestPrice == null) {
-                continue; // no price data, skip safely
-            }
-
-            BigDecimal currentPrice = latestPrice.getClosePrice();
-            BigDecimal targetPrice = target.getTargetPrice();
-
-            boolean shouldTrigger = false;
-
-            if ("SELL".equalsIgnoreCase(target.getAction())) {
-                shouldTrigger = currentPrice.compareTo(targetPrice) >= 0;
-            }
-
-            if ("BUY".equalsIgnoreCase(target.getAction())) {
-                shouldTrigger = currentPrice.compareTo(targetPrice) <= 0;
-            }
-
-            if (shouldTrigger) {
-                target.setTriggered(true);
-                priceTargetRepository.save(target);
-
-                System.out.println(
-                        "ALERT TRIGGERED → "
-                                + target.getTicker()
-                                + " | Action: " + target.getAction()
-                                + " | Price: " + currentPrice
-                );
-            }
+        long start = System.nanoTime();
+        List<PriceTarget> triggered = alertPipeline.reconcile().join();
+        lastCheckNanos.set(System.nanoTime() - start);
+        if (!triggered.isEmpty()) {
+            log.info("Alert reconciliation triggered {} target(s)", triggered.size());
         }
     }
 }
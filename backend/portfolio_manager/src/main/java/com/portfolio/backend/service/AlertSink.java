@@ -0,0 +1,21 @@
+package com.portfolio.backend.service;
+
+import com.portfolio.backend.dto.OutboxAlert;
+
+import java.util.List;
+
+/**
+ * A destination for triggered alerts, fed in batches by the {@link AlertOutbox}. A batch either
+ * goes through or the call throws, in which case the whole batch is retried later; delivery is at
+ * least once, so a sink may see an alert again and can tell by its {@link OutboxAlert#id()}.
+ */
+public interface AlertSink {
+
+    /**
+     * The name under which {@code portfolio.alerts.sinks} enables the sink and the outbox rows
+     * address it.
+     */
+    String name();
+
+    void deliver(List<OutboxAlert> alerts) throws Exception;
+}
@@ -1,56 +1,440 @@
 package com.portfolio.backend.service;
 
+import com.portfolio.backend.dto.TradeOrder;
+import com.portfolio.backend.dto.TradeResult;
 import com.portfolio.backend.entity.Asset;
+import com.portfolio.backend.entity.AssetSale;
+import com.portfolio.backend.entity.StockPrice;
+import com.portfolio.backend.repo.AssetBatchRepository;
 import com.portfolio.backend.repo.AssetRepository;
+import com.portfolio.backend.repo.AssetSaleRepository;
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.orm.ObjectOptimisticLockingFailureException;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
 
+/**
+ * Lot writes. Every write to a position's lots runs in one transaction under that portfolio and
+ * ticker's {@link TickerLocks} stripe, so concurrent sells in this process never see the same
+ * lots. Other processes are caught by the version on {@link Asset}: a lot changed since it was
+ * read fails the write, the transaction rolls back and the sell is retried on fresh lots.
+ */
 @Service
 public class AssetService {
 
+    private static final Logger log = LoggerFactory.getLogger(AssetService.class);
+
+    static final int MAX_ATTEMPTS = 3;
+
     private final AssetRepository repository;
+    private final AssetBatchRepository batchRepository;
+    private final PositionService positionService;
+    private final AssetSaleRepository saleRepository;
+    private final PriceService priceService;
+    private final TransactionTemplate transactionTemplate;
+    private final TickerLocks tickerLocks;
+    private final TaxLotIndex taxLotIndex;
+    private final DataVersion dataVersion;
+    private final ExecutorService orderPool;
 
-    public AssetService(AssetRepository repository) {
+    public AssetService(AssetRepository repository, AssetBatchRepository batchRepository,
+                        PositionService positionService, AssetSaleRepository saleRepository,
+                        PriceService priceService, TransactionTemplate transactionTemplate,
+                        TickerLocks tickerLocks, TaxLotIndex taxLotIndex, DataVersion dataVersion,
+                        @Value("${portfolio.orders.parallelism:4}") int parallelism) {
         this.repository = repository;
+        this.batchRepository = batchRepository;
+        this.positionService = positionService;
+        this.saleRepository = saleRepository;
+        this.priceService = priceService;
+        this.transactionTemplate = transactionTemplate;
+        this.tickerLocks = tickerLocks;
+        this.taxLotIndex = taxLotIndex;
+        this.dataVersion = dataVersion;
+        AtomicInteger threads = new AtomicInteger();
+        this.orderPool = Executors.newFixedThreadPool(Math.max(1, parallelism), r -> {
+            Thread t = new Thread(r, "orders-" + threads.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
     }
 
-    public List<Asset> getAllAssets() {
-        return repository.findAll();
+    @PreDestroy
+    public void shutdown() {
+        orderPool.shutdown();
     }
 
-    public Asset addAsset(Asset asset) {
-        return repository.save(asset);
+    public List<Asset> getAllAssets(long portfolioId) {
+        return repository.findByPortfolioId(portfolioId);
     }
 
-    public void sellAsset(String ticker, int quantityToSell) {
-        if (quantityToSell <= 0) {
-            throw new IllegalArgumentException("Sell quantity must be greater than 0");
+    @Timed("portfolio.method")
+    public Asset addAsset(long portfolioId, Asset asset) {
+        requireTicker(asset.getTicker());
+        if (asset.getId() != null) {
+            throw new IllegalArgumentException("a new lot cannot carry an id");
         }
+        asset.setPortfolioId(portfolioId);
+        return tickerLocks.withLock(portfolioId, asset.getTicker(), () -> {
+            Asset saved = transactionTemplate.execute(status -> buy(asset));
+            taxLotIndex.onLotAdded(saved);
+            dataVersion.bump(portfolioId);
+            return saved;
+        });
+    }
 
-        List<Asset> lots = repository.findByTickerOrderByBuyDateAsc(ticker);
-        int remaining = quantityToSell;
+    public void sellAsset(long portfolioId, String ticker, int quantityToSell) {
+        sellAsset(portfolioId, ticker, quantityToSell, null);
+    }
+
+    /**
+     * Sells FIFO and records each consumed lot slice as an {@link AssetSale}. Without an explicit
+     * price the sale is booked at the latest known close. Either the whole quantity is sold or
+     * nothing changes.
+     */
+    @Timed("portfolio.method")
+    public void sellAsset(long portfolioId, String ticker, int quantityToSell, BigDecimal salePrice) {
+        requireTicker(ticker);
+        BigDecimal price = salePrice(ticker, quantityToSell, salePrice);
+        tickerLocks.withLock(portfolioId, ticker, () -> {
+            for (int attempt = 1; ; attempt++) {
+                try {
+                    Sold sold = transactionTemplate.execute(
+                            status -> sell(portfolioId, ticker, quantityToSell, price));
+                    taxLotIndex.onLotsSold(sold.closed(), sold.partial());
+                    dataVersion.bump(portfolioId);
+                    return null;
+                } catch (OptimisticLockingFailureException e) {
+                    if (attempt >= MAX_ATTEMPTS) {
+                        throw e;
+                    }
+                    log.debug("Lots of {} changed concurrently, retrying sell (attempt {})", ticker, attempt + 1);
+                }
+            }
+        });
+    }
+
+    /**
+     * Executes a batch of orders for one portfolio. Orders are grouped by ticker; each group runs in
+     * submission order in one transaction under the position's lock and is applied all-or-nothing,
+     * while different tickers run in parallel. A group whose lots change concurrently is retried like
+     * {@link #sellAsset}; any other failure rejects that group alone. Results come back in submission
+     * order, so the caller always learns which orders executed.
+     */
+    @Timed("portfolio.method")
+    public List<TradeResult> executeOrders(long portfolioId, List<TradeOrder> orders) {
+        TradeResult[] results = new TradeResult[orders.size()];
+        Map<String, List<Integer>> byTicker = new LinkedHashMap<>();
+        Set<String> invalidTickers = new HashSet<>();
+        for (int i = 0; i < orders.size(); i++) {
+            TradeOrder o = orders.get(i);
+            String invalid = validate(o);
+            if (invalid == null) {
+                byTicker.computeIfAbsent(o.ticker(), t -> new ArrayList<>()).add(i);
+            } else {
+                results[i] = rejected(i, o, invalid);
+                if (o != null && o.ticker() != null) {
+                    invalidTickers.add(o.ticker());
+                }
+            }
+        }
+        // a group with an invalid order is rejected as a whole
+        for (String ticker : invalidTickers) {
+            List<Integer> group = byTicker.remove(ticker);
+            if (group != null) {
+                for (int i : group) {
+                    results[i] = rejected(i, orders.get(i), "another order for " + ticker + " in this batch is invalid");
+                }
+            }
+        }
+
+        if (byTicker.size() <= 1) {
+            byTicker.forEach((ticker, group) -> runGroup(portfolioId, ticker, group, orders, results));
+            return Arrays.asList(results);
+        }
+        List<Future<?>> running = new ArrayList<>(byTicker.size());
+        for (Map.Entry<String, List<Integer>> e : byTicker.entrySet()) {
+            running.add(orderPool.submit(() -> runGroup(portfolioId, e.getKey(), e.getValue(), orders, results)));
+        }
+        for (Future<?> f : running) {
+            try {
+                f.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while executing orders", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Order execution failed", e.getCause());
+            }
+        }
+        return Arrays.asList(results);
+    }
+
+    /**
+     * Deletes one lot of the portfolio. Ids of other portfolios' lots are ignored like unknown ids.
+     */
+    @Timed("portfolio.method")
+    public void deleteAsset(long portfolioId, Long id) {
+        Asset found = repository.findById(id).orElse(null);
+        if (found == null || found.getPortfolioId() != portfolioId) {
+            return;
+        }
+        tickerLocks.withLock(portfolioId, found.getTicker(), () -> {
+            Asset deleted = transactionTemplate.execute(status -> {
+                Asset lot = repository.findById(id).orElse(null);
+                if (lot != null && lot.getPortfolioId() == portfolioId) {
+                    repository.delete(lot);
+                    positionService.onLotRemoved(lot);
+                }
+                return lot;
+            });
+            if (deleted != null) {
+                taxLotIndex.onLotRemoved(deleted);
+                dataVersion.bump(portfolioId);
+            }
+            return null;
+        });
+    }
+
+    private Asset buy(Asset asset) {
+        Asset saved = repository.save(asset);
+        positionService.onLotAdded(saved);
+        return saved;
+    }
 
-        for (Asset lot : lots) {
-            if (remaining <= 0) break;
+    /**
+     * Walks the lots in memory, then writes once: one bulk delete for the lots consumed completely
+     * and at most one update for the lot consumed in part. Throws before writing anything if the
+     * ticker does not hold enough shares.
+     */
+    private Sold sell(long portfolioId, String ticker, int quantityToSell, BigDecimal salePrice) {
+        LocalDate saleDate = LocalDate.now();
+        List<AssetSale> sales = new ArrayList<>();
+        List<Asset> closed = new ArrayList<>();
+        Asset partial = null;
+        int partialQuantity = 0;
+        int remaining = quantityToSell;
+        BigDecimal soldCost = BigDecimal.ZERO;
+        LocalDate remainingEarliest = null;
 
+        for (Asset lot : repository.findByPortfolioIdAndTickerOrderByBuyDateAsc(portfolioId, ticker)) {
+            if (remaining == 0) {
+                remainingEarliest = lot.getBuyDate();
+                break;
+            }
             int lotQty = lot.getQuantity();
             if (lotQty <= remaining) {
                 remaining -= lotQty;
-                repository.deleteById(lot.getId());
+                soldCost = soldCost.add(PositionService.costOf(lot, lotQty));
+                sales.add(sale(lot, lotQty, salePrice, saleDate));
+                closed.add(lot);
             } else {
-                lot.setQuantity(lotQty - remaining);
-                repository.save(lot);
+                soldCost = soldCost.add(PositionService.costOf(lot, remaining));
+                sales.add(sale(lot, remaining, salePrice, saleDate));
+                partial = lot;
+                partialQuantity = lotQty - remaining;
                 remaining = 0;
+                remainingEarliest = lot.getBuyDate();
             }
         }
-
         if (remaining > 0) {
             throw new IllegalArgumentException("Not enough shares to sell");
         }
+
+        if (!closed.isEmpty() && batchRepository.deleteLots(closed) != closed.size()) {
+            throw new ObjectOptimisticLockingFailureException(Asset.class, ticker);
+        }
+        if (partial != null) {
+            // flushed as one versioned UPDATE at commit
+            partial.setQuantity(partialQuantity);
+            repository.save(partial);
+        }
+        saleRepository.saveAll(sales);
+        positionService.onLotsSold(portfolioId, ticker, quantityToSell, soldCost, closed.size(), remainingEarliest);
+        return new Sold(closed, partial);
+    }
+
+    private void runGroup(long portfolioId, String ticker, List<Integer> indexes, List<TradeOrder> orders,
+                          TradeResult[] results) {
+        BigDecimal[] prices = new BigDecimal[indexes.size()];
+        // the order being applied when the group failed; -1 once all were applied and the commit failed
+        int[] failedAt = {-1};
+        try {
+            for (int k = 0; k < indexes.size(); k++) {
+                failedAt[0] = k;
+                TradeOrder o = orders.get(indexes.get(k));
+                prices[k] = o.side() == TradeOrder.Side.SELL ? salePrice(ticker, o.quantity(), o.price()) : o.price();
+            }
+            tickerLocks.withLock(portfolioId, ticker, () -> {
+                for (int attempt = 1; ; attempt++) {
+                    try {
+                        applyGroup(portfolioId, ticker, indexes, orders, prices, failedAt);
+                        return null;
+                    } catch (OptimisticLockingFailureException e) {
+                        if (attempt >= MAX_ATTEMPTS) {
+                            throw e;
+                        }
+                        log.debug("Lots of {} changed concurrently, retrying orders (attempt {})", ticker, attempt + 1);
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            String error = describe(e, ticker);
+            if (!(e instanceof IllegalArgumentException || e instanceof OptimisticLockingFailureException)) {
+                log.warn("Orders for {} in portfolio {} failed", ticker, portfolioId, e);
+            }
+            int failedIndex = failedAt[0] < 0 ? -1 : indexes.get(failedAt[0]);
+            for (int i : indexes) {
+                String reason;
+                if (failedIndex < 0) {
+                    reason = "rolled back at commit: " + error;
+                } else {
+                    reason = i == failedIndex ? error : "rolled back: order " + failedIndex + " failed";
+                }
+                results[i] = rejected(i, orders.get(i), reason);
+            }
+            return;
+        }
+        for (int i : indexes) {
+            TradeOrder o = orders.get(i);
+            results[i] = new TradeResult(i, o.side(), ticker, o.quantity(), TradeResult.Status.EXECUTED, null);
+        }
+    }
+
+    /**
+     * One attempt at a group: every order in one transaction, then the index updates once it has
+     * committed, so a rolled back group leaves no trace.
+     */
+    private void applyGroup(long portfolioId, String ticker, List<Integer> indexes, List<TradeOrder> orders,
+                            BigDecimal[] prices, int[] failedAt) {
+        List<Runnable> afterCommit = new ArrayList<>();
+        transactionTemplate.executeWithoutResult(status -> {
+            for (int k = 0; k < indexes.size(); k++) {
+                failedAt[0] = k;
+                TradeOrder o = orders.get(indexes.get(k));
+                if (o.side() == TradeOrder.Side.BUY) {
+                    Asset lot = new Asset();
+                    lot.setPortfolioId(portfolioId);
+                    lot.setTicker(ticker);
+                    lot.setQuantity(o.quantity());
+                    lot.setBuyPrice(o.price());
+                    lot.setBuyDate(o.buyDate() != null ? o.buyDate() : LocalDate.now());
+                    Asset saved = buy(lot);
+                    afterCommit.add(() -> taxLotIndex.onLotAdded(saved));
+                } else {
+                    Sold sold = sell(portfolioId, ticker, o.quantity(), prices[k]);
+                    afterCommit.add(() -> taxLotIndex.onLotsSold(sold.closed(), sold.partial()));
+                }
+            }
+            failedAt[0] = -1;
+        });
+        dataVersion.bump(portfolioId);
+        try {
+            afterCommit.forEach(Runnable::run);
+        } catch (RuntimeException e) {
+            // the orders are committed; only the in-memory index is behind
+            log.warn("Updating the tax lot index after orders for {} failed", ticker, e);
+        }
+    }
+
+    private static String describe(RuntimeException e, String ticker) {
+        if (e instanceof IllegalArgumentException) {
+            return e.getMessage();
+        }
+        if (e instanceof OptimisticLockingFailureException) {
+            return "lots of " + ticker + " changed concurrently, try again";
+        }
+        if (e instanceof DataIntegrityViolationException d) {
+            return "rejected by the database: " + d.getMostSpecificCause().getMessage();
+        }
+        return e.getClass().getSimpleName() + ": " + e.getMessage();
+    }
+
+    private BigDecimal salePrice(String ticker, int quantityToSell, BigDecimal salePrice) {
+        if (quantityToSell <= 0) {
+            throw new IllegalArgumentException("Sell quantity must be greater than 0");
+        }
+        if (salePrice == null) {
+            // a sale without a price would drop out of XIRR's cash flows
+            StockPrice latest = priceService.getLatestPriceForTicker(ticker);
+            if (latest == null || latest.getClosePrice() == null) {
+                throw new IllegalArgumentException("No price known for " + ticker + "; give a sale price");
+            }
+            return latest.getClosePrice();
+        }
+        if (salePrice.signum() <= 0) {
+            throw new IllegalArgumentException("Sale price must be greater than 0");
+        }
+        return salePrice;
+    }
+
+    private static String validate(TradeOrder o) {
+        if (o == null || o.side() == null) {
+            return "side must be BUY or SELL";
+        }
+        if (o.ticker() == null || o.ticker().isBlank()) {
+            return "ticker is required";
+        }
+        if (o.quantity() == null || o.quantity() <= 0) {
+            return "quantity must be greater than 0";
+        }
+        if (o.price() != null && o.price().signum() <= 0) {
+            return "price must be greater than 0";
+        }
+        if (o.side() == TradeOrder.Side.BUY && o.price() == null) {
+            return "price is required for a buy";
+        }
+        return null;
+    }
+
+    private static TradeResult rejected(int index, TradeOrder o, String error) {
+        return o == null
+                ? new TradeResult(index, null, null, null, TradeResult.Status.REJECTED, error)
+                : new TradeResult(index, o.side(), o.ticker(), o.quantity(), TradeResult.Status.REJECTED, error);
+    }
+
+    private static void requireTicker(String ticker) {
+        if (ticker == null || ticker.isBlank()) {
+            throw new IllegalArgumentException("ticker is required");
+        }
+    }
+
+    /**
+     * Lots a sell consumed completely, and the lot it consumed in part (already holding its new
+     * quantity) or null.
+     */
+    private record Sold(List<Asset> closed, Asset partial) {
     }
 
-    public void deleteAsset(Long id) {
-        repository.deleteById(id);
+    private static AssetSale sale(Asset lot, int quantity, BigDecimal salePrice, LocalDate saleDate) {
+        AssetSale s = new AssetSale();
+        s.setPortfolioId(lot.getPortfolioId());
+        s.setTicker(lot.getTicker());
+        s.setQuantity(quantity);
+        s.setBuyPrice(lot.getBuyPrice());
+        s.setBuyDate(lot.getBuyDate());
+        s.setSalePrice(salePrice);
+        s.setSaleDate(saleDate);
+        return s;
     }
 }
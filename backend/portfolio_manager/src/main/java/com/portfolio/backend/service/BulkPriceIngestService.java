@@ -0,0 +1,160 @@
+package com.portfolio.backend.service;
+
+import com.portfolio.backend.dto.PricePoint;
+import com.portfolio.backend.entity.Stock;
+import com.portfolio.backend.repo.StockPriceBatchRepository;
+import com.portfolio.backend.repo.StockRepository;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Streams closes from a CSV or NDJSON body into {@code stock_price}. Lines are parsed one at a time
+ * and written in fixed-size JDBC batches, each in its own transaction, so memory use is bounded by
+ * the batch size rather than the body size.
+ */
+@Service
+public class BulkPriceIngestService {
+
+    public enum Format { CSV, NDJSON }
+
+    private static final int MAX_REPORTED_REJECTIONS = 100;
+
+    private final StockPriceBatchRepository batchRepository;
+    private final StockRepository stockRepository;
+    private final PriceService priceService;
+    private final TransactionTemplate transactionTemplate;
+    private final ObjectMapper objectMapper;
+    private final int defaultBatchSize;
+
+    public BulkPriceIngestService(StockPriceBatchRepository batchRepository,
+                                  StockRepository stockRepository,
+                                  PriceService priceService,
+                                  TransactionTemplate transactionTemplate,
+                                  ObjectMapper objectMapper,
+                                  @Value("${portfolio.prices.bulk.batch-size:1000}") int defaultBatchSize) {
+        this.batchRepository = batchRepository;
+        this.stockRepository = stockRepository;
+        this.priceService = priceService;
+        this.transactionTemplate = transactionTemplate;
+        this.objectMapper = objectMapper;
+        this.defaultBatchSize = defaultBatchSize;
+    }
+
+    @Timed("portfolio.method")
+    public Map<String, Object> ingest(InputStream body, Format format, Integer batchSize) throws IOException {
+        int size = batchSize != null && batchSize > 0 ? batchSize : defaultBatchSize;
+        Set<String> knownTickers = new HashSet<>();
+        for (Stock s : stockRepository.findAll()) {
+            knownTickers.add(s.getTicker());
+        }
+
+        long start = System.nanoTime();
+        long lineNo = 0;
+        long accepted = 0;
+        long rejected = 0;
+        int batches = 0;
+        List<Map<String, Object>> rejections = new ArrayList<>();
+        List<PricePoint> batch = new ArrayList<>(size);
+
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNo++;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || (format == Format.CSV && lineNo == 1 && trimmed.toLowerCase().startsWith("ticker"))) {
+                continue;
+            }
+            PricePoint row;
+            try {
+                row = format == Format.CSV ? parseCsv(trimmed) : parseJson(trimmed);
+                if (!knownTickers.contains(row.ticker())) {
+                    throw new IllegalArgumentException("unknown ticker " + row.ticker());
+                }
+            } catch (RuntimeException e) {
+                rejected++;
+                if (rejections.size() < MAX_REPORTED_REJECTIONS) {
+                    rejections.add(Map.of("line", lineNo, "reason", String.valueOf(e.getMessage())));
+                }
+                continue;
+            }
+            batch.add(row);
+            if (batch.size() >= size) {
+                flush(batch);
+                accepted += batch.size();
+                batches++;
+                batch = new ArrayList<>(size);
+            }
+        }
+        if (!batch.isEmpty()) {
+            flush(batch);
+            accepted += batch.size();
+            batches++;
+        }
+
+        long elapsedNanos = System.nanoTime() - start;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("rowsAccepted", accepted);
+        result.put("rowsRejected", rejected);
+        result.put("batches", batches);
+        result.put("batchSize", size);
+        result.put("elapsedMs", elapsedNanos / 1_000_000);
+        result.put("rowsPerSecond", elapsedNanos == 0 ? 0.0 : accepted * 1_000_000_000.0 / elapsedNanos);
+        result.put("rejectedLines", rejections);
+        return result;
+    }
+
+    private void flush(List<PricePoint> batch) {
+        transactionTemplate.executeWithoutResult(status -> batchRepository.upsertAll(batch));
+        priceService.onPricesWritten(batch);
+    }
+
+    // ticker,price_date,close_price
+    private static PricePoint parseCsv(String line) {
+        String[] cols = line.split(",");
+        if (cols.length != 3) {
+            throw new IllegalArgumentException("expected 3 columns: ticker,price_date,close_price");
+        }
+        return row(cols[0].trim(), LocalDate.parse(cols[1].trim()), new BigDecimal(cols[2].trim()));
+    }
+
+    private PricePoint parseJson(String line) {
+        JsonNode node = objectMapper.readTree(line);
+        JsonNode ticker = node.get("ticker");
+        JsonNode date = node.has("priceDate") ? node.get("priceDate") : node.get("price_date");
+        JsonNode close = node.has("closePrice") ? node.get("closePrice") : node.get("close_price");
+        if (ticker == null || date == null || close == null) {
+            throw new IllegalArgumentException("ticker, priceDate and closePrice are required");
+        }
+        BigDecimal price = close.isNumber() ? close.decimalValue() : new BigDecimal(close.asString());
+        return row(ticker.asString(), LocalDate.parse(date.asString()), price);
+    }
+
+    private static PricePoint row(String ticker, LocalDate date, BigDecimal close) {
+        if (ticker.isEmpty()) {
+            throw new IllegalArgumentException("ticker is empty");
+        }
+        if (close.signum() <= 0) {
+            throw new IllegalArgumentException("close price must be positive");
+        }
+        return new PricePoint(ticker, date, close.setScale(PriceSeries.SCALE, RoundingMode.HALF_UP));
+    }
+}
@@ -0,0 +1,87 @@
+package com.portfolio.backend.service;
+
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters bumped by every write that can change what the portfolio endpoints return. Prices are
+ * shared by every portfolio and bump the shared counter; lots, targets and alerts belong to one
+ * portfolio and bump only its own. Readers cache derived responses under the version they were
+ * built from.
+ *
+ * <p>Bumps must happen after the write is committed; otherwise a reader could rebuild from the old
+ * data and cache it under the new version.
+ */
+@Component
+public class DataVersion {
+
+    // distinguishes versions of this process from those of an earlier run, which restarted at 0
+    private final String epoch = Long.toString(System.currentTimeMillis() ^ ThreadLocalRandom.current().nextLong(), 36);
+    private final AtomicLong version = new AtomicLong();
+    private final ConcurrentHashMap<Long, AtomicLong> portfolios = new ConcurrentHashMap<>();
+    // System.nanoTime() of each portfolio's latest own bump
+    private final ConcurrentHashMap<Long, Long> writtenAt = new ConcurrentHashMap<>();
+
+    /**
+     * Version of one portfolio's data. Both counters only grow, so their sum changes on every write
+     * that concerns the portfolio and never returns to an earlier value.
+     */
+    public long current(long portfolioId) {
+        AtomicLong own = portfolios.get(portfolioId);
+        return version.get() + (own == null ? 0 : own.get());
+    }
+
+    /**
+     * Only the portfolio's own counter: changes with its lots, targets and alerts, not with prices.
+     */
+    public long own(long portfolioId) {
+        AtomicLong own = portfolios.get(portfolioId);
+        return own == null ? 0 : own.get();
+    }
+
+    public String epoch() {
+        return epoch;
+    }
+
+    /**
+     * Bumps every portfolio, for writes they all see, such as prices.
+     */
+    public void bump() {
+        version.incrementAndGet();
+    }
+
+    public void bump(long portfolioId) {
+        portfolios.computeIfAbsent(portfolioId, id -> new AtomicLong()).incrementAndGet();
+        writtenAt.put(portfolioId, System.nanoTime());
+    }
+
+    /**
+     * Nanoseconds since the portfolio's own data last changed, or {@link Long#MAX_VALUE} if it has
+     * not changed since startup.
+     */
+    public long nanosSinceWrite(long portfolioId) {
+        Long at = writtenAt.get(portfolioId);
+        return at == null ? Long.MAX_VALUE : System.nanoTime() - at;
+    }
+
+    /**
+     * Bumps once the surrounding transaction commits, or right away outside of one.
+     */
+    public void bumpAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            bump();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                bump();
+            }
+        });
+    }
+}
@@ -0,0 +1,75 @@
+package com.portfolio.backend.service;
+
+import java.util.SplittableRandom;
+
+/**
+ * Correlated geometric Brownian motion for a fixed set of tickers. Each step draws one market shock
+ * shared by every ticker and one shock per ticker, mixed as
+ * {@code z = sqrt(rho) * market + sqrt(1 - rho) * own}, so any two tickers' log returns have
+ * correlation {@code rho} (a one-factor model). Prices then move by
+ * {@code exp((mu - sigma^2 / 2) * dt + sigma * sqrt(dt) * z)}.
+ *
+ * <p>Not thread-safe; one simulation belongs to one stepping thread.
+ */
+public final class GbmSimulation {
+
+    private static final double MIN_PRICE = 0.01;
+
+    private final double[] prices;
+    private final double driftTerm;
+    private final double shockScale;
+    private final double marketWeight;
+    private final double ownWeight;
+    private final SplittableRandom random;
+    private long steps;
+
+    /**
+     * @param startPrices  first price of each ticker
+     * @param drift        annual drift mu
+     * @param volatility   annual volatility sigma
+     * @param correlation  pairwise correlation of the tickers' returns, in [0, 1]
+     * @param yearsPerStep simulated time that passes with each step, in years
+     */
+    public GbmSimulation(double[] startPrices, double drift, double volatility, double correlation,
+                         double yearsPerStep, long seed) {
+        if (correlation < 0 || correlation > 1) {
+            throw new IllegalArgumentException("correlation must be between 0 and 1");
+        }
+        if (volatility < 0 || yearsPerStep <= 0) {
+            throw new IllegalArgumentException("volatility must not be negative and a step must take time");
+        }
+        this.prices = startPrices.clone();
+        for (int i = 0; i < prices.length; i++) {
+            prices[i] = Math.max(MIN_PRICE, prices[i]);
+        }
+        this.driftTerm = (drift - volatility * volatility / 2) * yearsPerStep;
+        this.shockScale = volatility * Math.sqrt(yearsPerStep);
+        this.marketWeight = Math.sqrt(correlation);
+        this.ownWeight = Math.sqrt(1 - correlation);
+        this.random = new SplittableRandom(seed);
+    }
+
+    /**
+     * Advances every price by one step.
+     */
+    public void step() {
+        double market = random.nextGaussian();
+        for (int i = 0; i < prices.length; i++) {
+            double z = marketWeight * market + ownWeight * random.nextGaussian();
+            prices[i] = Math.max(MIN_PRICE, prices[i] * Math.exp(driftTerm + shockScale * z));
+        }
+        steps++;
+    }
+
+    public double price(int i) {
+        return prices[i];
+    }
+
+    public int size() {
+        return prices.length;
+    }
+
+    public long steps() {
+        return steps;
+    }
+}
@@ -0,0 +1,300 @@
+package com.portfolio.backend.service;
+
+import com.portfolio.backend.entity.StockPrice;
+import com.portfolio.backend.repo.StockPriceRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Per-ticker cache of the most recent stored price. Warmed from the database once the application
+ * is ready and kept current write-through by this node's price write paths, so readers never have
+ * to scan a ticker's history to find its latest close.
+ *
+ * <p>The database stays the source of truth: other nodes write prices too, so an entry older than
+ * {@code portfolio.prices.latest-ttl-ms} is read again. The first reader to find it expired runs
+ * the query while the others keep getting the cached price, and {@link #refreshExpired} reads the
+ * entries nobody asked for in one batch every TTL. A close found that way which is newer than the
+ * cached one was written elsewhere, so it is handed to the {@linkplain #onNewerClose listener} to
+ * bring this node's views, data version and alerts up to it. Intraday closes this node holds but
+ * has not written yet are kept over the stored close of the same day until they are. Loads go
+ * through {@link PrimaryReads}, so a reader on the replica never caches a lagging row for everyone.
+ */
+@Component
+public class LatestPriceIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(LatestPriceIndex.class);
+
+    // Latest means greatest price date. There is one row per (ticker, price_date), so a write for
+    // the same date as the indexed row is an update of that close and always wins.
+    private static final Comparator<StockPrice> RECENCY = Comparator
+            .comparing(StockPrice::getPriceDate, Comparator.nullsFirst(Comparator.naturalOrder()));
+
+    private final StockPriceRepository stockPriceRepository;
+    private final PrimaryReads primaryReads;
+    private final long ttlNanos;
+    private final ConcurrentHashMap<String, Entry> latest = new ConcurrentHashMap<>();
+    private volatile Consumer<StockPrice> newerCloseListener = sp -> { };
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder refreshes = new LongAdder();
+    private final LongAdder staleReads = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder outOfOrderWrites = new LongAdder();
+    private final LongAdder foreignCloses = new LongAdder();
+
+    public LatestPriceIndex(StockPriceRepository stockPriceRepository, PrimaryReads primaryReads,
+                            @Value("${portfolio.prices.latest-ttl-ms:1000}") long ttlMs) {
+        this.stockPriceRepository = stockPriceRepository;
+        this.primaryReads = primaryReads;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, ttlMs));
+    }
+
+    /**
+     * Sets what runs when a refresh finds a newer close than the cached one, i.e. a close another
+     * node wrote. It runs on the reading thread, after the close is installed.
+     */
+    public void onNewerClose(Consumer<StockPrice> listener) {
+        this.newerCloseListener = listener;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warm() {
+        List<StockPrice> rows = stockPriceRepository.findLatestPerTicker();
+        for (StockPrice sp : rows) {
+            put(sp);
+        }
+        log.info("Latest price index warmed with {} tickers", latest.size());
+    }
+
+    /**
+     * Returns the latest price for the ticker, loading it with a single-row query on a miss or once
+     * the cached one has expired.
+     */
+    public StockPrice get(String ticker) {
+        if (ticker == null) {
+            return null;
+        }
+        long now = System.nanoTime();
+        Entry e = latest.get(ticker);
+        if (e != null) {
+            hits.increment();
+            if (e.price.getPriceDate() != null && e.price.getPriceDate().isBefore(LocalDate.now())) {
+                staleReads.increment();
+            }
+            if (!claimRefresh(ticker, e, now)) {
+                return e.price;
+            }
+        } else {
+            misses.increment();
+        }
+        StockPrice loaded = primaryReads.load(() -> stockPriceRepository.findLatestPrice(ticker));
+        Entry current = refresh(ticker, loaded, now);
+        return current != null ? current.price : null;
+    }
+
+    /**
+     * Returns the latest price for each of the given tickers. All misses and expired entries are
+     * resolved together with one batched query; tickers without any stored price are absent from
+     * the result.
+     */
+    public Map<String, StockPrice> getAll(Collection<String> tickers) {
+        Map<String, StockPrice> result = new HashMap<>();
+        List<String> load = new ArrayList<>();
+        LocalDate today = LocalDate.now();
+        long now = System.nanoTime();
+        for (String ticker : tickers) {
+            if (ticker == null || result.containsKey(ticker)) {
+                continue;
+            }
+            Entry e = latest.get(ticker);
+            if (e != null) {
+                hits.increment();
+                if (e.price.getPriceDate() != null && e.price.getPriceDate().isBefore(today)) {
+                    staleReads.increment();
+                }
+                result.put(ticker, e.price);
+                if (claimRefresh(ticker, e, now)) {
+                    load.add(ticker);
+                }
+            } else {
+                misses.increment();
+                load.add(ticker);
+            }
+        }
+        if (!load.isEmpty()) {
+            Map<String, StockPrice> loaded = new HashMap<>();
+            for (StockPrice sp : primaryReads.load(() -> stockPriceRepository.findLatestForTickers(load))) {
+                loaded.put(sp.getTicker(), sp);
+            }
+            for (String ticker : load) {
+                Entry current = refresh(ticker, loaded.get(ticker), now);
+                if (current != null) {
+                    result.put(ticker, current.price);
+                } else {
+                    result.remove(ticker);
+                }
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Reads every expired entry again with one batched query, so a close another node wrote reaches
+     * this node's listener even while no request reads that ticker.
+     */
+    @Scheduled(fixedDelayString = "${portfolio.prices.latest-ttl-ms:1000}",
+            initialDelayString = "${portfolio.prices.latest-ttl-ms:1000}")
+    public void refreshExpired() {
+        long now = System.nanoTime();
+        List<String> load = new ArrayList<>();
+        for (Map.Entry<String, Entry> e : latest.entrySet()) {
+            if (claimRefresh(e.getKey(), e.getValue(), now)) {
+                load.add(e.getKey());
+            }
+        }
+        if (load.isEmpty()) {
+            return;
+        }
+        Map<String, StockPrice> loaded = new HashMap<>();
+        for (StockPrice sp : primaryReads.load(() -> stockPriceRepository.findLatestForTickers(load))) {
+            loaded.put(sp.getTicker(), sp);
+        }
+        for (String ticker : load) {
+            refresh(ticker, loaded.get(ticker), now);
+        }
+    }
+
+    /**
+     * Records a freshly written price. Older rows than the one already indexed are ignored so
+     * out-of-order writers cannot move the latest price backwards.
+     */
+    public void put(StockPrice sp) {
+        put(sp, false);
+    }
+
+    /**
+     * Records a close this node will write later, such as the day's intraday close. It is served
+     * instead of the stored close of the same day until {@link #markSaved} reports it written.
+     */
+    public void putUnsaved(StockPrice sp) {
+        put(sp, true);
+    }
+
+    /**
+     * Clears the unsaved mark of the ticker's indexed close if it is the one just written.
+     */
+    public void markSaved(String ticker, LocalDate priceDate, BigDecimal closePrice) {
+        latest.computeIfPresent(ticker, (t, e) -> e.unsaved && priceDate.equals(e.price.getPriceDate())
+                && closePrice.compareTo(e.price.getClosePrice()) == 0 ? new Entry(e.price, System.nanoTime(), false) : e);
+    }
+
+    private void put(StockPrice sp, boolean unsaved) {
+        if (sp == null || sp.getTicker() == null) {
+            return;
+        }
+        writes.increment();
+        Entry entry = new Entry(sp, System.nanoTime(), unsaved);
+        latest.merge(sp.getTicker(), entry, (current, incoming) -> {
+            if (RECENCY.compare(incoming.price, current.price) >= 0) {
+                return incoming;
+            }
+            outOfOrderWrites.increment();
+            return current;
+        });
+    }
+
+    /**
+     * Marks an expired entry as being checked now. Returns true for the one caller that should
+     * read it again.
+     */
+    private boolean claimRefresh(String ticker, Entry e, long now) {
+        if (now - e.checkedAt < ttlNanos || !latest.replace(ticker, e, new Entry(e.price, now, e.unsaved))) {
+            return false;
+        }
+        refreshes.increment();
+        return true;
+    }
+
+    /**
+     * Installs what the database returned for a query started at {@code queriedAt}. An unsaved
+     * close, or one written by this node after the query started, is kept unless the stored row
+     * is newer.
+     */
+    private Entry refresh(String ticker, StockPrice loaded, long queriedAt) {
+        Entry[] replaced = new Entry[1];
+        Entry installed = latest.compute(ticker, (t, current) -> {
+            if (current != null && (current.unsaved || current.checkedAt - queriedAt > 0)
+                    && (loaded == null || RECENCY.compare(current.price, loaded) >= 0)) {
+                return current;
+            }
+            replaced[0] = current;
+            return loaded == null ? null : new Entry(loaded, queriedAt, false);
+        });
+        if (installed != null && replaced[0] != null && movedOn(replaced[0].price, loaded)) {
+            foreignCloses.increment();
+            newerCloseListener.accept(loaded);
+        }
+        return installed;
+    }
+
+    /**
+     * True if the stored row is a later close than the cached one, or the same day's close changed.
+     */
+    private static boolean movedOn(StockPrice cached, StockPrice stored) {
+        int order = RECENCY.compare(stored, cached);
+        return order > 0 || order == 0 && cached.getClosePrice() != null && stored.getClosePrice() != null
+                && stored.getClosePrice().compareTo(cached.getClosePrice()) != 0;
+    }
+
+    public void evict(String ticker) {
+        latest.remove(ticker);
+    }
+
+    public int size() {
+        return latest.size();
+    }
+
+    public Map<String, Object> getStats() {
+        long h = hits.sum();
+        long m = misses.sum();
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("tickers", latest.size());
+        stats.put("hits", h);
+        stats.put("misses", m);
+        stats.put("refreshes", refreshes.sum());
+        stats.put("hitRatio", h + m == 0 ? 0.0 : (double) h / (h + m));
+        stats.put("staleReads", staleReads.sum());
+        stats.put("writes", writes.sum());
+        stats.put("outOfOrderWrites", outOfOrderWrites.sum());
+        stats.put("foreignCloses", foreignCloses.sum());
+        stats.put("ttlMs", TimeUnit.NANOSECONDS.toMillis(ttlNanos));
+        return stats;
+    }
+
+    /**
+     * @param checkedAt System.nanoTime() when the price was last written here or read from the database
+     * @param unsaved   a close this node holds that is not stored yet
+     */
+    private record Entry(StockPrice price, long checkedAt, boolean unsaved) {
+    }
+}
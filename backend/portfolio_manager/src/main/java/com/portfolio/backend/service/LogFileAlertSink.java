@@ -0,0 +1,49 @@
+package com.portfolio.backend.service;
+
+import com.portfolio.backend.dto.OutboxAlert;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+/**
+ * Appends each alert as one JSON line to {@code portfolio.alerts.log-file}, creating the file and
+ * its directory if needed. A batch is written and flushed under one lock, so concurrent batches do
+ * not interleave.
+ */
+@Component
+public class LogFileAlertSink implements AlertSink {
+
+    private final ObjectMapper objectMapper;
+    private final Path file;
+
+    public LogFileAlertSink(ObjectMapper objectMapper,
+                            @Value("${portfolio.alerts.log-file:alerts.log}") String file) {
+        this.objectMapper = objectMapper;
+        this.file = Path.of(file).toAbsolutePath();
+    }
+
+    @Override
+    public String name() {
+        return "log";
+    }
+
+    @Override
+    public synchronized void deliver(List<OutboxAlert> alerts) throws IOException {
+        Files.createDirectories(file.getParent());
+        try (BufferedWriter out = Files.newBufferedWriter(file, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND)) {
+            for (OutboxAlert a : alerts) {
+                out.write(objectMapper.writeValueAsString(a));
+                out.newLine();
+            }
+        }
+    }
+}
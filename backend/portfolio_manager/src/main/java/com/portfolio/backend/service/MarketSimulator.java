@@ -0,0 +1,229 @@
+package com.portfolio.backend.service;
+
+import com.portfolio.backend.entity.Stock;
+import com.portfolio.backend.entity.StockPrice;
+import com.portfolio.backend.repo.StockRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Local market-data feed for load tests: moves N tickers along a {@link GbmSimulation} and writes
+ * every tick through {@link PriceService#createPrice}, the path {@code POST /api/prices} takes, so
+ * alerts, caches and streams all see it as real ingestion. The universe is the known stocks in
+ * ticker order, padded with synthetic {@code SIMnnnn} stocks; each starts from its latest close, or
+ * 100 without one.
+ *
+ * <p>Only exists with {@code portfolio.simulator.enabled}, which the dev profile sets and production
+ * leaves off. Even then it idles until started through the API, or at startup with
+ * {@code portfolio.simulator.autostart}. Ticks run on
+ * one thread at a fixed rate; if writing a tick takes longer than the period, the rate achieved is
+ * lower than the one asked for, which {@link #status} reports.
+ */
+@Service
+@ConditionalOnProperty(name = "portfolio.simulator.enabled", havingValue = "true")
+public class MarketSimulator {
+
+    private static final Logger log = LoggerFactory.getLogger(MarketSimulator.class);
+    private static final double TRADING_DAYS_PER_YEAR = 252;
+
+    private final PriceService priceService;
+    private final StockRepository stockRepository;
+    private final boolean autostart;
+    private final int defaultTickers;
+    private final double defaultTicksPerSecond;
+    private final double drift;
+    private final double volatility;
+    private final double correlation;
+    private final double daysPerTick;
+    private final long defaultSeed;
+
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread t = new Thread(r, "market-simulator");
+        t.setDaemon(true);
+        return t;
+    });
+    private final AtomicLong ticks = new AtomicLong();
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private Run run;
+
+    public MarketSimulator(PriceService priceService, StockRepository stockRepository,
+                           @Value("${portfolio.simulator.autostart:false}") boolean autostart,
+                           @Value("${portfolio.simulator.tickers:50}") int defaultTickers,
+                           @Value("${portfolio.simulator.ticks-per-second:1}") double defaultTicksPerSecond,
+                           @Value("${portfolio.simulator.drift:0.05}") double drift,
+                           @Value("${portfolio.simulator.volatility:0.3}") double volatility,
+                           @Value("${portfolio.simulator.correlation:0.4}") double correlation,
+                           @Value("${portfolio.simulator.days-per-tick:1}") double daysPerTick,
+                           @Value("${portfolio.simulator.seed:42}") long defaultSeed) {
+        this.priceService = priceService;
+        this.stockRepository = stockRepository;
+        this.autostart = autostart;
+        this.defaultTickers = defaultTickers;
+        this.defaultTicksPerSecond = defaultTicksPerSecond;
+        this.drift = drift;
+        this.volatility = volatility;
+        this.correlation = correlation;
+        this.daysPerTick = daysPerTick;
+        this.defaultSeed = defaultSeed;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void autostart() {
+        if (autostart) {
+            start(null, null, null);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    /**
+     * Starts ticking; null arguments take the configured defaults.
+     *
+     * @throws IllegalStateException if the simulator is already running
+     */
+    public synchronized Map<String, Object> start(Integer tickers, Double ticksPerSecond, Long seed) {
+        if (run != null) {
+            throw new IllegalStateException("the simulator is already running");
+        }
+        int n = tickers != null ? tickers : defaultTickers;
+        double rate = ticksPerSecond != null ? ticksPerSecond : defaultTicksPerSecond;
+        if (n < 1 || n > 9999) {
+            throw new IllegalArgumentException("tickers must be between 1 and 9999");
+        }
+        if (!(rate > 0) || rate > 1000) {
+            throw new IllegalArgumentException("ticksPerSecond must be above 0 and at most 1000");
+        }
+        List<String> universe = universe(n);
+        Map<String, StockPrice> latest = priceService.getLatestPricesForTickers(universe);
+        double[] start = new double[n];
+        for (int i = 0; i < n; i++) {
+            StockPrice sp = latest.get(universe.get(i));
+            start[i] = sp != null && sp.getClosePrice() != null ? sp.getClosePrice().doubleValue() : 100;
+        }
+        GbmSimulation sim = new GbmSimulation(start, drift, volatility, correlation,
+                daysPerTick / TRADING_DAYS_PER_YEAR, seed != null ? seed : defaultSeed);
+
+        ticks.set(0);
+        writes.set(0);
+        errors.set(0);
+        long periodNanos = Math.max(1, Math.round(1e9 / rate));
+        Run r = new Run(List.copyOf(universe), sim, rate, System.nanoTime());
+        r.future = scheduler.scheduleAtFixedRate(() -> tick(r), 0, periodNanos, TimeUnit.NANOSECONDS);
+        run = r;
+        log.info("Market simulator started: {} tickers at {} ticks/s", n, rate);
+        return status();
+    }
+
+    public synchronized Map<String, Object> stop() {
+        if (run != null) {
+            run.future.cancel(false);
+            log.info("Market simulator stopped after {} ticks", ticks.get());
+        }
+        Map<String, Object> status = status();
+        run = null;
+        return status;
+    }
+
+    public synchronized Map<String, Object> status() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("running", run != null && !run.future.isCancelled());
+        if (run == null) {
+            return result;
+        }
+        double seconds = (System.nanoTime() - run.startedNanos) / 1e9;
+        long done = ticks.get();
+        result.put("tickers", run.tickers);
+        result.put("ticksPerSecond", run.ticksPerSecond);
+        result.put("ticks", done);
+        result.put("achievedTicksPerSecond", seconds > 0 ? Math.round(done / seconds * 100) / 100.0 : 0.0);
+        result.put("priceWrites", writes.get());
+        result.put("errors", errors.get());
+        result.put("drift", drift);
+        result.put("volatility", volatility);
+        result.put("correlation", correlation);
+        result.put("daysPerTick", daysPerTick);
+        return result;
+    }
+
+    private void tick(Run r) {
+        r.sim.step();
+        ticks.incrementAndGet();
+        for (int i = 0; i < r.tickers.size(); i++) {
+            BigDecimal price = BigDecimal.valueOf(r.sim.price(i)).setScale(2, RoundingMode.HALF_UP);
+            try {
+                priceService.createPrice(r.tickers.get(i), price);
+                writes.incrementAndGet();
+            } catch (RuntimeException e) {
+                // keep ticking; a failed write is counted and the next tick writes a newer price anyway
+                if (errors.incrementAndGet() == 1) {
+                    log.warn("Simulated price write for {} failed", r.tickers.get(i), e);
+                }
+            }
+        }
+    }
+
+    private List<String> universe(int n) {
+        List<Stock> stocks = new ArrayList<>(stockRepository.findAll());
+        stocks.sort(Comparator.comparing(Stock::getTicker));
+        Set<String> tickers = new LinkedHashSet<>();
+        for (Stock s : stocks) {
+            if (tickers.size() == n) {
+                break;
+            }
+            tickers.add(s.getTicker());
+        }
+        List<Stock> created = new ArrayList<>();
+        for (int i = 1; tickers.size() < n; i++) {
+            String ticker = String.format("SIM%04d", i);
+            if (!tickers.contains(ticker)) {
+                Stock s = new Stock();
+                s.setTicker(ticker);
+                s.setCompanyName("Simulated " + i);
+                created.add(s);
+                tickers.add(ticker);
+            }
+        }
+        stockRepository.saveAll(created);
+        return new ArrayList<>(tickers);
+    }
+
+    private static final class Run {
+        final List<String> tickers;
+        final GbmSimulation sim;
+        final double ticksPerSecond;
+        final long startedNanos;
+        ScheduledFuture<?> future;
+
+        Run(List<String> tickers, GbmSimulation sim, double ticksPerSecond, long startedNanos) {
+            this.tickers = tickers;
+            this.sim = sim;
+            this.ticksPerSecond = ticksPerSecond;
+            this.startedNanos = startedNanos;
+        }
+    }
+}
@@ -0,0 +1,65 @@
+package com.portfolio.backend.service;
+
+import com.portfolio.backend.dto.OhlcBar;
+
+import java.time.LocalDate;
+
+/**
+ * Mutable OHLC bar built from daily closes or from finer bars. Closes are fixed-point, as in
+ * {@link PriceSeries}. Inputs may arrive in any order; open and close follow the earliest and
+ * latest dates seen.
+ */
+final class OhlcAccumulator {
+
+    private int firstDay;
+    private int lastDay;
+    private long open;
+    private long high;
+    private long low;
+    private long close;
+    private int points;
+
+    void add(int day, long fixedClose) {
+        add(day, day, fixedClose, fixedClose, fixedClose, fixedClose, 1);
+    }
+
+    void add(OhlcBar bar) {
+        add(PriceSeries.toEpochDay(bar.start()), PriceSeries.toEpochDay(bar.end()),
+                PriceSeries.toFixed(bar.open()), PriceSeries.toFixed(bar.high()),
+                PriceSeries.toFixed(bar.low()), PriceSeries.toFixed(bar.close()), bar.points());
+    }
+
+    private void add(int start, int end, long o, long h, long l, long c, int n) {
+        if (points == 0) {
+            firstDay = start;
+            lastDay = end;
+            open = o;
+            high = h;
+            low = l;
+            close = c;
+            points = n;
+            return;
+        }
+        if (start < firstDay) {
+            firstDay = start;
+            open = o;
+        }
+        if (end >= lastDay) {
+            lastDay = end;
+            close = c;
+        }
+        high = Math.max(high, h);
+        low = Math.min(low, l);
+        points += n;
+    }
+
+    boolean isEmpty() {
+        return points == 0;
+    }
+
+    OhlcBar toBar() {
+        return new OhlcBar(LocalDate.ofEpochDay(firstDay), LocalDate.ofEpochDay(lastDay),
+                PriceSeries.fromFixed(open), PriceSeries.fromFixed(high), PriceSeries.fromFixed(low),
+                PriceSeries.fromFixed(close), points);
+    }
+}
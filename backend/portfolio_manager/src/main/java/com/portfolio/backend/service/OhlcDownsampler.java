@@ -0,0 +1,88 @@
+package com.portfolio.backend.service;
+
+import com.portfolio.backend.dto.OhlcBar;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Reduces daily closes, or coarser bars, to at most N OHLC bars of equal calendar width. Buckets
+ * without any data are left out rather than filled.
+ */
+final class OhlcDownsampler {
+
+    private OhlcDownsampler() {
+    }
+
+    /**
+     * One pass over the slice's primitive columns.
+     */
+    static List<OhlcBar> downsample(PriceSeries.Slice slice, int buckets) {
+        int n = slice.size();
+        if (n == 0 || buckets <= 0) {
+            return List.of();
+        }
+        int first = slice.dayAt(0);
+        int width = width(first, slice.dayAt(n - 1), buckets);
+
+        List<OhlcBar> bars = new ArrayList<>(Math.min(buckets, n));
+        int i = 0;
+        while (i < n) {
+            int bucketEnd = first + ((slice.dayAt(i) - first) / width + 1) * width;
+            int start = i;
+            long open = slice.closeAt(i);
+            long high = open;
+            long low = open;
+            long close = open;
+            while (i < n && slice.dayAt(i) < bucketEnd) {
+                close = slice.closeAt(i);
+                if (close > high) high = close;
+                if (close < low) low = close;
+                i++;
+            }
+            bars.add(new OhlcBar(LocalDate.ofEpochDay(slice.dayAt(start)), LocalDate.ofEpochDay(slice.dayAt(i - 1)),
+                    PriceSeries.fromFixed(open), PriceSeries.fromFixed(high), PriceSeries.fromFixed(low),
+                    PriceSeries.fromFixed(close), i - start));
+        }
+        return bars;
+    }
+
+    /**
+     * Merges bars sorted by start date into equal-width buckets; a bar falls in the bucket of its
+     * start date.
+     */
+    static List<OhlcBar> downsampleBars(List<OhlcBar> source, int buckets) {
+        if (source.isEmpty() || buckets <= 0) {
+            return List.of();
+        }
+        int first = PriceSeries.toEpochDay(source.get(0).start());
+        int last = first;
+        for (OhlcBar b : source) {
+            last = Math.max(last, PriceSeries.toEpochDay(b.end()));
+        }
+        int width = width(first, last, buckets);
+
+        List<OhlcBar> bars = new ArrayList<>(Math.min(buckets, source.size()));
+        OhlcAccumulator acc = new OhlcAccumulator();
+        int bucket = -1;
+        for (OhlcBar b : source) {
+            int k = (PriceSeries.toEpochDay(b.start()) - first) / width;
+            if (k != bucket && !acc.isEmpty()) {
+                bars.add(acc.toBar());
+                acc = new OhlcAccumulator();
+            }
+            bucket = k;
+            acc.add(b);
+        }
+        if (!acc.isEmpty()) {
+            bars.add(acc.toBar());
+        }
+        return bars;
+    }
+
+    private static int width(int firstDay, int lastDay, int buckets) {
+        int span = lastDay - firstDay + 1;
+        return Math.max(1, (span + buckets - 1) / buckets);
+    }
+}
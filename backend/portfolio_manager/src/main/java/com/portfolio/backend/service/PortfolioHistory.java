@@ -0,0 +1,237 @@
+package com.portfolio.backend.service;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * One portfolio's market value and cost basis per calendar day, fixed-point at
+ * {@link PriceSeries#SCALE}, built by one sweep over the days: holdings changes (buys, and the
+ * buy and sale of every sold slice) and closes are applied in day order, and each only adjusts
+ * the running totals, so a day costs O(1) plus the changes and closes that land on it. A ticker
+ * held before its first close is valued at that close: compacted history only has a close at the
+ * end of each week or month, and a lot bought inside the first one must not show as worth zero
+ * until then. A ticker without any close is worth nothing, as in the portfolio summary.
+ *
+ * <p>The series only grows: {@link #extend} continues the sweep from where it stopped, and
+ * {@link #preview} runs it further on a copy without keeping the result, for days whose closes
+ * may still move. Not thread-safe; callers serialize access.
+ */
+public final class PortfolioHistory {
+
+    /**
+     * A change in holdings on a day: quantity and cost basis added (negative when sold).
+     */
+    public record Change(int day, String ticker, long quantity, long cost) {
+    }
+
+    private final int startDay;
+    private final String[] tickers;
+    private final Map<String, Integer> index = new HashMap<>();
+    private final int[] changeDays;
+    private final int[] changeTickers;
+    private final long[] changeQuantities;
+    private final long[] changeCosts;
+    private final State state;
+
+    private long[] values = new long[64];
+    private long[] costs = new long[64];
+    private int size;
+
+    /**
+     * @param changes every holdings change of the portfolio, in any order; the series starts on
+     *                the earliest one
+     */
+    public PortfolioHistory(List<Change> changes) {
+        if (changes.isEmpty()) {
+            throw new IllegalArgumentException("no holdings changes");
+        }
+        Change[] sorted = changes.toArray(new Change[0]);
+        Arrays.sort(sorted, (a, b) -> Integer.compare(a.day(), b.day()));
+        int n = sorted.length;
+        changeDays = new int[n];
+        changeTickers = new int[n];
+        changeQuantities = new long[n];
+        changeCosts = new long[n];
+        for (int k = 0; k < n; k++) {
+            Change c = sorted[k];
+            changeDays[k] = c.day();
+            changeTickers[k] = index.computeIfAbsent(c.ticker(), t -> index.size());
+            changeQuantities[k] = c.quantity();
+            changeCosts[k] = c.cost();
+        }
+        tickers = new String[index.size()];
+        index.forEach((t, i) -> tickers[i] = t);
+        startDay = changeDays[0];
+        state = new State(tickers.length);
+    }
+
+    public int startDay() {
+        return startDay;
+    }
+
+    /**
+     * Last day in the series, or the day before {@link #startDay()} while it is empty.
+     */
+    public int endDay() {
+        return startDay + size - 1;
+    }
+
+    public boolean holds(String ticker) {
+        return index.containsKey(ticker);
+    }
+
+    public long valueAt(int day) {
+        return values[day - startDay];
+    }
+
+    public long costAt(int day) {
+        return costs[day - startDay];
+    }
+
+    /**
+     * Appends every day through {@code through}, reading closes from {@code series}, which holds
+     * each ticker's series in the order of {@link #tickers()}.
+     */
+    public void extend(int through, PriceSeries[] series) {
+        int from = endDay() + 1;
+        if (through < from) {
+            return;
+        }
+        int need = through - startDay + 1;
+        if (need > values.length) {
+            int capacity = Math.max(need, values.length * 2);
+            values = Arrays.copyOf(values, capacity);
+            costs = Arrays.copyOf(costs, capacity);
+        }
+        if (size == 0) {
+            state.seedPrices(startDay, series);
+        }
+        sweep(state, from, through, series, values, costs, size);
+        size = need;
+    }
+
+    /**
+     * Values and costs for {@code from..through}, continuing past {@link #endDay()} on a copy of
+     * the sweep without appending anything. {@code from} must not be before the start.
+     */
+    public long[][] preview(int from, int through, PriceSeries[] series) {
+        int span = through - from + 1;
+        long[] v = new long[span];
+        long[] c = new long[span];
+        int end = endDay();
+        for (int d = from; d <= Math.min(end, through); d++) {
+            v[d - from] = values[d - startDay];
+            c[d - from] = costs[d - startDay];
+        }
+        if (through > end) {
+            State copy = state.copy();
+            if (size == 0) {
+                copy.seedPrices(startDay, series);
+            }
+            int first = end + 1;
+            long[] tv = new long[through - first + 1];
+            long[] tc = new long[tv.length];
+            sweep(copy, first, through, series, tv, tc, 0);
+            for (int d = Math.max(from, first); d <= through; d++) {
+                v[d - from] = tv[d - first];
+                c[d - from] = tc[d - first];
+            }
+        }
+        return new long[][]{v, c};
+    }
+
+    public String[] tickers() {
+        return tickers.clone();
+    }
+
+    private void sweep(State s, int from, int through, PriceSeries[] series, long[] outValues, long[] outCosts,
+                       int outOffset) {
+        // closes in range, bucketed by day: one counting sort instead of a merge across tickers
+        int span = through - from + 1;
+        PriceSeries.Slice[] slices = new PriceSeries.Slice[tickers.length];
+        int[] start = new int[span + 1];
+        int points = 0;
+        for (int i = 0; i < tickers.length; i++) {
+            slices[i] = series[i].slice(from, through);
+            for (int k = 0; k < slices[i].size(); k++) {
+                start[slices[i].dayAt(k) - from + 1]++;
+            }
+            points += slices[i].size();
+        }
+        for (int d = 0; d < span; d++) {
+            start[d + 1] += start[d];
+        }
+        int[] fill = Arrays.copyOf(start, span);
+        int[] pointTicker = new int[points];
+        long[] pointClose = new long[points];
+        for (int i = 0; i < tickers.length; i++) {
+            PriceSeries.Slice sl = slices[i];
+            for (int k = 0; k < sl.size(); k++) {
+                int at = fill[sl.dayAt(k) - from]++;
+                pointTicker[at] = i;
+                pointClose[at] = sl.closeAt(k);
+            }
+        }
+
+        for (int d = from; d <= through; d++) {
+            while (s.nextChange < changeDays.length && changeDays[s.nextChange] <= d) {
+                int k = s.nextChange++;
+                int i = changeTickers[k];
+                s.quantity[i] += changeQuantities[k];
+                s.value += changeQuantities[k] * s.price[i];
+                s.cost += changeCosts[k];
+            }
+            for (int p = start[d - from]; p < start[d - from + 1]; p++) {
+                int i = pointTicker[p];
+                s.value += s.quantity[i] * (pointClose[p] - s.price[i]);
+                s.price[i] = pointClose[p];
+            }
+            outValues[outOffset + d - from] = s.value;
+            outCosts[outOffset + d - from] = s.cost;
+        }
+    }
+
+    /**
+     * Where the sweep stands after its last day: holdings, last close and totals.
+     */
+    private static final class State {
+        final long[] quantity;
+        final long[] price;
+        long value;
+        long cost;
+        int nextChange;
+
+        State(int tickers) {
+            quantity = new long[tickers];
+            price = new long[tickers];
+        }
+
+        /**
+         * Each ticker's last close before the series starts, or its first one after if it has
+         * none before; nothing is held yet, so the totals stay zero.
+         */
+        void seedPrices(int startDay, PriceSeries[] series) {
+            for (int i = 0; i < price.length; i++) {
+                PriceSeries.Slice before = series[i].slice(Integer.MIN_VALUE, startDay - 1);
+                if (!before.isEmpty()) {
+                    price[i] = before.closeAt(before.size() - 1);
+                } else {
+                    PriceSeries.Slice after = series[i].slice(startDay, Integer.MAX_VALUE);
+                    price[i] = after.isEmpty() ? 0 : after.closeAt(0);
+                }
+            }
+        }
+
+        State copy() {
+            State c = new State(quantity.length);
+            System.arraycopy(quantity, 0, c.quantity, 0, quantity.length);
+            System.arraycopy(price, 0, c.price, 0, price.length);
+            c.value = value;
+            c.cost = cost;
+            c.nextChange = nextChange;
+            return c;
+        }
+    }
+}
@@ -0,0 +1,196 @@
+package com.portfolio.backend.service;
+
+import com.portfolio.backend.dto.ValuePoint;
+import com.portfolio.backend.entity.Asset;
+import com.portfolio.backend.entity.AssetSale;
+import com.portfolio.backend.repo.AssetRepository;
+import com.portfolio.backend.repo.AssetSaleRepository;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Portfolio value, cost basis and unrealized P&L over time. Each portfolio's daily series is
+ * swept once from its lots and sales and cached; later requests only extend it by the days that
+ * have passed since. Today is never cached, since its closes still move, and is swept on top of
+ * the cache per request.
+ *
+ * <p>A cached series is dropped when the portfolio's lots or sales change, or when a close lands
+ * on a day it already covers.
+ *
+ * <p>Before {@link PriceSeries#dailyFrom()} a ticker has one close per weekly or monthly bar, so
+ * across compacted periods each day carries the last bar's close forward and the value moves in
+ * steps, one per bar.
+ */
+@Service
+public class PortfolioHistoryService {
+
+    static final int MAX_POINTS = 20_000;
+
+    private final AssetRepository assetRepository;
+    private final AssetSaleRepository assetSaleRepository;
+    private final PriceSeriesStore priceSeriesStore;
+    private final DataVersion dataVersion;
+    private final ConcurrentHashMap<Long, Cached> cache = new ConcurrentHashMap<>();
+
+    public PortfolioHistoryService(AssetRepository assetRepository, AssetSaleRepository assetSaleRepository,
+                                   PriceSeriesStore priceSeriesStore, DataVersion dataVersion) {
+        this.assetRepository = assetRepository;
+        this.assetSaleRepository = assetSaleRepository;
+        this.priceSeriesStore = priceSeriesStore;
+        this.dataVersion = dataVersion;
+    }
+
+    private record Cached(long version, PortfolioHistory history) {
+    }
+
+    /**
+     * Drops the cached series that already cover the close's day.
+     */
+    public void onClose(String ticker, LocalDate date) {
+        if (cache.isEmpty() || date == null) {
+            return;
+        }
+        int day = PriceSeries.toEpochDay(date);
+        cache.forEach((portfolioId, cached) -> {
+            PortfolioHistory h = cached.history();
+            boolean covered;
+            synchronized (h) {
+                covered = h.holds(ticker) && day <= h.endDay();
+            }
+            if (covered) {
+                cache.remove(portfolioId, cached);
+            }
+        });
+    }
+
+    /**
+     * One point every {@code step} days from {@code from} (default: the first purchase) to
+     * {@code to} (default and at most: today), plus {@code to} itself.
+     *
+     * @throws IllegalArgumentException for a step below 1, a reversed range or too many points
+     */
+    @Timed("portfolio.method")
+    public Map<String, Object> history(long portfolioId, LocalDate from, LocalDate to, int step) {
+        if (step < 1) {
+            throw new IllegalArgumentException("step must be at least 1");
+        }
+        long start = System.nanoTime();
+        LocalDate today = LocalDate.now();
+        LocalDate end = to == null || to.isAfter(today) ? today : to;
+
+        Cached cached = cached(portfolioId);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("portfolioId", portfolioId);
+        if (cached == null) {
+            result.put("from", from);
+            result.put("to", end);
+            result.put("step", step);
+            result.put("points", List.of());
+            return result;
+        }
+
+        PortfolioHistory h = cached.history();
+        int toDay = PriceSeries.toEpochDay(end);
+        int fromDay = from == null ? h.startDay() : Math.max(h.startDay(), PriceSeries.toEpochDay(from));
+        if (fromDay > toDay) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
+        if ((toDay - fromDay) / step + 2 > MAX_POINTS) {
+            throw new IllegalArgumentException("more than " + MAX_POINTS + " points; use a larger step");
+        }
+
+        long[][] rows;
+        int extended;
+        int cachedThrough;
+        synchronized (h) {
+            int before = h.endDay();
+            PriceSeries[] series = series(h);
+            h.extend(PriceSeries.toEpochDay(today) - 1, series);
+            extended = h.endDay() - before;
+            cachedThrough = h.endDay();
+            rows = h.preview(fromDay, toDay, series);
+        }
+
+        List<ValuePoint> points = new ArrayList<>();
+        for (int d = fromDay; d <= toDay; d += step) {
+            points.add(point(d, rows, fromDay));
+        }
+        if ((toDay - fromDay) % step != 0) {
+            points.add(point(toDay, rows, fromDay));
+        }
+
+        result.put("from", LocalDate.ofEpochDay(fromDay));
+        result.put("to", end);
+        result.put("step", step);
+        result.put("points", points);
+        result.put("cachedThrough", cachedThrough < h.startDay() ? null : LocalDate.ofEpochDay(cachedThrough));
+        result.put("daysSwept", extended);
+        result.put("elapsedMs", (System.nanoTime() - start) / 1_000_000.0);
+        return result;
+    }
+
+    private static ValuePoint point(int day, long[][] rows, int fromDay) {
+        long value = rows[0][day - fromDay];
+        long cost = rows[1][day - fromDay];
+        return new ValuePoint(LocalDate.ofEpochDay(day), PriceSeries.fromFixed(value), PriceSeries.fromFixed(cost),
+                PriceSeries.fromFixed(value - cost));
+    }
+
+    private PriceSeries[] series(PortfolioHistory h) {
+        String[] tickers = h.tickers();
+        PriceSeries[] series = new PriceSeries[tickers.length];
+        for (int i = 0; i < tickers.length; i++) {
+            series[i] = priceSeriesStore.get(tickers[i]);
+        }
+        return series;
+    }
+
+    /**
+     * The portfolio's series, rebuilt from its lots and sales if they changed since it was cached.
+     * Null if the portfolio never held anything.
+     */
+    private Cached cached(long portfolioId) {
+        // read before the lots, so a write landing in between is caught on the next request
+        long version = dataVersion.own(portfolioId);
+        Cached cached = cache.get(portfolioId);
+        if (cached != null && cached.version() == version) {
+            return cached;
+        }
+        List<PortfolioHistory.Change> changes = new ArrayList<>();
+        for (Asset a : assetRepository.findByPortfolioId(portfolioId)) {
+            if (a.getBuyDate() != null && a.getBuyPrice() != null) {
+                changes.add(new PortfolioHistory.Change(PriceSeries.toEpochDay(a.getBuyDate()), a.getTicker(),
+                        a.getQuantity(), fixed(a.getBuyPrice(), a.getQuantity())));
+            }
+        }
+        for (AssetSale s : assetSaleRepository.findByPortfolioId(portfolioId)) {
+            if (s.getBuyDate() == null || s.getSaleDate() == null || s.getBuyPrice() == null) {
+                continue;
+            }
+            long cost = fixed(s.getBuyPrice(), s.getQuantity());
+            changes.add(new PortfolioHistory.Change(PriceSeries.toEpochDay(s.getBuyDate()), s.getTicker(),
+                    s.getQuantity(), cost));
+            changes.add(new PortfolioHistory.Change(PriceSeries.toEpochDay(s.getSaleDate()), s.getTicker(),
+                    -s.getQuantity(), -cost));
+        }
+        if (changes.isEmpty()) {
+            cache.remove(portfolioId);
+            return null;
+        }
+        cached = new Cached(version, new PortfolioHistory(changes));
+        cache.put(portfolioId, cached);
+        return cached;
+    }
+
+    private static long fixed(BigDecimal price, int quantity) {
+        return PriceSeries.toFixed(price) * quantity;
+    }
+}
@@ -0,0 +1,104 @@
+package com.portfolio.backend.service;
+
+import com.portfolio.backend.entity.Portfolio;
+import com.portfolio.backend.repo.PortfolioRepository;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.LongFunction;
+
+/**
+ * The portfolios known to the database and which of them this node owns on the
+ * {@link PortfolioRing}. The in-memory partitions (tax lots, target books, recent alerts, cached
+ * summaries) are only built for owned portfolios, and independent portfolios are computed in
+ * parallel on a shared pool.
+ */
+@Service
+public class PortfolioRegistry {
+
+    private final PortfolioRepository repository;
+    private final PortfolioRing ring;
+    private final ForkJoinPool pool;
+    // portfolios are never deleted through the API, so a hit stays valid
+    private final Set<Long> known = ConcurrentHashMap.newKeySet();
+
+    public PortfolioRegistry(PortfolioRepository repository, PortfolioRing ring,
+                             @Value("${portfolio.partitions.parallelism:0}") int parallelism) {
+        this.repository = repository;
+        this.ring = ring;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    public PortfolioRing ring() {
+        return ring;
+    }
+
+    public boolean exists(long portfolioId) {
+        if (known.contains(portfolioId)) {
+            return true;
+        }
+        if (repository.existsById(portfolioId)) {
+            known.add(portfolioId);
+            return true;
+        }
+        return false;
+    }
+
+    public List<Portfolio> all() {
+        return repository.findAll();
+    }
+
+    /**
+     * Ids of the portfolios this node owns, ascending.
+     */
+    public List<Long> owned() {
+        List<Long> ids = new ArrayList<>();
+        for (Portfolio p : repository.findAll()) {
+            known.add(p.getId());
+            if (ring.owns(p.getId())) {
+                ids.add(p.getId());
+            }
+        }
+        ids.sort(null);
+        return ids;
+    }
+
+    public Portfolio create(String name) {
+        if (name == null || name.isBlank()) {
+            throw new IllegalArgumentException("name is required");
+        }
+        Portfolio p = new Portfolio();
+        p.setName(name.strip());
+        Portfolio saved = repository.save(p);
+        known.add(saved.getId());
+        return saved;
+    }
+
+    /**
+     * Runs {@code task} for each of the given portfolios in parallel and returns the results in the
+     * order of {@code portfolioIds}.
+     */
+    public <T> Map<Long, T> computeEach(List<Long> portfolioIds, LongFunction<T> task) {
+        List<T> results = pool.submit(() -> portfolioIds.parallelStream()
+                .map(id -> task.apply(id))
+                .toList()).join();
+        Map<Long, T> out = new LinkedHashMap<>();
+        for (int i = 0; i < portfolioIds.size(); i++) {
+            out.put(portfolioIds.get(i), results.get(i));
+        }
+        return out;
+    }
+}
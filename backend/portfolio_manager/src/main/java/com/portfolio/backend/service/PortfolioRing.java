@@ -0,0 +1,101 @@
+package com.portfolio.backend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Consistent-hash ring that pins every portfolio to one application node. Each node is placed on
+ * the ring at {@code virtualNodes} points; a portfolio belongs to the first point at or after its
+ * own hash. Adding or removing a node only moves the portfolios between it and its neighbours.
+ *
+ * <p>With no nodes configured the ring is a single node that owns every portfolio.
+ */
+@Component
+public class PortfolioRing {
+
+    private final String self;
+    private final List<String> nodes;
+    private final TreeMap<Long, String> points = new TreeMap<>();
+
+    public PortfolioRing(@Value("${portfolio.cluster.nodes:}") String nodes,
+                         @Value("${portfolio.cluster.self:}") String self,
+                         @Value("${portfolio.cluster.virtual-nodes:128}") int virtualNodes) {
+        List<String> list = new ArrayList<>();
+        for (String node : nodes.split(",")) {
+            if (!node.isBlank()) {
+                list.add(trimSlash(node.strip()));
+            }
+        }
+        this.nodes = List.copyOf(list);
+        this.self = trimSlash(self.strip());
+        if (!this.nodes.isEmpty() && !this.nodes.contains(this.self)) {
+            throw new IllegalStateException(
+                    "portfolio.cluster.self (" + self + ") is not one of portfolio.cluster.nodes " + this.nodes);
+        }
+        for (String node : this.nodes) {
+            for (int i = 0; i < Math.max(1, virtualNodes); i++) {
+                points.put(hash(node + "#" + i), node);
+            }
+        }
+    }
+
+    public List<String> nodes() {
+        return nodes;
+    }
+
+    public String self() {
+        return self;
+    }
+
+    public boolean isClustered() {
+        return !nodes.isEmpty();
+    }
+
+    /**
+     * The node the portfolio is pinned to: its base URL, or this node's if the ring is not clustered.
+     */
+    public String ownerOf(long portfolioId) {
+        if (points.isEmpty()) {
+            return self;
+        }
+        Map.Entry<Long, String> e = points.ceilingEntry(mix(portfolioId));
+        return (e != null ? e : points.firstEntry()).getValue();
+    }
+
+    public boolean owns(long portfolioId) {
+        return points.isEmpty() || ownerOf(portfolioId).equals(self);
+    }
+
+    /**
+     * Whether this node runs the jobs that are not per portfolio, such as price compaction: the
+     * first configured node, or the only one.
+     */
+    public boolean isCoordinator() {
+        return nodes.isEmpty() || nodes.get(0).equals(self);
+    }
+
+    // FNV-1a, then the 64-bit finalizer so that similar node names land far apart
+    static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        return mix(h);
+    }
+
+    static long mix(long z) {
+        z = (z ^ (z >>> 33)) * 0xff51afd7ed558ccdL;
+        z = (z ^ (z >>> 33)) * 0xc4ceb9fe1a85ec53L;
+        return z ^ (z >>> 33);
+    }
+
+    private static String trimSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+}
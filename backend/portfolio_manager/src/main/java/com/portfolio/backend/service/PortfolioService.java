@@ -1,10 +1,15 @@
 package com.portfolio.backend.service;
 
+import com.portfolio.backend.dto.AssetView;
+import com.portfolio.backend.dto.LotView;
+import com.portfolio.backend.dto.PortfolioSummary;
 import com.portfolio.backend.entity.Asset;
-import com.portfolio.backend.entity.PriceTarget;
+import com.portfolio.backend.entity.Position;
 import com.portfolio.backend.entity.StockPrice;
 import com.portfolio.backend.repo.AssetRepository;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDate;
@@ -14,35 +19,55 @@ import java.util.*;
 @Service
 public class PortfolioService {
 
-    // Tax rates
-    private static final BigDecimal SHORT_TERM_TAX_RATE = new BigDecimal("0.22"); // 22%
-    private static final BigDecimal LONG_TERM_TAX_RATE = new BigDecimal("0.15"); // 15%
-    private static final int LONG_TERM_HOLDING_DAYS = 730; // 2 years = 730 days
-
     private final AssetRepository assetRepository;
     private final PriceService priceService;
-    private final PriceTargetService priceTargetService;
+    private final PositionService positionService;
+    private final TaxLotIndex taxLotIndex;
+    private final RecentAlerts recentAlerts;
 
     public PortfolioService(AssetRepository assetRepository,
                             PriceService priceService,
-                            PriceTargetService priceTargetService) {
+                            PositionService positionService,
+                            TaxLotIndex taxLotIndex,
+                            RecentAlerts recentAlerts) {
         this.assetRepository = assetRepository;
         this.priceService = priceService;
-        this.priceTargetService = priceTargetService;
+        this.positionService = positionService;
+        this.taxLotIndex = taxLotIndex;
+        this.recentAlerts = recentAlerts;
     }
 
-    public Map<String, Object> getPortfolioSummary() {
-        List<Asset> assets = assetRepository.findAll();
+    /**
+     * Builds one portfolio's summary in one read-only transaction with a fixed number of round
+     * trips: one each for the lots and the positions, and at most one batched lookup for the latest
+     * prices of every held ticker. Alerts are read from {@link RecentAlerts}; triggering targets is
+     * the {@link AlertPipeline}'s job, never a reader's.
+     */
+    @Transactional(readOnly = true)
+    @Timed("portfolio.method")
+    public PortfolioSummary getPortfolioSummary(long portfolioId) {
+        List<Asset> assets = assetRepository.findByPortfolioId(portfolioId);
+        List<Position> positions = positionService.getAllPositions(portfolioId);
+
+        Set<String> tickers = new HashSet<>();
+        for (Position p : positions) {
+            tickers.add(p.getTicker());
+        }
+        Map<String, StockPrice> latestPrices = priceService.getLatestPricesForTickers(tickers);
+
+        // Totals come from the per-ticker positions; the lot loop below only builds the lot rows
+        Totals totals = totals(positions, latestPrices);
+        BigDecimal totalValue = totals.value();
+        BigDecimal totalCost = totals.cost();
 
-        BigDecimal totalValue = BigDecimal.ZERO;
-        BigDecimal totalCost = BigDecimal.ZERO;
         BigDecimal totalShortTermTax = BigDecimal.ZERO;
         BigDecimal totalLongTermTax = BigDecimal.ZERO;
+        LocalDate today = LocalDate.now();
 
-        List<Map<String, Object>> assetViews = new ArrayList<>();
+        List<AssetView> assetViews = new ArrayList<>(assets.size());
 
         for (Asset asset : assets) {
-            StockPrice latestPrice = priceService.getLatestPriceForTicker(asset.getTicker());
+            StockPrice latestPrice = latestPrices.get(asset.getTicker());
             BigDecimal marketValue = BigDecimal.ZERO;
             if (latestPrice != null && latestPrice.getClosePrice() != null) {
                 marketValue = latestPrice.getClosePrice().multiply(BigDecimal.valueOf(asset.getQuantity()));
@@ -53,9 +78,6 @@ public class PortfolioService {
                 cost = asset.getBuyPrice().multiply(BigDecimal.valueOf(asset.getQuantity()));
             }
 
-            totalValue = totalValue.add(marketValue);
-            totalCost = totalCost.add(cost);
-
             // Calculate tax liability for this asset
             BigDecimal unrealizedGain = marketValue.subtract(cost);
             BigDecimal taxLiability = BigDecimal.ZERO;
@@ -63,68 +85,142 @@ public class PortfolioService {
             long holdingDays = 0;
 
             if (asset.getBuyDate() != null && unrealizedGain.compareTo(BigDecimal.ZERO) > 0) {
-                holdingDays = ChronoUnit.DAYS.between(asset.getBuyDate(), LocalDate.now());
+                holdingDays = ChronoUnit.DAYS.between(asset.getBuyDate(), today);
 
-                if (holdingDays >= LONG_TERM_HOLDING_DAYS) {
+                if (taxLotIndex.isLongTerm(asset.getBuyDate(), today)) {
                     taxType = "LONG_TERM";
-                    taxLiability = unrealizedGain.multiply(LONG_TERM_TAX_RATE);
+                    taxLiability = unrealizedGain.multiply(taxLotIndex.getLongTermRate());
                     totalLongTermTax = totalLongTermTax.add(taxLiability);
                 } else {
                     taxType = "SHORT_TERM";
-                    taxLiability = unrealizedGain.multiply(SHORT_TERM_TAX_RATE);
+                    taxLiability = unrealizedGain.multiply(taxLotIndex.getShortTermRate());
                     totalShortTermTax = totalShortTermTax.add(taxLiability);
                 }
             }
 
-            Map<String, Object> av = new HashMap<>();
-            av.put("asset", asset);
-            av.put("marketValue", marketValue);
-            av.put("cost", cost);
-            av.put("latestPrice", latestPrice != null ? latestPrice.getClosePrice() : null);
-            av.put("unrealizedGain", unrealizedGain);
-            av.put("taxLiability", taxLiability);
-            av.put("taxType", taxType);
-            av.put("holdingDays", holdingDays);
-            assetViews.add(av);
+            LotView lot = new LotView(asset.getId(), asset.getTicker(), asset.getQuantity(),
+                    asset.getBuyPrice(), asset.getBuyDate());
+            assetViews.add(new AssetView(lot, marketValue, cost,
+                    latestPrice != null ? latestPrice.getClosePrice() : null,
+                    unrealizedGain, taxLiability, taxType, holdingDays));
         }
 
         BigDecimal totalProfit = totalValue.subtract(totalCost);
         BigDecimal totalTaxLiability = totalShortTermTax.add(totalLongTermTax);
 
-        // Evaluate price targets and collect alerts (inline to avoid mismatch)
-        List<String> alerts = new ArrayList<>();
-        List<PriceTarget> targets = priceTargetService.getActiveTargets();
-        for (PriceTarget t : targets) {
-            var sp = priceService.getLatestPriceForTicker(t.getTicker());
-            if (sp == null || sp.getClosePrice() == null) continue;
-
-            int cmp = sp.getClosePrice().compareTo(t.getTargetPrice());
-            boolean triggered;
-            if ("BUY".equalsIgnoreCase(t.getAction())) {
-                triggered = cmp <= 0;
-            } else {
-                triggered = cmp >= 0;
-            }
+        return new PortfolioSummary(assetViews, totalValue, totalCost, totalProfit, totalTaxLiability,
+                totalShortTermTax, totalLongTermTax, recentAlerts.messages(portfolioId));
+    }
 
-            if (triggered) {
-                t.setTriggered(true);
-                priceTargetService.saveTarget(t);
-                String msg = String.format("Target %s %s hit: current %s target %s",
-                        t.getTicker(), t.getAction(), sp.getClosePrice().toPlainString(), t.getTargetPrice().toPlainString());
-                alerts.add(msg);
-            }
+    /**
+     * Market value, cost and profit of one portfolio from its positions alone, without the lots.
+     */
+    @Transactional(readOnly = true)
+    @Timed("portfolio.method")
+    public Map<String, Object> getTotals(long portfolioId) {
+        List<Position> positions = positionService.getAllPositions(portfolioId);
+        Set<String> tickers = new HashSet<>();
+        for (Position p : positions) {
+            tickers.add(p.getTicker());
+        }
+        Totals totals = totals(positions, priceService.getLatestPricesForTickers(tickers));
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("positions", positions.size());
+        result.put("totalValue", totals.value());
+        result.put("totalCost", totals.cost());
+        result.put("totalProfit", totals.value().subtract(totals.cost()));
+        return result;
+    }
+
+    /**
+     * Unrealized tax liability at the latest closes, from the {@link TaxLotIndex} buckets: one
+     * short-term and one long-term bucket per ticker, so the cost is O(tickers) however many lots
+     * are held. Gains and losses net within a bucket, so a ticker's figures can be lower than the
+     * sum of the per-lot liabilities in the summary, which counts gains only.
+     */
+    @Timed("portfolio.method")
+    public Map<String, Object> getTaxLiability(long portfolioId) {
+        LocalDate today = LocalDate.now();
+        taxLotIndex.rollover(portfolioId, today);
+        List<TaxLotIndex.Snapshot> buckets = taxLotIndex.snapshot(portfolioId);
+        Set<String> tickers = new HashSet<>();
+        for (TaxLotIndex.Snapshot b : buckets) {
+            tickers.add(b.ticker());
+        }
+        Map<String, StockPrice> latestPrices = priceService.getLatestPricesForTickers(tickers);
+
+        BigDecimal shortRate = taxLotIndex.getShortTermRate();
+        BigDecimal longRate = taxLotIndex.getLongTermRate();
+        BigDecimal totalShortTermTax = BigDecimal.ZERO;
+        BigDecimal totalLongTermTax = BigDecimal.ZERO;
+        List<Map<String, Object>> rows = new ArrayList<>(buckets.size());
+        buckets.sort(Comparator.comparing(TaxLotIndex.Snapshot::ticker));
+        for (TaxLotIndex.Snapshot b : buckets) {
+            StockPrice sp = latestPrices.get(b.ticker());
+            BigDecimal price = sp != null ? sp.getClosePrice() : null;
+            BigDecimal shortGain = gain(price, b.shortTermQuantity(), b.shortTermCost());
+            BigDecimal longGain = gain(price, b.longTermQuantity(), b.longTermCost());
+            BigDecimal shortTax = taxOn(shortGain, shortRate);
+            BigDecimal longTax = taxOn(longGain, longRate);
+            totalShortTermTax = totalShortTermTax.add(shortTax);
+            totalLongTermTax = totalLongTermTax.add(longTax);
+
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("ticker", b.ticker());
+            row.put("latestPrice", price);
+            row.put("shortTermQuantity", b.shortTermQuantity());
+            row.put("shortTermCost", PriceSeries.fromFixed(b.shortTermCost()));
+            row.put("shortTermGain", shortGain);
+            row.put("shortTermTax", shortTax);
+            row.put("longTermQuantity", b.longTermQuantity());
+            row.put("longTermCost", PriceSeries.fromFixed(b.longTermCost()));
+            row.put("longTermGain", longGain);
+            row.put("longTermTax", longTax);
+            rows.add(row);
         }
 
-        Map<String, Object> result = new HashMap<>();
-        result.put("assets", assetViews);
-        result.put("totalValue", totalValue);
-        result.put("totalCost", totalCost);
-        result.put("totalProfit", totalProfit);
-        result.put("totalTaxLiability", totalTaxLiability);
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("portfolioId", portfolioId);
+        result.put("asOf", today);
+        result.put("longTermDays", taxLotIndex.getLongTermDays());
+        result.put("shortTermRate", shortRate);
+        result.put("longTermRate", longRate);
+        result.put("nextCrossover", taxLotIndex.nextCrossover(portfolioId));
         result.put("shortTermTax", totalShortTermTax);
         result.put("longTermTax", totalLongTermTax);
-        result.put("alerts", alerts);
-
+        result.put("totalTaxLiability", totalShortTermTax.add(totalLongTermTax));
+        result.put("tickers", rows);
         return result;
     }
+
+    private static Totals totals(List<Position> positions, Map<String, StockPrice> latestPrices) {
+        BigDecimal totalValue = BigDecimal.ZERO;
+        BigDecimal totalCost = BigDecimal.ZERO;
+        for (Position p : positions) {
+            StockPrice latestPrice = latestPrices.get(p.getTicker());
+            if (latestPrice != null && latestPrice.getClosePrice() != null) {
+                totalValue = totalValue.add(latestPrice.getClosePrice().multiply(BigDecimal.valueOf(p.getTotalQuantity())));
+            }
+            totalCost = totalCost.add(p.getTotalCost());
+        }
+        return new Totals(totalValue, totalCost);
+    }
+
+    private record Totals(BigDecimal value, BigDecimal cost) {
+    }
+
+    // null when there is no price to value the shares at
+    private static BigDecimal gain(BigDecimal price, long quantity, long fixedCost) {
+        if (quantity == 0) {
+            return BigDecimal.ZERO;
+        }
+        if (price == null) {
+            return null;
+        }
+        return price.multiply(BigDecimal.valueOf(quantity)).subtract(PriceSeries.fromFixed(fixedCost));
+    }
+
+    private static BigDecimal taxOn(BigDecimal gain, BigDecimal rate) {
+        return gain == null || gain.signum() <= 0 ? BigDecimal.ZERO : gain.multiply(rate);
+    }
 }
@@ -0,0 +1,80 @@
+package com.portfolio.backend.service;
+
+import io.micrometer.core.annotation.Timed;
+import org.springframework.stereotype.Service;
+import tools.jackson.databind.ObjectMapper;
+
+import java.time.LocalDate;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Each portfolio's summary serialized once per {@link DataVersion} and day, since holding periods
+ * and tax classes move with the date. The ETag is derived from that key alone, so a poll carrying
+ * the current ETag is answered without building or even looking at the summary.
+ */
+@Service
+public class PortfolioSummaryCache {
+
+    /**
+     * Serialized summary and the ETag it is served under.
+     */
+    public record Entry(String etag, byte[] json) {
+    }
+
+    private final PortfolioService portfolioService;
+    private final DataVersion dataVersion;
+    private final ObjectMapper objectMapper;
+
+    private final ConcurrentHashMap<Long, Slot> slots = new ConcurrentHashMap<>();
+
+    public PortfolioSummaryCache(PortfolioService portfolioService, DataVersion dataVersion, ObjectMapper objectMapper) {
+        this.portfolioService = portfolioService;
+        this.dataVersion = dataVersion;
+        this.objectMapper = objectMapper;
+    }
+
+    public String currentEtag(long portfolioId) {
+        long version = dataVersion.current(portfolioId);
+        long day = LocalDate.now().toEpochDay();
+        Slot slot = slots.get(portfolioId);
+        Built b = slot != null ? slot.built : null;
+        return b != null && b.version == version && b.day == day ? b.entry.etag() : etag(portfolioId, version, day);
+    }
+
+    /**
+     * Returns the portfolio's cached summary, rebuilding it first if anything was written since.
+     * Concurrent callers that find it stale wait for one rebuild instead of each running their own;
+     * other portfolios are not held up.
+     */
+    @Timed("portfolio.method")
+    public Entry get(long portfolioId) {
+        Slot slot = slots.computeIfAbsent(portfolioId, id -> new Slot());
+        Built b = slot.built;
+        if (b != null && b.version == dataVersion.current(portfolioId) && b.day == LocalDate.now().toEpochDay()) {
+            return b.entry;
+        }
+        synchronized (slot) {
+            // read the key before the data: a write landing mid-build bumps past it
+            long version = dataVersion.current(portfolioId);
+            long day = LocalDate.now().toEpochDay();
+            b = slot.built;
+            if (b == null || b.version != version || b.day != day) {
+                byte[] json = objectMapper.writeValueAsBytes(portfolioService.getPortfolioSummary(portfolioId));
+                b = new Built(version, day, new Entry(etag(portfolioId, version, day), json));
+                slot.built = b;
+            }
+            return b.entry;
+        }
+    }
+
+    private String etag(long portfolioId, long version, long day) {
+        return "\"" + dataVersion.epoch() + "-" + portfolioId + "-" + version + "-" + day + "\"";
+    }
+
+    private static final class Slot {
+        volatile Built built;
+    }
+
+    private record Built(long version, long day, Entry entry) {
+    }
+}
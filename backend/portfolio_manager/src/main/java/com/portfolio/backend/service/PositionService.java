@@ -0,0 +1,220 @@
+package com.portfolio.backend.service;
+
+import com.portfolio.backend.entity.Asset;
+import com.portfolio.backend.entity.Position;
+import com.portfolio.backend.entity.PositionId;
+import com.portfolio.backend.repo.AssetRepository;
+import com.portfolio.backend.repo.PositionRepository;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+
+/**
+ * Maintains the per-portfolio, per-ticker {@link Position} aggregates. The on* methods are called
+ * by AssetService inside its own transactions, so a lot write and its position update commit or
+ * roll back together.
+ */
+@Service
+public class PositionService {
+
+    private static final Logger log = LoggerFactory.getLogger(PositionService.class);
+
+    private final PositionRepository positionRepository;
+    private final AssetRepository assetRepository;
+    private final DataVersion dataVersion;
+    private final PortfolioRegistry portfolioRegistry;
+
+    public PositionService(PositionRepository positionRepository, AssetRepository assetRepository,
+                           DataVersion dataVersion, PortfolioRegistry portfolioRegistry) {
+        this.positionRepository = positionRepository;
+        this.assetRepository = assetRepository;
+        this.dataVersion = dataVersion;
+        this.portfolioRegistry = portfolioRegistry;
+    }
+
+    public List<Position> getAllPositions(long portfolioId) {
+        return positionRepository.findByPortfolioId(portfolioId);
+    }
+
+    public Position getPosition(long portfolioId, String ticker) {
+        return positionRepository.findById(new PositionId(portfolioId, ticker)).orElse(null);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        int n = rebuild();
+        log.info("Rebuilt {} position(s) from lots", n);
+    }
+
+    /**
+     * Rebuilds the positions of every portfolio this node owns. Other nodes' portfolios are left
+     * alone, so a node starting up never rewrites rows another node is maintaining.
+     */
+    @Transactional
+    public int rebuild() {
+        return rebuild(portfolioRegistry.owned());
+    }
+
+    /**
+     * Throws the positions of the given portfolios away and recomputes them from the lots. Returns
+     * the number of positions.
+     */
+    @Transactional
+    @Timed("portfolio.method")
+    public int rebuild(Collection<Long> portfolioIds) {
+        if (portfolioIds.isEmpty()) {
+            return 0;
+        }
+        positionRepository.deleteByPortfolioIds(portfolioIds);
+        List<Position> positions = new ArrayList<>();
+        for (Object[] row : assetRepository.aggregateForPortfolios(portfolioIds)) {
+            positions.add(fromAggregate(row));
+        }
+        positionRepository.saveAll(positions);
+        dataVersion.bumpAfterCommit();
+        return positions.size();
+    }
+
+    /**
+     * Compares every stored position of the portfolio with a fresh aggregate over its lots and lists
+     * the differences.
+     */
+    @Transactional(readOnly = true)
+    @Timed("portfolio.method")
+    public Map<String, Object> checkConsistency(long portfolioId) {
+        Map<String, Position> expected = new HashMap<>();
+        for (Object[] row : assetRepository.aggregateForPortfolios(List.of(portfolioId))) {
+            Position p = fromAggregate(row);
+            expected.put(p.getTicker(), p);
+        }
+        Map<String, Position> actual = new HashMap<>();
+        for (Position p : positionRepository.findByPortfolioId(portfolioId)) {
+            actual.put(p.getTicker(), p);
+        }
+
+        List<Map<String, Object>> mismatches = new ArrayList<>();
+        for (Map.Entry<String, Position> e : expected.entrySet()) {
+            Position a = actual.get(e.getKey());
+            if (a == null || !sameAggregate(e.getValue(), a)) {
+                mismatches.add(mismatch(e.getKey(), e.getValue(), a));
+            }
+        }
+        for (Map.Entry<String, Position> e : actual.entrySet()) {
+            if (!expected.containsKey(e.getKey())) {
+                mismatches.add(mismatch(e.getKey(), null, e.getValue()));
+            }
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("portfolioId", portfolioId);
+        result.put("consistent", mismatches.isEmpty());
+        result.put("positions", actual.size());
+        result.put("mismatches", mismatches);
+        return result;
+    }
+
+    void onLotAdded(Asset lot) {
+        Position p = positionRepository.findForUpdate(lot.getPortfolioId(), lot.getTicker());
+        if (p == null) {
+            p = new Position(lot.getPortfolioId(), lot.getTicker());
+        }
+        p.setTotalQuantity(p.getTotalQuantity() + lot.getQuantity());
+        p.setTotalCost(p.getTotalCost().add(costOf(lot, lot.getQuantity())));
+        p.setLotCount(p.getLotCount() + 1);
+        if (lot.getBuyDate() != null
+                && (p.getEarliestBuyDate() == null || lot.getBuyDate().isBefore(p.getEarliestBuyDate()))) {
+            p.setEarliestBuyDate(lot.getBuyDate());
+        }
+        positionRepository.save(p);
+    }
+
+    /**
+     * Applies a sale that consumed lots FIFO.
+     *
+     * @param soldQuantity     shares removed across all lots
+     * @param soldCost         cost basis of the removed shares
+     * @param lotsClosed       number of lots consumed completely
+     * @param remainingEarliest buy date of the oldest lot still open, or null if none is left
+     */
+    void onLotsSold(long portfolioId, String ticker, long soldQuantity, BigDecimal soldCost, int lotsClosed,
+                    LocalDate remainingEarliest) {
+        Position p = positionRepository.findForUpdate(portfolioId, ticker);
+        if (p == null) {
+            return;
+        }
+        p.setTotalQuantity(p.getTotalQuantity() - soldQuantity);
+        p.setTotalCost(p.getTotalCost().subtract(soldCost));
+        p.setLotCount(p.getLotCount() - lotsClosed);
+        p.setEarliestBuyDate(remainingEarliest);
+        saveOrDrop(p);
+    }
+
+    void onLotRemoved(Asset lot) {
+        Position p = positionRepository.findForUpdate(lot.getPortfolioId(), lot.getTicker());
+        if (p == null) {
+            return;
+        }
+        p.setTotalQuantity(p.getTotalQuantity() - lot.getQuantity());
+        p.setTotalCost(p.getTotalCost().subtract(costOf(lot, lot.getQuantity())));
+        p.setLotCount(p.getLotCount() - 1);
+        if (p.getLotCount() > 0 && Objects.equals(lot.getBuyDate(), p.getEarliestBuyDate())) {
+            // the removed lot may have been the oldest one; ask the lots
+            List<Object[]> agg = assetRepository.aggregateForTicker(lot.getPortfolioId(), lot.getTicker());
+            p.setEarliestBuyDate(agg.isEmpty() ? null : (LocalDate) agg.get(0)[4]);
+        }
+        saveOrDrop(p);
+    }
+
+    static BigDecimal costOf(Asset lot, long quantity) {
+        if (lot.getBuyPrice() == null) {
+            return BigDecimal.ZERO;
+        }
+        return lot.getBuyPrice().multiply(BigDecimal.valueOf(quantity));
+    }
+
+    private void saveOrDrop(Position p) {
+        if (p.getLotCount() <= 0) {
+            positionRepository.delete(p);
+        } else {
+            positionRepository.save(p);
+        }
+    }
+
+    private static Position fromAggregate(Object[] row) {
+        Position p = new Position(((Number) row[0]).longValue(), (String) row[1]);
+        p.setTotalQuantity(row[2] == null ? 0 : ((Number) row[2]).longValue());
+        p.setTotalCost(row[3] == null ? BigDecimal.ZERO : (BigDecimal) row[3]);
+        p.setEarliestBuyDate((LocalDate) row[4]);
+        p.setLotCount(((Number) row[5]).intValue());
+        return p;
+    }
+
+    private static boolean sameAggregate(Position a, Position b) {
+        return a.getTotalQuantity() == b.getTotalQuantity()
+                && a.getTotalCost().compareTo(b.getTotalCost()) == 0
+                && Objects.equals(a.getEarliestBuyDate(), b.getEarliestBuyDate())
+                && a.getLotCount() == b.getLotCount();
+    }
+
+    private static Map<String, Object> mismatch(String ticker, Position expected, Position actual) {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("ticker", ticker);
+        m.put("expected", expected);
+        m.put("actual", actual);
+        return m;
+    }
+}
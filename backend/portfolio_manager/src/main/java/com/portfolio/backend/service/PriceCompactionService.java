@@ -0,0 +1,165 @@
+package com.portfolio.backend.service;
+
+import com.portfolio.backend.dto.OhlcBar;
+import com.portfolio.backend.entity.Stock;
+import com.portfolio.backend.entity.StockPrice;
+import com.portfolio.backend.repo.PriceRollupRepository;
+import com.portfolio.backend.repo.PriceRollupRepository.Tier;
+import com.portfolio.backend.repo.StockPriceBatchRepository;
+import com.portfolio.backend.repo.StockPriceCursorRepository;
+import com.portfolio.backend.repo.StockRepository;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Tiered retention for price history. Daily rows older than the daily window (rounded down to a
+ * month start) are folded into weekly and monthly OHLC rollups and deleted from {@code stock_price};
+ * weekly bars older than the weekly window are dropped, and monthly bars are kept for good.
+ *
+ * <p>Each ticker is compacted in one transaction (read the old rows through a cursor, upsert the
+ * bars, delete the rows), so a failed or repeated run never loses or double-counts a close. The
+ * latest close of a ticker always stays a daily row, because valuations read it.
+ */
+@Lazy(false)
+@Service
+public class PriceCompactionService {
+
+    private static final Logger log = LoggerFactory.getLogger(PriceCompactionService.class);
+
+    private final StockRepository stockRepository;
+    private final StockPriceCursorRepository cursorRepository;
+    private final StockPriceBatchRepository batchRepository;
+    private final PriceRollupRepository rollupRepository;
+    private final PriceSeriesStore priceSeriesStore;
+    private final StockPriceService stockPriceService;
+    private final LatestPriceIndex latestPriceIndex;
+    private final TransactionTemplate transactionTemplate;
+    private final PortfolioRing portfolioRing;
+    private final int dailyDays;
+    private final int weeklyDays;
+
+    public PriceCompactionService(StockRepository stockRepository,
+                                  StockPriceCursorRepository cursorRepository,
+                                  StockPriceBatchRepository batchRepository,
+                                  PriceRollupRepository rollupRepository,
+                                  PriceSeriesStore priceSeriesStore,
+                                  StockPriceService stockPriceService,
+                                  LatestPriceIndex latestPriceIndex,
+                                  TransactionTemplate transactionTemplate,
+                                  PortfolioRing portfolioRing,
+                                  @Value("${portfolio.prices.retention.daily-days:730}") int dailyDays,
+                                  @Value("${portfolio.prices.retention.weekly-days:3650}") int weeklyDays) {
+        this.stockRepository = stockRepository;
+        this.cursorRepository = cursorRepository;
+        this.batchRepository = batchRepository;
+        this.rollupRepository = rollupRepository;
+        this.priceSeriesStore = priceSeriesStore;
+        this.stockPriceService = stockPriceService;
+        this.latestPriceIndex = latestPriceIndex;
+        this.transactionTemplate = transactionTemplate;
+        this.portfolioRing = portfolioRing;
+        this.dailyDays = dailyDays;
+        this.weeklyDays = weeklyDays;
+    }
+
+    /**
+     * Prices are shared by every node, so only the ring's coordinator compacts them on schedule.
+     */
+    @Scheduled(cron = "${portfolio.prices.compaction.cron:0 30 2 * * *}")
+    public void scheduledCompaction() {
+        if (!portfolioRing.isCoordinator()) {
+            return;
+        }
+        Map<String, Object> result = compact();
+        log.info("Price compaction: {}", result);
+    }
+
+    @Timed("portfolio.method")
+    public Map<String, Object> compact() {
+        long start = System.nanoTime();
+        LocalDate today = LocalDate.now();
+        LocalDate cutoff = today.minusDays(dailyDays).withDayOfMonth(1);
+
+        int tickers = 0;
+        long rows = 0;
+        for (Stock stock : stockRepository.findAll()) {
+            long n = compactTicker(stock.getTicker(), cutoff);
+            if (n > 0) {
+                tickers++;
+                rows += n;
+            }
+        }
+        LocalDate weeklyCutoff = today.minusDays(weeklyDays).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        int weeklyPruned = rollupRepository.deleteBefore(Tier.WEEKLY, weeklyCutoff);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("dailyCutoff", cutoff);
+        result.put("weeklyCutoff", weeklyCutoff);
+        result.put("tickersCompacted", tickers);
+        result.put("rowsCompacted", rows);
+        result.put("weeklyBarsPruned", weeklyPruned);
+        result.put("elapsedMs", (System.nanoTime() - start) / 1_000_000);
+        return result;
+    }
+
+    /**
+     * Rolls up and deletes the ticker's daily rows before {@code cutoff}. Returns the number of rows.
+     */
+    long compactTicker(String ticker, LocalDate cutoff) {
+        StockPrice latest = latestPriceIndex.get(ticker);
+        if (latest == null || latest.getPriceDate() == null) {
+            return 0;
+        }
+        LocalDate tickerCutoff = latest.getPriceDate().isBefore(cutoff) ? latest.getPriceDate() : cutoff;
+
+        long[] result = transactionTemplate.execute(status -> {
+            Map<LocalDate, OhlcAccumulator> weeks = new LinkedHashMap<>();
+            Map<LocalDate, OhlcAccumulator> months = new LinkedHashMap<>();
+            long[] acc = new long[2]; // rows, last epoch day
+            cursorRepository.forEachInRange(ticker, null, tickerCutoff.minusDays(1), rs -> {
+                LocalDate date = rs.getDate(1).toLocalDate();
+                int day = PriceSeries.toEpochDay(date);
+                long close = PriceSeries.toFixed(rs.getBigDecimal(2));
+                weeks.computeIfAbsent(date.with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)),
+                        k -> new OhlcAccumulator()).add(day, close);
+                months.computeIfAbsent(date.withDayOfMonth(1), k -> new OhlcAccumulator()).add(day, close);
+                acc[0]++;
+                acc[1] = Math.max(acc[1], day);
+            });
+            if (acc[0] == 0) {
+                return acc;
+            }
+            rollupRepository.upsertAll(Tier.WEEKLY, ticker, toBars(weeks));
+            rollupRepository.upsertAll(Tier.MONTHLY, ticker, toBars(months));
+            batchRepository.deleteBefore(ticker, tickerCutoff);
+            return acc;
+        });
+
+        if (result == null || result[0] == 0) {
+            return 0;
+        }
+        priceSeriesStore.evict(ticker);
+        stockPriceService.onCompacted(ticker, LocalDate.ofEpochDay(result[1]));
+        return result[0];
+    }
+
+    private static Map<LocalDate, OhlcBar> toBars(Map<LocalDate, OhlcAccumulator> periods) {
+        Map<LocalDate, OhlcBar> bars = new LinkedHashMap<>();
+        for (Map.Entry<LocalDate, OhlcAccumulator> e : periods.entrySet()) {
+            bars.put(e.getKey(), e.getValue().toBar());
+        }
+        return bars;
+    }
+}
@@ -0,0 +1,69 @@
+package com.portfolio.backend.service;
+
+import com.portfolio.backend.dto.OhlcBar;
+import com.portfolio.backend.repo.PriceRollupRepository;
+import com.portfolio.backend.repo.StockPriceCursorRepository;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.stereotype.Service;
+import tools.jackson.core.JsonGenerator;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Writes a ticker's price history as a JSON array of {@code {ticker, priceDate, closePrice}}
+ * straight from a database cursor to the response, without building a list. Compacted periods come
+ * first, one close per rollup bar as in {@link StockPriceService#getPriceHistory}.
+ */
+@Service
+public class PriceHistoryStreamer {
+
+    private static final int FLUSH_EVERY = 1000;
+
+    private final StockPriceCursorRepository cursorRepository;
+    private final PriceRollupRepository rollupRepository;
+    private final ObjectMapper objectMapper;
+
+    public PriceHistoryStreamer(StockPriceCursorRepository cursorRepository, PriceRollupRepository rollupRepository,
+                                ObjectMapper objectMapper) {
+        this.cursorRepository = cursorRepository;
+        this.rollupRepository = rollupRepository;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Returns the number of rows written.
+     */
+    @Timed("portfolio.method")
+    public long stream(String ticker, LocalDate from, LocalDate to, OutputStream out) {
+        long[] rows = new long[1];
+        try (JsonGenerator json = objectMapper.createGenerator(out)) {
+            json.writeStartArray();
+            LocalDate dailyFrom = from;
+            for (OhlcBar bar : rollupRepository.findTieredBars(ticker, from, to, true)) {
+                if (to != null && bar.end().isAfter(to)) {
+                    break;
+                }
+                write(json, ticker, bar.end(), bar.close(), ++rows[0]);
+                dailyFrom = bar.end().plusDays(1);
+            }
+            cursorRepository.forEachInRange(ticker, dailyFrom, to,
+                    rs -> write(json, ticker, rs.getDate(1).toLocalDate(), rs.getBigDecimal(2), ++rows[0]));
+            json.writeEndArray();
+        }
+        return rows[0];
+    }
+
+    private static void write(JsonGenerator json, String ticker, LocalDate date, BigDecimal close, long row) {
+        json.writeStartObject();
+        json.writeStringProperty("ticker", ticker);
+        json.writeStringProperty("priceDate", date.toString());
+        json.writeNumberProperty("closePrice", close);
+        json.writeEndObject();
+        if (row % FLUSH_EVERY == 0) {
+            json.flush();
+        }
+    }
+}
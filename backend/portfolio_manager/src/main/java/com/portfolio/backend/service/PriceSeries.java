@@ -0,0 +1,248 @@
+package com.portfolio.backend.service;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Column-oriented close history for one ticker: epoch days in an {@code int[]} and closes as
+ * fixed-point cents in a {@code long[]}, both sorted by date.
+ *
+ * <p>Writers are serialized on the instance. Readers never lock: they work on an immutable
+ * {@link Slice} over the arrays published by the last write, so an append that lands after
+ * the slice was taken is simply not visible to it. Restating the close of a day already in a
+ * slice is the one write a reader may observe.
+ *
+ * <p>Where the daily rows were compacted away the series holds one close per rollup bar instead;
+ * {@link #dailyFrom()} is the first day from which every close is a daily one. Readers that treat
+ * consecutive points as consecutive trading days, such as daily returns, start there.
+ */
+public final class PriceSeries {
+
+    /** Closes are stored as unscaled values at this scale, matching {@code close_price DECIMAL(10,2)}. */
+    public static final int SCALE = 2;
+
+    private static final double UNIT = Math.pow(10, SCALE);
+
+    private static final int INITIAL_CAPACITY = 16;
+    // Object header plus array length, per array.
+    private static final int ARRAY_HEADER_BYTES = 16;
+
+    private final String ticker;
+    private final int dailyFrom;
+    private volatile Slice published;
+
+    public PriceSeries(String ticker) {
+        this(ticker, new int[INITIAL_CAPACITY], new long[INITIAL_CAPACITY], 0, Integer.MIN_VALUE);
+    }
+
+    private PriceSeries(String ticker, int[] days, long[] closes, int size, int dailyFrom) {
+        this.ticker = ticker;
+        this.dailyFrom = dailyFrom;
+        this.published = new Slice(days, closes, 0, size);
+    }
+
+    /**
+     * Builds a series of daily closes from rows already sorted by date.
+     */
+    public static PriceSeries ofSorted(String ticker, int[] days, long[] closes, int size) {
+        return new PriceSeries(ticker, days, closes, size, Integer.MIN_VALUE);
+    }
+
+    /**
+     * Builds a series from rows already sorted by date, of which those before {@code dailyFrom}
+     * are one close per rollup bar.
+     */
+    public static PriceSeries ofSorted(String ticker, int[] days, long[] closes, int size, int dailyFrom) {
+        return new PriceSeries(ticker, days, closes, size, dailyFrom);
+    }
+
+    public static long toFixed(BigDecimal price) {
+        return price.setScale(SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    public static BigDecimal fromFixed(long fixed) {
+        return BigDecimal.valueOf(fixed, SCALE);
+    }
+
+    public static int toEpochDay(LocalDate date) {
+        return Math.toIntExact(date.toEpochDay());
+    }
+
+    public String getTicker() {
+        return ticker;
+    }
+
+    public int size() {
+        return published.size();
+    }
+
+    /**
+     * First epoch day from which the series holds daily closes; {@link Integer#MIN_VALUE} if it
+     * holds no rollup closes.
+     */
+    public int dailyFrom() {
+        return dailyFrom;
+    }
+
+    /**
+     * The daily closes, without the rollup closes before them.
+     */
+    public Slice daily() {
+        return slice(dailyFrom, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Adds or replaces the close for a day. There is one close per day, so an existing day is
+     * overwritten in place; later days are appended in place and earlier ones inserted by copy.
+     */
+    public synchronized void put(int epochDay, long close) {
+        Slice cur = published;
+        int[] days = cur.days;
+        long[] closes = cur.closes;
+        int size = cur.to;
+        int pos = lowerBound(days, 0, size, epochDay);
+
+        if (pos < size && days[pos] == epochDay) {
+            closes[pos] = close;
+            return;
+        }
+
+        if (pos == size && size < days.length) {
+            days[size] = epochDay;
+            closes[size] = close;
+            published = new Slice(days, closes, 0, size + 1);
+            return;
+        }
+
+        int capacity = size < days.length ? days.length : Math.max(INITIAL_CAPACITY, days.length + (days.length >> 1));
+        int[] newDays = new int[capacity];
+        long[] newCloses = new long[capacity];
+        System.arraycopy(days, 0, newDays, 0, pos);
+        System.arraycopy(closes, 0, newCloses, 0, pos);
+        newDays[pos] = epochDay;
+        newCloses[pos] = close;
+        System.arraycopy(days, pos, newDays, pos + 1, size - pos);
+        System.arraycopy(closes, pos, newCloses, pos + 1, size - pos);
+        published = new Slice(newDays, newCloses, 0, size + 1);
+    }
+
+    public Slice all() {
+        return published;
+    }
+
+    /**
+     * Rows with {@code fromDay <= day <= toDay}, located by binary search.
+     */
+    public Slice slice(int fromDay, int toDay) {
+        Slice cur = published;
+        int lo = lowerBound(cur.days, 0, cur.to, fromDay);
+        int hi = upperBound(cur.days, lo, cur.to, toDay);
+        return new Slice(cur.days, cur.closes, lo, Math.max(lo, hi));
+    }
+
+    public Slice slice(LocalDate from, LocalDate to) {
+        int fromDay = from == null ? Integer.MIN_VALUE : toEpochDay(from);
+        int toDay = to == null ? Integer.MAX_VALUE : toEpochDay(to);
+        return slice(fromDay, toDay);
+    }
+
+    /**
+     * Bytes held by the backing arrays, including unused capacity.
+     */
+    public long retainedBytes() {
+        Slice cur = published;
+        return 2L * ARRAY_HEADER_BYTES + (long) cur.days.length * Integer.BYTES + (long) cur.closes.length * Long.BYTES;
+    }
+
+    /** First index in [from, to) whose day is >= key. */
+    static int lowerBound(int[] days, int from, int to, int key) {
+        int lo = from, hi = to;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (days[mid] < key) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /** First index in [from, to) whose day is > key. */
+    static int upperBound(int[] days, int from, int to, int key) {
+        int lo = from, hi = to;
+        while (lo < hi) {
+            int mid = (lo + hi) >>> 1;
+            if (days[mid] <= key) lo = mid + 1;
+            else hi = mid;
+        }
+        return lo;
+    }
+
+    /**
+     * Read-only window [from, to) over a series' arrays. The arrays may be longer than the window
+     * and may be shared with later writes, so callers must only index within the window.
+     */
+    public static final class Slice {
+        private final int[] days;
+        private final long[] closes;
+        private final int from;
+        private final int to;
+
+        Slice(int[] days, long[] closes, int from, int to) {
+            this.days = days;
+            this.closes = closes;
+            this.from = from;
+            this.to = to;
+        }
+
+        public int size() {
+            return to - from;
+        }
+
+        public boolean isEmpty() {
+            return to == from;
+        }
+
+        public int dayAt(int i) {
+            return days[from + i];
+        }
+
+        public long closeAt(int i) {
+            return closes[from + i];
+        }
+
+        public LocalDate dateAt(int i) {
+            return LocalDate.ofEpochDay(days[from + i]);
+        }
+
+        public BigDecimal priceAt(int i) {
+            return fromFixed(closes[from + i]);
+        }
+
+        /**
+         * The first {@code n} rows of this window (all of them if there are fewer).
+         */
+        public Slice head(int n) {
+            return new Slice(days, closes, from, from + Math.max(0, Math.min(n, to - from)));
+        }
+
+        public int[] copyDays() {
+            return Arrays.copyOfRange(days, from, to);
+        }
+
+        public long[] copyCloses() {
+            return Arrays.copyOfRange(closes, from, to);
+        }
+
+        /**
+         * Closes as doubles in price units, for analytics that work in floating point.
+         */
+        public double[] closesAsDoubles() {
+            double[] out = new double[to - from];
+            for (int i = from; i < to; i++) {
+                out[i - from] = closes[i] / UNIT;
+            }
+            return out;
+        }
+    }
+}
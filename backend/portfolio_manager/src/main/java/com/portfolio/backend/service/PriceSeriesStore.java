@@ -0,0 +1,141 @@
+package com.portfolio.backend.service;
+
+import com.portfolio.backend.dto.OhlcBar;
+import com.portfolio.backend.dto.PricePoint;
+import com.portfolio.backend.entity.StockPrice;
+import com.portfolio.backend.repo.PriceRollupRepository;
+import com.portfolio.backend.repo.StockPriceRepository;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Read-optimized, per-ticker column store over {@code stock_price}. A ticker's history is loaded
+ * from the database the first time it is read and from then on kept in sync by the price write
+ * paths, so history reads and analytics work on primitive arrays instead of entities.
+ *
+ * <p>Where daily rows were compacted away, the series holds one close per rollup bar instead,
+ * weekly where kept and monthly before that, dated on the bar's last trading day. Readers see the
+ * whole history at the finest resolution still stored, and {@link PriceSeries#dailyFrom()} tells
+ * where the daily closes start: risk works on daily returns only, while portfolio history carries
+ * each bar's close forward until the next one. Series are loaded from the primary, see
+ * {@link PrimaryReads}.
+ */
+@Component
+public class PriceSeriesStore {
+
+    // Rough shallow size of one loaded StockPrice: the entity (32), its Long id (16), LocalDate (24)
+    // and compact BigDecimal (40). Hibernate's persistence-context bookkeeping comes on top of this.
+    static final int ENTITY_BYTES_PER_POINT_ESTIMATE = 112;
+
+    private final StockPriceRepository stockPriceRepository;
+    private final PriceRollupRepository rollupRepository;
+    private final PrimaryReads primaryReads;
+    private final ConcurrentHashMap<String, PriceSeries> series = new ConcurrentHashMap<>();
+
+    public PriceSeriesStore(StockPriceRepository stockPriceRepository, PriceRollupRepository rollupRepository,
+                            PrimaryReads primaryReads) {
+        this.stockPriceRepository = stockPriceRepository;
+        this.rollupRepository = rollupRepository;
+        this.primaryReads = primaryReads;
+    }
+
+    /**
+     * The ticker's series, loading it on first access.
+     */
+    public PriceSeries get(String ticker) {
+        return series.computeIfAbsent(ticker, t -> primaryReads.load(() -> load(t)));
+    }
+
+    public PriceSeries.Slice slice(String ticker, LocalDate from, LocalDate to) {
+        return get(ticker).slice(from, to);
+    }
+
+    public List<PricePoint> getHistory(String ticker, LocalDate from, LocalDate to) {
+        PriceSeries.Slice slice = slice(ticker, from, to);
+        List<PricePoint> points = new ArrayList<>(slice.size());
+        for (int i = 0; i < slice.size(); i++) {
+            points.add(new PricePoint(ticker, slice.dateAt(i), slice.priceAt(i)));
+        }
+        return points;
+    }
+
+    /**
+     * Mirrors a row that was just written to {@code stock_price}. Tickers that have not been loaded
+     * yet are skipped; they pick the row up from the database when first read.
+     */
+    public void onPriceWritten(StockPrice sp) {
+        if (sp == null || sp.getPriceDate() == null || sp.getClosePrice() == null) {
+            return;
+        }
+        put(sp.getTicker(), sp.getPriceDate(), sp.getClosePrice());
+    }
+
+    public void put(String ticker, LocalDate date, BigDecimal close) {
+        int day = PriceSeries.toEpochDay(date);
+        long fixed = PriceSeries.toFixed(close);
+        // computeIfPresent waits for an in-flight load of the same ticker instead of missing it
+        series.computeIfPresent(ticker, (k, s) -> {
+            s.put(day, fixed);
+            return s;
+        });
+    }
+
+    public void evict(String ticker) {
+        series.remove(ticker);
+    }
+
+    public Map<String, Object> getStats() {
+        long points = 0;
+        long bytes = 0;
+        for (PriceSeries s : series.values()) {
+            points += s.size();
+            bytes += s.retainedBytes();
+        }
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("tickers", series.size());
+        stats.put("points", points);
+        stats.put("retainedBytes", bytes);
+        stats.put("bytesPerPoint", points == 0 ? 0.0 : (double) bytes / points);
+        stats.put("entityBytesPerPointEstimate", ENTITY_BYTES_PER_POINT_ESTIMATE);
+        return stats;
+    }
+
+    private PriceSeries load(String ticker) {
+        LocalDate rolledUpThrough = rollupRepository.findLastRolledUpDate(ticker);
+        List<OhlcBar> bars = rolledUpThrough == null
+                ? List.of()
+                : rollupRepository.findTieredBars(ticker, null, rolledUpThrough, true);
+        List<Object[]> rows = stockPriceRepository.findDateAndCloseByTicker(ticker);
+        int n = bars.size() + rows.size();
+        int[] days = new int[Math.max(n, 16)];
+        long[] closes = new long[days.length];
+        int size = 0;
+        int firstDaily = rows.isEmpty() || rows.get(0)[0] == null
+                ? Integer.MAX_VALUE
+                : PriceSeries.toEpochDay((LocalDate) rows.get(0)[0]);
+        for (OhlcBar bar : bars) {
+            int day = PriceSeries.toEpochDay(bar.end());
+            // a daily row that was backfilled after compaction wins over the bar
+            if (day < firstDaily && (size == 0 || day > days[size - 1])) {
+                days[size] = day;
+                closes[size] = PriceSeries.toFixed(bar.close());
+                size++;
+            }
+        }
+        int dailyFrom = size == 0 ? Integer.MIN_VALUE : days[size - 1] + 1;
+        for (Object[] row : rows) {
+            if (row[0] == null || row[1] == null) continue;
+            days[size] = PriceSeries.toEpochDay((LocalDate) row[0]);
+            closes[size] = PriceSeries.toFixed((BigDecimal) row[1]);
+            size++;
+        }
+        return PriceSeries.ofSorted(ticker, days, closes, size, dailyFrom);
+    }
+}
@@ -1,31 +1,141 @@
 package com.portfolio.backend.service;
 
+import com.portfolio.backend.dto.PricePoint;
 import com.portfolio.backend.entity.StockPrice;
 import com.portfolio.backend.repo.StockPriceRepository;
+import io.micrometer.core.annotation.Timed;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 
 @Service
 public class PriceService {
 
     private final StockPriceRepository stockPriceRepository;
+    private final LatestPriceIndex latestPriceIndex;
+    private final PriceSeriesStore priceSeriesStore;
+    private final AlertPipeline alertPipeline;
+    private final DataVersion dataVersion;
+    private final ValuationStream valuationStream;
+    private final RiskService riskService;
+    private final PortfolioHistoryService portfolioHistoryService;
 
-    public PriceService(StockPriceRepository stockPriceRepository) {
+    public PriceService(StockPriceRepository stockPriceRepository, LatestPriceIndex latestPriceIndex,
+                        PriceSeriesStore priceSeriesStore, AlertPipeline alertPipeline, DataVersion dataVersion,
+                        ValuationStream valuationStream, RiskService riskService,
+                        PortfolioHistoryService portfolioHistoryService) {
         this.stockPriceRepository = stockPriceRepository;
+        this.latestPriceIndex = latestPriceIndex;
+        this.priceSeriesStore = priceSeriesStore;
+        this.alertPipeline = alertPipeline;
+        this.dataVersion = dataVersion;
+        this.valuationStream = valuationStream;
+        this.riskService = riskService;
+        this.portfolioHistoryService = portfolioHistoryService;
+        if (latestPriceIndex != null) {
+            latestPriceIndex.onNewerClose(this::onCloseStored);
+        }
     }
 
     public StockPrice getLatestPriceForTicker(String ticker) {
-        return stockPriceRepository.findTopByTickerOrderByFetchedAtDesc(ticker);
+        return latestPriceIndex.get(ticker);
     }
 
+    /**
+     * Latest price for each ticker, keyed by ticker. Costs at most one query regardless of how many
+     * tickers are requested.
+     */
+    public Map<String, StockPrice> getLatestPricesForTickers(Collection<String> tickers) {
+        return latestPriceIndex.getAll(tickers);
+    }
+
+    /**
+     * Records today's close for a ticker. There is one row per ticker and day, so a second price on
+     * the same day replaces the first. When another writer inserts the day's row between our lookup
+     * and our insert, the unique key rejects ours and the price is written over theirs instead.
+     */
+    @Timed("portfolio.method")
     public StockPrice createPrice(String ticker, BigDecimal price) {
-        StockPrice sp = new StockPrice();
-        sp.setTicker(ticker);
-        sp.setClosePrice(price);
         // Use priceDate as fetchedAt equivalent
-        sp.setPriceDate(LocalDate.now());
-        return stockPriceRepository.save(sp);
+        LocalDate today = LocalDate.now();
+        BigDecimal close = price.setScale(PriceSeries.SCALE, RoundingMode.HALF_UP);
+        StockPrice sp = stockPriceRepository.findByTickerAndPriceDate(ticker, today);
+        StockPrice saved;
+        if (sp != null) {
+            sp.setClosePrice(close);
+            saved = stockPriceRepository.save(sp);
+        } else {
+            sp = new StockPrice();
+            sp.setTicker(ticker);
+            sp.setPriceDate(today);
+            sp.setClosePrice(close);
+            try {
+                saved = stockPriceRepository.save(sp);
+            } catch (DataIntegrityViolationException e) {
+                StockPrice existing = stockPriceRepository.findByTickerAndPriceDate(ticker, today);
+                if (existing == null) {
+                    throw e;
+                }
+                existing.setClosePrice(close);
+                saved = stockPriceRepository.save(existing);
+            }
+        }
+        onCloseMoved(saved);
+        return saved;
+    }
+
+    /**
+     * Brings the in-memory views, alerts and streams up to a ticker's newly written close.
+     */
+    void onCloseMoved(StockPrice sp) {
+        latestPriceIndex.put(sp);
+        onCloseStored(sp);
+    }
+
+    /**
+     * Brings everything but the latest-price index up to a stored close. Besides this node's own
+     * writes this runs for closes another node wrote, once the index reads them on a refresh.
+     */
+    void onCloseStored(StockPrice sp) {
+        priceSeriesStore.onPriceWritten(sp);
+        riskService.onClose(sp.getTicker(), sp.getPriceDate(), sp.getClosePrice());
+        portfolioHistoryService.onClose(sp.getTicker(), sp.getPriceDate());
+        dataVersion.bump();
+        alertPipeline.submit(sp.getTicker());
+        valuationStream.submit(sp.getTicker());
+    }
+
+    /**
+     * Brings the in-memory price views up to date after rows were written outside of
+     * {@link #createPrice}, e.g. by a bulk load. Alerts and stream updates are queued once per ticker.
+     */
+    @Timed("portfolio.method")
+    public void onPricesWritten(List<PricePoint> rows) {
+        Map<String, PricePoint> newest = new HashMap<>();
+        for (PricePoint row : rows) {
+            priceSeriesStore.put(row.ticker(), row.priceDate(), row.closePrice());
+            riskService.onClose(row.ticker(), row.priceDate(), row.closePrice());
+            portfolioHistoryService.onClose(row.ticker(), row.priceDate());
+            newest.merge(row.ticker(), row, (a, b) -> b.priceDate().isBefore(a.priceDate()) ? a : b);
+        }
+        for (PricePoint row : newest.values()) {
+            StockPrice sp = new StockPrice();
+            sp.setTicker(row.ticker());
+            sp.setPriceDate(row.priceDate());
+            sp.setClosePrice(row.closePrice());
+            latestPriceIndex.put(sp);
+        }
+        dataVersion.bump();
+        for (String ticker : newest.keySet()) {
+            alertPipeline.submit(ticker);
+            valuationStream.submit(ticker);
+        }
     }
 }
@@ -2,65 +2,48 @@ package com.portfolio.backend.service;
 
 import com.portfolio.backend.entity.PriceTarget;
 import com.portfolio.backend.repo.PriceTargetRepository;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.stereotype.Service;
 
-import java.util.ArrayList;
 import java.util.List;
 
 @Service
 public class PriceTargetService {
 
     private final PriceTargetRepository repository;
-    private final PriceService priceService;
+    private final AlertEngine alertEngine;
+    private final AlertPipeline alertPipeline;
+    private final DataVersion dataVersion;
 
-    public PriceTargetService(PriceTargetRepository repository, PriceService priceService) {
+    public PriceTargetService(PriceTargetRepository repository, AlertEngine alertEngine,
+                              AlertPipeline alertPipeline, DataVersion dataVersion) {
         this.repository = repository;
-        this.priceService = priceService;
+        this.alertEngine = alertEngine;
+        this.alertPipeline = alertPipeline;
+        this.dataVersion = dataVersion;
     }
 
-    public List<PriceTarget> getActiveTargets() {
-        return repository.findByTriggeredFalse();
-    }
-
-    public PriceTarget saveTarget(PriceTarget target) {
-        return repository.save(target);
+    public List<PriceTarget> getActiveTargets(long portfolioId) {
+        return repository.findByPortfolioIdAndTriggeredFalse(portfolioId);
     }
 
     /**
-     * Evaluate all active targets using stored latest prices. If a target is hit, mark it triggered and
-     * return a human-readable alert message. Returns list of messages for targets that triggered now.
+     * Saves the target and queues its ticker for evaluation, so a target that is already crossed
+     * fires without waiting for the next price.
      */
-    public List<String> evaluateAndTriggerTargets() {
-        List<PriceTarget> targets = repository.findByTriggeredFalse();
-        List<String> alerts = new ArrayList<>();
-
-        for (PriceTarget t : targets) {
-            var sp = priceService.getLatestPriceForTicker(t.getTicker());
-            if (sp == null || sp.getClosePrice() == null) continue;
-
-            try {
-                int cmp = sp.getClosePrice().compareTo(t.getTargetPrice());
-                boolean triggered;
-                if ("BUY".equalsIgnoreCase(t.getAction())) {
-                    // BUY when current <= target
-                    triggered = cmp <= 0;
-                } else {
-                    // SELL when current >= target
-                    triggered = cmp >= 0;
-                }
-
-                if (triggered) {
-                    t.setTriggered(true);
-                    repository.save(t);
-                    String msg = String.format("Target %s %s hit: current %s target %s",
-                            t.getTicker(), t.getAction(), sp.getClosePrice().toPlainString(), t.getTargetPrice().toPlainString());
-                    alerts.add(msg);
-                }
-            } catch (Exception ex) {
-                // ignore bad data
+    @Timed("portfolio.method")
+    public PriceTarget saveTarget(long portfolioId, PriceTarget target) {
+        if (target.getId() != null) {
+            PriceTarget existing = repository.findById(target.getId()).orElse(null);
+            if (existing != null && existing.getPortfolioId() != portfolioId) {
+                throw new IllegalArgumentException("Target " + target.getId() + " belongs to another portfolio");
             }
         }
-
-        return alerts;
+        target.setPortfolioId(portfolioId);
+        PriceTarget saved = repository.save(target);
+        alertEngine.register(saved);
+        dataVersion.bump(portfolioId);
+        alertPipeline.submit(saved.getTicker());
+        return saved;
     }
 }
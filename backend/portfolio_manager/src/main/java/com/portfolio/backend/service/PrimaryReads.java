@@ -0,0 +1,47 @@
+package com.portfolio.backend.service;
+
+import com.portfolio.backend.config.ReadWriteRoutingDataSource;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.function.Supplier;
+
+/**
+ * Runs the loads of the shared caches against the primary. A cache can be filled from inside a
+ * read-only service method that reads from the replica, and what it loads there is served to every
+ * later reader, so such a load gets a read-write transaction of its own, which always reads the
+ * primary. Everywhere else, including read-only methods routed to the primary, the load simply
+ * runs in the caller's transaction, so it never holds a second primary connection.
+ */
+@Component
+public class PrimaryReads {
+
+    private final TransactionTemplate transactionTemplate;
+
+    public PrimaryReads(PlatformTransactionManager transactionManager,
+                        @Value("${portfolio.datasource.replica.url:}") String replicaUrl) {
+        if (transactionManager == null || replicaUrl == null || replicaUrl.isBlank()) {
+            this.transactionTemplate = null;
+        } else {
+            this.transactionTemplate = new TransactionTemplate(transactionManager);
+            this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        }
+    }
+
+    /**
+     * For callers wired by hand without a replica, such as tests.
+     */
+    public static PrimaryReads direct() {
+        return new PrimaryReads(null, null);
+    }
+
+    public <T> T load(Supplier<T> loader) {
+        if (transactionTemplate == null || !ReadWriteRoutingDataSource.readsReplica()) {
+            return loader.get();
+        }
+        return transactionTemplate.execute(status -> loader.get());
+    }
+}
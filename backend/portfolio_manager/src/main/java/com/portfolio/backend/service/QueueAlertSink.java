@@ -0,0 +1,50 @@
+package com.portfolio.backend.service;
+
+import com.portfolio.backend.dto.OutboxAlert;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+
+/**
+ * A bounded in-memory queue for consumers inside the process, or polling it over the API. A batch
+ * that does not fit fails whole and is retried, so a slow consumer holds alerts back in the outbox
+ * instead of losing them.
+ */
+@Component
+public class QueueAlertSink implements AlertSink {
+
+    private final ArrayBlockingQueue<OutboxAlert> queue;
+
+    public QueueAlertSink(@Value("${portfolio.alerts.queue-capacity:10000}") int capacity) {
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, capacity));
+    }
+
+    @Override
+    public String name() {
+        return "queue";
+    }
+
+    @Override
+    public synchronized void deliver(List<OutboxAlert> alerts) {
+        if (queue.remainingCapacity() < alerts.size()) {
+            throw new IllegalStateException("alert queue is full");
+        }
+        queue.addAll(alerts);
+    }
+
+    /**
+     * Removes and returns up to {@code max} alerts, oldest first.
+     */
+    public List<OutboxAlert> poll(int max) {
+        List<OutboxAlert> taken = new ArrayList<>(Math.min(max, queue.size()));
+        queue.drainTo(taken, max);
+        return taken;
+    }
+
+    public int size() {
+        return queue.size();
+    }
+}
@@ -0,0 +1,202 @@
+package com.portfolio.backend.service;
+
+/**
+ * Plans the whole-share trades that bring a portfolio back within {@code tolerance} of its target
+ * weights with the least turnover. A ticker whose weight is already within the band
+ * {@code [target - tolerance, target + tolerance]} is left alone; one outside it is traded only as
+ * far as the nearer edge of the band, in whole shares. Sales fund purchases: when they and the
+ * added cash fall short, the tickers furthest above their target sell more, down to the target at
+ * most, sales already planned first. If that is still not enough, all purchases are cut by the
+ * same factor and the remainder goes, a share at a time, to the tickers furthest below their
+ * target.
+ *
+ * <p>Works on the caller's primitive arrays, index {@code i} being one ticker, so that many
+ * portfolios can be planned side by side without boxing.
+ */
+public final class RebalancePlanner {
+
+    // absorbs rounding in weight * value / price before taking whole shares
+    private static final double SHARE_EPSILON = 1e-9;
+
+    private RebalancePlanner() {
+    }
+
+    /**
+     * @param shares         signed whole shares to trade per ticker, positive to buy and negative to sell
+     * @param value          market value of the positions plus the added cash
+     * @param cashAfter      cash left once every trade is done at the given prices
+     * @param maxDriftBefore largest distance of a ticker's weight from its target before trading
+     * @param maxDriftAfter  the same after trading
+     * @param trades         number of tickers traded
+     * @param turnover       amount bought plus amount sold
+     */
+    public record Plan(long[] shares, double value, double cashAfter, double maxDriftBefore,
+                       double maxDriftAfter, int trades, double turnover) {
+    }
+
+    /**
+     * @param quantity  shares held per ticker
+     * @param price     latest price per ticker, positive
+     * @param weight    target weight per ticker; held tickers without a target have weight 0
+     * @param n         number of tickers to use from the start of the arrays
+     * @param cash      cash added to the portfolio, not negative
+     * @param tolerance allowed distance from each target weight, e.g. 0.02 for two points
+     */
+    public static Plan plan(long[] quantity, double[] price, double[] weight, int n, double cash, double tolerance) {
+        long[] shares = new long[n];
+        double value = cash;
+        for (int i = 0; i < n; i++) {
+            value += quantity[i] * price[i];
+        }
+        if (value <= 0) {
+            return new Plan(shares, value, cash, 0, 0, 0, 0);
+        }
+        double before = maxDrift(quantity, shares, price, weight, n, value);
+
+        double proceeds = 0;
+        double cost = 0;
+        for (int i = 0; i < n; i++) {
+            long target = bandTarget(quantity[i], price[i], weight[i], value, tolerance);
+            shares[i] = target - quantity[i];
+            if (shares[i] < 0) {
+                proceeds -= shares[i] * price[i];
+            } else {
+                cost += shares[i] * price[i];
+            }
+        }
+        if (cost > cash + proceeds) {
+            proceeds += sellTowardsTarget(quantity, shares, price, weight, n, value, cost - cash - proceeds);
+        }
+        double available = cash + proceeds;
+        if (cost > available) {
+            cost = scaleBuys(quantity, shares, price, weight, n, value, available, cost);
+        }
+
+        int trades = 0;
+        for (int i = 0; i < n; i++) {
+            if (shares[i] != 0) {
+                trades++;
+            }
+        }
+        double after = maxDrift(quantity, shares, price, weight, n, value);
+        return new Plan(shares, value, available - cost, before, after, trades, proceeds + cost);
+    }
+
+    /**
+     * Shares of each lot to sell, for lots listed in the order they should be sold. {@code lotTicker}
+     * maps each lot to its ticker's index in {@code shares}; a ticker's sale takes its lots from
+     * the front until the quantity is covered.
+     */
+    public static int[] takeLots(long[] shares, int[] lotTicker, int[] lotQuantity, int lots) {
+        long[] left = new long[shares.length];
+        for (int i = 0; i < shares.length; i++) {
+            left[i] = shares[i] < 0 ? -shares[i] : 0;
+        }
+        int[] taken = new int[lots];
+        for (int l = 0; l < lots; l++) {
+            int t = lotTicker[l];
+            if (left[t] > 0) {
+                taken[l] = (int) Math.min(left[t], lotQuantity[l]);
+                left[t] -= taken[l];
+            }
+        }
+        return taken;
+    }
+
+    /**
+     * The holding closest to {@code quantity} whose weight is within the band, or the one closest
+     * to the target if the band is narrower than a share.
+     */
+    static long bandTarget(long quantity, double price, double weight, double value, double tolerance) {
+        if (price <= 0) {
+            return quantity;
+        }
+        long lo = Math.max(0, (long) Math.ceil((weight - tolerance) * value / price - SHARE_EPSILON));
+        long hi = Math.max(0, (long) Math.floor((weight + tolerance) * value / price + SHARE_EPSILON));
+        if (lo > hi) {
+            return Math.max(0, Math.round(weight * value / price));
+        }
+        return Math.max(lo, Math.min(hi, quantity));
+    }
+
+    /**
+     * Sells more of the tickers above their target to raise {@code needed}, never taking one below
+     * its target. Tickers already being sold go first, so fewer tickers are traded. Returns the
+     * added proceeds.
+     */
+    private static double sellTowardsTarget(long[] quantity, long[] shares, double[] price, double[] weight, int n,
+                                            double value, double needed) {
+        double raised = 0;
+        for (int pass = 0; pass < 2 && raised < needed; pass++) {
+            while (raised < needed) {
+                int best = -1;
+                double bestExcess = 0;
+                for (int i = 0; i < n; i++) {
+                    boolean selling = shares[i] < 0;
+                    if (selling != (pass == 0) || price[i] <= 0) {
+                        continue;
+                    }
+                    long held = quantity[i] + shares[i];
+                    double excess = held * price[i] / value - weight[i];
+                    if (held > Math.round(weight[i] * value / price[i]) && (best < 0 || excess > bestExcess)) {
+                        best = i;
+                        bestExcess = excess;
+                    }
+                }
+                if (best < 0) {
+                    break;
+                }
+                long room = quantity[best] + shares[best] - Math.round(weight[best] * value / price[best]);
+                long extra = Math.min(room, (long) Math.ceil((needed - raised) / price[best]));
+                shares[best] -= extra;
+                raised += extra * price[best];
+            }
+        }
+        return raised;
+    }
+
+    /**
+     * Cuts the purchases to what {@code available} pays for and returns their new cost.
+     */
+    private static double scaleBuys(long[] quantity, long[] shares, double[] price, double[] weight, int n,
+                                    double value, double available, double cost) {
+        double factor = available / cost;
+        long[] wanted = new long[n];
+        double spent = 0;
+        for (int i = 0; i < n; i++) {
+            if (shares[i] > 0) {
+                wanted[i] = shares[i];
+                shares[i] = (long) Math.floor(shares[i] * factor);
+                spent += shares[i] * price[i];
+            }
+        }
+        // flooring leaves less than one share per purchase; hand it out by shortfall, largest first
+        while (true) {
+            int best = -1;
+            double bestShortfall = 0;
+            for (int i = 0; i < n; i++) {
+                if (shares[i] < wanted[i] && spent + price[i] <= available) {
+                    double shortfall = weight[i] - (quantity[i] + shares[i]) * price[i] / value;
+                    if (best < 0 || shortfall > bestShortfall) {
+                        best = i;
+                        bestShortfall = shortfall;
+                    }
+                }
+            }
+            if (best < 0) {
+                return spent;
+            }
+            shares[best]++;
+            spent += price[best];
+        }
+    }
+
+    private static double maxDrift(long[] quantity, long[] shares, double[] price, double[] weight, int n,
+                                   double value) {
+        double max = 0;
+        for (int i = 0; i < n; i++) {
+            max = Math.max(max, Math.abs((quantity[i] + shares[i]) * price[i] / value - weight[i]));
+        }
+        return max;
+    }
+}
@@ -0,0 +1,447 @@
+package com.portfolio.backend.service;
+
+import com.portfolio.backend.dto.TradeOrder;
+import com.portfolio.backend.entity.Asset;
+import com.portfolio.backend.entity.StockPrice;
+import com.portfolio.backend.repo.AssetRepository;
+import com.portfolio.backend.repo.StockRepository;
+import com.portfolio.backend.repo.TargetAllocationRepository;
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.TreeSet;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Target weights per ticker and the trades that restore them. A plan sells whole shares of the
+ * lots that are already long-term first, oldest first within each class, which is also the order
+ * {@link AssetService} consumes them in, so its {@code orders} can be executed as they are.
+ *
+ * <p>The batch mode loads the lots, weights and latest prices of every requested portfolio with
+ * one query each, then plans the portfolios in parallel on its own pool. Each portfolio becomes a
+ * set of primitive arrays that {@link RebalancePlanner} works on directly.
+ */
+@Service
+public class RebalanceService {
+
+    private static final int WEIGHT_SCALE = 6;
+
+    private final AssetRepository assetRepository;
+    private final TargetAllocationRepository targetAllocationRepository;
+    private final StockRepository stockRepository;
+    private final PriceService priceService;
+    private final TaxLotIndex taxLotIndex;
+    private final PortfolioRegistry portfolioRegistry;
+    private final DataVersion dataVersion;
+    private final TransactionTemplate transactionTemplate;
+    private final double defaultTolerance;
+    private final ForkJoinPool pool;
+
+    public RebalanceService(AssetRepository assetRepository,
+                            TargetAllocationRepository targetAllocationRepository,
+                            StockRepository stockRepository,
+                            PriceService priceService,
+                            TaxLotIndex taxLotIndex,
+                            PortfolioRegistry portfolioRegistry,
+                            DataVersion dataVersion,
+                            TransactionTemplate transactionTemplate,
+                            @Value("${portfolio.rebalance.tolerance:0.02}") double defaultTolerance,
+                            @Value("${portfolio.rebalance.parallelism:0}") int parallelism) {
+        this.assetRepository = assetRepository;
+        this.targetAllocationRepository = targetAllocationRepository;
+        this.stockRepository = stockRepository;
+        this.priceService = priceService;
+        this.taxLotIndex = taxLotIndex;
+        this.portfolioRegistry = portfolioRegistry;
+        this.dataVersion = dataVersion;
+        this.transactionTemplate = transactionTemplate;
+        this.defaultTolerance = defaultTolerance;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    @Transactional(readOnly = true)
+    public Map<String, BigDecimal> getTargetWeights(long portfolioId) {
+        return targetAllocationRepository.findByPortfolioId(portfolioId);
+    }
+
+    /**
+     * Replaces the portfolio's target weights. Weights are fractions of the portfolio's value
+     * between 0 and 1 and add up to at most 1; tickers must be known.
+     */
+    @Timed("portfolio.method")
+    public Map<String, BigDecimal> setTargetWeights(long portfolioId, Map<String, BigDecimal> weights) {
+        if (weights == null) {
+            throw new IllegalArgumentException("weights are required");
+        }
+        Map<String, BigDecimal> scaled = new TreeMap<>();
+        BigDecimal sum = BigDecimal.ZERO;
+        for (Map.Entry<String, BigDecimal> e : weights.entrySet()) {
+            BigDecimal w = e.getValue();
+            if (e.getKey() == null || e.getKey().isBlank()) {
+                throw new IllegalArgumentException("ticker is required");
+            }
+            if (w == null || w.signum() < 0 || w.compareTo(BigDecimal.ONE) > 0) {
+                throw new IllegalArgumentException("Weight of " + e.getKey() + " must be between 0 and 1");
+            }
+            w = w.setScale(WEIGHT_SCALE, RoundingMode.HALF_UP);
+            scaled.put(e.getKey(), w);
+            sum = sum.add(w);
+        }
+        if (sum.compareTo(BigDecimal.ONE) > 0) {
+            throw new IllegalArgumentException("Weights add up to " + sum.stripTrailingZeros().toPlainString()
+                    + ", more than 1");
+        }
+        Set<String> unknown = new TreeSet<>(scaled.keySet());
+        stockRepository.findAllById(scaled.keySet()).forEach(s -> unknown.remove(s.getTicker()));
+        if (!unknown.isEmpty()) {
+            throw new IllegalArgumentException("Unknown ticker(s) " + unknown);
+        }
+        transactionTemplate.executeWithoutResult(status -> targetAllocationRepository.replace(portfolioId, scaled));
+        dataVersion.bump(portfolioId);
+        return scaled;
+    }
+
+    /**
+     * The trades that bring one portfolio within {@code tolerance} of its target weights, with the
+     * lots each sale takes and the tax it would realize. {@code cash} is money added to invest.
+     */
+    @Transactional(readOnly = true)
+    @Timed("portfolio.method")
+    public Map<String, Object> plan(long portfolioId, Double tolerance, double cash) {
+        double tol = tolerance(tolerance);
+        if (!(cash >= 0) || Double.isInfinite(cash)) {
+            throw new IllegalArgumentException("cash must be a finite amount of at least 0");
+        }
+        Map<String, BigDecimal> weights = targetAllocationRepository.findByPortfolioId(portfolioId);
+        if (weights.isEmpty()) {
+            throw new IllegalArgumentException("Portfolio " + portfolioId + " has no target weights");
+        }
+        List<Asset> lots = assetRepository.findByPortfolioId(portfolioId);
+        Set<String> tickers = new HashSet<>(weights.keySet());
+        for (Asset a : lots) {
+            tickers.add(a.getTicker());
+        }
+        Map<String, StockPrice> latest = priceService.getLatestPricesForTickers(tickers);
+
+        Planned planned = planBook(book(portfolioId, lots, weights, latest, LocalDate.now()), cash, tol);
+        if (planned.error() != null) {
+            throw new IllegalArgumentException(planned.error());
+        }
+        Map<String, Object> result = toRow(planned, true);
+        result.put("tolerance", tol);
+        result.put("cash", money(cash));
+        return result;
+    }
+
+    /**
+     * Plans every given portfolio this node owns, or all of them if none are given, in parallel.
+     * Without {@code details} each plan is reduced to its totals and timing.
+     */
+    @Transactional(readOnly = true)
+    @Timed("portfolio.method")
+    public Map<String, Object> planAll(Collection<Long> portfolioIds, Double tolerance, boolean details) {
+        double tol = tolerance(tolerance);
+        long start = System.nanoTime();
+        List<Long> owned = portfolioRegistry.owned();
+        List<Long> ids = new ArrayList<>(owned);
+        int notOwned = 0;
+        if (portfolioIds != null && !portfolioIds.isEmpty()) {
+            Set<Long> requested = new TreeSet<>(portfolioIds);
+            ids.retainAll(requested);
+            notOwned = requested.size() - ids.size();
+        }
+
+        Map<Long, Map<String, BigDecimal>> weights = targetAllocationRepository.findByPortfolioIdIn(ids);
+        List<Long> targeted = new ArrayList<>();
+        for (Long id : ids) {
+            if (weights.containsKey(id)) {
+                targeted.add(id);
+            }
+        }
+        Map<Long, List<Asset>> lots = new HashMap<>();
+        Set<String> tickers = new HashSet<>();
+        for (Asset a : assetRepository.findByPortfolioIdIn(targeted)) {
+            lots.computeIfAbsent(a.getPortfolioId(), id -> new ArrayList<>()).add(a);
+            tickers.add(a.getTicker());
+        }
+        for (Long id : targeted) {
+            tickers.addAll(weights.get(id).keySet());
+        }
+        Map<String, StockPrice> latest = priceService.getLatestPricesForTickers(tickers);
+        long loaded = System.nanoTime();
+
+        LocalDate today = LocalDate.now();
+        List<Planned> plans = pool.submit(() -> targeted.parallelStream()
+                .map(id -> planBook(book(id, lots.getOrDefault(id, List.of()), weights.get(id), latest, today), 0, tol))
+                .toList()).join();
+        long planned = System.nanoTime();
+
+        List<Map<String, Object>> rows = new ArrayList<>(plans.size());
+        long[] micros = new long[plans.size()];
+        int failed = 0;
+        int needingTrades = 0;
+        long trades = 0;
+        double turnover = 0;
+        for (int i = 0; i < plans.size(); i++) {
+            Planned p = plans.get(i);
+            micros[i] = p.nanos() / 1_000;
+            rows.add(toRow(p, details));
+            if (p.error() != null) {
+                failed++;
+            } else if (p.plan().trades() > 0) {
+                needingTrades++;
+                trades += p.plan().trades();
+                turnover += p.plan().turnover();
+            }
+        }
+        Arrays.sort(micros);
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("tolerance", tol);
+        result.put("portfolios", plans.size());
+        result.put("withoutTargets", ids.size() - targeted.size());
+        result.put("notOwned", notOwned);
+        result.put("failed", failed);
+        result.put("needingTrades", needingTrades);
+        result.put("tradeCount", trades);
+        result.put("turnover", money(turnover));
+        result.put("parallelism", pool.getParallelism());
+        result.put("loadMs", (loaded - start) / 1_000_000.0);
+        result.put("planMs", (planned - loaded) / 1_000_000.0);
+        result.put("elapsedMs", (System.nanoTime() - start) / 1_000_000.0);
+        Map<String, Object> timing = new LinkedHashMap<>();
+        timing.put("p50", percentile(micros, 0.50));
+        timing.put("p99", percentile(micros, 0.99));
+        timing.put("max", micros.length == 0 ? 0 : micros[micros.length - 1]);
+        result.put("planMicros", timing);
+        result.put("plans", rows);
+        return result;
+    }
+
+    private double tolerance(Double tolerance) {
+        double tol = tolerance == null ? defaultTolerance : tolerance;
+        if (!(tol >= 0 && tol < 1)) {
+            throw new IllegalArgumentException("tolerance must be at least 0 and below 1");
+        }
+        return tol;
+    }
+
+    /**
+     * One portfolio as primitive arrays: per ticker the shares held, latest price and target
+     * weight, and per lot its ticker, quantity and cost, in the order lots are to be sold.
+     */
+    private static final class Book {
+        final long portfolioId;
+        String[] tickers;
+        long[] quantity;
+        double[] price;
+        double[] weight;
+        long[] lotId;
+        int[] lotTicker;
+        int[] lotQuantity;
+        double[] lotCost;
+        LocalDate[] lotBuyDate;
+        boolean[] lotLongTerm;
+        String error;
+
+        Book(long portfolioId) {
+            this.portfolioId = portfolioId;
+        }
+    }
+
+    private record Planned(Book book, RebalancePlanner.Plan plan, int[] taken, long nanos, String error) {
+    }
+
+    private Book book(long portfolioId, List<Asset> lots, Map<String, BigDecimal> weights,
+                      Map<String, StockPrice> latest, LocalDate today) {
+        Book b = new Book(portfolioId);
+        TreeSet<String> names = new TreeSet<>(weights.keySet());
+        for (Asset a : lots) {
+            names.add(a.getTicker());
+        }
+        b.tickers = names.toArray(new String[0]);
+        int n = b.tickers.length;
+        b.quantity = new long[n];
+        b.price = new double[n];
+        b.weight = new double[n];
+        Map<String, Integer> index = new HashMap<>(n * 2);
+        for (int i = 0; i < n; i++) {
+            String t = b.tickers[i];
+            index.put(t, i);
+            BigDecimal w = weights.get(t);
+            b.weight[i] = w == null ? 0 : w.doubleValue();
+            StockPrice sp = latest.get(t);
+            b.price[i] = sp == null || sp.getClosePrice() == null ? 0 : sp.getClosePrice().doubleValue();
+        }
+
+        List<Asset> ordered = new ArrayList<>(lots);
+        Map<Long, Boolean> isLongTerm = new HashMap<>();
+        for (Asset a : ordered) {
+            isLongTerm.put(a.getId(), a.getBuyDate() != null && taxLotIndex.isLongTerm(a.getBuyDate(), today));
+        }
+        ordered.sort(Comparator.<Asset>comparingInt(a -> index.get(a.getTicker()))
+                .thenComparing(a -> !isLongTerm.get(a.getId()))
+                .thenComparing(Asset::getBuyDate, Comparator.nullsLast(Comparator.naturalOrder()))
+                .thenComparing(Asset::getId));
+        int lotCount = ordered.size();
+        b.lotId = new long[lotCount];
+        b.lotTicker = new int[lotCount];
+        b.lotQuantity = new int[lotCount];
+        b.lotCost = new double[lotCount];
+        b.lotBuyDate = new LocalDate[lotCount];
+        b.lotLongTerm = new boolean[lotCount];
+        for (int l = 0; l < lotCount; l++) {
+            Asset a = ordered.get(l);
+            int t = index.get(a.getTicker());
+            b.lotId[l] = a.getId();
+            b.lotTicker[l] = t;
+            b.lotQuantity[l] = a.getQuantity();
+            b.lotCost[l] = a.getBuyPrice() == null ? 0 : a.getBuyPrice().doubleValue();
+            b.lotBuyDate[l] = a.getBuyDate();
+            b.lotLongTerm[l] = isLongTerm.get(a.getId());
+            b.quantity[t] += a.getQuantity();
+        }
+
+        for (int i = 0; i < n; i++) {
+            if (b.price[i] <= 0 && (b.quantity[i] != 0 || b.weight[i] > 0)) {
+                b.error = "No price for " + b.tickers[i];
+                break;
+            }
+        }
+        return b;
+    }
+
+    private static Planned planBook(Book b, double cash, double tolerance) {
+        long start = System.nanoTime();
+        if (b.error != null) {
+            return new Planned(b, null, null, System.nanoTime() - start, b.error);
+        }
+        RebalancePlanner.Plan plan = RebalancePlanner.plan(b.quantity, b.price, b.weight, b.tickers.length,
+                cash, tolerance);
+        int[] taken = RebalancePlanner.takeLots(plan.shares(), b.lotTicker, b.lotQuantity, b.lotId.length);
+        return new Planned(b, plan, taken, System.nanoTime() - start, null);
+    }
+
+    private Map<String, Object> toRow(Planned p, boolean details) {
+        Book b = p.book();
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("portfolioId", b.portfolioId);
+        if (p.error() != null) {
+            row.put("error", p.error());
+            row.put("planMicros", p.nanos() / 1_000.0);
+            return row;
+        }
+        RebalancePlanner.Plan plan = p.plan();
+        row.put("value", money(plan.value()));
+        row.put("cashAfter", money(plan.cashAfter()));
+        row.put("maxDriftBefore", plan.maxDriftBefore());
+        row.put("maxDriftAfter", plan.maxDriftAfter());
+        row.put("tradeCount", plan.trades());
+        row.put("turnover", money(plan.turnover()));
+        row.put("planMicros", p.nanos() / 1_000.0);
+        if (!details) {
+            return row;
+        }
+
+        long[] shares = plan.shares();
+        List<Map<String, Object>> positions = new ArrayList<>(b.tickers.length);
+        for (int i = 0; i < b.tickers.length; i++) {
+            Map<String, Object> pos = new LinkedHashMap<>();
+            pos.put("ticker", b.tickers[i]);
+            pos.put("price", b.price[i]);
+            pos.put("quantity", b.quantity[i]);
+            pos.put("targetQuantity", b.quantity[i] + shares[i]);
+            pos.put("targetWeight", b.weight[i]);
+            pos.put("weightBefore", plan.value() > 0 ? b.quantity[i] * b.price[i] / plan.value() : 0);
+            pos.put("weightAfter", plan.value() > 0 ? (b.quantity[i] + shares[i]) * b.price[i] / plan.value() : 0);
+            positions.add(pos);
+        }
+
+        // sales first: they pay for the purchases
+        List<Map<String, Object>> trades = new ArrayList<>();
+        List<TradeOrder> orders = new ArrayList<>();
+        double shortGain = 0;
+        double longGain = 0;
+        for (int pass = 0; pass < 2; pass++) {
+            for (int i = 0; i < b.tickers.length; i++) {
+                boolean sell = shares[i] < 0;
+                if (shares[i] == 0 || sell != (pass == 0)) {
+                    continue;
+                }
+                long quantity = Math.abs(shares[i]);
+                Map<String, Object> trade = new LinkedHashMap<>();
+                trade.put("side", sell ? TradeOrder.Side.SELL : TradeOrder.Side.BUY);
+                trade.put("ticker", b.tickers[i]);
+                trade.put("quantity", quantity);
+                trade.put("price", b.price[i]);
+                trade.put("amount", money(quantity * b.price[i]));
+                if (sell) {
+                    List<Map<String, Object>> lots = new ArrayList<>();
+                    for (int l = 0; l < b.lotId.length; l++) {
+                        if (b.lotTicker[l] != i || p.taken()[l] == 0) {
+                            continue;
+                        }
+                        double gain = (b.price[i] - b.lotCost[l]) * p.taken()[l];
+                        if (b.lotLongTerm[l]) {
+                            longGain += gain;
+                        } else {
+                            shortGain += gain;
+                        }
+                        Map<String, Object> lot = new LinkedHashMap<>();
+                        lot.put("lotId", b.lotId[l]);
+                        lot.put("buyDate", b.lotBuyDate[l]);
+                        lot.put("quantity", p.taken()[l]);
+                        lot.put("longTerm", b.lotLongTerm[l]);
+                        lot.put("gain", money(gain));
+                        lots.add(lot);
+                    }
+                    trade.put("lots", lots);
+                }
+                trades.add(trade);
+                orders.add(new TradeOrder(sell ? TradeOrder.Side.SELL : TradeOrder.Side.BUY, b.tickers[i],
+                        Math.toIntExact(quantity), BigDecimal.valueOf(b.price[i]), null));
+            }
+        }
+        row.put("positions", positions);
+        row.put("trades", trades);
+        row.put("orders", orders);
+        row.put("realizedGain", Map.of("shortTerm", money(shortGain), "longTerm", money(longGain)));
+        row.put("estimatedTax", money(Math.max(0, shortGain) * taxLotIndex.getShortTermRate().doubleValue()
+                + Math.max(0, longGain) * taxLotIndex.getLongTermRate().doubleValue()));
+        return row;
+    }
+
+    private static long percentile(long[] sorted, double q) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[Math.min(sorted.length - 1, (int) Math.ceil(q * sorted.length) - 1)];
+    }
+
+    private static double money(double amount) {
+        return Math.round(amount * 100) / 100.0;
+    }
+}
@@ -0,0 +1,71 @@
+package com.portfolio.backend.service;
+
+import com.portfolio.backend.dto.TriggeredAlert;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Bounded buffers of the most recently triggered alerts, one per portfolio, newest first. Written
+ * only by the {@link AlertPipeline}; read by the portfolio summary and the alerts API.
+ */
+@Component
+public class RecentAlerts {
+
+    private final int capacity;
+    private final ConcurrentHashMap<Long, Buffer> buffers = new ConcurrentHashMap<>();
+
+    public RecentAlerts(@Value("${portfolio.alerts.recent-capacity:50}") int capacity) {
+        this.capacity = Math.max(1, capacity);
+    }
+
+    public void addAll(long portfolioId, List<TriggeredAlert> triggered) {
+        buffers.computeIfAbsent(portfolioId, id -> new Buffer(capacity)).addAll(triggered);
+    }
+
+    public List<TriggeredAlert> snapshot(long portfolioId) {
+        Buffer b = buffers.get(portfolioId);
+        return b == null ? List.of() : b.snapshot();
+    }
+
+    /**
+     * Messages of the portfolio's buffered alerts, newest first. Does not lock.
+     */
+    public List<String> messages(long portfolioId) {
+        Buffer b = buffers.get(portfolioId);
+        return b == null ? List.of() : b.messages;
+    }
+
+    private static final class Buffer {
+        final int capacity;
+        final ArrayDeque<TriggeredAlert> alerts;
+        volatile List<String> messages = List.of();
+
+        Buffer(int capacity) {
+            this.capacity = capacity;
+            this.alerts = new ArrayDeque<>(capacity);
+        }
+
+        synchronized void addAll(List<TriggeredAlert> triggered) {
+            for (TriggeredAlert a : triggered) {
+                if (alerts.size() == capacity) {
+                    alerts.pollLast();
+                }
+                alerts.addFirst(a);
+            }
+            List<String> m = new ArrayList<>(alerts.size());
+            for (TriggeredAlert a : alerts) {
+                m.add(a.message());
+            }
+            messages = List.copyOf(m);
+        }
+
+        synchronized List<TriggeredAlert> snapshot() {
+            return List.copyOf(alerts);
+        }
+    }
+}
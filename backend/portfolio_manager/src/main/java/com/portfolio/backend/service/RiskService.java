@@ -0,0 +1,512 @@
+package com.portfolio.backend.service;
+
+import com.portfolio.backend.entity.Position;
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Risk of a portfolio's current holdings from the daily closes in {@link PriceSeriesStore}, those
+ * after {@link PriceSeries#dailyFrom()}:
+ * per-ticker volatility and drawdown, the covariance and correlation of daily log returns, and
+ * one-day value at risk, both parametric (variance-covariance) and historical (the holdings
+ * replayed over the window's returns).
+ *
+ * <p>Each portfolio's returns and covariance sums are kept in a {@link RollingCovariance} that is
+ * built once, with the cross products computed in parallel, and then updated by every close the
+ * price write paths report. It is rebuilt only when the held tickers change or a close lands on
+ * a day it can no longer update incrementally. A close is fed only to the models that hold its
+ * ticker. At most {@code portfolio.risk.max-models} models are kept; building one more drops the
+ * one read least recently.
+ */
+@Service
+public class RiskService {
+
+    static final int TRADING_DAYS_PER_YEAR = 252;
+    // closes queued for a model still being built before it is given up on and rebuilt on read
+    private static final int MAX_BACKLOG = 10_000;
+    private static final double UNIT = Math.pow(10, PriceSeries.SCALE);
+
+    private final PositionService positionService;
+    private final PriceSeriesStore priceSeriesStore;
+    private final int windowDays;
+    private final int maxModels;
+    private final ForkJoinPool pool;
+    private final ConcurrentHashMap<Long, Model> models = new ConcurrentHashMap<>();
+    // portfolios whose model holds the ticker; changed only under registerLock
+    private final ConcurrentHashMap<String, Set<Long>> holders = new ConcurrentHashMap<>();
+    private final Object registerLock = new Object();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder rebuilds = new LongAdder();
+    private final LongAdder updates = new LongAdder();
+
+    public RiskService(PositionService positionService, PriceSeriesStore priceSeriesStore,
+                       @Value("${portfolio.risk.window-days:252}") int windowDays,
+                       @Value("${portfolio.risk.parallelism:0}") int parallelism,
+                       @Value("${portfolio.risk.max-models:1000}") int maxModels) {
+        this.positionService = positionService;
+        this.priceSeriesStore = priceSeriesStore;
+        this.windowDays = Math.max(2, windowDays);
+        this.maxModels = Math.max(1, maxModels);
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * Feeds a ticker's close for a day into every model that holds the ticker.
+     */
+    public void onClose(String ticker, LocalDate date, BigDecimal close) {
+        Set<Long> ids = ticker == null ? null : holders.get(ticker);
+        if (ids == null || date == null || close == null || close.signum() <= 0) {
+            return;
+        }
+        int day = PriceSeries.toEpochDay(date);
+        double logPrice = Math.log(close.doubleValue());
+        for (Long id : ids) {
+            Model m = models.get(id);
+            if (m != null && m.onClose(ticker, day, logPrice)) {
+                updates.increment();
+            }
+        }
+    }
+
+    /**
+     * One-day risk of the portfolio's open positions at the given confidence, e.g. 0.95.
+     *
+     * @throws IllegalArgumentException if the confidence is not between 0.5 and 1
+     */
+    @Timed("portfolio.method")
+    public Map<String, Object> compute(long portfolioId, double confidence) {
+        if (!(confidence >= 0.5 && confidence < 1)) {
+            throw new IllegalArgumentException("confidence must be at least 0.5 and below 1");
+        }
+        long start = System.nanoTime();
+        Map<String, Long> quantities = new TreeMap<>();
+        for (Position p : positionService.getAllPositions(portfolioId)) {
+            if (p.getTotalQuantity() > 0) {
+                quantities.put(p.getTicker(), p.getTotalQuantity());
+            }
+        }
+
+        Model model = models.get(portfolioId);
+        boolean rebuilt = model == null || model.isStale(quantities.keySet()) || gainedHistory(model);
+        if (rebuilt) {
+            model = build(portfolioId, quantities.keySet());
+        }
+        model.lastUsed = System.nanoTime();
+        Snapshot s = model.snapshot();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("portfolioId", portfolioId);
+        result.put("asOf", s.lastDay == Integer.MIN_VALUE ? null : LocalDate.ofEpochDay(s.lastDay));
+        result.put("windowDays", windowDays);
+        result.put("observations", s.observations);
+        result.put("confidence", confidence);
+        result.put("horizonDays", 1);
+        result.putAll(statistics(s, quantities, confidence));
+        result.put("missingHistory", s.missing);
+        result.put("rebuilt", rebuilt);
+        result.put("rebuilds", rebuilds.sum());
+        result.put("incrementalUpdates", updates.sum());
+        result.put("models", models.size());
+        result.put("evictions", evictions.sum());
+        result.put("parallelism", pool.getParallelism());
+        result.put("elapsedMs", (System.nanoTime() - start) / 1_000_000.0);
+        return result;
+    }
+
+    private boolean gainedHistory(Model model) {
+        for (String t : model.missing) {
+            if (priceSeriesStore.get(t).daily().size() > 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private Map<String, Object> statistics(Snapshot s, Map<String, Long> quantities, double confidence) {
+        int n = s.tickers.size();
+        int m = s.observations;
+        double[] exposure = new double[n];
+        double value = 0;
+        for (int i = 0; i < n; i++) {
+            exposure[i] = quantities.get(s.tickers.get(i)) * Math.exp(s.lastLogPrice[i]);
+            value += exposure[i];
+        }
+
+        // close paths over the window, rebuilt backwards from the last close
+        double[][] paths = new double[n][m + 1];
+        double[] portfolioPath = new double[m + 1];
+        for (int i = 0; i < n; i++) {
+            double lp = s.lastLogPrice[i];
+            long q = quantities.get(s.tickers.get(i));
+            for (int k = m; k >= 0; k--) {
+                paths[i][k] = Math.exp(lp);
+                portfolioPath[k] += q * paths[i][k];
+                if (k > 0) {
+                    lp -= s.returns[i][k - 1];
+                }
+            }
+        }
+
+        List<Map<String, Object>> rows = new ArrayList<>(n);
+        double[][] correlation = new double[n][n];
+        double variance = 0;
+        double mean = 0;
+        for (int i = 0; i < n; i++) {
+            mean += exposure[i] * s.means[i];
+            for (int j = 0; j < n; j++) {
+                variance += exposure[i] * exposure[j] * s.covariance[i][j];
+                correlation[i][j] = s.covariance[i][j] / Math.sqrt(s.covariance[i][i] * s.covariance[j][j]);
+            }
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("ticker", s.tickers.get(i));
+            row.put("quantity", quantities.get(s.tickers.get(i)));
+            row.put("marketValue", exposure[i]);
+            row.put("weight", value == 0 ? null : exposure[i] / value);
+            row.put("meanDailyReturn", finite(s.means[i]));
+            row.put("annualizedVolatility", finite(Math.sqrt(s.covariance[i][i] * TRADING_DAYS_PER_YEAR)));
+            row.put("maxDrawdown", m == 0 ? null : maxDrawdown(paths[i]));
+            rows.add(row);
+        }
+
+        double z = normalQuantile(confidence);
+        double sigma = Math.sqrt(variance);
+        Double parametric = finite(Math.max(0, z * sigma - mean));
+        Double historical = m == 0 ? null : historicalVar(s, exposure, confidence);
+
+        Map<String, Object> var = new LinkedHashMap<>();
+        var.put("parametric", varEntry(parametric, value));
+        var.put("historical", varEntry(historical, value));
+
+        Map<String, Object> out = new LinkedHashMap<>();
+        out.put("marketValue", value);
+        out.put("annualizedVolatility", value == 0 ? null : finite(sigma / value * Math.sqrt(TRADING_DAYS_PER_YEAR)));
+        out.put("valueAtRisk", var);
+        out.put("maxDrawdown", m == 0 ? null : maxDrawdown(portfolioPath));
+        out.put("tickers", rows);
+        out.put("covariance", matrix(s.covariance));
+        out.put("correlation", matrix(correlation));
+        return out;
+    }
+
+    /**
+     * Loss not exceeded on the given share of the window's days if today's holdings had lived
+     * through them.
+     */
+    private static double historicalVar(Snapshot s, double[] exposure, double confidence) {
+        int m = s.observations;
+        double[] pnl = new double[m];
+        for (int i = 0; i < exposure.length; i++) {
+            double[] r = s.returns[i];
+            for (int k = 0; k < m; k++) {
+                pnl[k] += exposure[i] * Math.expm1(r[k]);
+            }
+        }
+        Arrays.sort(pnl);
+        int k = Math.min(m - 1, (int) Math.floor((1 - confidence) * m));
+        return Math.max(0, -pnl[k]);
+    }
+
+    private static double maxDrawdown(double[] path) {
+        double peak = path[0];
+        double worst = 0;
+        for (double v : path) {
+            peak = Math.max(peak, v);
+            if (peak > 0) {
+                worst = Math.max(worst, (peak - v) / peak);
+            }
+        }
+        return worst;
+    }
+
+    private static Map<String, Object> varEntry(Double amount, double value) {
+        Map<String, Object> e = new LinkedHashMap<>();
+        e.put("amount", amount);
+        e.put("fraction", amount == null || value == 0 ? null : amount / value);
+        return e;
+    }
+
+    private static List<List<Double>> matrix(double[][] values) {
+        List<List<Double>> out = new ArrayList<>(values.length);
+        for (double[] row : values) {
+            List<Double> r = new ArrayList<>(row.length);
+            for (double v : row) {
+                r.add(finite(v));
+            }
+            out.add(r);
+        }
+        return out;
+    }
+
+    private static Double finite(double v) {
+        return Double.isFinite(v) ? v : null;
+    }
+
+    /**
+     * Inverse of the standard normal CDF (Acklam's rational approximation, relative error below
+     * 1.2e-9).
+     */
+    static double normalQuantile(double p) {
+        if (!(p > 0 && p < 1)) {
+            throw new IllegalArgumentException("p must be strictly between 0 and 1");
+        }
+        double[] a = {-3.969683028665376e+01, 2.209460984245205e+02, -2.759285104469687e+02,
+                1.383577518672690e+02, -3.066479806614716e+01, 2.506628277459239e+00};
+        double[] b = {-5.447609879822406e+01, 1.615858368580409e+02, -1.556989798598866e+02,
+                6.680131188771972e+01, -1.328068155288572e+01};
+        double[] c = {-7.784894002430293e-03, -3.223964580411365e-01, -2.400758277161838e+00,
+                -2.549732539343734e+00, 4.374664141464968e+00, 2.938163982698783e+00};
+        double[] d = {7.784695709041462e-03, 3.224671290700398e-01, 2.445134137142996e+00,
+                3.754408661907416e+00};
+        double low = 0.02425;
+        if (p < low) {
+            double q = Math.sqrt(-2 * Math.log(p));
+            return (((((c[0] * q + c[1]) * q + c[2]) * q + c[3]) * q + c[4]) * q + c[5])
+                    / ((((d[0] * q + d[1]) * q + d[2]) * q + d[3]) * q + 1);
+        }
+        if (p > 1 - low) {
+            return -normalQuantile(1 - p);
+        }
+        double q = p - 0.5;
+        double r = q * q;
+        return (((((a[0] * r + a[1]) * r + a[2]) * r + a[3]) * r + a[4]) * r + a[5]) * q
+                / (((((b[0] * r + b[1]) * r + b[2]) * r + b[3]) * r + b[4]) * r + 1);
+    }
+
+    /**
+     * Aligns the held tickers on the days they all have a close and builds their window. The model
+     * is registered before the history is read, so closes written meanwhile are queued for it.
+     */
+    private Model build(long portfolioId, Set<String> held) {
+        List<String> tickers = new ArrayList<>();
+        List<String> missing = new ArrayList<>();
+        for (String t : held) {
+            (priceSeriesStore.get(t).daily().size() > 0 ? tickers : missing).add(t);
+        }
+        Model model = new Model(Set.copyOf(held), tickers, missing);
+        register(portfolioId, model);
+        rebuilds.increment();
+        if (tickers.isEmpty()) {
+            model.install(null);
+            return model;
+        }
+
+        int n = tickers.size();
+        PriceSeries.Slice[] slices = new PriceSeries.Slice[n];
+        int[] pos = new int[n];
+        int newest = Integer.MIN_VALUE;
+        for (int i = 0; i < n; i++) {
+            // returns are daily, so the one-per-bar closes of compacted periods are left out
+            slices[i] = priceSeriesStore.get(tickers.get(i)).daily();
+            pos[i] = slices[i].size() - 1;
+            newest = Math.max(newest, slices[i].dayAt(pos[i]));
+        }
+
+        // walk back from the newest closes, keeping the days every ticker has
+        int capacity = windowDays + 1;
+        int[] days = new int[capacity];
+        double[][] logPrices = new double[n][capacity];
+        int rows = 0;
+        while (rows < capacity) {
+            int target = Integer.MAX_VALUE;
+            for (int i = 0; i < n; i++) {
+                target = Math.min(target, slices[i].dayAt(pos[i]));
+            }
+            boolean aligned = true;
+            boolean exhausted = false;
+            for (int i = 0; i < n; i++) {
+                while (pos[i] >= 0 && slices[i].dayAt(pos[i]) > target) {
+                    pos[i]--;
+                }
+                exhausted |= pos[i] < 0;
+                aligned &= pos[i] >= 0 && slices[i].dayAt(pos[i]) == target;
+            }
+            if (exhausted) {
+                break;
+            }
+            if (aligned) {
+                int k = capacity - 1 - rows;
+                days[k] = target;
+                for (int i = 0; i < n; i++) {
+                    logPrices[i][k] = Math.log(slices[i].closeAt(pos[i]) / UNIT);
+                    pos[i]--;
+                }
+                rows++;
+                boolean more = true;
+                for (int i = 0; i < n; i++) {
+                    more &= pos[i] >= 0;
+                }
+                if (!more) {
+                    break;
+                }
+            }
+        }
+        int offset = capacity - rows;
+        int[] alignedDays = Arrays.copyOfRange(days, offset, capacity);
+        for (int i = 0; i < n; i++) {
+            logPrices[i] = Arrays.copyOfRange(logPrices[i], offset, capacity);
+        }
+
+        RollingCovariance cov = RollingCovariance.build(windowDays, alignedDays, logPrices, rows, pool);
+        // the newest day some tickers already have starts out pending
+        int lastCommon = rows == 0 ? Integer.MIN_VALUE : alignedDays[rows - 1];
+        if (newest > lastCommon) {
+            for (int i = 0; i < n; i++) {
+                PriceSeries.Slice sl = slices[i];
+                if (sl.dayAt(sl.size() - 1) == newest) {
+                    cov.onClose(i, newest, Math.log(sl.closeAt(sl.size() - 1) / UNIT));
+                }
+            }
+        }
+        model.install(cov);
+        return model;
+    }
+
+    /**
+     * Installs the portfolio's new model, indexes it by its held tickers and drops the least
+     * recently read models beyond the limit.
+     */
+    private void register(long portfolioId, Model model) {
+        synchronized (registerLock) {
+            Model previous = models.put(portfolioId, model);
+            if (previous != null) {
+                unindex(portfolioId, previous.held);
+            }
+            for (String t : model.held) {
+                holders.computeIfAbsent(t, k -> ConcurrentHashMap.newKeySet()).add(portfolioId);
+            }
+            while (models.size() > maxModels) {
+                Map.Entry<Long, Model> oldest = null;
+                for (Map.Entry<Long, Model> e : models.entrySet()) {
+                    if (e.getValue() != model && (oldest == null || e.getValue().lastUsed - oldest.getValue().lastUsed < 0)) {
+                        oldest = e;
+                    }
+                }
+                models.remove(oldest.getKey());
+                unindex(oldest.getKey(), oldest.getValue().held);
+                evictions.increment();
+            }
+        }
+    }
+
+    private void unindex(long portfolioId, Set<String> tickers) {
+        for (String t : tickers) {
+            holders.computeIfPresent(t, (k, ids) -> {
+                ids.remove(portfolioId);
+                return ids.isEmpty() ? null : ids;
+            });
+        }
+    }
+
+    private record Close(int ticker, int day, double logPrice) {
+    }
+
+    private record Snapshot(List<String> tickers, List<String> missing, int lastDay, int observations,
+                            double[] lastLogPrice, double[] means, double[][] covariance, double[][] returns) {
+    }
+
+    /**
+     * One portfolio's window. Every access is synchronized on the model.
+     */
+    private static final class Model {
+        final Set<String> held;
+        final List<String> tickers;
+        final List<String> missing;
+        final Map<String, Integer> index = new HashMap<>();
+        RollingCovariance cov;
+        List<Close> backlog = new ArrayList<>();
+        boolean dirty;
+        // System.nanoTime() of the latest compute that used it
+        volatile long lastUsed = System.nanoTime();
+
+        Model(Set<String> held, List<String> tickers, List<String> missing) {
+            this.held = held;
+            this.tickers = tickers;
+            this.missing = missing;
+            for (int i = 0; i < tickers.size(); i++) {
+                index.put(tickers.get(i), i);
+            }
+        }
+
+        synchronized boolean onClose(String ticker, int day, double logPrice) {
+            Integer i = index.get(ticker);
+            if (i == null) {
+                // first close of a held ticker that had no history
+                dirty |= held.contains(ticker);
+                return false;
+            }
+            if (backlog != null) {
+                if (backlog.size() < MAX_BACKLOG) {
+                    backlog.add(new Close(i, day, logPrice));
+                } else {
+                    dirty = true;
+                }
+                return false;
+            }
+            if (cov == null || dirty) {
+                return false;
+            }
+            if (!cov.onClose(i, day, logPrice)) {
+                dirty = true;
+                return false;
+            }
+            return true;
+        }
+
+        synchronized void install(RollingCovariance built) {
+            cov = built;
+            if (built != null) {
+                // replaying a close the history already had is a no-op
+                for (Close c : backlog) {
+                    dirty |= !built.onClose(c.ticker(), c.day(), c.logPrice());
+                }
+            }
+            backlog = null;
+        }
+
+        synchronized boolean isStale(Set<String> nowHeld) {
+            return dirty || backlog != null || !held.equals(nowHeld);
+        }
+
+        synchronized Snapshot snapshot() {
+            int n = tickers.size();
+            int m = cov == null ? 0 : cov.observations();
+            double[] last = new double[n];
+            double[] means = new double[n];
+            double[][] covariance = new double[n][n];
+            double[][] returns = new double[n][m];
+            for (int i = 0; i < n; i++) {
+                last[i] = cov.lastLogPrice(i);
+                means[i] = cov.mean(i);
+                for (int j = 0; j < n; j++) {
+                    covariance[i][j] = cov.covariance(i, j);
+                }
+                for (int k = 0; k < m; k++) {
+                    returns[i][k] = cov.returnAt(i, k);
+                }
+            }
+            return new Snapshot(tickers, missing, cov == null ? Integer.MIN_VALUE : cov.lastDay(), m,
+                    last, means, covariance, returns);
+        }
+    }
+}
@@ -0,0 +1,305 @@
+package com.portfolio.backend.service;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Daily log returns of a fixed set of tickers over a rolling window of common days, with the
+ * running sums and cross products that the means and the covariance matrix are read from.
+ *
+ * <p>A day enters the window once every ticker has a close for it. From then on a restated close
+ * for that last day (the close moving intraday) updates the sums in O(tickers); a new complete day
+ * costs O(tickers²), evicting the oldest day when the window is full. A close for any earlier day
+ * cannot be applied incrementally: {@link #onClose} returns false and the caller rebuilds.
+ *
+ * <p>Not thread-safe; callers serialize access.
+ */
+public final class RollingCovariance {
+
+    // ticker pairs per block of the parallel build
+    private static final int BLOCK = 16;
+
+    private final int n;
+    private final int window;
+    // returns[i] is a ring of window slots; the oldest return is at head
+    private final double[][] returns;
+    private final double[] sums;
+    private final double[] cross;
+    private final double[] lastLogPrice;
+    private final double[] prevLogPrice;
+    private int head;
+    private int count;
+    private int lastDay = Integer.MIN_VALUE;
+    private int appendsSinceRecompute;
+
+    // the newest day, while some tickers still have no close for it
+    private int pendingDay = Integer.MIN_VALUE;
+    private final double[] pending;
+    private int pendingFilled;
+
+    public RollingCovariance(int tickers, int window) {
+        if (tickers < 1 || window < 2) {
+            throw new IllegalArgumentException("need at least one ticker and a window of two days");
+        }
+        this.n = tickers;
+        this.window = window;
+        this.returns = new double[tickers][window];
+        this.sums = new double[tickers];
+        this.cross = new double[tickers * tickers];
+        this.lastLogPrice = new double[tickers];
+        this.prevLogPrice = new double[tickers];
+        this.pending = new double[tickers];
+    }
+
+    /**
+     * Builds the window from aligned history: {@code logPrices[i][k]} is ticker i's log close on
+     * {@code days[k]}, for {@code rows} ascending days. Only the newest {@code window + 1} rows
+     * are used. The cross products are computed in blocks of ticker pairs on the pool.
+     */
+    public static RollingCovariance build(int window, int[] days, double[][] logPrices, int rows, ForkJoinPool pool) {
+        RollingCovariance c = new RollingCovariance(logPrices.length, window);
+        if (rows == 0) {
+            return c;
+        }
+        int first = Math.max(0, rows - window - 1);
+        for (int i = 0; i < c.n; i++) {
+            double[] lp = logPrices[i];
+            double[] r = c.returns[i];
+            double sum = 0;
+            for (int k = first + 1; k < rows; k++) {
+                double ret = lp[k] - lp[k - 1];
+                r[k - first - 1] = ret;
+                sum += ret;
+            }
+            c.sums[i] = sum;
+            c.lastLogPrice[i] = lp[rows - 1];
+            c.prevLogPrice[i] = rows > 1 ? lp[rows - 2] : lp[rows - 1];
+        }
+        c.count = rows - 1 - first;
+        c.lastDay = days[rows - 1];
+        if (pool == null) {
+            c.recompute();
+        } else {
+            List<int[]> blocks = c.blocks();
+            pool.invoke(new CrossBlocks(c, blocks, 0, blocks.size()));
+        }
+        return c;
+    }
+
+    public int tickers() {
+        return n;
+    }
+
+    public int window() {
+        return window;
+    }
+
+    /**
+     * Returns in the window, i.e. complete days minus one.
+     */
+    public int observations() {
+        return count;
+    }
+
+    /**
+     * The newest complete day, or {@link Integer#MIN_VALUE} before the first one.
+     */
+    public int lastDay() {
+        return lastDay;
+    }
+
+    public double lastLogPrice(int i) {
+        return lastLogPrice[i];
+    }
+
+    public double mean(int i) {
+        return count == 0 ? Double.NaN : sums[i] / count;
+    }
+
+    /**
+     * Sample covariance of the daily log returns of tickers i and j.
+     */
+    public double covariance(int i, int j) {
+        if (count < 2) {
+            return Double.NaN;
+        }
+        return (cross[i * n + j] - sums[i] * sums[j] / count) / (count - 1);
+    }
+
+    /**
+     * Ticker i's return on the k-th day of the window, oldest first.
+     */
+    public double returnAt(int i, int k) {
+        return returns[i][(head + k) % window];
+    }
+
+    /**
+     * Applies ticker i's close for a day. Returns false if the day is older than the newest
+     * complete or pending day, which only a rebuild can take in.
+     */
+    public boolean onClose(int i, int day, double logPrice) {
+        if (day == lastDay) {
+            restateLast(i, logPrice);
+            return true;
+        }
+        if (day < lastDay || day < pendingDay) {
+            return false;
+        }
+        if (day > pendingDay) {
+            pendingDay = day;
+            Arrays.fill(pending, Double.NaN);
+            pendingFilled = 0;
+        }
+        if (Double.isNaN(pending[i])) {
+            pendingFilled++;
+        }
+        pending[i] = logPrice;
+        if (pendingFilled == n) {
+            append(pendingDay, pending);
+            pendingDay = Integer.MIN_VALUE;
+        }
+        return true;
+    }
+
+    private void restateLast(int i, double logPrice) {
+        lastLogPrice[i] = logPrice;
+        if (count == 0) {
+            return;
+        }
+        int slot = (head + count - 1) % window;
+        double old = returns[i][slot];
+        double now = logPrice - prevLogPrice[i];
+        double delta = now - old;
+        returns[i][slot] = now;
+        sums[i] += delta;
+        for (int j = 0; j < n; j++) {
+            if (j != i) {
+                double d = delta * returns[j][slot];
+                cross[i * n + j] += d;
+                cross[j * n + i] += d;
+            }
+        }
+        cross[i * n + i] += now * now - old * old;
+    }
+
+    private void append(int day, double[] logPrices) {
+        if (lastDay == Integer.MIN_VALUE) {
+            System.arraycopy(logPrices, 0, lastLogPrice, 0, n);
+            lastDay = day;
+            return;
+        }
+        int slot;
+        if (count == window) {
+            slot = head;
+            addProducts(slot, -1);
+            head = (head + 1) % window;
+        } else {
+            slot = (head + count) % window;
+            count++;
+        }
+        for (int i = 0; i < n; i++) {
+            returns[i][slot] = logPrices[i] - lastLogPrice[i];
+            prevLogPrice[i] = lastLogPrice[i];
+            lastLogPrice[i] = logPrices[i];
+        }
+        lastDay = day;
+        if (++appendsSinceRecompute >= window) {
+            // a full turnover of add/subtract updates; start again from the returns to shed drift
+            recompute();
+        } else {
+            addProducts(slot, 1);
+        }
+    }
+
+    private void addProducts(int slot, double sign) {
+        for (int i = 0; i < n; i++) {
+            double ri = sign * returns[i][slot];
+            sums[i] += ri;
+            for (int j = i; j < n; j++) {
+                double d = ri * returns[j][slot];
+                cross[i * n + j] += d;
+                if (j != i) {
+                    cross[j * n + i] += d;
+                }
+            }
+        }
+    }
+
+    private void recompute() {
+        appendsSinceRecompute = 0;
+        Arrays.fill(sums, 0);
+        for (int i = 0; i < n; i++) {
+            for (int k = 0; k < count; k++) {
+                sums[i] += returns[i][(head + k) % window];
+            }
+        }
+        for (int[] block : blocks()) {
+            crossBlock(block[0], block[1]);
+        }
+    }
+
+    private List<int[]> blocks() {
+        List<int[]> blocks = new ArrayList<>();
+        for (int bi = 0; bi < n; bi += BLOCK) {
+            for (int bj = bi; bj < n; bj += BLOCK) {
+                blocks.add(new int[]{bi, bj});
+            }
+        }
+        return blocks;
+    }
+
+    /**
+     * Cross products of the pairs in one block; blocks cover each unordered pair exactly once.
+     */
+    private void crossBlock(int bi, int bj) {
+        int iEnd = Math.min(n, bi + BLOCK);
+        int jEnd = Math.min(n, bj + BLOCK);
+        for (int i = bi; i < iEnd; i++) {
+            double[] ri = returns[i];
+            for (int j = Math.max(bj, i); j < jEnd; j++) {
+                double[] rj = returns[j];
+                double dot = 0;
+                if (head == 0) {
+                    for (int k = 0; k < count; k++) {
+                        dot += ri[k] * rj[k];
+                    }
+                } else {
+                    for (int k = 0; k < count; k++) {
+                        int s = (head + k) % window;
+                        dot += ri[s] * rj[s];
+                    }
+                }
+                cross[i * n + j] = dot;
+                cross[j * n + i] = dot;
+            }
+        }
+    }
+
+    private static final class CrossBlocks extends RecursiveAction {
+        private final RollingCovariance c;
+        private final List<int[]> blocks;
+        private final int from;
+        private final int to;
+
+        CrossBlocks(RollingCovariance c, List<int[]> blocks, int from, int to) {
+            this.c = c;
+            this.blocks = blocks;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected void compute() {
+            if (to - from == 1) {
+                int[] b = blocks.get(from);
+                c.crossBlock(b[0], b[1]);
+                return;
+            }
+            int mid = (from + to) >>> 1;
+            invokeAll(new CrossBlocks(c, blocks, from, mid), new CrossBlocks(c, blocks, mid, to));
+        }
+    }
+}
@@ -1,21 +1,133 @@
 package com.portfolio.backend.service;
 
-import com.portfolio.backend.entity.StockPrice;
-import com.portfolio.backend.repo.StockPriceRepository;
+import com.portfolio.backend.dto.OhlcBar;
+import com.portfolio.backend.dto.PricePage;
+import com.portfolio.backend.dto.PricePoint;
+import com.portfolio.backend.repo.PriceRollupRepository;
+import com.portfolio.backend.repo.PriceRollupRepository.Tier;
+import io.micrometer.core.annotation.Timed;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Price history reads. Closes and pages come from the in-memory {@link PriceSeriesStore}, which
+ * already stands in one close per rollup bar for compacted periods; OHLC bars over a compacted range
+ * are read whole from the weekly or monthly rollups.
+ */
 @Service
 public class StockPriceService {
 
-    private final StockPriceRepository repository;
+    public static final int MAX_PAGE_SIZE = 5000;
+    public static final int MAX_BUCKETS = 5000;
 
-    public StockPriceService(StockPriceRepository repository) {
-        this.repository = repository;
+    // buckets at least this wide are served from monthly rather than weekly rollups
+    private static final int MONTHLY_BUCKET_DAYS = 28;
+
+    private final PriceSeriesStore priceSeriesStore;
+    private final PriceRollupRepository rollupRepository;
+    // date of the last close rolled up per ticker; empty once we know nothing was compacted
+    private final ConcurrentHashMap<String, Optional<LocalDate>> rolledUpThrough = new ConcurrentHashMap<>();
+
+    public StockPriceService(PriceSeriesStore priceSeriesStore, PriceRollupRepository rollupRepository) {
+        this.priceSeriesStore = priceSeriesStore;
+        this.rollupRepository = rollupRepository;
+    }
+
+    public List<PricePoint> getPriceHistory(String ticker) {
+        return getPriceHistory(ticker, null, null);
+    }
+
+    /**
+     * Closes with {@code from <= priceDate <= to}; either bound may be null. Compacted periods
+     * contribute one close per rollup bar (weekly where kept, monthly before that), dated on the
+     * bar's last trading day.
+     */
+    @Timed("portfolio.method")
+    public List<PricePoint> getPriceHistory(String ticker, LocalDate from, LocalDate to) {
+        return priceSeriesStore.getHistory(ticker, from, to);
+    }
+
+    /**
+     * Keyset page over the closes of {@link #getPriceHistory}: up to {@code limit} closes after the
+     * {@code after} cursor (or from {@code from} on the first page) and no later than {@code to}.
+     */
+    @Timed("portfolio.method")
+    public PricePage getPricePage(String ticker, LocalDate from, LocalDate to, LocalDate after, int limit) {
+        if (limit <= 0 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        LocalDate start = from;
+        if (after != null && (start == null || !after.isBefore(start))) {
+            start = after.plusDays(1);
+        }
+        PriceSeries.Slice window = priceSeriesStore.slice(ticker, start, to);
+        PriceSeries.Slice page = window.head(limit);
+        List<PricePoint> points = new ArrayList<>(page.size());
+        for (int i = 0; i < page.size(); i++) {
+            points.add(new PricePoint(ticker, page.dateAt(i), page.priceAt(i)));
+        }
+        LocalDate nextAfter = window.size() > page.size() ? page.dateAt(page.size() - 1) : null;
+        return new PricePage(ticker, points, nextAfter);
+    }
+
+    /**
+     * The window downsampled to at most {@code buckets} OHLC bars of equal calendar width. Ranges
+     * that reach into compacted history read the coarsest rollup tier that still resolves a bucket.
+     */
+    @Timed("portfolio.method")
+    public List<OhlcBar> getOhlc(String ticker, LocalDate from, LocalDate to, int buckets) {
+        if (buckets <= 0 || buckets > MAX_BUCKETS) {
+            throw new IllegalArgumentException("buckets must be between 1 and " + MAX_BUCKETS);
+        }
+        LocalDate through = rolledUpThrough(ticker);
+        if (through == null || (from != null && from.isAfter(through))) {
+            return OhlcDownsampler.downsample(priceSeriesStore.slice(ticker, from, to), buckets);
+        }
+
+        LocalDate olderTo = to != null && to.isBefore(through) ? to : through;
+        LocalDate start = from;
+        List<OhlcBar> monthly = null;
+        if (start == null) {
+            monthly = rollupRepository.findBars(Tier.MONTHLY, ticker, null, olderTo);
+            start = monthly.isEmpty() ? through : monthly.get(0).start();
+        }
+        long bucketDays = ChronoUnit.DAYS.between(start, to != null ? to : LocalDate.now()) / buckets;
+        boolean weekly = bucketDays < MONTHLY_BUCKET_DAYS;
+        List<OhlcBar> source = new ArrayList<>(weekly || monthly == null
+                ? rollupRepository.findTieredBars(ticker, from, olderTo, weekly)
+                : monthly);
+
+        PriceSeries.Slice daily = priceSeriesStore.slice(ticker, through.plusDays(1), to);
+        for (int i = 0; i < daily.size(); i++) {
+            LocalDate d = daily.dateAt(i);
+            BigDecimal p = daily.priceAt(i);
+            source.add(new OhlcBar(d, d, p, p, p, p, 1));
+        }
+        return OhlcDownsampler.downsampleBars(source, buckets);
+    }
+
+    /**
+     * Records that closes up to {@code through} were moved into the rollups.
+     */
+    public void onCompacted(String ticker, LocalDate through) {
+        rolledUpThrough.merge(ticker, Optional.of(through),
+                (a, b) -> a.isEmpty() || b.get().isAfter(a.get()) ? b : a);
+    }
+
+    private LocalDate rolledUpThrough(String ticker) {
+        return rolledUpThrough.computeIfAbsent(ticker,
+                t -> Optional.ofNullable(rollupRepository.findLastRolledUpDate(t))).orElse(null);
     }
 
-    public List<StockPrice> getPriceHistory(String ticker) {
-        return repository.findByTickerOrderByPriceDate(ticker);
+    public Map<String, Object> getStoreStats() {
+        return priceSeriesStore.getStats();
     }
 }
@@ -0,0 +1,104 @@
+package com.portfolio.backend.service;
+
+import com.portfolio.backend.entity.PriceTarget;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * Untriggered price targets of one ticker, kept like an order book. BUY thresholds are sorted
+ * descending and SELL thresholds ascending, so the targets crossed by a price are always a prefix
+ * of one side and can be taken off in O(log n + k).
+ */
+public class TargetBook {
+
+    private final String ticker;
+    // BUY fires when price <= threshold: highest thresholds first
+    private final TreeMap<BigDecimal, List<PriceTarget>> buys = new TreeMap<>(Collections.reverseOrder());
+    // SELL fires when price >= threshold: lowest thresholds first
+    private final TreeMap<BigDecimal, List<PriceTarget>> sells = new TreeMap<>();
+    private final Map<Long, PriceTarget> byId = new HashMap<>();
+
+    public TargetBook(String ticker) {
+        this.ticker = ticker;
+    }
+
+    public String getTicker() {
+        return ticker;
+    }
+
+    /**
+     * Adds or replaces a target. Targets without an id, a threshold or a BUY/SELL action are ignored.
+     */
+    public synchronized boolean add(PriceTarget target) {
+        if (target.getId() == null || target.getTargetPrice() == null) {
+            return false;
+        }
+        TreeMap<BigDecimal, List<PriceTarget>> side = sideFor(target.getAction());
+        if (side == null) {
+            return false;
+        }
+        remove(target.getId());
+        side.computeIfAbsent(target.getTargetPrice(), k -> new ArrayList<>(1)).add(target);
+        byId.put(target.getId(), target);
+        return true;
+    }
+
+    public synchronized PriceTarget remove(Long id) {
+        PriceTarget existing = byId.remove(id);
+        if (existing == null) {
+            return null;
+        }
+        TreeMap<BigDecimal, List<PriceTarget>> side = sideFor(existing.getAction());
+        List<PriceTarget> level = side.get(existing.getTargetPrice());
+        if (level != null) {
+            level.removeIf(t -> id.equals(t.getId()));
+            if (level.isEmpty()) {
+                side.remove(existing.getTargetPrice());
+            }
+        }
+        return existing;
+    }
+
+    /**
+     * Removes and returns every target crossed by the given price.
+     */
+    public synchronized List<PriceTarget> takeCrossed(BigDecimal price) {
+        List<PriceTarget> crossed = new ArrayList<>();
+        drain(buys.headMap(price, true), crossed);
+        drain(sells.headMap(price, true), crossed);
+        for (PriceTarget t : crossed) {
+            byId.remove(t.getId());
+        }
+        return crossed;
+    }
+
+    public synchronized int size() {
+        return byId.size();
+    }
+
+    private static void drain(NavigableMap<BigDecimal, List<PriceTarget>> levels, List<PriceTarget> out) {
+        Iterator<List<PriceTarget>> it = levels.values().iterator();
+        while (it.hasNext()) {
+            out.addAll(it.next());
+            it.remove();
+        }
+    }
+
+    private TreeMap<BigDecimal, List<PriceTarget>> sideFor(String action) {
+        if ("BUY".equalsIgnoreCase(action)) {
+            return buys;
+        }
+        if ("SELL".equalsIgnoreCase(action)) {
+            return sells;
+        }
+        return null;
+    }
+}
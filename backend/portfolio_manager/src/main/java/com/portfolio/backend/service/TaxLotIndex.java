@@ -0,0 +1,364 @@
+package com.portfolio.backend.service;
+
+import com.portfolio.backend.entity.Asset;
+import com.portfolio.backend.repo.AssetRepository;
+import io.micrometer.core.annotation.Timed;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Short-term and long-term quantity and cost per ticker, kept current as lots are bought and sold.
+ * Lots that are still short-term are also filed under the day they turn long-term, so the daily
+ * rollover only touches the lots crossing that day instead of reclassifying every lot.
+ *
+ * <p>Each portfolio is an independent partition with its own lots, buckets and crossover days;
+ * only the portfolios this node owns are indexed. AssetService feeds the index after each lot
+ * transaction commits; it is rebuilt from the lots once the application is ready. Updates share a
+ * read lock and a rebuild takes the write lock, so a trade is applied either before the rebuild
+ * throws the index away or after it has refiled every lot. Adding a lot that is already filed
+ * does nothing, so a trade that committed before the rebuild read the lots is not counted twice.
+ */
+@Lazy(false)
+@Component
+public class TaxLotIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(TaxLotIndex.class);
+
+    private final AssetRepository assetRepository;
+    private final PortfolioRegistry portfolioRegistry;
+    private final int longTermDays;
+    private final BigDecimal shortTermRate;
+    private final BigDecimal longTermRate;
+
+    private final ConcurrentHashMap<Long, Partition> partitions = new ConcurrentHashMap<>();
+    private final ReentrantReadWriteLock rebuildLock = new ReentrantReadWriteLock();
+
+    public TaxLotIndex(AssetRepository assetRepository,
+                       PortfolioRegistry portfolioRegistry,
+                       @Value("${portfolio.tax.long-term-days:730}") int longTermDays,
+                       @Value("${portfolio.tax.short-term-rate:0.22}") BigDecimal shortTermRate,
+                       @Value("${portfolio.tax.long-term-rate:0.15}") BigDecimal longTermRate) {
+        this.assetRepository = assetRepository;
+        this.portfolioRegistry = portfolioRegistry;
+        this.longTermDays = longTermDays;
+        this.shortTermRate = shortTermRate;
+        this.longTermRate = longTermRate;
+    }
+
+    /**
+     * Per-ticker totals at one point in time. Costs are fixed-point at {@link PriceSeries#SCALE}.
+     */
+    public record Snapshot(String ticker, long shortTermQuantity, long shortTermCost,
+                           long longTermQuantity, long longTermCost) {
+    }
+
+    public int getLongTermDays() {
+        return longTermDays;
+    }
+
+    public BigDecimal getShortTermRate() {
+        return shortTermRate;
+    }
+
+    public BigDecimal getLongTermRate() {
+        return longTermRate;
+    }
+
+    /**
+     * Whether a lot bought on {@code buyDate} is held long-term as of {@code today}.
+     */
+    public boolean isLongTerm(LocalDate buyDate, LocalDate today) {
+        return !today.isBefore(buyDate.plusDays(longTermDays));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void rebuildOnStartup() {
+        int n = rebuild();
+        log.info("Tax lot index built from {} lot(s) in {} portfolio(s)", n, partitions.size());
+    }
+
+    /**
+     * Throws the index away and refiles every lot of the portfolios this node owns. Returns the
+     * number of lots indexed.
+     */
+    @Timed("portfolio.method")
+    public int rebuild() {
+        rebuildLock.writeLock().lock();
+        try {
+            List<Asset> all = assetRepository.findByPortfolioIdIn(portfolioRegistry.owned());
+            partitions.clear();
+            for (Asset lot : all) {
+                file(lot);
+            }
+            return all.size();
+        } finally {
+            rebuildLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Moves the lots whose crossover day has come from short-term to long-term. Readers call this
+     * too, so results are right even if the scheduled run has not happened yet today.
+     */
+    @Scheduled(cron = "${portfolio.tax.rollover-cron:0 5 0 * * *}")
+    public void rollover() {
+        rollover(LocalDate.now());
+    }
+
+    /**
+     * Returns the number of lots that turned long-term, across all partitions.
+     */
+    @Timed("portfolio.method")
+    public int rollover(LocalDate today) {
+        int todayDay = PriceSeries.toEpochDay(today);
+        int moved = 0;
+        for (Partition p : partitions.values()) {
+            moved += p.rollover(todayDay);
+        }
+        if (moved > 0) {
+            log.info("{} lot(s) turned long-term as of {}", moved, today);
+        }
+        return moved;
+    }
+
+    /**
+     * Rolls over one portfolio only; the other partitions are not touched.
+     */
+    public int rollover(long portfolioId, LocalDate today) {
+        Partition p = partitions.get(portfolioId);
+        return p == null ? 0 : p.rollover(PriceSeries.toEpochDay(today));
+    }
+
+    public void onLotAdded(Asset asset) {
+        rebuildLock.readLock().lock();
+        try {
+            file(asset);
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    public void onLotRemoved(Asset asset) {
+        rebuildLock.readLock().lock();
+        try {
+            unfile(asset);
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Applies a sale: {@code closed} lots are gone and {@code partial}, if any, now holds its
+     * reduced quantity.
+     */
+    public void onLotsSold(Collection<Asset> closed, Asset partial) {
+        rebuildLock.readLock().lock();
+        try {
+            for (Asset a : closed) {
+                unfile(a);
+            }
+            Partition p = partial == null ? null : partitionOf(partial);
+            if (p != null) {
+                p.reduceTo(partial.getId(), partial.getQuantity());
+            }
+        } finally {
+            rebuildLock.readLock().unlock();
+        }
+    }
+
+    private void file(Asset asset) {
+        if (asset.getId() == null || asset.getBuyDate() == null || asset.getPortfolioId() == null) {
+            // lots without a buy date are never classified, as in the summary
+            return;
+        }
+        int crossDay = PriceSeries.toEpochDay(asset.getBuyDate().plusDays(longTermDays));
+        Lot lot = new Lot(asset.getId(), asset.getTicker(), crossDay, unitCost(asset), asset.getQuantity());
+        boolean longTerm = crossDay <= PriceSeries.toEpochDay(LocalDate.now());
+        partitions.computeIfAbsent(asset.getPortfolioId(), id -> new Partition()).add(lot, longTerm);
+    }
+
+    private void unfile(Asset asset) {
+        Partition p = partitionOf(asset);
+        if (p != null) {
+            p.remove(asset.getId());
+        }
+    }
+
+    public List<Snapshot> snapshot(long portfolioId) {
+        Partition p = partitions.get(portfolioId);
+        return p == null ? new ArrayList<>() : p.snapshot();
+    }
+
+    public LocalDate nextCrossover(long portfolioId) {
+        Partition p = partitions.get(portfolioId);
+        return p == null ? null : p.nextCrossover();
+    }
+
+    private Partition partitionOf(Asset asset) {
+        return asset.getId() == null || asset.getPortfolioId() == null ? null : partitions.get(asset.getPortfolioId());
+    }
+
+    private static long unitCost(Asset asset) {
+        return asset.getBuyPrice() == null ? 0 : PriceSeries.toFixed(asset.getBuyPrice());
+    }
+
+    /**
+     * One portfolio's lots, buckets and crossover days.
+     */
+    private static final class Partition {
+        final ConcurrentHashMap<Long, Lot> lots = new ConcurrentHashMap<>();
+        final ConcurrentHashMap<String, Buckets> byTicker = new ConcurrentHashMap<>();
+        // epoch day a lot turns long-term -> the short-term lots crossing that day
+        final ConcurrentSkipListMap<Integer, Map<Long, Lot>> crossovers = new ConcurrentSkipListMap<>();
+
+        void add(Lot lot, boolean longTerm) {
+            if (lots.putIfAbsent(lot.id, lot) != null) {
+                return;
+            }
+            buckets(lot.ticker).add(lot, longTerm);
+            if (!longTerm) {
+                crossovers.computeIfAbsent(lot.crossDay, d -> new ConcurrentHashMap<>()).put(lot.id, lot);
+            }
+        }
+
+        void remove(long id) {
+            Lot lot = lots.remove(id);
+            if (lot != null) {
+                buckets(lot.ticker).reduceTo(lot, 0);
+                Map<Long, Lot> day = crossovers.get(lot.crossDay);
+                if (day != null) {
+                    day.remove(lot.id);
+                }
+            }
+        }
+
+        void reduceTo(long id, int remaining) {
+            Lot lot = lots.get(id);
+            if (lot != null) {
+                buckets(lot.ticker).reduceTo(lot, remaining);
+            }
+        }
+
+        int rollover(int todayDay) {
+            int moved = 0;
+            Map.Entry<Integer, Map<Long, Lot>> due;
+            while ((due = crossovers.firstEntry()) != null && due.getKey() <= todayDay) {
+                if (!crossovers.remove(due.getKey(), due.getValue())) {
+                    continue;
+                }
+                for (Lot lot : due.getValue().values()) {
+                    if (buckets(lot.ticker).promote(lot)) {
+                        moved++;
+                    }
+                }
+            }
+            return moved;
+        }
+
+        List<Snapshot> snapshot() {
+            List<Snapshot> out = new ArrayList<>(byTicker.size());
+            for (Buckets b : byTicker.values()) {
+                Snapshot s = b.snapshot();
+                if (s.shortTermQuantity() != 0 || s.longTermQuantity() != 0) {
+                    out.add(s);
+                }
+            }
+            return out;
+        }
+
+        LocalDate nextCrossover() {
+            // sold lots leave empty days behind until the rollover reaches them
+            for (Map.Entry<Integer, Map<Long, Lot>> e : crossovers.entrySet()) {
+                if (!e.getValue().isEmpty()) {
+                    return LocalDate.ofEpochDay(e.getKey());
+                }
+            }
+            return null;
+        }
+
+        private Buckets buckets(String ticker) {
+            return byTicker.computeIfAbsent(ticker, Buckets::new);
+        }
+    }
+
+    private static final class Lot {
+        final long id;
+        final String ticker;
+        final int crossDay;
+        final long unitCost;
+        int quantity;
+        boolean longTerm;
+
+        Lot(long id, String ticker, int crossDay, long unitCost, int quantity) {
+            this.id = id;
+            this.ticker = ticker;
+            this.crossDay = crossDay;
+            this.unitCost = unitCost;
+            this.quantity = quantity;
+        }
+    }
+
+    /**
+     * One ticker's two buckets. Lot state changes happen under the bucket's monitor, so a sale and
+     * the rollover never move the same shares twice.
+     */
+    private static final class Buckets {
+        final String ticker;
+        long shortQuantity;
+        long shortCost;
+        long longQuantity;
+        long longCost;
+
+        Buckets(String ticker) {
+            this.ticker = ticker;
+        }
+
+        synchronized void add(Lot lot, boolean longTerm) {
+            lot.longTerm = longTerm;
+            move(lot, lot.quantity, longTerm ? 0 : 1, longTerm ? 1 : 0);
+        }
+
+        synchronized void reduceTo(Lot lot, int remaining) {
+            int sold = lot.quantity - remaining;
+            lot.quantity = remaining;
+            move(lot, sold, lot.longTerm ? 0 : -1, lot.longTerm ? -1 : 0);
+        }
+
+        synchronized boolean promote(Lot lot) {
+            if (lot.longTerm || lot.quantity == 0) {
+                return false;
+            }
+            lot.longTerm = true;
+            move(lot, lot.quantity, -1, 1);
+            return true;
+        }
+
+        synchronized Snapshot snapshot() {
+            return new Snapshot(ticker, shortQuantity, shortCost, longQuantity, longCost);
+        }
+
+        private void move(Lot lot, long quantity, int shortSign, int longSign) {
+            long cost = quantity * lot.unitCost;
+            shortQuantity += shortSign * quantity;
+            shortCost += shortSign * cost;
+            longQuantity += longSign * quantity;
+            longCost += longSign * cost;
+        }
+    }
+}
@@ -0,0 +1,475 @@
+package com.portfolio.backend.service;
+
+import com.portfolio.backend.dto.IntradayTick;
+import com.portfolio.backend.dto.OhlcBar;
+import com.portfolio.backend.dto.PricePoint;
+import com.portfolio.backend.entity.StockPrice;
+import com.portfolio.backend.repo.StockPriceBatchRepository;
+import com.portfolio.backend.repo.StockRepository;
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Intraday ticks. Each tick is appended to its ticker's {@link TickRing} and nothing else happens
+ * on the caller's thread: no lock, no database. One aggregator thread drains the rings that have
+ * new ticks into each ticker's bar for the day. After every drain it puts the new close into the
+ * in-memory price views and queues alert evaluation and the live valuation; nothing derived from
+ * daily closes is rebuilt. The shared {@link DataVersion} moves at most once per
+ * {@code portfolio.ticks.version-interval-ms}, so cached summaries are rebuilt at that rate rather
+ * than per tick. Closes are written to {@code stock_price} by {@link #flush}, which runs
+ * periodically and at shutdown and then updates risk and value history once per written close. The
+ * day's last flush persists its closing bar.
+ *
+ * <p>Ticks are bucketed into days in the server's time zone, like every other price date. A tick
+ * dated before the bar already being built for its ticker is counted as late and dropped. A tick
+ * dated after it closes that bar, which stays unsaved for the next flush like the current one.
+ */
+@Lazy(false)
+@Service
+public class TickIngestService {
+
+    private static final Logger log = LoggerFactory.getLogger(TickIngestService.class);
+
+    private static final int MAX_REPORTED_REJECTIONS = 100;
+    private static final long MAX_CLOCK_SKEW_MILLIS = TimeUnit.MINUTES.toMillis(1);
+    private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    private final StockRepository stockRepository;
+    private final StockPriceBatchRepository batchRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final LatestPriceIndex latestPriceIndex;
+    private final PriceSeriesStore priceSeriesStore;
+    private final AlertPipeline alertPipeline;
+    private final ValuationStream valuationStream;
+    private final DataVersion dataVersion;
+    private final RiskService riskService;
+    private final PortfolioHistoryService portfolioHistoryService;
+    private final ObjectMapper objectMapper;
+    private final int ringCapacity;
+    private final long versionIntervalNanos;
+    private final ZoneId zone = ZoneId.systemDefault();
+
+    private final ConcurrentHashMap<String, Feed> feeds = new ConcurrentHashMap<>();
+    private final Set<String> unknown = ConcurrentHashMap.newKeySet();
+    private final ConcurrentLinkedQueue<Feed> dirty = new ConcurrentLinkedQueue<>();
+    // closes not yet written, keyed by ticker and day
+    private final ConcurrentHashMap<String, PricePoint> unsaved = new ConcurrentHashMap<>();
+
+    private final LongAdder accepted = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder late = new LongAdder();
+    private final LongAdder overrun = new LongAdder();
+    private final LongAdder flushedRows = new LongAdder();
+    private volatile Instant lastFlush;
+
+    private final Thread aggregator;
+    private volatile boolean running = true;
+
+    // aggregator's cache of the day being bucketed into
+    private int cachedDay = Integer.MIN_VALUE;
+    private long cachedDayStart;
+    private long cachedDayEnd;
+    // aggregator's pending version bump
+    private boolean versionDue;
+    private long versionBumpedAt;
+
+    public TickIngestService(StockRepository stockRepository, StockPriceBatchRepository batchRepository,
+                             TransactionTemplate transactionTemplate, LatestPriceIndex latestPriceIndex,
+                             PriceSeriesStore priceSeriesStore, AlertPipeline alertPipeline,
+                             ValuationStream valuationStream, DataVersion dataVersion, RiskService riskService,
+                             PortfolioHistoryService portfolioHistoryService, ObjectMapper objectMapper,
+                             @Value("${portfolio.ticks.ring-capacity:4096}") int ringCapacity,
+                             @Value("${portfolio.ticks.version-interval-ms:1000}") long versionIntervalMs) {
+        this.stockRepository = stockRepository;
+        this.batchRepository = batchRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.latestPriceIndex = latestPriceIndex;
+        this.priceSeriesStore = priceSeriesStore;
+        this.alertPipeline = alertPipeline;
+        this.valuationStream = valuationStream;
+        this.dataVersion = dataVersion;
+        this.riskService = riskService;
+        this.portfolioHistoryService = portfolioHistoryService;
+        this.objectMapper = objectMapper;
+        this.ringCapacity = Integer.highestOneBit(Math.max(2, ringCapacity));
+        this.versionIntervalNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, versionIntervalMs));
+        this.aggregator = new Thread(this::aggregate, "tick-aggregator");
+        this.aggregator.setDaemon(true);
+        this.aggregator.start();
+    }
+
+    /**
+     * Stops the aggregator, drains what it had not got to yet and writes every unsaved close.
+     */
+    @PreDestroy
+    public void shutdown() {
+        running = false;
+        LockSupport.unpark(aggregator);
+        try {
+            aggregator.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (!aggregator.isAlive()) {
+            drainAll();
+            flush();
+        }
+    }
+
+    /**
+     * Accepts one tick. Returns false, without recording it, for a ticker that is not a known
+     * stock.
+     *
+     * @throws IllegalArgumentException for a price that is not positive or a time in the future
+     */
+    public boolean accept(String ticker, long epochMillis, long fixedPrice) {
+        if (fixedPrice <= 0) {
+            rejected.increment();
+            throw new IllegalArgumentException("price must be positive");
+        }
+        if (epochMillis > System.currentTimeMillis() + MAX_CLOCK_SKEW_MILLIS) {
+            rejected.increment();
+            throw new IllegalArgumentException("tick time is in the future");
+        }
+        Feed f = feeds.get(ticker);
+        if (f == null && (f = feed(ticker)) == null) {
+            rejected.increment();
+            return false;
+        }
+        f.ring.append(epochMillis, fixedPrice);
+        accepted.increment();
+        if (!f.queued.get() && f.queued.compareAndSet(false, true)) {
+            dirty.offer(f);
+            LockSupport.unpark(aggregator);
+        }
+        return true;
+    }
+
+    /**
+     * Reads ticks from a CSV ({@code ticker,price[,time]}) or NDJSON
+     * ({@code {"ticker","price","time"}}) body. The time is epoch milliseconds or an ISO-8601
+     * instant and defaults to now.
+     */
+    @Timed("portfolio.method")
+    public Map<String, Object> ingest(InputStream body, BulkPriceIngestService.Format format) throws IOException {
+        long start = System.nanoTime();
+        long lineNo = 0;
+        long ok = 0;
+        long bad = 0;
+        List<Map<String, Object>> rejections = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNo++;
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || (format == BulkPriceIngestService.Format.CSV && lineNo == 1
+                    && trimmed.toLowerCase().startsWith("ticker"))) {
+                continue;
+            }
+            try {
+                boolean known = format == BulkPriceIngestService.Format.CSV ? acceptCsv(trimmed) : acceptJson(trimmed);
+                if (!known) {
+                    throw new IllegalArgumentException("unknown ticker");
+                }
+                ok++;
+            } catch (RuntimeException e) {
+                bad++;
+                if (rejections.size() < MAX_REPORTED_REJECTIONS) {
+                    rejections.add(Map.of("line", lineNo, "reason", String.valueOf(e.getMessage())));
+                }
+            }
+        }
+        long elapsedNanos = System.nanoTime() - start;
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("ticksAccepted", ok);
+        result.put("ticksRejected", bad);
+        result.put("elapsedMs", elapsedNanos / 1_000_000);
+        result.put("ticksPerSecond", elapsedNanos == 0 ? 0.0 : ok * 1_000_000_000.0 / elapsedNanos);
+        result.put("rejectedLines", rejections);
+        return result;
+    }
+
+    /**
+     * The ticker's bar for its current day and up to {@code limit} of its newest ticks.
+     */
+    public Map<String, Object> intraday(String ticker, int limit) {
+        Feed f = feeds.get(ticker);
+        List<IntradayTick> ticks = new ArrayList<>();
+        if (f != null) {
+            int max = Math.max(0, Math.min(limit, f.ring.capacity()));
+            long[] times = new long[max];
+            long[] prices = new long[max];
+            int n = f.ring.latest(times, prices, max);
+            for (int i = 0; i < n; i++) {
+                ticks.add(new IntradayTick(Instant.ofEpochMilli(times[i]), PriceSeries.fromFixed(prices[i])));
+            }
+        }
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("ticker", ticker);
+        result.put("bar", f != null ? f.bar : null);
+        result.put("ticks", ticks);
+        return result;
+    }
+
+    /**
+     * Writes every close that changed since the last flush to {@code stock_price} in one batch.
+     * Returns the number of rows written.
+     */
+    @Scheduled(fixedDelayString = "${portfolio.ticks.flush-interval-ms:60000}",
+            initialDelayString = "${portfolio.ticks.flush-interval-ms:60000}")
+    @Timed("portfolio.method")
+    public synchronized int flush() {
+        // a stock added since gets another chance
+        unknown.clear();
+        if (unsaved.isEmpty()) {
+            return 0;
+        }
+        List<Map.Entry<String, PricePoint>> pending = new ArrayList<>();
+        List<PricePoint> rows = new ArrayList<>();
+        for (Map.Entry<String, PricePoint> e : unsaved.entrySet()) {
+            pending.add(Map.entry(e.getKey(), e.getValue()));
+            rows.add(e.getValue());
+        }
+        transactionTemplate.executeWithoutResult(status -> batchRepository.upsertAll(rows));
+        for (PricePoint row : rows) {
+            latestPriceIndex.markSaved(row.ticker(), row.priceDate(), row.closePrice());
+            riskService.onClose(row.ticker(), row.priceDate(), row.closePrice());
+            portfolioHistoryService.onClose(row.ticker(), row.priceDate());
+        }
+        dataVersion.bump();
+        for (Map.Entry<String, PricePoint> e : pending) {
+            // a newer close that arrived meanwhile stays for the next flush
+            unsaved.remove(e.getKey(), e.getValue());
+        }
+        flushedRows.add(rows.size());
+        lastFlush = Instant.now();
+        log.debug("Flushed {} intraday closes", rows.size());
+        return rows.size();
+    }
+
+    public Map<String, Object> getStats() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("tickers", feeds.size());
+        stats.put("ringCapacity", ringCapacity);
+        stats.put("accepted", accepted.sum());
+        stats.put("rejected", rejected.sum());
+        stats.put("late", late.sum());
+        stats.put("overrun", overrun.sum());
+        stats.put("unsavedCloses", unsaved.size());
+        stats.put("flushedRows", flushedRows.sum());
+        stats.put("lastFlush", lastFlush);
+        return stats;
+    }
+
+    private Feed feed(String ticker) {
+        if (ticker == null || ticker.isEmpty() || unknown.contains(ticker)) {
+            return null;
+        }
+        Feed f = feeds.computeIfAbsent(ticker, t -> stockRepository.existsById(t) ? new Feed(t, ringCapacity) : null);
+        if (f == null) {
+            unknown.add(ticker);
+        }
+        return f;
+    }
+
+    private boolean acceptCsv(String line) {
+        int c1 = line.indexOf(',');
+        if (c1 < 0) {
+            throw new IllegalArgumentException("expected ticker,price[,time]");
+        }
+        int c2 = line.indexOf(',', c1 + 1);
+        String ticker = line.substring(0, c1).trim();
+        String price = (c2 < 0 ? line.substring(c1 + 1) : line.substring(c1 + 1, c2)).trim();
+        long time = c2 < 0 ? System.currentTimeMillis() : parseTime(line.substring(c2 + 1).trim());
+        return accept(ticker, time, PriceSeries.toFixed(new BigDecimal(price)));
+    }
+
+    private boolean acceptJson(String line) {
+        JsonNode node = objectMapper.readTree(line);
+        JsonNode ticker = node.get("ticker");
+        JsonNode price = node.get("price");
+        JsonNode time = node.has("time") ? node.get("time") : node.get("ts");
+        if (ticker == null || price == null) {
+            throw new IllegalArgumentException("ticker and price are required");
+        }
+        BigDecimal p = price.isNumber() ? price.decimalValue() : new BigDecimal(price.asString());
+        long t = time == null || time.isNull() ? System.currentTimeMillis()
+                : time.isNumber() ? time.asLong() : parseTime(time.asString());
+        return accept(ticker.asString(), t, PriceSeries.toFixed(p));
+    }
+
+    private static long parseTime(String s) {
+        if (!s.isEmpty() && Character.isDigit(s.charAt(0)) && s.chars().allMatch(Character::isDigit)) {
+            return Long.parseLong(s);
+        }
+        return Instant.parse(s).toEpochMilli();
+    }
+
+    private void aggregate() {
+        while (running) {
+            Feed f = dirty.poll();
+            if (f != null) {
+                drain(f);
+            }
+            if (versionDue && System.nanoTime() - versionBumpedAt >= versionIntervalNanos) {
+                versionDue = false;
+                versionBumpedAt = System.nanoTime();
+                dataVersion.bump();
+            }
+            if (f == null) {
+                LockSupport.parkNanos(IDLE_PARK_NANOS);
+            }
+        }
+    }
+
+    private void drainAll() {
+        // bounded, so writers still arriving during shutdown cannot keep it going
+        Feed f;
+        for (int left = 4 * feeds.size(); left > 0 && (f = dirty.poll()) != null; left--) {
+            drain(f);
+        }
+    }
+
+    private void drain(Feed f) {
+        // clear first, so a tick appended from here on queues the feed again
+        f.queued.set(false);
+        TickRing.Reader r = f.reader;
+        long overrunBefore = r.overrun();
+        boolean moved = false;
+        while (r.next()) {
+            int day = dayOf(r.time());
+            if (day < f.day) {
+                late.increment();
+                continue;
+            }
+            if (day > f.day && moved) {
+                // the tick starts a new day: record the finished one before its bar is reset
+                publish(f);
+            }
+            f.add(day, r.time(), r.price());
+            moved = true;
+        }
+        overrun.add(r.overrun() - overrunBefore);
+        if (r.cursor() < f.ring.claimed() && f.queued.compareAndSet(false, true)) {
+            // a writer had claimed a slot but not published it yet
+            dirty.offer(f);
+        }
+        if (moved) {
+            publish(f);
+        }
+    }
+
+    /**
+     * Records the feed's bar as its ticker's unsaved close for the bar's day and puts it into the
+     * in-memory price views.
+     */
+    private void publish(Feed f) {
+        LocalDate date = LocalDate.ofEpochDay(f.day);
+        BigDecimal close = PriceSeries.fromFixed(f.close);
+        f.bar = new OhlcBar(date, date, PriceSeries.fromFixed(f.open), PriceSeries.fromFixed(f.high),
+                PriceSeries.fromFixed(f.low), close, f.count);
+        unsaved.put(f.ticker + "|" + f.day, new PricePoint(f.ticker, date, close));
+        StockPrice sp = new StockPrice();
+        sp.setTicker(f.ticker);
+        sp.setPriceDate(date);
+        sp.setClosePrice(close);
+        try {
+            latestPriceIndex.putUnsaved(sp);
+            priceSeriesStore.onPriceWritten(sp);
+            alertPipeline.submit(f.ticker);
+            valuationStream.submit(f.ticker);
+            versionDue = true;
+        } catch (RuntimeException e) {
+            log.warn("Publishing the intraday close of {} failed", f.ticker, e);
+        }
+    }
+
+    private int dayOf(long epochMillis) {
+        if (epochMillis < cachedDayStart || epochMillis >= cachedDayEnd || cachedDay == Integer.MIN_VALUE) {
+            LocalDate d = Instant.ofEpochMilli(epochMillis).atZone(zone).toLocalDate();
+            cachedDay = PriceSeries.toEpochDay(d);
+            cachedDayStart = d.atStartOfDay(zone).toInstant().toEpochMilli();
+            cachedDayEnd = d.plusDays(1).atStartOfDay(zone).toInstant().toEpochMilli();
+        }
+        return cachedDay;
+    }
+
+    /**
+     * One ticker's ring and the bar the aggregator is building from it.
+     */
+    private static final class Feed {
+        final String ticker;
+        final TickRing ring;
+        final TickRing.Reader reader;
+        final AtomicBoolean queued = new AtomicBoolean();
+        volatile OhlcBar bar;
+
+        // aggregator only
+        int day = Integer.MIN_VALUE;
+        long firstTime;
+        long lastTime;
+        long open;
+        long high;
+        long low;
+        long close;
+        int count;
+
+        Feed(String ticker, int capacity) {
+            this.ticker = ticker;
+            this.ring = new TickRing(capacity);
+            this.reader = ring.new Reader(0);
+        }
+
+        void add(int tickDay, long time, long price) {
+            if (tickDay != day) {
+                day = tickDay;
+                firstTime = lastTime = time;
+                open = high = low = close = price;
+                count = 1;
+                return;
+            }
+            // ticks of one day may arrive out of order: open and close follow the timestamps
+            if (time < firstTime) {
+                firstTime = time;
+                open = price;
+            }
+            if (time >= lastTime) {
+                lastTime = time;
+                close = price;
+            }
+            high = Math.max(high, price);
+            low = Math.min(low, price);
+            count++;
+        }
+    }
+}
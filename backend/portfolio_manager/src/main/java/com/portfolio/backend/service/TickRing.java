@@ -0,0 +1,160 @@
+package com.portfolio.backend.service;
+
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Fixed-size ring of one ticker's most recent intraday ticks: epoch-millisecond timestamps and
+ * fixed-point prices, as in {@link PriceSeries}. Writers take no lock: each claims the next
+ * sequence number with one atomic increment, marks its slot as being written, writes it and
+ * publishes it by stamping the slot with that sequence. Once the ring is full, every append
+ * overwrites the oldest tick. A writer only waits when a whole lap of appends reaches the slot it
+ * is still writing, and a writer that finds a later lap already in its slot drops its tick.
+ *
+ * <p>Readers follow the stamps seqlock-style: a slot is read only if its stamp matches the
+ * sequence wanted, and the read is discarded if the stamp changed while reading. A reader that
+ * falls more than a ring behind sees the ticks it missed as {@link Reader#overrun() overrun}
+ * instead of reading torn data.
+ */
+public final class TickRing {
+
+    private final int mask;
+    private final long[] times;
+    private final long[] prices;
+    // stamp of a published slot is its sequence + 1, negated while that sequence is being written;
+    // 0 until the slot is first written
+    private final AtomicLongArray stamps;
+    private final AtomicLong next = new AtomicLong();
+
+    public TickRing(int capacity) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("capacity must be a power of two, at least 2");
+        }
+        this.mask = capacity - 1;
+        this.times = new long[capacity];
+        this.prices = new long[capacity];
+        this.stamps = new AtomicLongArray(capacity);
+    }
+
+    public int capacity() {
+        return mask + 1;
+    }
+
+    /**
+     * Appends a tick and returns its sequence number.
+     */
+    public long append(long epochMillis, long fixedPrice) {
+        long seq = next.getAndIncrement();
+        int i = (int) (seq & mask);
+        long mine = seq + 1;
+        while (true) {
+            long stamp = stamps.get(i);
+            if (stamp < 0) {
+                // an earlier lap is still writing this slot
+                Thread.onSpinWait();
+            } else if (stamp > mine) {
+                // a later lap already wrote this slot; readers count this tick as overrun
+                return seq;
+            } else if (stamps.compareAndSet(i, stamp, -mine)) {
+                break;
+            }
+        }
+        // the invalidation must be visible before any of the new data
+        VarHandle.releaseFence();
+        times[i] = epochMillis;
+        prices[i] = fixedPrice;
+        stamps.setRelease(i, mine);
+        return seq;
+    }
+
+    /**
+     * Sequence the next append will get; every tick before it has at least been claimed.
+     */
+    public long claimed() {
+        return next.get();
+    }
+
+    /**
+     * Copies up to {@code max} of the newest published ticks into the arrays, oldest first, and
+     * returns how many were copied.
+     */
+    public int latest(long[] epochMillis, long[] fixedPrices, int max) {
+        long end = next.get();
+        long from = Math.max(0, end - Math.min(max, capacity()));
+        Reader r = new Reader(from);
+        int n = 0;
+        while (n < max && r.next()) {
+            epochMillis[n] = r.time();
+            fixedPrices[n] = r.price();
+            n++;
+        }
+        return n;
+    }
+
+    /**
+     * Walks the ring from a sequence onwards. Not thread-safe; each consumer keeps its own.
+     */
+    public final class Reader {
+        private long cursor;
+        private long overrun;
+        private long time;
+        private long price;
+
+        public Reader(long from) {
+            this.cursor = from;
+        }
+
+        /**
+         * Advances to the next published tick. Returns false once the reader has caught up, or
+         * when the next tick is claimed but not yet published; calling again later resumes there.
+         */
+        public boolean next() {
+            while (cursor < next.get()) {
+                int i = (int) (cursor & mask);
+                long stamp = stamps.getAcquire(i);
+                if (stamp == cursor + 1) {
+                    long t = times[i];
+                    long p = prices[i];
+                    VarHandle.acquireFence();
+                    if (stamps.getOpaque(i) == stamp) {
+                        time = t;
+                        price = p;
+                        cursor++;
+                        return true;
+                    }
+                    stamp = stamps.getOpaque(i);
+                }
+                if (Math.abs(stamp) > cursor + 1 || next.get() - cursor > capacity()) {
+                    // lapped: skip to the oldest tick still in the ring
+                    long oldest = Math.max(cursor + 1, next.get() - capacity());
+                    overrun += oldest - cursor;
+                    cursor = oldest;
+                    continue;
+                }
+                // claimed but not yet published
+                return false;
+            }
+            return false;
+        }
+
+        public long time() {
+            return time;
+        }
+
+        public long price() {
+            return price;
+        }
+
+        public long cursor() {
+            return cursor;
+        }
+
+        /**
+         * Ticks skipped so far because writers overwrote them before they were read.
+         */
+        public long overrun() {
+            return overrun;
+        }
+    }
+}
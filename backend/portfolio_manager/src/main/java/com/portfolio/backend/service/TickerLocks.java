@@ -0,0 +1,48 @@
+package com.portfolio.backend.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * Striped in-process locks keyed by portfolio and ticker. A position always maps to the same
+ * stripe, so writes to one position's lots are serialized while other tickers and portfolios
+ * proceed in parallel; two positions that share a stripe only wait on each other needlessly.
+ */
+@Component
+public class TickerLocks {
+
+    private final ReentrantLock[] stripes;
+    private final int mask;
+
+    public TickerLocks(@Value("${portfolio.orders.lock-stripes:0}") int stripes) {
+        int wanted = stripes > 0 ? stripes : 4 * Runtime.getRuntime().availableProcessors();
+        int n = Integer.highestOneBit(Math.max(1, wanted - 1)) << 1;
+        this.stripes = new ReentrantLock[n];
+        for (int i = 0; i < n; i++) {
+            this.stripes[i] = new ReentrantLock();
+        }
+        this.mask = n - 1;
+    }
+
+    public <T> T withLock(long portfolioId, String ticker, Supplier<T> action) {
+        ReentrantLock lock = lockFor(portfolioId, ticker);
+        lock.lock();
+        try {
+            return action.get();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int stripeCount() {
+        return stripes.length;
+    }
+
+    ReentrantLock lockFor(long portfolioId, String ticker) {
+        int h = 31 * Long.hashCode(portfolioId) + ticker.hashCode();
+        return stripes[(h ^ (h >>> 16)) & mask];
+    }
+}
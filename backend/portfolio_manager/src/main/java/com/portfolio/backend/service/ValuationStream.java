@@ -0,0 +1,418 @@
+package com.portfolio.backend.service;
+
+import com.portfolio.backend.dto.PositionValue;
+import com.portfolio.backend.dto.TriggeredAlert;
+import com.portfolio.backend.dto.ValuationDelta;
+import com.portfolio.backend.dto.ValuationSnapshot;
+import com.portfolio.backend.entity.Position;
+import com.portfolio.backend.entity.StockPrice;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Pushes valuation changes to the Server-Sent Event subscribers of a portfolio. Price writers only
+ * {@link #submit} the ticker; one worker thread revalues that ticker's position in each watched
+ * portfolio and queues a small {@link ValuationDelta} per subscriber. Triggered alerts are queued
+ * the same way by the {@link AlertPipeline}.
+ *
+ * <p>Every subscriber has its own bounded buffer. An unsent delta for a position is replaced by
+ * the newer one, so at most one per held ticker is ever pending. Alerts beyond the capacity drop the
+ * oldest, and the client is told how many it missed. Events are written by a separate sender pool,
+ * one batch per subscriber at a time, so a slow client delays only itself and never the writers.
+ *
+ * <p>Lot writes reach subscribers as a fresh snapshot once the periodic {@link #refresh} sees the
+ * portfolio's version move.
+ */
+@Lazy(false)
+@Service
+public class ValuationStream {
+
+    private static final Logger log = LoggerFactory.getLogger(ValuationStream.class);
+
+    private final PositionService positionService;
+    private final LatestPriceIndex latestPriceIndex;
+    private final DataVersion dataVersion;
+    private final int capacity;
+    private final long timeoutMs;
+
+    private final ConcurrentHashMap<Long, CopyOnWriteArrayList<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final Set<String> queued = ConcurrentHashMap.newKeySet();
+    // touched by the worker only
+    private final Map<Long, Book> books = new HashMap<>();
+    private final Map<String, Set<Long>> holders = new HashMap<>();
+
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "valuation-stream");
+        t.setDaemon(true);
+        return t;
+    });
+    private final ExecutorService senders;
+
+    public ValuationStream(PositionService positionService, LatestPriceIndex latestPriceIndex, DataVersion dataVersion,
+                           @Value("${portfolio.stream.buffer:64}") int capacity,
+                           @Value("${portfolio.stream.senders:4}") int senders,
+                           @Value("${portfolio.stream.timeout-ms:1800000}") long timeoutMs) {
+        this.positionService = positionService;
+        this.latestPriceIndex = latestPriceIndex;
+        this.dataVersion = dataVersion;
+        this.capacity = Math.max(1, capacity);
+        this.timeoutMs = timeoutMs;
+        AtomicInteger n = new AtomicInteger();
+        this.senders = Executors.newFixedThreadPool(Math.max(1, senders), r -> {
+            Thread t = new Thread(r, "valuation-push-" + n.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        worker.shutdown();
+        senders.shutdown();
+    }
+
+    /**
+     * Opens a stream of the portfolio's valuation. It starts with a {@code snapshot} event, followed
+     * by {@code position} deltas, {@code alert}s and, after an overflow, a {@code dropped} count.
+     */
+    public SseEmitter subscribe(long portfolioId) {
+        SseEmitter emitter = new SseEmitter(timeoutMs);
+        Subscriber s = new Subscriber(portfolioId, emitter);
+        subscribers.compute(portfolioId, (id, list) -> {
+            CopyOnWriteArrayList<Subscriber> l = list != null ? list : new CopyOnWriteArrayList<>();
+            l.add(s);
+            return l;
+        });
+        emitter.onCompletion(() -> remove(s));
+        emitter.onError(e -> remove(s));
+        worker.execute(() -> attach(s));
+        return emitter;
+    }
+
+    /**
+     * Queues a revaluation of the ticker's positions at its latest close. Submissions for a ticker
+     * that is already queued coalesce.
+     */
+    public void submit(String ticker) {
+        if (ticker != null && !subscribers.isEmpty() && queued.add(ticker)) {
+            worker.execute(() -> evaluate(ticker));
+        }
+    }
+
+    public void publishAlerts(long portfolioId, List<TriggeredAlert> alerts) {
+        for (Subscriber s : subscribers(portfolioId)) {
+            s.offer(alerts);
+            schedule(s);
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${portfolio.stream.refresh-ms:1000}")
+    public void refresh() {
+        if (!subscribers.isEmpty()) {
+            worker.execute(() -> {
+                for (Long id : List.copyOf(books.keySet())) {
+                    if (books.get(id).version != dataVersion.own(id)) {
+                        reload(id);
+                    }
+                }
+            });
+        }
+    }
+
+    private void attach(Subscriber s) {
+        Book b = books.get(s.portfolioId);
+        if (b == null || b.version != dataVersion.own(s.portfolioId)) {
+            // a reload snapshots every subscriber, this one included
+            reload(s.portfolioId);
+            return;
+        }
+        s.offer(b.snapshot());
+        schedule(s);
+    }
+
+    private void evaluate(String ticker) {
+        // dequeue first, so a price written during the evaluation queues another one
+        queued.remove(ticker);
+        Set<Long> ids = holders.get(ticker);
+        StockPrice latest = latestPriceIndex.get(ticker);
+        if (ids == null || latest == null || latest.getClosePrice() == null) {
+            return;
+        }
+        for (Long id : List.copyOf(ids)) {
+            Book b = books.get(id);
+            if (b.version != dataVersion.own(id)) {
+                reload(id);
+                continue;
+            }
+            ValuationDelta delta = b.reprice(ticker, latest.getClosePrice(), latest.getPriceDate());
+            if (delta == null) {
+                continue;
+            }
+            for (Subscriber s : subscribers(id)) {
+                s.offer(delta);
+                schedule(s);
+            }
+        }
+    }
+
+    private void reload(long portfolioId) {
+        unindex(books.remove(portfolioId));
+        List<Subscriber> watching = subscribers(portfolioId);
+        if (watching.isEmpty()) {
+            return;
+        }
+        Book b;
+        try {
+            b = load(portfolioId);
+        } catch (RuntimeException e) {
+            log.warn("Loading positions of portfolio {} for its stream failed", portfolioId, e);
+            return;
+        }
+        books.put(portfolioId, b);
+        for (String ticker : b.holdings.keySet()) {
+            holders.computeIfAbsent(ticker, t -> new HashSet<>()).add(portfolioId);
+        }
+        ValuationSnapshot snapshot = b.snapshot();
+        for (Subscriber s : watching) {
+            s.offer(snapshot);
+            schedule(s);
+        }
+    }
+
+    private Book load(long portfolioId) {
+        // read the version before the data: a write landing mid-load bumps past it
+        Book b = new Book(portfolioId, dataVersion.own(portfolioId));
+        List<Position> positions = positionService.getAllPositions(portfolioId);
+        List<String> tickers = new ArrayList<>(positions.size());
+        for (Position p : positions) {
+            tickers.add(p.getTicker());
+        }
+        Map<String, StockPrice> prices = latestPriceIndex.getAll(tickers);
+        for (Position p : positions) {
+            StockPrice sp = prices.get(p.getTicker());
+            b.add(p.getTicker(), p.getTotalQuantity(), p.getTotalCost(),
+                    sp != null ? sp.getClosePrice() : null, sp != null ? sp.getPriceDate() : null);
+        }
+        return b;
+    }
+
+    private void unindex(Book b) {
+        if (b == null) {
+            return;
+        }
+        for (String ticker : b.holdings.keySet()) {
+            Set<Long> ids = holders.get(ticker);
+            if (ids != null && ids.remove(b.portfolioId) && ids.isEmpty()) {
+                holders.remove(ticker);
+            }
+        }
+    }
+
+    private List<Subscriber> subscribers(long portfolioId) {
+        List<Subscriber> list = subscribers.get(portfolioId);
+        return list != null ? list : List.of();
+    }
+
+    private void remove(Subscriber s) {
+        s.close();
+        subscribers.computeIfPresent(s.portfolioId, (id, list) -> {
+            list.remove(s);
+            return list.isEmpty() ? null : list;
+        });
+        try {
+            worker.execute(() -> {
+                if (!subscribers.containsKey(s.portfolioId)) {
+                    unindex(books.remove(s.portfolioId));
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            // shutting down
+        }
+    }
+
+    private void schedule(Subscriber s) {
+        if (s.claim()) {
+            try {
+                senders.execute(() -> flush(s));
+            } catch (RejectedExecutionException e) {
+                s.release();
+            }
+        }
+    }
+
+    private void flush(Subscriber s) {
+        try {
+            for (Event e : s.take()) {
+                s.emitter.send(SseEmitter.event().name(e.name()).data(e.data(), MediaType.APPLICATION_JSON));
+            }
+        } catch (IOException | IllegalStateException e) {
+            // the container reports the broken connection through onError as well
+            log.debug("Dropping stream subscriber of portfolio {}: {}", s.portfolioId, e.toString());
+            remove(s);
+            return;
+        }
+        s.release();
+        // anything queued while sending goes out in the next batch, behind the other subscribers
+        schedule(s);
+    }
+
+    /**
+     * A watched portfolio's positions with their last pushed values and the running totals.
+     */
+    private static final class Book {
+        final long portfolioId;
+        final long version;
+        final Map<String, PositionValue> holdings = new TreeMap<>();
+        BigDecimal totalValue = BigDecimal.ZERO;
+        BigDecimal totalCost = BigDecimal.ZERO;
+
+        Book(long portfolioId, long version) {
+            this.portfolioId = portfolioId;
+            this.version = version;
+        }
+
+        void add(String ticker, long quantity, BigDecimal cost, BigDecimal price, LocalDate priceDate) {
+            PositionValue v = value(ticker, quantity, cost, price, priceDate);
+            holdings.put(ticker, v);
+            totalValue = totalValue.add(v.marketValue());
+            totalCost = totalCost.add(cost);
+        }
+
+        // null when the close did not change the position's value
+        ValuationDelta reprice(String ticker, BigDecimal price, LocalDate priceDate) {
+            PositionValue before = holdings.get(ticker);
+            if (before == null || before.price() != null && price.compareTo(before.price()) == 0
+                    && Objects.equals(priceDate, before.priceDate())) {
+                return null;
+            }
+            PositionValue after = value(ticker, before.quantity(), before.cost(), price, priceDate);
+            holdings.put(ticker, after);
+            totalValue = totalValue.subtract(before.marketValue()).add(after.marketValue());
+            return new ValuationDelta(portfolioId, after, totalValue, totalValue.subtract(totalCost));
+        }
+
+        ValuationSnapshot snapshot() {
+            return new ValuationSnapshot(portfolioId, totalValue, totalCost, totalValue.subtract(totalCost),
+                    List.copyOf(holdings.values()));
+        }
+
+        private static PositionValue value(String ticker, long quantity, BigDecimal cost, BigDecimal price,
+                                           LocalDate priceDate) {
+            BigDecimal marketValue = price != null ? price.multiply(BigDecimal.valueOf(quantity)) : BigDecimal.ZERO;
+            return new PositionValue(ticker, quantity, cost, price, priceDate, marketValue, marketValue.subtract(cost));
+        }
+    }
+
+    /**
+     * An event waiting for a subscriber: its SSE name and JSON payload.
+     */
+    record Event(String name, Object data) {
+    }
+
+    /**
+     * One open stream and the events waiting for it. At most one sender works on it at a time.
+     */
+    final class Subscriber {
+        final long portfolioId;
+        final SseEmitter emitter;
+        private ValuationSnapshot snapshot;
+        private final LinkedHashMap<String, ValuationDelta> positions = new LinkedHashMap<>();
+        private final ArrayDeque<TriggeredAlert> alerts = new ArrayDeque<>();
+        private int dropped;
+        private boolean sending;
+        private boolean closed;
+
+        Subscriber(long portfolioId, SseEmitter emitter) {
+            this.portfolioId = portfolioId;
+            this.emitter = emitter;
+        }
+
+        synchronized void offer(ValuationSnapshot s) {
+            snapshot = s;
+            // the snapshot already carries every position
+            positions.clear();
+        }
+
+        synchronized void offer(ValuationDelta d) {
+            positions.put(d.position().ticker(), d);
+        }
+
+        synchronized void offer(List<TriggeredAlert> triggered) {
+            for (TriggeredAlert a : triggered) {
+                if (alerts.size() == capacity) {
+                    alerts.pollFirst();
+                    dropped++;
+                }
+                alerts.addLast(a);
+            }
+        }
+
+        // true if the caller should start a sender for this subscriber
+        synchronized boolean claim() {
+            if (sending || closed || snapshot == null && positions.isEmpty() && alerts.isEmpty() && dropped == 0) {
+                return false;
+            }
+            sending = true;
+            return true;
+        }
+
+        synchronized void release() {
+            sending = false;
+        }
+
+        synchronized void close() {
+            closed = true;
+            snapshot = null;
+            positions.clear();
+            alerts.clear();
+        }
+
+        synchronized List<Event> take() {
+            List<Event> events = new ArrayList<>();
+            if (snapshot != null) {
+                events.add(new Event("snapshot", snapshot));
+                snapshot = null;
+            }
+            for (ValuationDelta d : positions.values()) {
+                events.add(new Event("position", d));
+            }
+            positions.clear();
+            if (dropped > 0) {
+                events.add(new Event("dropped", Map.of("alerts", dropped)));
+                dropped = 0;
+            }
+            for (TriggeredAlert a : alerts) {
+                events.add(new Event("alert", a));
+            }
+            alerts.clear();
+            return events;
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.portfolio.backend.service;
+
+import com.portfolio.backend.dto.OutboxAlert;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import tools.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * POSTs each batch as one JSON array to {@code portfolio.alerts.webhook.url}. Any status outside
+ * 2xx, a timeout or a connection failure fails the batch.
+ */
+@Component
+public class WebhookAlertSink implements AlertSink {
+
+    private final ObjectMapper objectMapper;
+    private final String url;
+    private final Duration timeout;
+    private final HttpClient client;
+
+    public WebhookAlertSink(ObjectMapper objectMapper,
+                            @Value("${portfolio.alerts.webhook.url:}") String url,
+                            @Value("${portfolio.alerts.webhook.timeout-ms:5000}") long timeoutMs) {
+        this.objectMapper = objectMapper;
+        this.url = url;
+        this.timeout = Duration.ofMillis(timeoutMs);
+        this.client = HttpClient.newBuilder().connectTimeout(timeout).build();
+    }
+
+    @Override
+    public String name() {
+        return "webhook";
+    }
+
+    @Override
+    public void deliver(List<OutboxAlert> alerts) throws IOException, InterruptedException {
+        if (url.isBlank()) {
+            throw new IllegalStateException("portfolio.alerts.webhook.url is not set");
+        }
+        HttpRequest request = HttpRequest.newBuilder(URI.create(url))
+                .timeout(timeout)
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofByteArray(objectMapper.writeValueAsBytes(alerts)))
+                .build();
+        HttpResponse<Void> response = client.send(request, HttpResponse.BodyHandlers.discarding());
+        if (response.statusCode() / 100 != 2) {
+            throw new IOException("webhook answered " + response.statusCode());
+        }
+    }
+}
@@ -1,78 +1,206 @@
 package com.portfolio.backend.service;
 
 import com.portfolio.backend.entity.Asset;
+import com.portfolio.backend.entity.AssetSale;
 import com.portfolio.backend.entity.StockPrice;
 import com.portfolio.backend.repo.AssetRepository;
+import com.portfolio.backend.repo.AssetSaleRepository;
+import io.micrometer.core.annotation.Timed;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
-import java.math.BigDecimal;
-import java.math.RoundingMode;
-import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ForkJoinPool;
 
+/**
+ * Money-weighted return (XIRR) from the real dated cash flows: every open lot and every closed lot
+ * slice is a purchase on its buy date, every sale is a receipt on its sale date, and shares still
+ * held are valued at the latest close as of today.
+ */
 @Service
 public class XirrService {
 
     private final AssetRepository assetRepository;
+    private final AssetSaleRepository assetSaleRepository;
     private final PriceService priceService;
+    private final ForkJoinPool pool;
 
-    public XirrService(AssetRepository assetRepository, PriceService priceService) {
+    public XirrService(AssetRepository assetRepository,
+                       AssetSaleRepository assetSaleRepository,
+                       PriceService priceService,
+                       @Value("${portfolio.xirr.parallelism:0}") int parallelism) {
         this.assetRepository = assetRepository;
+        this.assetSaleRepository = assetSaleRepository;
         this.priceService = priceService;
+        this.pool = new ForkJoinPool(parallelism > 0 ? parallelism : Runtime.getRuntime().availableProcessors());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
     }
 
     /**
-     * Compute annualized return percentage for a single ticker using stored prices.
-     * We consider total buy cost (sum of buys) and a single current value (latest stored price).
-     * Return value is percent (e.g. 12.34 means 12.34%).
+     * Annualized money-weighted return for one ticker in percent (e.g. 12.34 means 12.34%), or null
+     * if there are not enough cash flows or the solver did not converge.
      */
-    public Double computeXirrForTicker(String ticker) {
-        List<Asset> assets = assetRepository.findAll();
-
-        BigDecimal totalQuantity = BigDecimal.ZERO;
-        BigDecimal totalCost = BigDecimal.ZERO;
-        LocalDate earliestBuy = null;
-
-        for (Asset a : assets) {
-            if (!ticker.equals(a.getTicker())) continue;
-            totalQuantity = totalQuantity.add(BigDecimal.valueOf(a.getQuantity()));
-            if (a.getBuyPrice() != null && a.getBuyPrice().compareTo(BigDecimal.ZERO) > 0) {
-                totalCost = totalCost.add(a.getBuyPrice().multiply(BigDecimal.valueOf(a.getQuantity())));
+    public Double computeXirrForTicker(long portfolioId, String ticker) {
+        XirrSolver.Result result = solveTicker(portfolioId, ticker);
+        return result.converged() ? result.rate() * 100.0 : null;
+    }
+
+    @Timed("portfolio.method")
+    public XirrSolver.Result solveTicker(long portfolioId, String ticker) {
+        StockPrice latest = priceService.getLatestPriceForTicker(ticker);
+        CashFlows flows = new CashFlows();
+        for (Asset a : assetRepository.findByPortfolioIdAndTickerOrderByBuyDateAsc(portfolioId, ticker)) {
+            flows.addLot(a);
+        }
+        for (AssetSale s : assetSaleRepository.findByPortfolioIdAndTicker(portfolioId, ticker)) {
+            flows.addSale(s);
+        }
+        flows.addTerminalValue(latest, LocalDate.now());
+        return flows.solve();
+    }
+
+    /**
+     * XIRR for every ticker of the portfolio that has lots or sales, plus the whole portfolio,
+     * solved in parallel. Loads the lots and sales with one query each and all latest prices with
+     * at most one more.
+     */
+    @Timed("portfolio.method")
+    public Map<String, Object> computeAll(long portfolioId) {
+        long start = System.nanoTime();
+        List<Asset> lots = assetRepository.findByPortfolioId(portfolioId);
+        List<AssetSale> sales = assetSaleRepository.findByPortfolioId(portfolioId);
+
+        Map<String, CashFlows> byTicker = new TreeMap<>();
+        for (Asset a : lots) {
+            byTicker.computeIfAbsent(a.getTicker(), t -> new CashFlows()).addLot(a);
+        }
+        for (AssetSale s : sales) {
+            byTicker.computeIfAbsent(s.getTicker(), t -> new CashFlows()).addSale(s);
+        }
+        Set<String> tickers = new HashSet<>(byTicker.keySet());
+        Map<String, StockPrice> latest = priceService.getLatestPricesForTickers(tickers);
+        LocalDate today = LocalDate.now();
+        CashFlows total = new CashFlows();
+        for (Map.Entry<String, CashFlows> e : byTicker.entrySet()) {
+            e.getValue().addTerminalValue(latest.get(e.getKey()), today);
+            total.addAll(e.getValue());
+        }
+
+        List<Map.Entry<String, CashFlows>> entries = new ArrayList<>(byTicker.entrySet());
+        List<Map<String, Object>> rows = pool.submit(() -> entries.parallelStream()
+                .map(e -> toRow(e.getKey(), e.getValue(), e.getValue().solve()))
+                .toList()).join();
+        Map<String, Object> portfolio = pool.submit(() -> toRow("PORTFOLIO", total, total.solve())).join();
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("portfolioId", portfolioId);
+        result.put("tickers", rows);
+        result.put("portfolio", portfolio);
+        result.put("parallelism", pool.getParallelism());
+        result.put("elapsedMs", (System.nanoTime() - start) / 1_000_000.0);
+        return result;
+    }
+
+    private static Map<String, Object> toRow(String ticker, CashFlows flows, XirrSolver.Result r) {
+        Map<String, Object> row = new LinkedHashMap<>();
+        row.put("ticker", ticker);
+        row.put("xirrPercent", r.converged() ? r.rate() * 100.0 : null);
+        row.put("cashFlows", flows.size());
+        row.put("converged", r.converged());
+        row.put("method", r.method());
+        row.put("iterations", r.iterations());
+        row.put("residual", Double.isFinite(r.residual()) ? r.residual() : null);
+        row.put("solveMicros", r.nanos() / 1_000.0);
+        return row;
+    }
+
+    /**
+     * Growable primitive cash-flow arrays: epoch day and signed amount per flow.
+     */
+    static final class CashFlows {
+        private int[] days = new int[8];
+        private double[] amounts = new double[8];
+        private int size;
+        private boolean missingTerminalPrice;
+        private long openQuantity;
+
+        void add(LocalDate date, double amount) {
+            if (date == null || amount == 0.0) {
+                return;
             }
-            if (a.getBuyDate() != null) {
-                if (earliestBuy == null || a.getBuyDate().isBefore(earliestBuy)) {
-                    earliestBuy = a.getBuyDate();
-                }
+            if (size == days.length) {
+                days = Arrays.copyOf(days, size * 2);
+                amounts = Arrays.copyOf(amounts, size * 2);
             }
+            days[size] = (int) date.toEpochDay();
+            amounts[size] = amount;
+            size++;
         }
 
-        // Return null if insufficient data for XIRR calculation
-        if (totalQuantity.compareTo(BigDecimal.ZERO) == 0 || 
-            totalCost.compareTo(BigDecimal.ZERO) == 0 || 
-            earliestBuy == null) {
-            return null;
+        void addLot(Asset a) {
+            if (a.getBuyPrice() == null) {
+                return;
+            }
+            add(a.getBuyDate(), -a.getBuyPrice().doubleValue() * a.getQuantity());
+            openQuantity += a.getQuantity();
         }
 
-        // Return null if no price data available
-        StockPrice latest = priceService.getLatestPriceForTicker(ticker);
-        if (latest == null || latest.getClosePrice() == null) {
-            return null;
+        void addSale(AssetSale s) {
+            if (s.getBuyPrice() == null || s.getSalePrice() == null) {
+                return;
+            }
+            add(s.getBuyDate(), -s.getBuyPrice().doubleValue() * s.getQuantity());
+            add(s.getSaleDate(), s.getSalePrice().doubleValue() * s.getQuantity());
+        }
+
+        void addTerminalValue(StockPrice latest, LocalDate asOf) {
+            if (openQuantity == 0) {
+                return;
+            }
+            if (latest == null || latest.getClosePrice() == null) {
+                missingTerminalPrice = true;
+                return;
+            }
+            add(asOf, latest.getClosePrice().doubleValue() * openQuantity);
         }
 
-        try {
-            BigDecimal currentValue = latest.getClosePrice().multiply(totalQuantity);
+        void addAll(CashFlows other) {
+            for (int i = 0; i < other.size; i++) {
+                add(LocalDate.ofEpochDay(other.days[i]), other.amounts[i]);
+            }
+            missingTerminalPrice |= other.missingTerminalPrice;
+        }
 
-            // Simple annualized return: ((current / cost)^(1/years)) - 1
-            double years = Math.max(1.0 / 365.0, Duration.between(earliestBuy.atStartOfDay(), LocalDate.now().atStartOfDay()).toDays() / 365.0);
-            double ratio = currentValue.divide(totalCost, 10, RoundingMode.HALF_UP).doubleValue();
-            double annualized = Math.pow(ratio, 1.0 / years) - 1.0;
+        int size() {
+            return size;
+        }
 
-            return annualized * 100.0;
-        } catch (Exception e) {
-            // Log and return null if calculation fails
-            System.err.println("Error calculating XIRR for ticker " + ticker + ": " + e.getMessage());
-            return null;
+        XirrSolver.Result solve() {
+            if (missingTerminalPrice) {
+                return new XirrSolver.Result(Double.NaN, false, 0, XirrSolver.Method.INSUFFICIENT_DATA, Double.NaN, 0);
+            }
+            int origin = Integer.MAX_VALUE;
+            for (int i = 0; i < size; i++) {
+                origin = Math.min(origin, days[i]);
+            }
+            double[] years = new double[size];
+            for (int i = 0; i < size; i++) {
+                years[i] = (days[i] - origin) / 365.0;
+            }
+            return XirrSolver.solve(amounts, years, size);
         }
     }
 }
@@ -0,0 +1,135 @@
+package com.portfolio.backend.service;
+
+/**
+ * Solves for the annual rate r that zeroes the net present value of dated cash flows,
+ * {@code sum(amount[i] / (1 + r)^years[i]) = 0}.
+ *
+ * <p>The root is first bracketed, then refined with Newton steps that fall back to bisection
+ * whenever a step would leave the bracket or stalls (a safeguarded Newton, "rtsafe"). The loop
+ * works only on the caller's primitive arrays and allocates nothing; the single {@link Result} is
+ * created once the iteration has finished.
+ */
+public final class XirrSolver {
+
+    public static final int MAX_ITERATIONS = 100;
+
+    private static final double LOWER_BOUND = -0.999999;
+    private static final double UPPER_LIMIT = 1.0e6;
+    private static final double RATE_TOLERANCE = 1.0e-10;
+
+    private XirrSolver() {
+    }
+
+    public enum Method { NEWTON, NEWTON_BISECTION, NO_SIGN_CHANGE, INSUFFICIENT_DATA }
+
+    /**
+     * Convergence diagnostics for one solve. {@code rate} is NaN when no root was found.
+     */
+    public record Result(double rate, boolean converged, int iterations, Method method,
+                         double residual, long nanos) {
+    }
+
+    /**
+     * @param amounts cash flows, negative for money paid in and positive for money received
+     * @param years   time of each flow in years from any common origin
+     * @param n       number of flows to use from the start of both arrays
+     */
+    public static Result solve(double[] amounts, double[] years, int n) {
+        long start = System.nanoTime();
+        if (n < 2 || !hasBothSigns(amounts, n)) {
+            return new Result(Double.NaN, false, 0, Method.INSUFFICIENT_DATA, Double.NaN, System.nanoTime() - start);
+        }
+
+        double lo = LOWER_BOUND;
+        double hi = 1.0;
+        double fLo = npv(amounts, years, n, lo);
+        double fHi = npv(amounts, years, n, hi);
+        while (sameSign(fLo, fHi) && hi < UPPER_LIMIT) {
+            lo = hi;
+            fLo = fHi;
+            hi *= 4.0;
+            fHi = npv(amounts, years, n, hi);
+        }
+        if (sameSign(fLo, fHi)) {
+            return new Result(Double.NaN, false, 0, Method.NO_SIGN_CHANGE, fHi, System.nanoTime() - start);
+        }
+        if (fLo == 0.0) {
+            return new Result(lo, true, 0, Method.NEWTON, 0.0, System.nanoTime() - start);
+        }
+        if (fHi == 0.0) {
+            return new Result(hi, true, 0, Method.NEWTON, 0.0, System.nanoTime() - start);
+        }
+
+        // orient so that f(xl) < 0 < f(xh)
+        double xl = fLo < 0 ? lo : hi;
+        double xh = fLo < 0 ? hi : lo;
+
+        double x = 0.1 > lo && 0.1 < hi ? 0.1 : 0.5 * (lo + hi);
+        double dxOld = Math.abs(hi - lo);
+        double dx = dxOld;
+        boolean bisected = false;
+        boolean converged = false;
+        double f;
+        int it = 0;
+        while (it < MAX_ITERATIONS) {
+            it++;
+            // f and f' in one pass: d/dr (1+r)^-t = -t (1+r)^-(t+1)
+            double logBase = Math.log1p(x);
+            double invBase = 1.0 / (1.0 + x);
+            f = 0.0;
+            double df = 0.0;
+            for (int i = 0; i < n; i++) {
+                double pv = amounts[i] * Math.exp(-years[i] * logBase);
+                f += pv;
+                df -= years[i] * pv * invBase;
+            }
+            if (f == 0.0) {
+                converged = true;
+                break;
+            }
+            if (f < 0) xl = x;
+            else xh = x;
+
+            boolean newtonOutside = ((x - xh) * df - f) * ((x - xl) * df - f) > 0.0;
+            boolean newtonSlow = Math.abs(2.0 * f) > Math.abs(dxOld * df);
+            dxOld = dx;
+            if (df == 0.0 || newtonOutside || newtonSlow) {
+                dx = 0.5 * (xh - xl);
+                x = xl + dx;
+                bisected = true;
+            } else {
+                dx = f / df;
+                x -= dx;
+            }
+            if (Math.abs(dx) < RATE_TOLERANCE * Math.max(1.0, Math.abs(x))) {
+                converged = true;
+                break;
+            }
+        }
+        double residual = npv(amounts, years, n, x);
+        return new Result(x, converged, it, bisected ? Method.NEWTON_BISECTION : Method.NEWTON,
+                residual, System.nanoTime() - start);
+    }
+
+    static double npv(double[] amounts, double[] years, int n, double rate) {
+        double logBase = Math.log1p(rate);
+        double sum = 0.0;
+        for (int i = 0; i < n; i++) {
+            sum += amounts[i] * Math.exp(-years[i] * logBase);
+        }
+        return sum;
+    }
+
+    private static boolean hasBothSigns(double[] amounts, int n) {
+        boolean pos = false, neg = false;
+        for (int i = 0; i < n; i++) {
+            if (amounts[i] > 0) pos = true;
+            else if (amounts[i] < 0) neg = true;
+        }
+        return pos && neg;
+    }
+
+    private static boolean sameSign(double a, double b) {
+        return (a > 0 && b > 0) || (a < 0 && b < 0);
+    }
+}
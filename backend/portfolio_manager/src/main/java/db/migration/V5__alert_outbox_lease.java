@@ -0,0 +1,43 @@
+package db.migration;
+
+import org.flywaydb.core.api.migration.BaseJavaMigration;
+import org.flywaydb.core.api.migration.Context;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.ResultSetMetaData;
+import java.sql.SQLException;
+import java.sql.Statement;
+
+/**
+ * Adds {@code alert_outbox.lease_token}, which marks the rows one dispatcher claimed, so it goes on
+ * with exactly the rows its claim updated and never with a row another dispatcher claimed in
+ * between (see AlertOutboxRepository.claim).
+ *
+ * <p>A database created from {@code schema.sql} and baselined as version 1 has the column already,
+ * and MySQL has no {@code ADD COLUMN IF NOT EXISTS}, so this migration is in Java to look first.
+ */
+public class V5__alert_outbox_lease extends BaseJavaMigration {
+
+    @Override
+    public void migrate(Context context) throws SQLException {
+        Connection connection = context.getConnection();
+        try (Statement statement = connection.createStatement()) {
+            if (!hasColumn(statement, "alert_outbox", "lease_token")) {
+                statement.execute("ALTER TABLE alert_outbox ADD COLUMN lease_token VARCHAR(36)");
+            }
+        }
+    }
+
+    private static boolean hasColumn(Statement statement, String table, String column) throws SQLException {
+        try (ResultSet rs = statement.executeQuery("SELECT * FROM " + table + " WHERE 1 = 0")) {
+            ResultSetMetaData meta = rs.getMetaData();
+            for (int i = 1; i <= meta.getColumnCount(); i++) {
+                if (meta.getColumnName(i).equalsIgnoreCase(column)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+}
@@ -6,13 +6,22 @@ INSERT IGNORE INTO stock (ticker, company_name) VALUES
 ('MSFT', 'Microsoft Corporation'),
 ('NFLX', 'Netflix Inc');
 
-INSERT IGNORE INTO asset (ticker, quantity, buy_price, buy_date) VALUES
-('AAPL', 10, 150.00, '2024-06-01'),
-('TSLA', 5, 220.00, '2024-07-10'),
-('AMZN', 3, 3100.00, '2024-05-15'),
-('GOOGL', 8, 135.00, '2024-08-01'),
-('MSFT', 6, 280.00, '2024-06-20'),
-('NFLX', 4, 420.00, '2024-09-05');
+INSERT IGNORE INTO portfolio (id, name) VALUES
+(1, 'Default'),
+(2, 'Growth'),
+(3, 'Income');
+
+INSERT IGNORE INTO asset (portfolio_id, ticker, quantity, buy_price, buy_date) VALUES
+(1, 'AAPL', 10, 150.00, '2024-06-01'),
+(1, 'TSLA', 5, 220.00, '2024-07-10'),
+(1, 'AMZN', 3, 3100.00, '2024-05-15'),
+(1, 'GOOGL', 8, 135.00, '2024-08-01'),
+(1, 'MSFT', 6, 280.00, '2024-06-20'),
+(1, 'NFLX', 4, 420.00, '2024-09-05'),
+(2, 'TSLA', 12, 240.00, '2024-11-04'),
+(2, 'NFLX', 6, 400.00, '2024-10-01'),
+(3, 'MSFT', 20, 300.00, '2024-03-12'),
+(3, 'AAPL', 15, 160.00, '2024-04-02');
 
 INSERT IGNORE INTO stock_price (ticker, price_date, close_price) VALUES
 -- Apple
@@ -41,13 +50,15 @@ INSERT IGNORE INTO stock_price (ticker, price_date, close_price) VALUES
 ('NFLX', '2025-01-01', 421.00);
 
 
-INSERT IGNORE INTO price_target (ticker, target_price, action, triggered) VALUES
-('AAPL', 180.00, 'SELL', false),
-('TSLA', 270.00, 'SELL', false),
-('AMZN', 3500.00, 'SELL', false),
-('GOOGL', 150.00, 'BUY', false),
-('MSFT', 320.00, 'SELL', false),
-('NFLX', 450.00, 'BUY', false);
+INSERT IGNORE INTO price_target (portfolio_id, ticker, target_price, action, triggered) VALUES
+(1, 'AAPL', 180.00, 'SELL', false),
+(1, 'TSLA', 270.00, 'SELL', false),
+(1, 'AMZN', 3500.00, 'SELL', false),
+(1, 'GOOGL', 150.00, 'BUY', false),
+(1, 'MSFT', 320.00, 'SELL', false),
+(1, 'NFLX', 450.00, 'BUY', false),
+(2, 'TSLA', 300.00, 'SELL', false),
+(3, 'AAPL', 175.00, 'SELL', false);
 
 
 
@@ -0,0 +1,2 @@
+-- The default portfolio, which requests without a portfolioId use
+INSERT IGNORE INTO portfolio (id, name) VALUES (1, 'Default');
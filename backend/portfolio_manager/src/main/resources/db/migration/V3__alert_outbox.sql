@@ -0,0 +1,22 @@
+-- Triggered alerts waiting for delivery, one row per alert and sink, written in the transaction that
+-- marks the target triggered (see AlertOutbox). next_attempt_at is also the lease of a claimed row.
+CREATE TABLE IF NOT EXISTS alert_outbox (
+                              id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                              portfolio_id BIGINT NOT NULL,
+                              target_id BIGINT NOT NULL,
+                              sink VARCHAR(32) NOT NULL,
+                              ticker VARCHAR(10) NOT NULL,
+                              action VARCHAR(10) NOT NULL,
+                              target_price DECIMAL(10,2) NOT NULL,
+                              price DECIMAL(10,2) NOT NULL,
+                              triggered_at TIMESTAMP(3) NOT NULL,
+                              status VARCHAR(10) NOT NULL DEFAULT 'PENDING',
+                              attempts INT NOT NULL DEFAULT 0,
+                              next_attempt_at TIMESTAMP(3) NOT NULL,
+                              last_error VARCHAR(500),
+                              INDEX idx_outbox_due (status, next_attempt_at),
+                              CONSTRAINT fk_outbox_portfolio
+                                  FOREIGN KEY (portfolio_id)
+                                      REFERENCES portfolio(id)
+                                      ON DELETE CASCADE
+);
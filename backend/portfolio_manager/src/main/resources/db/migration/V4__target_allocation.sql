@@ -0,0 +1,16 @@
+-- Target weight of each ticker in a portfolio, as a fraction of its market value (see
+-- RebalanceService). Weights of one portfolio add up to at most 1; the rest is meant to be cash.
+CREATE TABLE IF NOT EXISTS target_allocation (
+                              portfolio_id BIGINT NOT NULL,
+                              ticker VARCHAR(10) NOT NULL,
+                              weight DECIMAL(7,6) NOT NULL,
+                              PRIMARY KEY (portfolio_id, ticker),
+                              CONSTRAINT fk_allocation_portfolio
+                                  FOREIGN KEY (portfolio_id)
+                                      REFERENCES portfolio(id)
+                                      ON DELETE CASCADE,
+                              CONSTRAINT fk_allocation_stock
+                                  FOREIGN KEY (ticker)
+                                      REFERENCES stock(ticker)
+                                      ON DELETE CASCADE
+);
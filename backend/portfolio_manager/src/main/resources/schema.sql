@@ -1,18 +1,38 @@
+DROP TABLE IF EXISTS target_allocation;
+DROP TABLE IF EXISTS alert_outbox;
+DROP TABLE IF EXISTS stock_price_monthly;
+DROP TABLE IF EXISTS stock_price_weekly;
+DROP TABLE IF EXISTS asset_sale;
+DROP TABLE IF EXISTS ticker_position;
 DROP TABLE IF EXISTS price_target;
 DROP TABLE IF EXISTS stock_price;
 DROP TABLE IF EXISTS asset;
 DROP TABLE IF EXISTS stock;
+DROP TABLE IF EXISTS portfolio;
 CREATE TABLE IF NOT EXISTS stock (
                        ticker VARCHAR(10) PRIMARY KEY,
                        company_name VARCHAR(100) NOT NULL
 );
 
+-- One client book. Lots, sales, positions and targets all belong to exactly one portfolio.
+CREATE TABLE IF NOT EXISTS portfolio (
+                       id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                       name VARCHAR(100) NOT NULL
+);
+
 CREATE TABLE IF NOT EXISTS asset (
                        id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                       portfolio_id BIGINT NOT NULL DEFAULT 1,
                        ticker VARCHAR(10) NOT NULL,
                        quantity INT NOT NULL,
                        buy_price DECIMAL(10,2),
                        buy_date DATE,
+                       version BIGINT NOT NULL DEFAULT 0,
+                       INDEX idx_asset_portfolio_ticker_buy_date (portfolio_id, ticker, buy_date),
+                       CONSTRAINT fk_asset_portfolio
+                           FOREIGN KEY (portfolio_id)
+                               REFERENCES portfolio(id)
+                               ON DELETE CASCADE,
                        CONSTRAINT fk_asset_stock
                            FOREIGN KEY (ticker)
                                REFERENCES stock(ticker)
@@ -24,6 +44,9 @@ CREATE TABLE IF NOT EXISTS stock_price (
                              ticker VARCHAR(10) NOT NULL,
                              price_date DATE NOT NULL,
                              close_price DECIMAL(10,2) NOT NULL,
+                             -- also the (ticker, price_date) index behind every per-ticker range read
+                             CONSTRAINT uk_stock_price_ticker_date
+                                 UNIQUE (ticker, price_date),
                              CONSTRAINT fk_price_stock
                                  FOREIGN KEY (ticker)
                                      REFERENCES stock(ticker)
@@ -32,12 +55,136 @@ CREATE TABLE IF NOT EXISTS stock_price (
 
 CREATE TABLE IF NOT EXISTS price_target (
                               id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                              portfolio_id BIGINT NOT NULL DEFAULT 1,
                               ticker VARCHAR(10) NOT NULL,
                               target_price DECIMAL(10,2) NOT NULL,
                               action VARCHAR(10) NOT NULL,
                               triggered BOOLEAN DEFAULT FALSE,
+                              INDEX idx_target_portfolio_triggered (portfolio_id, triggered),
+                              CONSTRAINT fk_target_portfolio
+                                  FOREIGN KEY (portfolio_id)
+                                      REFERENCES portfolio(id)
+                                      ON DELETE CASCADE,
                               CONSTRAINT fk_target_stock
                                   FOREIGN KEY (ticker)
                                       REFERENCES stock(ticker)
                                       ON DELETE CASCADE
-);
\ No newline at end of file
+);
+
+CREATE TABLE IF NOT EXISTS ticker_position (
+                              portfolio_id BIGINT NOT NULL,
+                              ticker VARCHAR(10) NOT NULL,
+                              total_quantity BIGINT NOT NULL,
+                              total_cost DECIMAL(19,2) NOT NULL,
+                              earliest_buy_date DATE,
+                              lot_count INT NOT NULL,
+                              PRIMARY KEY (portfolio_id, ticker),
+                              CONSTRAINT fk_position_portfolio
+                                  FOREIGN KEY (portfolio_id)
+                                      REFERENCES portfolio(id)
+                                      ON DELETE CASCADE,
+                              CONSTRAINT fk_position_stock
+                                  FOREIGN KEY (ticker)
+                                      REFERENCES stock(ticker)
+                                      ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS asset_sale (
+                              id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                              portfolio_id BIGINT NOT NULL DEFAULT 1,
+                              ticker VARCHAR(10) NOT NULL,
+                              quantity INT NOT NULL,
+                              buy_price DECIMAL(10,2),
+                              buy_date DATE,
+                              sale_price DECIMAL(10,2),
+                              sale_date DATE NOT NULL,
+                              INDEX idx_sale_portfolio_ticker (portfolio_id, ticker),
+                              CONSTRAINT fk_sale_portfolio
+                                  FOREIGN KEY (portfolio_id)
+                                      REFERENCES portfolio(id)
+                                      ON DELETE CASCADE,
+                              CONSTRAINT fk_sale_stock
+                                  FOREIGN KEY (ticker)
+                                      REFERENCES stock(ticker)
+                                      ON DELETE CASCADE
+);
+
+-- OHLC rollups of daily closes that have aged out of stock_price (see PriceCompactionService).
+-- period_start is the Monday of the week / first day of the month; first_date and last_date are
+-- the dates of the first and last close that went into the bar. The primary key doubles as the
+-- (ticker, period) index every read uses.
+CREATE TABLE IF NOT EXISTS stock_price_weekly (
+                              ticker VARCHAR(10) NOT NULL,
+                              period_start DATE NOT NULL,
+                              first_date DATE NOT NULL,
+                              last_date DATE NOT NULL,
+                              open_price DECIMAL(10,2) NOT NULL,
+                              high_price DECIMAL(10,2) NOT NULL,
+                              low_price DECIMAL(10,2) NOT NULL,
+                              close_price DECIMAL(10,2) NOT NULL,
+                              points INT NOT NULL,
+                              PRIMARY KEY (ticker, period_start),
+                              CONSTRAINT fk_weekly_stock
+                                  FOREIGN KEY (ticker)
+                                      REFERENCES stock(ticker)
+                                      ON DELETE CASCADE
+);
+
+CREATE TABLE IF NOT EXISTS stock_price_monthly (
+                              ticker VARCHAR(10) NOT NULL,
+                              period_start DATE NOT NULL,
+                              first_date DATE NOT NULL,
+                              last_date DATE NOT NULL,
+                              open_price DECIMAL(10,2) NOT NULL,
+                              high_price DECIMAL(10,2) NOT NULL,
+                              low_price DECIMAL(10,2) NOT NULL,
+                              close_price DECIMAL(10,2) NOT NULL,
+                              points INT NOT NULL,
+                              PRIMARY KEY (ticker, period_start),
+                              CONSTRAINT fk_monthly_stock
+                                  FOREIGN KEY (ticker)
+                                      REFERENCES stock(ticker)
+                                      ON DELETE CASCADE
+);
+
+-- Triggered alerts waiting for delivery, one row per alert and sink, written in the transaction that
+-- marks the target triggered (see AlertOutbox). next_attempt_at is also the lease of a claimed row,
+-- and lease_token tells which claim took it.
+CREATE TABLE IF NOT EXISTS alert_outbox (
+                              id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                              portfolio_id BIGINT NOT NULL,
+                              target_id BIGINT NOT NULL,
+                              sink VARCHAR(32) NOT NULL,
+                              ticker VARCHAR(10) NOT NULL,
+                              action VARCHAR(10) NOT NULL,
+                              target_price DECIMAL(10,2) NOT NULL,
+                              price DECIMAL(10,2) NOT NULL,
+                              triggered_at TIMESTAMP(3) NOT NULL,
+                              status VARCHAR(10) NOT NULL DEFAULT 'PENDING',
+                              attempts INT NOT NULL DEFAULT 0,
+                              next_attempt_at TIMESTAMP(3) NOT NULL,
+                              last_error VARCHAR(500),
+                              lease_token VARCHAR(36),
+                              INDEX idx_outbox_due (status, next_attempt_at),
+                              CONSTRAINT fk_outbox_portfolio
+                                  FOREIGN KEY (portfolio_id)
+                                      REFERENCES portfolio(id)
+                                      ON DELETE CASCADE
+);
+
+-- Target weight of each ticker in a portfolio, as a fraction of its market value (see
+-- RebalanceService). Weights of one portfolio add up to at most 1; the rest is meant to be cash.
+CREATE TABLE IF NOT EXISTS target_allocation (
+                              portfolio_id BIGINT NOT NULL,
+                              ticker VARCHAR(10) NOT NULL,
+                              weight DECIMAL(7,6) NOT NULL,
+                              PRIMARY KEY (portfolio_id, ticker),
+                              CONSTRAINT fk_allocation_portfolio
+                                  FOREIGN KEY (portfolio_id)
+                                      REFERENCES portfolio(id)
+                                      ON DELETE CASCADE,
+                              CONSTRAINT fk_allocation_stock
+                                  FOREIGN KEY (ticker)
+                                      REFERENCES stock(ticker)
+                                      ON DELETE CASCADE
+);
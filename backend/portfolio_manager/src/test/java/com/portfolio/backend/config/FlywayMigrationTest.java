@@ -0,0 +1,58 @@
+package com.portfolio.backend.config;
+
+import org.flywaydb.core.Flyway;
+import org.flywaydb.core.api.output.MigrateResult;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.init.ResourceDatabasePopulator;
+
+import javax.sql.DataSource;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FlywayMigrationTest {
+
+    @Test
+    void aDatabaseCreatedFromTheSchemaIsBaselinedAndMigrated() {
+        DataSource dataSource = database();
+        new ResourceDatabasePopulator(new ClassPathResource("schema.sql"), new ClassPathResource("data.sql"))
+                .execute(dataSource);
+
+        MigrateResult result = migrate(dataSource);
+
+        assertEquals("5", result.targetSchemaVersion);
+        assertEquals(4, result.migrationsExecuted);
+        assertEquals(0, migrate(dataSource).migrationsExecuted);
+    }
+
+    @Test
+    void anEmptyDatabaseGetsEveryMigration() {
+        DataSource dataSource = database();
+
+        MigrateResult result = migrate(dataSource);
+
+        assertEquals("5", result.targetSchemaVersion);
+        assertEquals(5, result.migrationsExecuted);
+        assertEquals(0, new JdbcTemplate(dataSource).queryForObject(
+                "SELECT COUNT(lease_token) FROM alert_outbox", Integer.class));
+    }
+
+    // as the prod profile configures it
+    private static MigrateResult migrate(DataSource dataSource) {
+        return Flyway.configure()
+                .dataSource(dataSource)
+                .baselineOnMigrate(true)
+                .baselineVersion("1")
+                .load()
+                .migrate();
+    }
+
+    private static DataSource database() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:flyway-" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1");
+        return dataSource;
+    }
+}
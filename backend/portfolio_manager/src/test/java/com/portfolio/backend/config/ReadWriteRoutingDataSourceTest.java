@@ -0,0 +1,117 @@
+package com.portfolio.backend.config;
+
+import com.portfolio.backend.config.ReadWriteRoutingDataSource.Route;
+import com.portfolio.backend.entity.StockPrice;
+import com.portfolio.backend.repo.RepositoryFake;
+import com.portfolio.backend.repo.StockPriceRepository;
+import com.portfolio.backend.service.LatestPriceIndex;
+import com.portfolio.backend.service.PrimaryReads;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.LazyConnectionDataSourceProxy;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import javax.sql.DataSource;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class ReadWriteRoutingDataSourceTest {
+
+    // the replica has not caught up with the primary's latest close yet
+    private final DataSource primary = database("primary", "101.00");
+    private final DataSource replica = database("replica", "100.00");
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final DataSource routing = new LazyConnectionDataSourceProxy(
+            new ReadWriteRoutingDataSource(primary, replica, meterRegistry));
+    private final DataSourceTransactionManager transactionManager = new DataSourceTransactionManager(routing);
+    private final JdbcTemplate jdbc = new JdbcTemplate(routing);
+
+    @AfterEach
+    void tearDown() {
+        ReadWriteRoutingDataSource.decide(null);
+    }
+
+    @Test
+    void onlyReadOnlyTransactionsClearedForTheReplicaReadIt() {
+        ReadWriteRoutingDataSource.decide(Route.REPLICA);
+        assertEquals(new BigDecimal("100.00"), readOnly().execute(status -> close()));
+        assertEquals(new BigDecimal("101.00"), new TransactionTemplate(transactionManager).execute(status -> close()));
+
+        ReadWriteRoutingDataSource.decide(Route.PRIMARY);
+        assertEquals(new BigDecimal("101.00"), readOnly().execute(status -> close()));
+
+        ReadWriteRoutingDataSource.decide(null);
+        assertEquals(new BigDecimal("101.00"), readOnly().execute(status -> close()));
+    }
+
+    @Test
+    void aCacheFilledInsideAReplicaReadLoadsFromThePrimary() {
+        LatestPriceIndex index = new LatestPriceIndex(repository(),
+                new PrimaryReads(transactionManager, "jdbc:h2:mem:replica"), 60_000);
+
+        ReadWriteRoutingDataSource.decide(Route.REPLICA);
+        readOnly().executeWithoutResult(status -> {
+            assertEquals(new BigDecimal("100.00"), close());
+            assertEquals(new BigDecimal("101.00"), index.get("AAPL").getClosePrice());
+            // the outer transaction is still on the replica after the load
+            assertEquals(new BigDecimal("100.00"), close());
+        });
+    }
+
+    @Test
+    void aCacheFilledInsideAPrimaryReadLoadsInTheSameTransaction() {
+        LatestPriceIndex index = new LatestPriceIndex(repository(),
+                new PrimaryReads(transactionManager, "jdbc:h2:mem:replica"), 60_000);
+
+        ReadWriteRoutingDataSource.decide(Route.PRIMARY);
+        readOnly().executeWithoutResult(status -> {
+            assertEquals(new BigDecimal("101.00"), close());
+            double connections = primaryConnections();
+            assertEquals(new BigDecimal("101.00"), index.get("AAPL").getClosePrice());
+            // the load ran on the connection the transaction already holds
+            assertEquals(connections, primaryConnections());
+        });
+    }
+
+    private TransactionTemplate readOnly() {
+        TransactionTemplate template = new TransactionTemplate(transactionManager);
+        template.setReadOnly(true);
+        return template;
+    }
+
+    private double primaryConnections() {
+        return meterRegistry.get("portfolio.datasource.connections").tag("route", "primary").counter().count();
+    }
+
+    private BigDecimal close() {
+        return jdbc.queryForObject("SELECT close_price FROM stock_price WHERE ticker = 'AAPL'", BigDecimal.class);
+    }
+
+    private StockPriceRepository repository() {
+        return RepositoryFake.of(StockPriceRepository.class)
+                .answer("findLatestPrice", args -> {
+                    StockPrice sp = new StockPrice();
+                    sp.setTicker((String) args[0]);
+                    sp.setPriceDate(LocalDate.now());
+                    sp.setClosePrice(close());
+                    return sp;
+                })
+                .build();
+    }
+
+    private static DataSource database(String name, String close) {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:" + name + "-" + UUID.randomUUID() + ";DB_CLOSE_DELAY=-1");
+        JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+        jdbc.execute("CREATE TABLE stock_price (ticker VARCHAR(16), close_price DECIMAL(12, 2))");
+        jdbc.update("INSERT INTO stock_price VALUES ('AAPL', ?)", new BigDecimal(close));
+        return dataSource;
+    }
+}
@@ -1,4 +1,56 @@
 package com.portfolio.backend.controller;
 
-public class AssetControllerTest {
+import com.portfolio.backend.service.PortfolioRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+import tools.jackson.databind.JsonNode;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class AssetControllerTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private PortfolioRegistry portfolioRegistry;
+
+    @Test
+    void batchReportsEveryOrderEvenWhenAGroupFails() throws Exception {
+        long p = portfolioRegistry.create("batch").getId();
+        String orders = """
+                [{"side":"BUY","ticker":"AAPL","quantity":10,"price":150},
+                 {"side":"SELL","ticker":"AAPL","quantity":4,"price":160},
+                 {"side":"BUY","ticker":"NOPE","quantity":1,"price":10},
+                 {"side":"SELL","ticker":"MSFT","quantity":1,"price":300}]""";
+
+        HttpResponse<String> response = HttpClient.newHttpClient().send(
+                HttpRequest.newBuilder(URI.create("http://localhost:" + port + "/api/assets/orders?portfolioId=" + p))
+                        .header("Content-Type", "application/json")
+                        .POST(HttpRequest.BodyPublishers.ofString(orders))
+                        .build(),
+                HttpResponse.BodyHandlers.ofString());
+
+        assertEquals(200, response.statusCode());
+        JsonNode body = new JsonMapper().readTree(response.body());
+        assertEquals(2, body.get("executed").asInt());
+        assertEquals(2, body.get("rejected").asInt());
+        JsonNode results = body.get("orders");
+        assertEquals("EXECUTED", results.get(0).get("status").asString());
+        assertEquals("EXECUTED", results.get(1).get("status").asString());
+        assertEquals("REJECTED", results.get(2).get("status").asString());
+        assertEquals("REJECTED", results.get(3).get("status").asString());
+        assertEquals("Not enough shares to sell", results.get(3).get("error").asString());
+    }
 }
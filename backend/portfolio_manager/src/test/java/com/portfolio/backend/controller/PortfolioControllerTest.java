@@ -0,0 +1,72 @@
+package com.portfolio.backend.controller;
+
+import com.portfolio.backend.entity.Asset;
+import com.portfolio.backend.service.AssetService;
+import com.portfolio.backend.service.PortfolioRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+class PortfolioControllerTest {
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private PortfolioRegistry portfolioRegistry;
+    @Autowired
+    private AssetService assetService;
+
+    private final HttpClient client = HttpClient.newHttpClient();
+
+    @Test
+    void summaryIsRevalidatedWithItsEtagUntilThePortfolioChanges() throws Exception {
+        long p = portfolioRegistry.create("etag").getId();
+
+        HttpResponse<String> first = getSummary(p, null);
+        assertEquals(200, first.statusCode());
+        String etag = first.headers().firstValue("ETag").orElseThrow();
+
+        HttpResponse<String> unchanged = getSummary(p, etag);
+        assertEquals(304, unchanged.statusCode());
+        assertEquals(etag, unchanged.headers().firstValue("ETag").orElseThrow());
+        assertTrue(unchanged.body().isEmpty());
+        assertEquals(304, getSummary(p, "W/" + etag).statusCode());
+
+        Asset lot = new Asset();
+        lot.setTicker("AAPL");
+        lot.setQuantity(3);
+        lot.setBuyPrice(new BigDecimal("150"));
+        lot.setBuyDate(LocalDate.of(2024, 1, 2));
+        assetService.addAsset(p, lot);
+
+        HttpResponse<String> changed = getSummary(p, etag);
+        assertEquals(200, changed.statusCode());
+        assertNotEquals(etag, changed.headers().firstValue("ETag").orElseThrow());
+        assertTrue(changed.body().contains("AAPL"), changed.body());
+    }
+
+    private HttpResponse<String> getSummary(long portfolioId, String ifNoneMatch) throws Exception {
+        HttpRequest.Builder request = HttpRequest.newBuilder(
+                URI.create("http://localhost:" + port + "/api/portfolio?portfolioId=" + portfolioId));
+        if (ifNoneMatch != null) {
+            request.header("If-None-Match", ifNoneMatch);
+        }
+        return client.send(request.GET().build(), HttpResponse.BodyHandlers.ofString());
+    }
+}
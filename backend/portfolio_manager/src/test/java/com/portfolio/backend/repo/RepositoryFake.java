@@ -0,0 +1,63 @@
+package com.portfolio.backend.repo;
+
+import java.lang.reflect.Proxy;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * A stand-in for a Spring Data repository interface in unit tests that run without a database.
+ * Only the methods given an answer work; any other call fails with the method's name, so a test
+ * notices when the code under test starts reading something new.
+ *
+ * <pre>{@code
+ * StockPriceRepository prices = RepositoryFake.of(StockPriceRepository.class)
+ *         .answer("findDateAndCloseByTicker", args -> rows)
+ *         .build();
+ * }</pre>
+ */
+public final class RepositoryFake<T> {
+
+    private static final Object[] NO_ARGS = new Object[0];
+
+    private final Class<T> type;
+    private final Map<String, Function<Object[], Object>> answers = new HashMap<>();
+
+    private RepositoryFake(Class<T> type) {
+        this.type = type;
+    }
+
+    public static <T> RepositoryFake<T> of(Class<T> type) {
+        return new RepositoryFake<>(type);
+    }
+
+    /**
+     * Answers every call of the named method, whatever its overload, with what {@code answer}
+     * returns for the call's arguments.
+     */
+    public RepositoryFake<T> answer(String method, Function<Object[], Object> answer) {
+        answers.put(method, answer);
+        return this;
+    }
+
+    public T build() {
+        Map<String, Function<Object[], Object>> copy = Map.copyOf(answers);
+        String name = type.getSimpleName() + "Fake";
+        return type.cast(Proxy.newProxyInstance(type.getClassLoader(), new Class<?>[]{type}, (proxy, method, args) -> {
+            Function<Object[], Object> answer = copy.get(method.getName());
+            if (answer != null) {
+                return answer.apply(args != null ? args : NO_ARGS);
+            }
+            switch (method.getName()) {
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return name;
+                default:
+                    throw new UnsupportedOperationException(type.getSimpleName() + "." + method.getName());
+            }
+        }));
+    }
+}
@@ -0,0 +1,192 @@
+package com.portfolio.backend.service;
+
+import com.portfolio.backend.dto.OutboxAlert;
+import com.portfolio.backend.entity.PriceTarget;
+import com.portfolio.backend.repo.AlertOutboxRepository;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AlertOutboxTest {
+
+    private static final int MAX_ATTEMPTS = 3;
+    // enqueued rows are due from their trigger time, kept clear of the millisecond rounding of the column
+    private static final Instant SECOND_AGO = Instant.now().minusSeconds(1);
+
+    private final JdbcDataSource dataSource = outboxDatabase();
+    private final JdbcTemplate jdbc = new JdbcTemplate(dataSource);
+    private final AlertOutboxRepository repository =
+            new AlertOutboxRepository(jdbc, new NamedParameterJdbcTemplate(jdbc));
+    private final TransactionTemplate transactionTemplate =
+            new TransactionTemplate(new DataSourceTransactionManager(dataSource));
+    private final RecordingSink sink = new RecordingSink();
+    private final OwnsOne registry = new OwnsOne();
+    private final AlertOutbox outbox = new AlertOutbox(repository, registry, List.of(sink), new SimpleMeterRegistry(),
+            "recording", 100, 1, 10, MAX_ATTEMPTS, 1, 1, 60_000, 168);
+
+    @AfterEach
+    void tearDown() throws InterruptedException {
+        outbox.shutdown();
+        registry.shutdown();
+    }
+
+    @Test
+    void backoffDoublesPerFailureUpToTheCap() {
+        assertEquals(1000, AlertOutbox.backoffMillis(1, 1000, 60_000, 0));
+        assertEquals(2000, AlertOutbox.backoffMillis(2, 1000, 60_000, 0));
+        assertEquals(32_000, AlertOutbox.backoffMillis(6, 1000, 60_000, 0));
+        assertEquals(60_000, AlertOutbox.backoffMillis(7, 1000, 60_000, 0));
+        assertEquals(60_000, AlertOutbox.backoffMillis(100, 1000, 60_000, 0));
+    }
+
+    @Test
+    void jitterTakesOffAtMostHalf() {
+        assertEquals(6000, AlertOutbox.backoffMillis(4, 1000, 60_000, 0.5));
+        assertEquals(30_000, AlertOutbox.backoffMillis(9, 1000, 60_000, 1.0));
+    }
+
+    @Test
+    void rowsAreStoredOnlyWhenTheTriggeringTransactionCommits() throws Exception {
+        assertThrows(IllegalStateException.class, () -> transactionTemplate.executeWithoutResult(status -> {
+            outbox.enqueue(List.of(target(1)), new BigDecimal("90"), SECOND_AGO);
+            throw new IllegalStateException("trigger failed");
+        }));
+        assertEquals(0, rows("PENDING"));
+
+        transactionTemplate.executeWithoutResult(status ->
+                outbox.enqueue(List.of(target(2)), new BigDecimal("90"), SECOND_AGO));
+        assertEquals(1, rows("PENDING"));
+
+        assertEquals(1, outbox.dispatchDue());
+        awaitDeliveries();
+        assertEquals(List.of(2L), sink.delivered.stream().map(OutboxAlert::targetId).toList());
+        assertEquals(1, rows("SENT"));
+    }
+
+    @Test
+    void aFailingRowIsRetriedUntilItIsDead() throws Exception {
+        sink.failing = true;
+        outbox.enqueue(List.of(target(1)), new BigDecimal("90"), SECOND_AGO);
+
+        for (int i = 0; i < 100 && rows("DEAD") == 0; i++) {
+            outbox.dispatchDue();
+            awaitDeliveries();
+            Thread.sleep(5);
+        }
+
+        assertEquals(1, rows("DEAD"));
+        assertEquals(MAX_ATTEMPTS, sink.delivered.size());
+        assertEquals(MAX_ATTEMPTS, jdbc.queryForObject("SELECT attempts FROM alert_outbox", Integer.class));
+        assertEquals("IOException: sink down", jdbc.queryForObject("SELECT last_error FROM alert_outbox", String.class));
+    }
+
+    @Test
+    void aRowClaimedByAnotherDispatcherIsNotTakenAgain() {
+        outbox.enqueue(List.of(target(1), target(2)), new BigDecimal("90"), SECOND_AGO);
+        Instant now = Instant.now();
+        List<OutboxAlert> due = repository.findDue(List.of(1L), now, 10);
+        List<Long> ids = due.stream().map(OutboxAlert::id).toList();
+
+        // the other dispatcher leases the first row between this one's read and its claim
+        assertEquals(1, repository.claim(ids.subList(0, 1), now, now.plusSeconds(60)).size());
+        List<OutboxAlert> claimed = repository.claim(ids, now, now.plusSeconds(60));
+
+        assertEquals(List.of(ids.get(1)), claimed.stream().map(OutboxAlert::id).toList());
+        assertTrue(repository.claim(ids, now, now.plusSeconds(60)).isEmpty());
+    }
+
+    private int rows(String status) {
+        return jdbc.queryForObject("SELECT COUNT(*) FROM alert_outbox WHERE status = ?", Integer.class, status);
+    }
+
+    private void awaitDeliveries() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while ((int) outbox.getStats().get("deliveriesInFlight") > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(1);
+        }
+    }
+
+    private static PriceTarget target(long id) {
+        PriceTarget t = new PriceTarget();
+        ReflectionTestUtils.setField(t, "id", id);
+        t.setPortfolioId(1L);
+        t.setTicker("AAPL");
+        t.setAction("SELL");
+        t.setTargetPrice(new BigDecimal("100"));
+        return t;
+    }
+
+    private static JdbcDataSource outboxDatabase() {
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:mem:outbox-" + UUID.randomUUID() + ";MODE=MySQL;DB_CLOSE_DELAY=-1");
+        new JdbcTemplate(dataSource).execute("""
+                CREATE TABLE alert_outbox (
+                    id BIGINT AUTO_INCREMENT PRIMARY KEY,
+                    portfolio_id BIGINT NOT NULL,
+                    target_id BIGINT NOT NULL,
+                    sink VARCHAR(32) NOT NULL,
+                    ticker VARCHAR(10) NOT NULL,
+                    action VARCHAR(10) NOT NULL,
+                    target_price DECIMAL(10,2) NOT NULL,
+                    price DECIMAL(10,2) NOT NULL,
+                    triggered_at TIMESTAMP(3) NOT NULL,
+                    status VARCHAR(10) NOT NULL DEFAULT 'PENDING',
+                    attempts INT NOT NULL DEFAULT 0,
+                    next_attempt_at TIMESTAMP(3) NOT NULL,
+                    last_error VARCHAR(500),
+                    lease_token VARCHAR(36))""");
+        return dataSource;
+    }
+
+    private static final class RecordingSink implements AlertSink {
+
+        final List<OutboxAlert> delivered = new CopyOnWriteArrayList<>();
+        volatile boolean failing;
+
+        @Override
+        public String name() {
+            return "recording";
+        }
+
+        @Override
+        public void deliver(List<OutboxAlert> alerts) throws IOException {
+            delivered.addAll(alerts);
+            if (failing) {
+                throw new IOException("sink down");
+            }
+        }
+    }
+
+    /**
+     * This node owns portfolio 1 only.
+     */
+    private static final class OwnsOne extends PortfolioRegistry {
+
+        OwnsOne() {
+            super(null, null, 1);
+        }
+
+        @Override
+        public List<Long> owned() {
+            return List.of(1L);
+        }
+    }
+}
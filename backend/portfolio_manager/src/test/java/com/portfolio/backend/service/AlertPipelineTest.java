@@ -0,0 +1,129 @@
+package com.portfolio.backend.service;
+
+import com.portfolio.backend.entity.PriceTarget;
+import com.portfolio.backend.entity.StockPrice;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AlertPipelineTest {
+
+    private final RecordingEngine engine = new RecordingEngine();
+    private final RecentAlerts recentAlerts = new RecentAlerts(10);
+    private final DataVersion dataVersion = new DataVersion();
+    private final ValuationStream valuationStream = new ValuationStream(null, null, dataVersion, 1, 1, 1000);
+    private final AlertPipeline pipeline = new AlertPipeline(engine, new FixedPrices(), recentAlerts, dataVersion,
+            valuationStream);
+
+    @AfterEach
+    void tearDown() {
+        engine.gate.countDown();
+        pipeline.shutdown();
+        valuationStream.shutdown();
+    }
+
+    @Test
+    void submissionsForAQueuedTickerCoalesce() throws Exception {
+        pipeline.submit("MSFT");
+        assertTrue(engine.entered.await(10, TimeUnit.SECONDS));
+        for (int i = 0; i < 5; i++) {
+            pipeline.submit("AAPL");
+        }
+        engine.gate.countDown();
+        pipeline.awaitIdle();
+
+        assertEquals(List.of("MSFT", "AAPL"), engine.calls);
+    }
+
+    @Test
+    void reconcileRunsAfterEverythingAlreadyQueued() throws Exception {
+        pipeline.submit("MSFT");
+        assertTrue(engine.entered.await(10, TimeUnit.SECONDS));
+        pipeline.submit("AAPL");
+        CompletableFuture<List<PriceTarget>> reconciled = pipeline.reconcile();
+        pipeline.submit("TSLA");
+        engine.gate.countDown();
+        reconciled.get(10, TimeUnit.SECONDS);
+        pipeline.awaitIdle();
+
+        assertEquals(List.of("MSFT", "AAPL", "reconcile", "TSLA"), engine.calls);
+    }
+
+    @Test
+    void triggeredTargetsReachTheirPortfolio() {
+        engine.gate.countDown();
+        PriceTarget target = new PriceTarget();
+        target.setPortfolioId(7L);
+        target.setTicker("AAPL");
+        target.setAction("SELL");
+        target.setTargetPrice(new BigDecimal("90"));
+        engine.crossed = List.of(target);
+
+        pipeline.submit("AAPL");
+        pipeline.awaitIdle();
+
+        assertEquals(List.of("Target AAPL SELL hit: current 100 target 90"), recentAlerts.messages(7));
+        assertEquals(1, dataVersion.own(7));
+        assertEquals(0, dataVersion.own(1));
+    }
+
+    /**
+     * Records the calls the worker makes; the first evaluation waits for {@link #gate} so a test
+     * can queue work behind it.
+     */
+    private static final class RecordingEngine extends AlertEngine {
+
+        final List<String> calls = new CopyOnWriteArrayList<>();
+        final CountDownLatch entered = new CountDownLatch(1);
+        final CountDownLatch gate = new CountDownLatch(1);
+        volatile List<PriceTarget> crossed = List.of();
+
+        RecordingEngine() {
+            super(null, null, null, null, null);
+        }
+
+        @Override
+        public List<PriceTarget> onPrice(String ticker, BigDecimal price) {
+            entered.countDown();
+            try {
+                gate.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            calls.add(ticker);
+            return crossed;
+        }
+
+        @Override
+        public List<PriceTarget> reconcile() {
+            calls.add("reconcile");
+            return List.of();
+        }
+    }
+
+    private static final class FixedPrices extends LatestPriceIndex {
+
+        FixedPrices() {
+            super(null, PrimaryReads.direct(), 1000);
+        }
+
+        @Override
+        public StockPrice get(String ticker) {
+            StockPrice sp = new StockPrice();
+            sp.setTicker(ticker);
+            sp.setPriceDate(LocalDate.now());
+            sp.setClosePrice(new BigDecimal("100"));
+            return sp;
+        }
+    }
+}
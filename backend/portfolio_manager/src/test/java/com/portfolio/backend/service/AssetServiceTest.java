@@ -1,4 +1,109 @@
 package com.portfolio.backend.service;
 
-public class AssetServiceTest {
+import com.portfolio.backend.dto.TradeOrder;
+import com.portfolio.backend.dto.TradeOrder.Side;
+import com.portfolio.backend.dto.TradeResult;
+import com.portfolio.backend.dto.TradeResult.Status;
+import com.portfolio.backend.entity.Asset;
+import com.portfolio.backend.entity.AssetSale;
+import com.portfolio.backend.repo.AssetRepository;
+import com.portfolio.backend.repo.AssetSaleRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class AssetServiceTest {
+
+    @Autowired
+    private AssetService assetService;
+    @Autowired
+    private AssetRepository assetRepository;
+    @Autowired
+    private AssetSaleRepository saleRepository;
+    @Autowired
+    private PortfolioRegistry portfolioRegistry;
+
+    @Test
+    void aFailingGroupIsRejectedAloneWhileOtherTickersExecute() {
+        long p = portfolioRegistry.create("orders").getId();
+
+        List<TradeResult> results = assetService.executeOrders(p, List.of(
+                new TradeOrder(Side.BUY, "AAPL", 5, new BigDecimal("100"), null),
+                new TradeOrder(Side.BUY, "NOPE", 1, new BigDecimal("10"), null)));
+
+        assertEquals(Status.EXECUTED, results.get(0).status());
+        assertEquals(Status.REJECTED, results.get(1).status());
+        assertTrue(results.get(1).error().startsWith("rejected by the database"), results.get(1).error());
+        assertEquals(1, assetRepository.findByPortfolioId(p).size());
+    }
+
+    @Test
+    void aGroupIsAppliedAllOrNothing() {
+        long p = portfolioRegistry.create("atomic").getId();
+
+        List<TradeResult> results = assetService.executeOrders(p, List.of(
+                new TradeOrder(Side.BUY, "MSFT", 5, new BigDecimal("100"), null),
+                new TradeOrder(Side.SELL, "MSFT", 8, new BigDecimal("110"), null)));
+
+        assertEquals(Status.REJECTED, results.get(0).status());
+        assertEquals("rolled back: order 1 failed", results.get(0).error());
+        assertEquals("Not enough shares to sell", results.get(1).error());
+        assertTrue(assetRepository.findByPortfolioId(p).isEmpty());
+        assertTrue(saleRepository.findByPortfolioId(p).isEmpty());
+    }
+
+    @Test
+    void concurrentSellsNeverSellTheSameShares() throws Exception {
+        long p = portfolioRegistry.create("concurrent").getId();
+        for (int i = 0; i < 10; i++) {
+            Asset lot = new Asset();
+            lot.setTicker("TSLA");
+            lot.setQuantity(10);
+            lot.setBuyPrice(new BigDecimal("200"));
+            lot.setBuyDate(LocalDate.of(2024, 1, 1).plusDays(i));
+            assetService.addAsset(p, lot);
+        }
+
+        ExecutorService threads = Executors.newFixedThreadPool(8);
+        List<Future<Boolean>> sells = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            sells.add(threads.submit(() -> {
+                try {
+                    assetService.sellAsset(p, "TSLA", 3, new BigDecimal("250"));
+                    return true;
+                } catch (IllegalArgumentException e) {
+                    return false;
+                }
+            }));
+        }
+        int sold = 0;
+        for (Future<Boolean> f : sells) {
+            if (f.get()) {
+                sold += 3;
+            }
+        }
+        threads.shutdown();
+        assertTrue(threads.awaitTermination(10, TimeUnit.SECONDS));
+
+        assertEquals(99, sold);
+        int left = assetRepository.findByPortfolioId(p).stream().mapToInt(Asset::getQuantity).sum();
+        int recorded = saleRepository.findByPortfolioId(p).stream().mapToInt(AssetSale::getQuantity).sum();
+        assertEquals(1, left);
+        assertEquals(sold, recorded);
+    }
 }
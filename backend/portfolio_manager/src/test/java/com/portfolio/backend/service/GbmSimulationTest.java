@@ -0,0 +1,90 @@
+package com.portfolio.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class GbmSimulationTest {
+
+    private static final int STEPS = 20_000;
+
+    @Test
+    void returnsHaveTheConfiguredCorrelationAndVolatility() {
+        double dt = 1.0 / 252;
+        GbmSimulation sim = new GbmSimulation(new double[]{100, 100, 100}, 0.0, 0.3, 0.6, dt, 7);
+        double[][] r = returns(sim);
+
+        assertEquals(0.6, correlation(r[0], r[1]), 0.03);
+        assertEquals(0.6, correlation(r[1], r[2]), 0.03);
+        assertEquals(0.3, Math.sqrt(variance(r[0]) / dt), 0.01);
+    }
+
+    @Test
+    void zeroCorrelationLeavesTickersIndependent() {
+        GbmSimulation sim = new GbmSimulation(new double[]{50, 80}, 0.05, 0.2, 0.0, 1.0 / 252, 11);
+        double[][] r = returns(sim);
+        assertEquals(0.0, correlation(r[0], r[1]), 0.03);
+    }
+
+    @Test
+    void sameSeedGivesTheSamePath() {
+        GbmSimulation a = new GbmSimulation(new double[]{10, 20}, 0.05, 0.4, 0.5, 0.01, 3);
+        GbmSimulation b = new GbmSimulation(new double[]{10, 20}, 0.05, 0.4, 0.5, 0.01, 3);
+        for (int i = 0; i < 100; i++) {
+            a.step();
+            b.step();
+        }
+        assertEquals(a.price(1), b.price(1));
+        assertEquals(100, a.steps());
+    }
+
+    @Test
+    void rejectsACorrelationOutsideTheUnitInterval() {
+        assertThrows(IllegalArgumentException.class,
+                () -> new GbmSimulation(new double[]{1}, 0, 0.2, 1.5, 0.01, 1));
+    }
+
+    private static double[][] returns(GbmSimulation sim) {
+        double[][] r = new double[sim.size()][STEPS];
+        double[] last = new double[sim.size()];
+        for (int i = 0; i < sim.size(); i++) {
+            last[i] = sim.price(i);
+        }
+        for (int s = 0; s < STEPS; s++) {
+            sim.step();
+            for (int i = 0; i < sim.size(); i++) {
+                r[i][s] = Math.log(sim.price(i) / last[i]);
+                last[i] = sim.price(i);
+            }
+        }
+        return r;
+    }
+
+    private static double mean(double[] x) {
+        double sum = 0;
+        for (double v : x) {
+            sum += v;
+        }
+        return sum / x.length;
+    }
+
+    private static double variance(double[] x) {
+        double m = mean(x);
+        double sum = 0;
+        for (double v : x) {
+            sum += (v - m) * (v - m);
+        }
+        return sum / (x.length - 1);
+    }
+
+    private static double correlation(double[] x, double[] y) {
+        double mx = mean(x);
+        double my = mean(y);
+        double sxy = 0;
+        for (int i = 0; i < x.length; i++) {
+            sxy += (x[i] - mx) * (y[i] - my);
+        }
+        return sxy / (x.length - 1) / Math.sqrt(variance(x) * variance(y));
+    }
+}
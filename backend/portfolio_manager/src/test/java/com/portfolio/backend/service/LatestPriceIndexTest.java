@@ -0,0 +1,116 @@
+package com.portfolio.backend.service;
+
+import com.portfolio.backend.entity.StockPrice;
+import com.portfolio.backend.repo.RepositoryFake;
+import com.portfolio.backend.repo.StockPriceRepository;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class LatestPriceIndexTest {
+
+    private final LocalDate today = LocalDate.now();
+    // what the shared database holds, written by any node
+    private final Map<String, StockPrice> stored = new ConcurrentHashMap<>();
+    private final AtomicInteger queries = new AtomicInteger();
+    private final StockPriceRepository repository = RepositoryFake.of(StockPriceRepository.class)
+            .answer("findLatestPrice", args -> {
+                queries.incrementAndGet();
+                return stored.get((String) args[0]);
+            })
+            .answer("findLatestForTickers", args -> {
+                queries.incrementAndGet();
+                return ((Collection<?>) args[0]).stream().map(stored::get).filter(sp -> sp != null).toList();
+            })
+            .answer("findLatestPerTicker", args -> List.copyOf(stored.values()))
+            .build();
+
+    @Test
+    void servesTheCachedPriceUntilItExpires() {
+        LatestPriceIndex index = new LatestPriceIndex(repository, PrimaryReads.direct(), 60_000);
+        stored.put("AAPL", price("AAPL", today, "100"));
+        index.warm();
+        stored.put("AAPL", price("AAPL", today, "101"));
+
+        assertEquals(new BigDecimal("100"), index.get("AAPL").getClosePrice());
+        assertEquals(0, queries.get());
+    }
+
+    @Test
+    void readsAnExpiredPriceAgainFromTheDatabase() {
+        LatestPriceIndex index = new LatestPriceIndex(repository, PrimaryReads.direct(), 0);
+        stored.put("AAPL", price("AAPL", today, "100"));
+        stored.put("MSFT", price("MSFT", today, "300"));
+        index.warm();
+
+        // another node updates the day's close and deletes MSFT's prices
+        stored.put("AAPL", price("AAPL", today, "105"));
+        stored.remove("MSFT");
+
+        assertEquals(new BigDecimal("105"), index.get("AAPL").getClosePrice());
+        Map<String, StockPrice> all = index.getAll(List.of("AAPL", "MSFT"));
+        assertEquals(new BigDecimal("105"), all.get("AAPL").getClosePrice());
+        assertEquals(1, all.size());
+        assertNull(index.get("MSFT"));
+    }
+
+    @Test
+    void keepsAnUnsavedCloseUntilItIsWritten() {
+        LatestPriceIndex index = new LatestPriceIndex(repository, PrimaryReads.direct(), 0);
+        stored.put("AAPL", price("AAPL", today, "100"));
+        index.warm();
+
+        index.putUnsaved(price("AAPL", today, "110"));
+        assertEquals(new BigDecimal("110"), index.get("AAPL").getClosePrice());
+
+        stored.put("AAPL", price("AAPL", today, "110"));
+        index.markSaved("AAPL", today, new BigDecimal("110"));
+        stored.put("AAPL", price("AAPL", today, "120"));
+        assertEquals(new BigDecimal("120"), index.get("AAPL").getClosePrice());
+    }
+
+    @Test
+    void handsOnlyClosesWrittenElsewhereToTheListener() {
+        LatestPriceIndex index = new LatestPriceIndex(repository, PrimaryReads.direct(), 0);
+        List<BigDecimal> seen = new ArrayList<>();
+        index.onNewerClose(sp -> seen.add(sp.getClosePrice()));
+        stored.put("AAPL", price("AAPL", today.minusDays(1), "100"));
+        index.warm();
+
+        // this node's own write, then reads that find it stored as it is
+        StockPrice own = price("AAPL", today, "101");
+        index.put(own);
+        stored.put("AAPL", own);
+        index.get("AAPL");
+        assertEquals(List.of(), seen);
+
+        // another node rewrites the day's close
+        stored.put("AAPL", price("AAPL", today, "102"));
+        index.get("AAPL");
+        index.getAll(List.of("AAPL"));
+        assertEquals(List.of(new BigDecimal("102")), seen);
+
+        // and the next day's, which the scheduled sweep finds without anyone reading it
+        stored.put("AAPL", price("AAPL", today.plusDays(1), "103"));
+        index.refreshExpired();
+        assertEquals(List.of(new BigDecimal("102"), new BigDecimal("103")), seen);
+    }
+
+    private static StockPrice price(String ticker, LocalDate date, String close) {
+        StockPrice sp = new StockPrice();
+        sp.setTicker(ticker);
+        sp.setPriceDate(date);
+        sp.setClosePrice(new BigDecimal(close));
+        return sp;
+    }
+}
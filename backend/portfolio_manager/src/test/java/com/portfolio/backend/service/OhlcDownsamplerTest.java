@@ -0,0 +1,83 @@
+package com.portfolio.backend.service;
+
+import com.portfolio.backend.dto.OhlcBar;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OhlcDownsamplerTest {
+
+    @Test
+    void buildsEqualWidthBarsAndSkipsEmptyBuckets() {
+        PriceSeries s = new PriceSeries("AAPL");
+        int day0 = PriceSeries.toEpochDay(LocalDate.of(2024, 1, 1));
+        long[] closes = {100_00, 105_00, 98_00, 101_00};
+        for (int i = 0; i < closes.length; i++) {
+            s.put(day0 + i, closes[i]);
+        }
+        // a gap, then two more closes at the end of a 20-day span
+        s.put(day0 + 18, 120_00);
+        s.put(day0 + 19, 119_50);
+
+        List<OhlcBar> bars = OhlcDownsampler.downsample(s.all(), 4);
+        assertEquals(2, bars.size());
+
+        OhlcBar first = bars.get(0);
+        assertEquals(LocalDate.of(2024, 1, 1), first.start());
+        assertEquals(LocalDate.of(2024, 1, 4), first.end());
+        assertEquals(0, new BigDecimal("100.00").compareTo(first.open()));
+        assertEquals(0, new BigDecimal("105.00").compareTo(first.high()));
+        assertEquals(0, new BigDecimal("98.00").compareTo(first.low()));
+        assertEquals(0, new BigDecimal("101.00").compareTo(first.close()));
+        assertEquals(4, first.points());
+
+        OhlcBar last = bars.get(1);
+        assertEquals(0, new BigDecimal("119.50").compareTo(last.close()));
+        assertEquals(2, last.points());
+    }
+
+    @Test
+    void neverReturnsMoreBarsThanBuckets() {
+        PriceSeries s = new PriceSeries("MSFT");
+        for (int d = 0; d < 1000; d++) {
+            s.put(19000 + d, 10_000 + d);
+        }
+        List<OhlcBar> bars = OhlcDownsampler.downsample(s.all(), 7);
+        assertTrue(bars.size() <= 7);
+        assertEquals(1000, bars.stream().mapToInt(OhlcBar::points).sum());
+    }
+
+    @Test
+    void mergesCoarserBarsRegardlessOfArrivalOrder() {
+        OhlcBar jan = bar("2024-01-02", "2024-01-31", "10", "14", "9", "12", 21);
+        OhlcBar feb = bar("2024-02-01", "2024-02-29", "12", "20", "11", "18", 20);
+        OhlcBar mar = bar("2024-03-01", "2024-03-28", "18", "19", "7", "8", 19);
+
+        List<OhlcBar> one = OhlcDownsampler.downsampleBars(List.of(jan, feb, mar), 1);
+        assertEquals(1, one.size());
+        OhlcBar q = one.get(0);
+        assertEquals(LocalDate.of(2024, 1, 2), q.start());
+        assertEquals(LocalDate.of(2024, 3, 28), q.end());
+        assertEquals(0, new BigDecimal("10").compareTo(q.open()));
+        assertEquals(0, new BigDecimal("20").compareTo(q.high()));
+        assertEquals(0, new BigDecimal("7").compareTo(q.low()));
+        assertEquals(0, new BigDecimal("8").compareTo(q.close()));
+        assertEquals(60, q.points());
+
+        OhlcAccumulator backfilled = new OhlcAccumulator();
+        backfilled.add(feb);
+        backfilled.add(jan);
+        assertEquals(0, new BigDecimal("10").compareTo(backfilled.toBar().open()));
+        assertEquals(0, new BigDecimal("18").compareTo(backfilled.toBar().close()));
+    }
+
+    private static OhlcBar bar(String start, String end, String o, String h, String l, String c, int n) {
+        return new OhlcBar(LocalDate.parse(start), LocalDate.parse(end), new BigDecimal(o), new BigDecimal(h),
+                new BigDecimal(l), new BigDecimal(c), n);
+    }
+}
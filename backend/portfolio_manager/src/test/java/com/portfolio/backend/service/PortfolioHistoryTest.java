@@ -0,0 +1,176 @@
+package com.portfolio.backend.service;
+
+import com.portfolio.backend.dto.OhlcBar;
+import com.portfolio.backend.repo.PriceRollupRepository;
+import com.portfolio.backend.repo.RepositoryFake;
+import com.portfolio.backend.repo.StockPriceRepository;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PortfolioHistoryTest {
+
+    private static final String[] TICKERS = {"AAA", "BBB", "CCC"};
+
+    @Test
+    void matchesAJoinOfHoldingsAndLatestClosePerDay() {
+        Random rnd = new Random(5);
+        List<PortfolioHistory.Change> changes = randomChanges(rnd);
+        PriceSeries[] series = randomSeries(rnd);
+        PortfolioHistory h = new PortfolioHistory(changes);
+        PriceSeries[] ordered = inOrder(h, series);
+
+        h.extend(200, ordered);
+        for (int day = h.startDay(); day <= 200; day++) {
+            long[] expected = naive(changes, series, day);
+            assertEquals(expected[0], h.valueAt(day), "value on day " + day);
+            assertEquals(expected[1], h.costAt(day), "cost on day " + day);
+        }
+    }
+
+    @Test
+    void extendingInStepsMatchesOneSweepAndPreviewLeavesTheSeriesAlone() {
+        Random rnd = new Random(9);
+        List<PortfolioHistory.Change> changes = randomChanges(rnd);
+        PriceSeries[] series = randomSeries(rnd);
+
+        PortfolioHistory once = new PortfolioHistory(changes);
+        once.extend(200, inOrder(once, series));
+
+        PortfolioHistory steps = new PortfolioHistory(changes);
+        PriceSeries[] ordered = inOrder(steps, series);
+        long[][] ahead = steps.preview(steps.startDay(), 200, ordered);
+        assertEquals(steps.startDay() - 1, steps.endDay());
+        for (int through = 60; through <= 200; through += 35) {
+            steps.extend(through, ordered);
+        }
+        steps.extend(200, ordered);
+
+        long[][] all = once.preview(once.startDay(), 200, inOrder(once, series));
+        assertArrayEquals(all[0], steps.preview(steps.startDay(), 200, ordered)[0]);
+        assertArrayEquals(all[1], steps.preview(steps.startDay(), 200, ordered)[1]);
+        assertArrayEquals(all[0], ahead[0]);
+    }
+
+    @Test
+    void aSoldSliceCountsOnlyWhileHeld() {
+        PriceSeries s = new PriceSeries("AAA");
+        s.put(5, 1_000);
+        s.put(15, 2_000);
+        List<PortfolioHistory.Change> changes = List.of(
+                new PortfolioHistory.Change(10, "AAA", 3, 3 * 900),
+                new PortfolioHistory.Change(20, "AAA", -3, -3 * 900));
+        PortfolioHistory h = new PortfolioHistory(changes);
+        h.extend(25, new PriceSeries[]{s});
+
+        assertEquals(3_000, h.valueAt(10));
+        assertEquals(2_700, h.costAt(10));
+        assertEquals(6_000, h.valueAt(19));
+        assertEquals(0, h.valueAt(20));
+        assertEquals(0, h.costAt(25));
+    }
+
+    @Test
+    void aLotBoughtInsideACompactedWeekIsValuedAtItsClose() {
+        LocalDate monday = LocalDate.of(2023, 1, 2);
+        // the first week survives only as a weekly bar; daily rows start the week after
+        List<OhlcBar> bars = List.of(new OhlcBar(monday, monday.plusDays(6), new BigDecimal("9.50"),
+                new BigDecimal("10.50"), new BigDecimal("9.00"), new BigDecimal("10.00"), 5));
+        List<Object[]> rows = List.of(new Object[]{monday.plusDays(7), new BigDecimal("11.00")},
+                new Object[]{monday.plusDays(8), new BigDecimal("12.00")});
+        PriceSeriesStore store = new PriceSeriesStore(dailyRows(rows), new PriceRollupRepository(null) {
+            @Override
+            public LocalDate findLastRolledUpDate(String ticker) {
+                return monday.plusDays(6);
+            }
+
+            @Override
+            public List<OhlcBar> findTieredBars(String ticker, LocalDate from, LocalDate to, boolean preferWeekly) {
+                return bars;
+            }
+        }, PrimaryReads.direct());
+        int wednesday = PriceSeries.toEpochDay(monday.plusDays(2));
+        PortfolioHistory h = new PortfolioHistory(List.of(new PortfolioHistory.Change(wednesday, "AAA", 2, 2 * 970)));
+        h.extend(wednesday + 6, new PriceSeries[]{store.get("AAA")});
+
+        assertEquals(2 * 1_000, h.valueAt(wednesday));
+        assertEquals(2 * 1_000, h.valueAt(wednesday + 4));
+        assertEquals(2 * 1_100, h.valueAt(wednesday + 5));
+        assertEquals(2 * 1_200, h.valueAt(wednesday + 6));
+    }
+
+    private static StockPriceRepository dailyRows(List<Object[]> rows) {
+        return RepositoryFake.of(StockPriceRepository.class)
+                .answer("findDateAndCloseByTicker", args -> rows)
+                .build();
+    }
+
+    private static List<PortfolioHistory.Change> randomChanges(Random rnd) {
+        List<PortfolioHistory.Change> changes = new ArrayList<>();
+        for (int k = 0; k < 40; k++) {
+            String t = TICKERS[rnd.nextInt(TICKERS.length)];
+            int buy = 20 + rnd.nextInt(150);
+            long q = 1 + rnd.nextInt(20);
+            long cost = q * (5_000 + rnd.nextInt(5_000));
+            changes.add(new PortfolioHistory.Change(buy, t, q, cost));
+            if (rnd.nextBoolean()) {
+                changes.add(new PortfolioHistory.Change(buy + 1 + rnd.nextInt(40), t, -q, -cost));
+            }
+        }
+        return changes;
+    }
+
+    private static PriceSeries[] randomSeries(Random rnd) {
+        PriceSeries[] series = new PriceSeries[TICKERS.length];
+        for (int i = 0; i < TICKERS.length; i++) {
+            series[i] = new PriceSeries(TICKERS[i]);
+            for (int day = i * 7; day <= 200; day++) {
+                if (rnd.nextInt(4) != 0) {
+                    series[i].put(day, 4_000 + rnd.nextInt(8_000));
+                }
+            }
+        }
+        return series;
+    }
+
+    private static PriceSeries[] inOrder(PortfolioHistory h, PriceSeries[] series) {
+        String[] tickers = h.tickers();
+        PriceSeries[] ordered = new PriceSeries[tickers.length];
+        for (int i = 0; i < tickers.length; i++) {
+            for (PriceSeries s : series) {
+                if (s.getTicker().equals(tickers[i])) {
+                    ordered[i] = s;
+                }
+            }
+        }
+        return ordered;
+    }
+
+    private static long[] naive(List<PortfolioHistory.Change> changes, PriceSeries[] series, int day) {
+        long value = 0;
+        long cost = 0;
+        for (PortfolioHistory.Change c : changes) {
+            if (c.day() > day) {
+                continue;
+            }
+            cost += c.cost();
+            for (PriceSeries s : series) {
+                if (s.getTicker().equals(c.ticker())) {
+                    // before its first close a ticker is worth that close
+                    PriceSeries.Slice upTo = s.slice(Integer.MIN_VALUE, day);
+                    PriceSeries.Slice all = s.all();
+                    value += c.quantity() * (!upTo.isEmpty() ? upTo.closeAt(upTo.size() - 1)
+                            : all.isEmpty() ? 0 : all.closeAt(0));
+                }
+            }
+        }
+        return new long[]{value, cost};
+    }
+}
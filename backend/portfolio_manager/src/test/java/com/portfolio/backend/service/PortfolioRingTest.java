@@ -0,0 +1,61 @@
+package com.portfolio.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PortfolioRingTest {
+
+    private static final String A = "http://localhost:8081";
+    private static final String B = "http://localhost:8082";
+    private static final String C = "http://localhost:8083";
+    private static final String D = "http://localhost:8084";
+
+    @Test
+    void singleNodeOwnsEverything() {
+        PortfolioRing ring = new PortfolioRing("", "", 128);
+        assertTrue(ring.owns(1));
+        assertTrue(ring.owns(123_456));
+        assertTrue(ring.isCoordinator());
+    }
+
+    @Test
+    void spreadsPortfoliosAcrossNodes() {
+        PortfolioRing ring = new PortfolioRing(A + "," + B + "/," + C, B, 128);
+        Map<String, Integer> counts = new HashMap<>();
+        for (long id = 1; id <= 30_000; id++) {
+            counts.merge(ring.ownerOf(id), 1, Integer::sum);
+        }
+        assertEquals(3, counts.size());
+        for (int n : counts.values()) {
+            assertTrue(n > 7_500, "unbalanced ring: " + counts);
+        }
+        assertEquals(ring.ownerOf(42), new PortfolioRing(A + "," + B + "," + C, A, 128).ownerOf(42));
+    }
+
+    @Test
+    void addingANodeOnlyMovesPortfoliosToIt() {
+        PortfolioRing three = new PortfolioRing(A + "," + B + "," + C, A, 128);
+        PortfolioRing four = new PortfolioRing(A + "," + B + "," + C + "," + D, A, 128);
+        int moved = 0;
+        for (long id = 1; id <= 20_000; id++) {
+            String before = three.ownerOf(id);
+            String after = four.ownerOf(id);
+            if (!before.equals(after)) {
+                assertEquals(D, after);
+                moved++;
+            }
+        }
+        assertTrue(moved > 2_500 && moved < 8_000, "moved " + moved);
+    }
+
+    @Test
+    void rejectsASelfOutsideTheRing() {
+        assertThrows(IllegalStateException.class, () -> new PortfolioRing(A + "," + B, C, 16));
+    }
+}
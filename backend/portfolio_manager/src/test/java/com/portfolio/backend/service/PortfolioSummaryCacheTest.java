@@ -0,0 +1,107 @@
+package com.portfolio.backend.service;
+
+import com.portfolio.backend.dto.PortfolioSummary;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PortfolioSummaryCacheTest {
+
+    private final DataVersion dataVersion = new DataVersion();
+    private final CountingSummaries summaries = new CountingSummaries();
+    private final PortfolioSummaryCache cache = new PortfolioSummaryCache(summaries, dataVersion, new JsonMapper());
+
+    @Test
+    void concurrentReadersOfAStaleSummaryShareOneBuild() throws Exception {
+        summaries.gate = new CountDownLatch(1);
+        ExecutorService pool = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<PortfolioSummaryCache.Entry>> reads = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                reads.add(pool.submit(() -> cache.get(1)));
+            }
+            // let the other readers pile up behind the first build before it finishes
+            assertTrue(summaries.entered.await(10, TimeUnit.SECONDS));
+            Thread.sleep(200);
+            summaries.gate.countDown();
+
+            PortfolioSummaryCache.Entry first = reads.get(0).get(10, TimeUnit.SECONDS);
+            for (Future<PortfolioSummaryCache.Entry> read : reads) {
+                assertSame(first, read.get(10, TimeUnit.SECONDS));
+            }
+            assertEquals(1, summaries.builds.get());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void rebuildsOnlyWhenTheVersionOfItsPortfolioMoves() {
+        PortfolioSummaryCache.Entry first = cache.get(1);
+        assertSame(first, cache.get(1));
+        assertEquals(1, summaries.builds.get());
+
+        dataVersion.bump(2);
+        assertSame(first, cache.get(1));
+
+        dataVersion.bump(1);
+        PortfolioSummaryCache.Entry afterLots = cache.get(1);
+        assertNotEquals(first.etag(), afterLots.etag());
+        assertEquals(2, summaries.builds.get());
+
+        dataVersion.bump();
+        assertNotEquals(afterLots.etag(), cache.get(1).etag());
+        assertEquals(3, summaries.builds.get());
+    }
+
+    @Test
+    void currentEtagNeedsNoBuild() {
+        String etag = cache.currentEtag(1);
+        assertEquals(0, summaries.builds.get());
+
+        assertEquals(etag, cache.get(1).etag());
+        dataVersion.bump(1);
+        assertNotEquals(etag, cache.currentEtag(1));
+        assertEquals(1, summaries.builds.get());
+    }
+
+    private static final class CountingSummaries extends PortfolioService {
+
+        final AtomicInteger builds = new AtomicInteger();
+        final CountDownLatch entered = new CountDownLatch(1);
+        volatile CountDownLatch gate;
+
+        CountingSummaries() {
+            super(null, null, null, null, null);
+        }
+
+        @Override
+        public PortfolioSummary getPortfolioSummary(long portfolioId) {
+            entered.countDown();
+            if (gate != null) {
+                try {
+                    gate.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            int n = builds.incrementAndGet();
+            return new PortfolioSummary(List.of(), BigDecimal.valueOf(n), BigDecimal.ZERO, BigDecimal.ZERO,
+                    BigDecimal.ZERO, BigDecimal.ZERO, BigDecimal.ZERO, List.of());
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.portfolio.backend.service;
+
+import com.portfolio.backend.dto.OhlcBar;
+import com.portfolio.backend.repo.PriceRollupRepository;
+import com.portfolio.backend.repo.PriceRollupRepository.Tier;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class PriceCompactionServiceTest {
+
+    private static final String TICKER = "CMPT";
+    private static final LocalDate CUTOFF = LocalDate.of(2020, 3, 1);
+
+    @Autowired
+    private PriceCompactionService compactionService;
+    @Autowired
+    private PriceRollupRepository rollupRepository;
+    @Autowired
+    private PriceSeriesStore priceSeriesStore;
+    @Autowired
+    private StockPriceService stockPriceService;
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void oldClosesAreFoldedIntoBarsOnceAndStillReadAcrossTheBoundary() {
+        jdbc.update("INSERT INTO stock (ticker, company_name) VALUES (?, 'Compaction Test')", TICKER);
+        close("2020-01-06", "10");
+        close("2020-01-07", "12");
+        close("2020-01-08", "9");
+        close("2020-01-10", "11");
+        close("2020-01-13", "13");
+        close("2020-01-14", "14");
+        close("2020-02-03", "15");
+        // from the cutoff on the closes stay daily
+        close("2020-03-02", "16");
+        close("2020-03-03", "17");
+
+        assertEquals(7, compactionService.compactTicker(TICKER, CUTOFF));
+
+        List<OhlcBar> weeks = List.of(
+                bar("2020-01-06", "2020-01-10", "10", "12", "9", "11", 4),
+                bar("2020-01-13", "2020-01-14", "13", "14", "13", "14", 2),
+                bar("2020-02-03", "2020-02-03", "15", "15", "15", "15", 1));
+        List<OhlcBar> months = List.of(
+                bar("2020-01-06", "2020-01-14", "10", "14", "9", "14", 6),
+                bar("2020-02-03", "2020-02-03", "15", "15", "15", "15", 1));
+        assertEquals(weeks, rollupRepository.findBars(Tier.WEEKLY, TICKER, null, null));
+        assertEquals(months, rollupRepository.findBars(Tier.MONTHLY, TICKER, null, null));
+        assertEquals(List.of(Date.valueOf("2020-03-02"), Date.valueOf("2020-03-03")), jdbc.queryForList(
+                "SELECT price_date FROM stock_price WHERE ticker = ? ORDER BY price_date", Date.class, TICKER));
+
+        // a second run finds nothing left to fold and leaves the bars as they were
+        assertEquals(0, compactionService.compactTicker(TICKER, CUTOFF));
+        assertEquals(weeks, rollupRepository.findBars(Tier.WEEKLY, TICKER, null, null));
+        assertEquals(months, rollupRepository.findBars(Tier.MONTHLY, TICKER, null, null));
+
+        // the series holds one close per weekly bar, then the daily closes
+        PriceSeries series = priceSeriesStore.get(TICKER);
+        assertEquals(5, series.size());
+        assertEquals(PriceSeries.toEpochDay(LocalDate.of(2020, 2, 4)), series.dailyFrom());
+        assertEquals(2, series.daily().size());
+
+        List<OhlcBar> ohlc = stockPriceService.getOhlc(TICKER, LocalDate.of(2020, 1, 1), LocalDate.of(2020, 3, 31), 100);
+        assertEquals(List.of(weeks.get(0), weeks.get(1), weeks.get(2),
+                bar("2020-03-02", "2020-03-02", "16", "16", "16", "16", 1),
+                bar("2020-03-03", "2020-03-03", "17", "17", "17", "17", 1)), ohlc);
+        assertEquals(List.of(bar("2020-01-06", "2020-03-03", "10", "17", "9", "17", 9)),
+                stockPriceService.getOhlc(TICKER, LocalDate.of(2020, 1, 1), LocalDate.of(2020, 3, 31), 1));
+    }
+
+    private void close(String date, String price) {
+        jdbc.update("INSERT INTO stock_price (ticker, price_date, close_price) VALUES (?, ?, ?)",
+                TICKER, Date.valueOf(date), new BigDecimal(price));
+    }
+
+    private static OhlcBar bar(String start, String end, String open, String high, String low, String close,
+                               int points) {
+        return new OhlcBar(LocalDate.parse(start), LocalDate.parse(end), price(open), price(high), price(low),
+                price(close), points);
+    }
+
+    private static BigDecimal price(String value) {
+        return new BigDecimal(value).setScale(2);
+    }
+}
@@ -0,0 +1,67 @@
+package com.portfolio.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PriceSeriesTest {
+
+    @Test
+    void keepsRowsSortedWhenInsertedOutOfOrder() {
+        PriceSeries series = new PriceSeries("AAPL");
+        for (int day = 0; day < 40; day += 2) {
+            series.put(day, day * 100L);
+        }
+        series.put(5, 555L);
+        series.put(-1, 1L);
+
+        PriceSeries.Slice all = series.all();
+        assertEquals(22, all.size());
+        for (int i = 1; i < all.size(); i++) {
+            assertTrue(all.dayAt(i - 1) <= all.dayAt(i));
+        }
+        assertEquals(-1, all.dayAt(0));
+        assertEquals(555L, all.closeAt(4));
+    }
+
+    @Test
+    void replacesCloseForExistingDay() {
+        PriceSeries series = new PriceSeries("AAPL");
+        series.put(1, 10L);
+        series.put(2, 20L);
+        series.put(1, 11L);
+
+        assertEquals(2, series.size());
+        assertEquals(11L, series.all().closeAt(0));
+    }
+
+    @Test
+    void slicesInclusiveDateRange() {
+        PriceSeries series = new PriceSeries("AAPL");
+        LocalDate start = LocalDate.of(2025, 1, 1);
+        for (int i = 0; i < 10; i++) {
+            series.put(PriceSeries.toEpochDay(start.plusDays(i)), PriceSeries.toFixed(BigDecimal.valueOf(100 + i)));
+        }
+
+        PriceSeries.Slice slice = series.slice(start.plusDays(3), start.plusDays(6));
+        assertEquals(4, slice.size());
+        assertEquals(start.plusDays(3), slice.dateAt(0));
+        assertEquals(new BigDecimal("106.00"), slice.priceAt(3));
+
+        assertTrue(series.slice(start.plusDays(20), null).isEmpty());
+    }
+
+    @Test
+    void earlierSliceIsUnaffectedByLaterAppends() {
+        PriceSeries series = new PriceSeries("AAPL");
+        series.put(1, 10L);
+        PriceSeries.Slice before = series.all();
+        series.put(2, 20L);
+        assertEquals(1, before.size());
+        assertEquals(2, series.size());
+    }
+}
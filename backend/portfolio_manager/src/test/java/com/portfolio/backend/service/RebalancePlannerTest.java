@@ -0,0 +1,66 @@
+package com.portfolio.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RebalancePlannerTest {
+
+    @Test
+    void leavesABookWithinToleranceAlone() {
+        RebalancePlanner.Plan plan = RebalancePlanner.plan(new long[]{52, 48}, new double[]{10, 10},
+                new double[]{0.5, 0.5}, 2, 0, 0.05);
+
+        assertArrayEquals(new long[]{0, 0}, plan.shares());
+        assertEquals(0, plan.trades());
+        assertEquals(0.02, plan.maxDriftBefore(), 1e-12);
+    }
+
+    @Test
+    void tradesOnlyAsFarAsTheEdgeOfTheBand() {
+        RebalancePlanner.Plan plan = RebalancePlanner.plan(new long[]{70, 30}, new double[]{10, 10},
+                new double[]{0.5, 0.5}, 2, 0, 0.05);
+
+        assertArrayEquals(new long[]{-15, 15}, plan.shares());
+        assertEquals(300, plan.turnover(), 1e-9);
+        assertEquals(0, plan.cashAfter(), 1e-9);
+        assertEquals(0.20, plan.maxDriftBefore(), 1e-12);
+        assertEquals(0.05, plan.maxDriftAfter(), 1e-12);
+    }
+
+    @Test
+    void sellsFurtherTowardsTheTargetToPayForPurchases() {
+        // A and C only reach their band edges, which leaves 50 short for B
+        RebalancePlanner.Plan plan = RebalancePlanner.plan(new long[]{60, 0, 40}, new double[]{10, 10, 10},
+                new double[]{0.5, 0.5, 0}, 3, 0, 0.05);
+
+        assertArrayEquals(new long[]{-10, 45, -35}, plan.shares());
+        assertEquals(0, plan.cashAfter(), 1e-9);
+        assertEquals(0.05, plan.maxDriftAfter(), 1e-12);
+    }
+
+    @Test
+    void cutsPurchasesToWhatTheCashPaysFor() {
+        RebalancePlanner.Plan plan = RebalancePlanner.plan(new long[]{0, 0}, new double[]{1, 1},
+                new double[]{0.5, 0.5}, 2, 3, 0);
+
+        assertArrayEquals(new long[]{2, 1}, plan.shares());
+        assertEquals(0, plan.cashAfter(), 1e-9);
+    }
+
+    @Test
+    void takesTheNearestWholeShareWhenTheBandIsNarrowerThanOne() {
+        assertEquals(0, RebalancePlanner.bandTarget(2, 3000, 0.1, 10_000, 0.01));
+        assertEquals(1, RebalancePlanner.bandTarget(0, 1800, 0.1, 10_000, 0.01));
+    }
+
+    @Test
+    void sellsLotsInTheOrderGiven() {
+        long[] shares = {-7, 0, -1};
+        int[] lotTicker = {0, 0, 0, 1, 2, 2};
+        int[] lotQuantity = {5, 5, 5, 10, 3, 3};
+
+        assertArrayEquals(new int[]{5, 2, 0, 0, 1, 0}, RebalancePlanner.takeLots(shares, lotTicker, lotQuantity, 6));
+    }
+}
@@ -0,0 +1,123 @@
+package com.portfolio.backend.service;
+
+import com.portfolio.backend.dto.TradeOrder;
+import com.portfolio.backend.entity.Asset;
+import com.portfolio.backend.entity.StockPrice;
+import com.portfolio.backend.repo.AssetRepository;
+import com.portfolio.backend.repo.RepositoryFake;
+import com.portfolio.backend.repo.TargetAllocationRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RebalanceServiceTest {
+
+    private final LocalDate today = LocalDate.now();
+    // AAPL: one short-term lot and two long-term ones, the oldest listed last; MSFT: one lot
+    private final List<Asset> lots = List.of(
+            lot(1, "AAPL", 10, "90", today.minusDays(100)),
+            lot(2, "AAPL", 10, "50", today.minusYears(3)),
+            lot(3, "AAPL", 10, "40", today.minusYears(4)),
+            lot(4, "MSFT", 10, "80", today.minusYears(3)));
+    private final AssetRepository assets = RepositoryFake.of(AssetRepository.class)
+            .answer("findByPortfolioId", args -> lots)
+            .build();
+    private Map<String, BigDecimal> targetWeights = Map.of("AAPL", new BigDecimal("0.5"),
+            "MSFT", new BigDecimal("0.5"));
+    private final TargetAllocationRepository weights = new TargetAllocationRepository(null, null) {
+        @Override
+        public Map<String, BigDecimal> findByPortfolioId(long portfolioId) {
+            return targetWeights;
+        }
+    };
+    private final TaxLotIndex taxLotIndex = new TaxLotIndex(null, null, 730, new BigDecimal("0.22"),
+            new BigDecimal("0.15"));
+    private final RebalanceService service = new RebalanceService(assets, weights, null, new AllAtHundred(),
+            taxLotIndex, null, null, null, 0.02, 1);
+
+    @AfterEach
+    void tearDown() {
+        service.shutdown();
+    }
+
+    @Test
+    void sellsTheOldestLongTermLotsFirstAndListsTheOrders() {
+        // 3000 of AAPL and 1000 of MSFT against equal weights: 10 shares move from AAPL to MSFT
+        Map<String, Object> plan = service.plan(1, 0.0, 0);
+
+        assertEquals(2, plan.get("tradeCount"));
+        assertEquals(List.of(
+                        new TradeOrder(TradeOrder.Side.SELL, "AAPL", 10, BigDecimal.valueOf(100.0), null),
+                        new TradeOrder(TradeOrder.Side.BUY, "MSFT", 10, BigDecimal.valueOf(100.0), null)),
+                plan.get("orders"));
+
+        List<Map<String, Object>> trades = list(plan.get("trades"));
+        List<Map<String, Object>> sold = list(trades.get(0).get("lots"));
+        assertEquals(List.of(3L), sold.stream().map(l -> l.get("lotId")).toList());
+        assertEquals(10, sold.get(0).get("quantity"));
+        assertEquals(true, sold.get(0).get("longTerm"));
+        assertEquals(Map.of("shortTerm", 0.0, "longTerm", 600.0), plan.get("realizedGain"));
+    }
+
+    @Test
+    void takesShortTermLotsOnlyOnceTheLongTermOnesAreGone() {
+        // AAPL down to 500 of 4000: 25 of its 30 shares go, the short-term lot's after both others
+        targetWeights = Map.of("AAPL", new BigDecimal("0.125"), "MSFT", new BigDecimal("0.875"));
+        Map<String, Object> plan = service.plan(1, 0.0, 0);
+
+        List<Map<String, Object>> sold = list(list(plan.get("trades")).get(0).get("lots"));
+        assertEquals(List.of(3L, 2L, 1L), sold.stream().map(l -> l.get("lotId")).toList());
+        assertEquals(List.of(10, 10, 5), sold.stream().map(l -> l.get("quantity")).toList());
+        assertEquals(List.of(
+                        new TradeOrder(TradeOrder.Side.SELL, "AAPL", 25, BigDecimal.valueOf(100.0), null),
+                        new TradeOrder(TradeOrder.Side.BUY, "MSFT", 25, BigDecimal.valueOf(100.0), null)),
+                plan.get("orders"));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static List<Map<String, Object>> list(Object value) {
+        return (List<Map<String, Object>>) value;
+    }
+
+    private static Asset lot(long id, String ticker, int quantity, String cost, LocalDate buyDate) {
+        Asset a = new Asset();
+        ReflectionTestUtils.setField(a, "id", id);
+        a.setPortfolioId(1L);
+        a.setTicker(ticker);
+        a.setQuantity(quantity);
+        a.setBuyPrice(new BigDecimal(cost));
+        a.setBuyDate(buyDate);
+        return a;
+    }
+
+    /**
+     * Every ticker closed at 100.
+     */
+    private static final class AllAtHundred extends PriceService {
+
+        AllAtHundred() {
+            super(null, null, null, null, null, null, null, null);
+        }
+
+        @Override
+        public Map<String, StockPrice> getLatestPricesForTickers(Collection<String> tickers) {
+            Map<String, StockPrice> prices = new HashMap<>();
+            for (String t : tickers) {
+                StockPrice sp = new StockPrice();
+                sp.setTicker(t);
+                sp.setClosePrice(new BigDecimal("100"));
+                prices.put(t, sp);
+            }
+            return prices;
+        }
+    }
+}
@@ -0,0 +1,52 @@
+package com.portfolio.backend.service;
+
+import com.portfolio.backend.dto.TriggeredAlert;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecentAlertsTest {
+
+    private final RecentAlerts recent = new RecentAlerts(3);
+
+    @Test
+    void keepsTheNewestAlertsFirstUpToTheCapacity() {
+        recent.addAll(1, List.of(alert(1, "a"), alert(1, "b")));
+        recent.addAll(1, List.of(alert(1, "c"), alert(1, "d")));
+
+        assertEquals(List.of("d", "c", "b"), recent.messages(1));
+        assertEquals("d", recent.snapshot(1).get(0).message());
+        assertEquals(3, recent.snapshot(1).size());
+    }
+
+    @Test
+    void portfoliosHaveTheirOwnBuffers() {
+        recent.addAll(1, List.of(alert(1, "a")));
+
+        assertEquals(List.of("a"), recent.messages(1));
+        assertTrue(recent.messages(2).isEmpty());
+        assertTrue(recent.snapshot(2).isEmpty());
+    }
+
+    @Test
+    void aSnapshotDoesNotChangeWithLaterAlerts() {
+        recent.addAll(1, List.of(alert(1, "a")));
+        List<TriggeredAlert> snapshot = recent.snapshot(1);
+        List<String> messages = recent.messages(1);
+
+        recent.addAll(1, List.of(alert(1, "b")));
+
+        assertEquals(1, snapshot.size());
+        assertEquals(List.of("a"), messages);
+        assertEquals(List.of("b", "a"), recent.messages(1));
+    }
+
+    private static TriggeredAlert alert(long portfolioId, String message) {
+        return new TriggeredAlert(null, portfolioId, "AAPL", "BUY", BigDecimal.TEN, BigDecimal.ONE, Instant.now(), message);
+    }
+}
@@ -0,0 +1,130 @@
+package com.portfolio.backend.service;
+
+import com.portfolio.backend.entity.Position;
+import com.portfolio.backend.repo.PriceRollupRepository;
+import com.portfolio.backend.repo.RepositoryFake;
+import com.portfolio.backend.repo.StockPriceRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class RiskServiceTest {
+
+    private static final LocalDate START = LocalDate.of(2024, 1, 1);
+    private static final double R = Math.log(1.1);
+
+    // every ticker alternates 100, 110, 100, ... from START, so its log returns are +R, -R, ...
+    private final List<Object[]> closes = new ArrayList<>();
+    private final StockPriceRepository prices = RepositoryFake.of(StockPriceRepository.class)
+            .answer("findDateAndCloseByTicker", args -> closes)
+            .build();
+    private final PriceSeriesStore store = new PriceSeriesStore(prices, new PriceRollupRepository(null) {
+        @Override
+        public LocalDate findLastRolledUpDate(String ticker) {
+            return null;
+        }
+    }, PrimaryReads.direct());
+    private final RiskService risk = new RiskService(new TenAaplEach(), store, 4, 1, 2);
+
+    @AfterEach
+    void tearDown() {
+        risk.shutdown();
+    }
+
+    @Test
+    void normalQuantileMatchesTheStandardTables() {
+        assertEquals(0.0, RiskService.normalQuantile(0.5), 1e-9);
+        assertEquals(1.644853627, RiskService.normalQuantile(0.95), 1e-8);
+        assertEquals(2.326347874, RiskService.normalQuantile(0.99), 1e-8);
+        assertEquals(-3.090232306, RiskService.normalQuantile(0.001), 1e-8);
+    }
+
+    @Test
+    void normalQuantileRejectsTheEndpoints() {
+        assertThrows(IllegalArgumentException.class, () -> RiskService.normalQuantile(0));
+        assertThrows(IllegalArgumentException.class, () -> RiskService.normalQuantile(1));
+    }
+
+    @Test
+    void valueAtRiskAndVolatilityOfAKnownSeries() {
+        addCloses(5);
+
+        Map<String, Object> r = risk.compute(1, 0.95);
+
+        // returns +R, -R, +R, -R: mean 0 and sample variance 4R²/3; 10 shares at 100
+        double sigma = R * Math.sqrt(4.0 / 3);
+        assertEquals(4, r.get("observations"));
+        assertEquals(1000.0, (double) r.get("marketValue"), 1e-9);
+        assertEquals(sigma * Math.sqrt(252), (double) r.get("annualizedVolatility"), 1e-9);
+        assertEquals(1.644853627 * sigma * 1000, amount(r, "parametric"), 1e-4);
+        // the worst of the replayed days loses 1000 * (1 - 1/1.1)
+        assertEquals(1000 / 11.0, amount(r, "historical"), 1e-9);
+        assertEquals(1 / 11.0, (double) r.get("maxDrawdown"), 1e-9);
+    }
+
+    @Test
+    void aNewCloseUpdatesTheWindowWithoutARebuild() {
+        addCloses(5);
+        risk.compute(1, 0.95);
+
+        risk.onClose("AAPL", START.plusDays(5), new BigDecimal("110"));
+        Map<String, Object> r = risk.compute(1, 0.95);
+
+        assertEquals(false, r.get("rebuilt"));
+        assertEquals(1L, r.get("incrementalUpdates"));
+        assertEquals(4, r.get("observations"));
+        assertEquals(1100.0, (double) r.get("marketValue"), 1e-9);
+    }
+
+    @Test
+    void keepsOnlyTheMostRecentlyReadModels() {
+        addCloses(5);
+        risk.compute(1, 0.95);
+        risk.compute(2, 0.95);
+        risk.compute(1, 0.95);
+
+        Map<String, Object> third = risk.compute(3, 0.95);
+        assertEquals(2, third.get("models"));
+        assertEquals(1L, third.get("evictions"));
+
+        assertEquals(false, risk.compute(1, 0.95).get("rebuilt"));
+        assertEquals(true, risk.compute(2, 0.95).get("rebuilt"));
+    }
+
+    private void addCloses(int days) {
+        for (int k = 0; k < days; k++) {
+            closes.add(new Object[]{START.plusDays(k), new BigDecimal(k % 2 == 0 ? "100" : "110")});
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private static double amount(Map<String, Object> result, String method) {
+        Map<String, Object> var = (Map<String, Object>) result.get("valueAtRisk");
+        return (double) ((Map<String, Object>) var.get(method)).get("amount");
+    }
+
+    /**
+     * Every portfolio holds 10 AAPL.
+     */
+    private static final class TenAaplEach extends PositionService {
+
+        TenAaplEach() {
+            super(null, null, null, null);
+        }
+
+        @Override
+        public List<Position> getAllPositions(long portfolioId) {
+            Position p = new Position(portfolioId, "AAPL");
+            p.setTotalQuantity(10);
+            return List.of(p);
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package com.portfolio.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RollingCovarianceTest {
+
+    private static final double EPS = 1e-12;
+
+    @Test
+    void buildMatchesADirectComputationOverTheWindow() {
+        double[][] lp = randomWalk(20, 40, 1);
+        int[] days = days(40);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            RollingCovariance parallel = RollingCovariance.build(25, days, lp, 40, pool);
+            RollingCovariance sequential = RollingCovariance.build(25, days, lp, 40, null);
+            assertEquals(25, parallel.observations());
+            assertEquals(39, parallel.lastDay());
+            for (int i = 0; i < 20; i++) {
+                for (int j = 0; j < 20; j++) {
+                    double expected = directCovariance(lp, i, j, 40 - 26, 40);
+                    assertEquals(expected, parallel.covariance(i, j), EPS);
+                    assertEquals(expected, sequential.covariance(i, j), EPS);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void closesFedOneByOneMatchARebuild() {
+        int n = 6;
+        int rows = 80;
+        int window = 30;
+        double[][] lp = randomWalk(n, rows, 2);
+        int[] days = days(rows);
+        Random rnd = new Random(3);
+
+        RollingCovariance c = RollingCovariance.build(window, days, lp, 10, null);
+        for (int k = 10; k < rows; k++) {
+            // every ticker posts the day in some order, with a few intraday restatements first
+            for (int i : shuffled(n, rnd)) {
+                assertTrue(c.onClose(i, k, lp[i][k] + 0.01 * rnd.nextGaussian()));
+            }
+            for (int i : shuffled(n, rnd)) {
+                assertTrue(c.onClose(i, k, lp[i][k]));
+            }
+        }
+
+        RollingCovariance rebuilt = RollingCovariance.build(window, days, lp, rows, null);
+        assertEquals(rebuilt.observations(), c.observations());
+        assertEquals(rebuilt.lastDay(), c.lastDay());
+        for (int i = 0; i < n; i++) {
+            assertEquals(rebuilt.mean(i), c.mean(i), EPS);
+            assertEquals(rebuilt.returnAt(i, 0), c.returnAt(i, 0), EPS);
+            for (int j = 0; j < n; j++) {
+                assertEquals(rebuilt.covariance(i, j), c.covariance(i, j), 1e-10);
+            }
+        }
+    }
+
+    @Test
+    void aDayEntersOnlyOnceEveryTickerHasIt() {
+        double[][] lp = randomWalk(3, 5, 4);
+        RollingCovariance c = RollingCovariance.build(10, days(5), lp, 5, null);
+        assertEquals(4, c.observations());
+
+        assertTrue(c.onClose(0, 5, 1.0));
+        assertTrue(c.onClose(1, 5, 1.0));
+        assertEquals(4, c.observations());
+        assertEquals(4, c.lastDay());
+
+        // day 6 starts before day 5 was complete: day 5 is dropped, as a rebuild would drop it
+        assertTrue(c.onClose(2, 6, 1.0));
+        assertFalse(c.onClose(0, 5, 1.0));
+        assertTrue(c.onClose(0, 6, 1.0));
+        assertTrue(c.onClose(1, 6, 1.0));
+        assertEquals(5, c.observations());
+        assertEquals(6, c.lastDay());
+
+        assertFalse(c.onClose(1, 3, 1.0));
+    }
+
+    private static double directCovariance(double[][] lp, int i, int j, int from, int to) {
+        int m = to - from - 1;
+        double mi = 0;
+        double mj = 0;
+        for (int k = from + 1; k < to; k++) {
+            mi += lp[i][k] - lp[i][k - 1];
+            mj += lp[j][k] - lp[j][k - 1];
+        }
+        mi /= m;
+        mj /= m;
+        double s = 0;
+        for (int k = from + 1; k < to; k++) {
+            s += (lp[i][k] - lp[i][k - 1] - mi) * (lp[j][k] - lp[j][k - 1] - mj);
+        }
+        return s / (m - 1);
+    }
+
+    private static double[][] randomWalk(int n, int rows, long seed) {
+        Random rnd = new Random(seed);
+        double[][] lp = new double[n][rows];
+        for (int i = 0; i < n; i++) {
+            lp[i][0] = Math.log(50 + 100 * rnd.nextDouble());
+            for (int k = 1; k < rows; k++) {
+                lp[i][k] = lp[i][k - 1] + 0.02 * rnd.nextGaussian();
+            }
+        }
+        return lp;
+    }
+
+    private static int[] days(int rows) {
+        int[] days = new int[rows];
+        for (int k = 0; k < rows; k++) {
+            days[k] = k;
+        }
+        return days;
+    }
+
+    private static int[] shuffled(int n, Random rnd) {
+        int[] order = new int[n];
+        for (int i = 0; i < n; i++) {
+            order[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = rnd.nextInt(i + 1);
+            int t = order[i];
+            order[i] = order[j];
+            order[j] = t;
+        }
+        return order;
+    }
+}
@@ -0,0 +1,54 @@
+package com.portfolio.backend.service;
+
+import com.portfolio.backend.entity.PriceTarget;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TargetBookTest {
+
+    @Test
+    void takesOnlyCrossedTargetsFromEachSide() {
+        TargetBook book = new TargetBook("AAPL");
+        book.add(target(1L, "BUY", "150"));
+        book.add(target(2L, "BUY", "140"));
+        book.add(target(3L, "SELL", "180"));
+        book.add(target(4L, "SELL", "190"));
+
+        List<PriceTarget> crossed = book.takeCrossed(new BigDecimal("145"));
+        assertEquals(1, crossed.size());
+        assertEquals(1L, crossed.get(0).getId());
+
+        crossed = book.takeCrossed(new BigDecimal("185.00"));
+        assertEquals(1, crossed.size());
+        assertEquals(3L, crossed.get(0).getId());
+
+        assertEquals(2, book.size());
+        assertTrue(book.takeCrossed(new BigDecimal("160")).isEmpty());
+    }
+
+    @Test
+    void replacingTargetMovesItToItsNewThreshold() {
+        TargetBook book = new TargetBook("AAPL");
+        book.add(target(1L, "SELL", "200"));
+        book.add(target(1L, "SELL", "150"));
+
+        assertEquals(1, book.size());
+        assertEquals(1, book.takeCrossed(new BigDecimal("160")).size());
+        assertEquals(0, book.size());
+    }
+
+    private static PriceTarget target(Long id, String action, String price) {
+        PriceTarget t = new PriceTarget();
+        ReflectionTestUtils.setField(t, "id", id);
+        t.setTicker("AAPL");
+        t.setAction(action);
+        t.setTargetPrice(new BigDecimal(price));
+        return t;
+    }
+}
@@ -0,0 +1,93 @@
+package com.portfolio.backend.service;
+
+import com.portfolio.backend.entity.Asset;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TaxLotIndexTest {
+
+    private final LocalDate today = LocalDate.now();
+    private final TaxLotIndex index = new TaxLotIndex(null, null, 730, new BigDecimal("0.22"), new BigDecimal("0.15"));
+
+    @Test
+    void rolloverMovesOnlyTheLotsCrossingThatDay() {
+        index.onLotAdded(lot(1, 10, "100.00", today.minusDays(729)));
+        index.onLotAdded(lot(2, 5, "50.00", today.minusDays(800)));
+        index.onLotAdded(lot(3, 4, "20.00", today.minusDays(10)));
+
+        assertBuckets(14, 108000, 5, 25000);
+        assertEquals(today.plusDays(1), index.nextCrossover(1));
+
+        assertEquals(0, index.rollover(today));
+        assertEquals(1, index.rollover(today.plusDays(1)));
+        assertBuckets(4, 8000, 15, 125000);
+        assertEquals(today.plusDays(720), index.nextCrossover(1));
+    }
+
+    @Test
+    void salesComeOutOfTheBucketTheLotIsIn() {
+        Asset longLot = lot(1, 10, "100.00", today.minusDays(1000));
+        Asset shortLot = lot(2, 8, "30.00", today.minusDays(5));
+        index.onLotAdded(longLot);
+        index.onLotAdded(shortLot);
+
+        shortLot.setQuantity(3);
+        index.onLotsSold(List.of(longLot), shortLot);
+
+        assertBuckets(3, 9000, 0, 0);
+        index.onLotRemoved(shortLot);
+        assertEquals(List.of(), index.snapshot(1));
+        assertEquals(null, index.nextCrossover(1));
+    }
+
+    @Test
+    void portfoliosAreSeparatePartitions() {
+        Asset mine = lot(1, 10, "100.00", today.minusDays(10));
+        Asset theirs = lot(2, 5, "50.00", today.minusDays(5));
+        theirs.setPortfolioId(2L);
+        index.onLotAdded(mine);
+        index.onLotAdded(theirs);
+
+        assertBuckets(10, 100000, 0, 0);
+        assertEquals(List.of(new TaxLotIndex.Snapshot("AAPL", 5, 25000, 0, 0)), index.snapshot(2));
+        assertEquals(today.plusDays(720), index.nextCrossover(1));
+        assertEquals(today.plusDays(725), index.nextCrossover(2));
+
+        index.onLotRemoved(theirs);
+        assertEquals(List.of(), index.snapshot(2));
+        assertBuckets(10, 100000, 0, 0);
+    }
+
+    @Test
+    void aLotFiledTwiceIsCountedOnce() {
+        // a trade that committed before a rebuild read the lots reports its lot after the rebuild filed it
+        Asset lot = lot(1, 10, "100.00", today.minusDays(10));
+        index.onLotAdded(lot);
+        index.onLotAdded(lot);
+
+        assertBuckets(10, 100000, 0, 0);
+    }
+
+    private void assertBuckets(long shortQty, long shortCost, long longQty, long longCost) {
+        List<TaxLotIndex.Snapshot> snapshot = index.snapshot(1);
+        assertEquals(1, snapshot.size());
+        assertEquals(new TaxLotIndex.Snapshot("AAPL", shortQty, shortCost, longQty, longCost), snapshot.get(0));
+    }
+
+    private static Asset lot(long id, int quantity, String price, LocalDate buyDate) {
+        Asset a = new Asset();
+        ReflectionTestUtils.setField(a, "id", id);
+        a.setPortfolioId(1L);
+        a.setTicker("AAPL");
+        a.setQuantity(quantity);
+        a.setBuyPrice(new BigDecimal(price));
+        a.setBuyDate(buyDate);
+        return a;
+    }
+}
@@ -0,0 +1,67 @@
+package com.portfolio.backend.service;
+
+import com.portfolio.backend.dto.OhlcBar;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+
+import java.io.ByteArrayInputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class TickIngestServiceTest {
+
+    private static final String TICKER = "TICK";
+
+    @Autowired
+    private TickIngestService tickIngestService;
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @Test
+    void aDrainThatCrossesMidnightSavesBothDays() throws Exception {
+        jdbc.update("INSERT INTO stock (ticker, company_name) VALUES (?, 'Tick Test')", TICKER);
+        ZoneId zone = ZoneId.systemDefault();
+        LocalDate yesterday = LocalDate.now().minusDays(1);
+        long midnight = yesterday.atStartOfDay(zone).toInstant().toEpochMilli();
+        String body = String.join("\n",
+                TICKER + ",10.00," + (midnight - 60_000),
+                TICKER + ",11.00," + (midnight - 1_000),
+                TICKER + ",12.00," + (midnight + 1_000),
+                TICKER + ",13.00," + (midnight + 60_000));
+
+        tickIngestService.ingest(new ByteArrayInputStream(body.getBytes(StandardCharsets.UTF_8)),
+                BulkPriceIngestService.Format.CSV);
+        awaitBar(yesterday, 2);
+        tickIngestService.flush();
+
+        List<Map<String, Object>> rows = jdbc.queryForList(
+                "SELECT price_date, close_price FROM stock_price WHERE ticker = ? ORDER BY price_date", TICKER);
+        assertEquals(List.of(
+                Map.of("price_date", Date.valueOf(yesterday.minusDays(1)), "close_price", new BigDecimal("11.00")),
+                Map.of("price_date", Date.valueOf(yesterday), "close_price", new BigDecimal("13.00"))), rows);
+    }
+
+    private void awaitBar(LocalDate day, int points) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (System.nanoTime() < deadline) {
+            OhlcBar bar = (OhlcBar) tickIngestService.intraday(TICKER, 0).get("bar");
+            if (bar != null && bar.start().equals(day) && bar.points() == points) {
+                return;
+            }
+            Thread.sleep(1);
+        }
+    }
+}
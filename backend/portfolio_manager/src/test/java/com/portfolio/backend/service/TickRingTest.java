@@ -0,0 +1,132 @@
+package com.portfolio.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TickRingTest {
+
+    @Test
+    void readsTicksInAppendOrder() {
+        TickRing ring = new TickRing(8);
+        for (int i = 0; i < 5; i++) {
+            assertEquals(i, ring.append(1000 + i, 100 * i));
+        }
+
+        TickRing.Reader r = ring.new Reader(0);
+        for (int i = 0; i < 5; i++) {
+            assertTrue(r.next());
+            assertEquals(1000 + i, r.time());
+            assertEquals(100 * i, r.price());
+        }
+        assertFalse(r.next());
+
+        ring.append(2000, 7);
+        assertTrue(r.next());
+        assertEquals(2000, r.time());
+        assertEquals(0, r.overrun());
+    }
+
+    @Test
+    void lappedReaderSkipsToTheOldestTickAndCountsTheRest() {
+        TickRing ring = new TickRing(4);
+        for (int i = 0; i < 10; i++) {
+            ring.append(i, i);
+        }
+
+        TickRing.Reader r = ring.new Reader(0);
+        assertTrue(r.next());
+        assertEquals(6, r.time());
+        assertEquals(6, r.overrun());
+        int read = 1;
+        while (r.next()) {
+            read++;
+        }
+        assertEquals(4, read);
+        assertEquals(10, r.cursor());
+    }
+
+    @Test
+    void latestCopiesTheNewestTicksOldestFirst() {
+        TickRing ring = new TickRing(4);
+        long[] times = new long[3];
+        long[] prices = new long[3];
+        assertEquals(0, ring.latest(times, prices, 3));
+
+        for (int i = 0; i < 6; i++) {
+            ring.append(i, 10 * i);
+        }
+        assertEquals(3, ring.latest(times, prices, 3));
+        assertEquals(3, times[0]);
+        assertEquals(5, times[2]);
+        assertEquals(50, prices[2]);
+    }
+
+    @Test
+    void concurrentWritersNeverProduceTornReads() throws Exception {
+        writeAndReadConcurrently(64, 4, 200_000);
+    }
+
+    @Test
+    void writersLappingEachOtherStillLeaveEveryTickReadOrOverrun() throws Exception {
+        writeAndReadConcurrently(4, 8, 100_000);
+    }
+
+    private static void writeAndReadConcurrently(int capacity, int writers, int perWriter) throws Exception {
+        TickRing ring = new TickRing(capacity);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+        for (int w = 0; w < writers; w++) {
+            long base = (long) w << 32;
+            Thread t = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int k = 0; k < perWriter; k++) {
+                    // the price is derived from the time so a mixed-up slot is detectable
+                    ring.append(base + k, (base + k) * 3);
+                }
+            });
+            t.start();
+            threads.add(t);
+        }
+
+        TickRing.Reader r = ring.new Reader(0);
+        long[] lastSeen = new long[writers];
+        Arrays.fill(lastSeen, -1);
+        long read = 0;
+        start.countDown();
+        boolean writing = true;
+        while (writing || r.cursor() < ring.claimed()) {
+            writing = threads.stream().anyMatch(Thread::isAlive);
+            while (r.next()) {
+                assertEquals(r.time() * 3, r.price());
+                int w = (int) (r.time() >>> 32);
+                long k = r.time() & 0xffffffffL;
+                assertTrue(k > lastSeen[w], "ticks of one writer must stay in order");
+                lastSeen[w] = k;
+                read++;
+            }
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        assertEquals((long) writers * perWriter, read + r.overrun());
+    }
+
+    @Test
+    void rejectsCapacityThatIsNotAPowerOfTwo() {
+        assertThrows(IllegalArgumentException.class, () -> new TickRing(100));
+        assertThrows(IllegalArgumentException.class, () -> new TickRing(1));
+    }
+}
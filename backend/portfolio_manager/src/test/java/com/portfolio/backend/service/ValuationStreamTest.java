@@ -0,0 +1,98 @@
+package com.portfolio.backend.service;
+
+import com.portfolio.backend.dto.PositionValue;
+import com.portfolio.backend.dto.TriggeredAlert;
+import com.portfolio.backend.dto.ValuationDelta;
+import com.portfolio.backend.dto.ValuationSnapshot;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.math.BigDecimal;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ValuationStreamTest {
+
+    private final ValuationStream stream = new ValuationStream(null, null, new DataVersion(), 2, 1, 1000);
+    private final ValuationStream.Subscriber subscriber = stream.new Subscriber(1, new SseEmitter());
+
+    @AfterEach
+    void tearDown() {
+        stream.shutdown();
+    }
+
+    @Test
+    void aSnapshotReplacesTheDeltasBeforeItAndGoesOutFirst() {
+        subscriber.offer(delta("AAPL", "100"));
+        ValuationSnapshot snapshot = new ValuationSnapshot(1, BigDecimal.TEN, BigDecimal.ONE, BigDecimal.TEN, List.of());
+        subscriber.offer(snapshot);
+        ValuationDelta msft = delta("MSFT", "300");
+        subscriber.offer(msft);
+
+        List<ValuationStream.Event> events = subscriber.take();
+
+        assertEquals(List.of("snapshot", "position"), names(events));
+        assertSame(snapshot, events.get(0).data());
+        assertSame(msft, events.get(1).data());
+    }
+
+    @Test
+    void deltasOfOneTickerCoalesceToTheNewest() {
+        subscriber.offer(delta("AAPL", "100"));
+        subscriber.offer(delta("MSFT", "300"));
+        ValuationDelta newest = delta("AAPL", "101");
+        subscriber.offer(newest);
+
+        List<ValuationStream.Event> events = subscriber.take();
+
+        assertEquals(List.of("position", "position"), names(events));
+        assertSame(newest, events.get(0).data());
+        assertTrue(subscriber.take().isEmpty());
+    }
+
+    @Test
+    void alertsBeyondTheBufferDropTheOldestAndAreCounted() {
+        subscriber.offer(List.of(alert("a"), alert("b"), alert("c")));
+
+        List<ValuationStream.Event> events = subscriber.take();
+
+        assertEquals(List.of("dropped", "alert", "alert"), names(events));
+        assertEquals(Map.of("alerts", 1), events.get(0).data());
+        assertEquals("b", ((TriggeredAlert) events.get(1).data()).message());
+        assertEquals("c", ((TriggeredAlert) events.get(2).data()).message());
+    }
+
+    @Test
+    void onlyOneSenderAtATimeAndNoneWithoutEvents() {
+        assertFalse(subscriber.claim());
+        subscriber.offer(delta("AAPL", "100"));
+
+        assertTrue(subscriber.claim());
+        assertFalse(subscriber.claim());
+        subscriber.take();
+        subscriber.release();
+        assertFalse(subscriber.claim());
+    }
+
+    private static List<String> names(List<ValuationStream.Event> events) {
+        return events.stream().map(ValuationStream.Event::name).toList();
+    }
+
+    private static ValuationDelta delta(String ticker, String price) {
+        BigDecimal p = new BigDecimal(price);
+        PositionValue v = new PositionValue(ticker, 1, BigDecimal.ONE, p, LocalDate.now(), p, p.subtract(BigDecimal.ONE));
+        return new ValuationDelta(1, v, p, p.subtract(BigDecimal.ONE));
+    }
+
+    private static TriggeredAlert alert(String message) {
+        return new TriggeredAlert(null, 1L, "AAPL", "SELL", BigDecimal.TEN, BigDecimal.ONE, Instant.now(), message);
+    }
+}
@@ -0,0 +1,78 @@
+package com.portfolio.backend.service;
+
+import com.portfolio.backend.dto.OutboxAlert;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import tools.jackson.databind.json.JsonMapper;
+
+import java.io.IOException;
+import java.math.BigDecimal;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class WebhookAlertSinkTest {
+
+    private final AtomicInteger status = new AtomicInteger(204);
+    private final AtomicReference<String> body = new AtomicReference<>();
+    private HttpServer server;
+
+    @BeforeEach
+    void startStub() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/hook", exchange -> {
+            body.set(new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8));
+            exchange.sendResponseHeaders(status.get(), -1);
+            exchange.close();
+        });
+        server.start();
+    }
+
+    @AfterEach
+    void stopStub() {
+        server.stop(0);
+    }
+
+    @Test
+    void postsTheBatchAsOneJsonArray() throws Exception {
+        sink().deliver(List.of(alert(1, "AAPL"), alert(2, "MSFT")));
+
+        String json = body.get();
+        assertTrue(json.startsWith("["), json);
+        assertTrue(json.contains("\"ticker\":\"AAPL\"") && json.contains("\"ticker\":\"MSFT\""), json);
+    }
+
+    @Test
+    void failsTheBatchOnANon2xxAnswer() {
+        status.set(503);
+
+        IOException e = assertThrows(IOException.class, () -> sink().deliver(List.of(alert(1, "AAPL"))));
+        assertEquals("webhook answered 503", e.getMessage());
+    }
+
+    @Test
+    void refusesToDeliverWithoutAUrl() {
+        WebhookAlertSink sink = new WebhookAlertSink(new JsonMapper(), "", 1000);
+
+        assertThrows(IllegalStateException.class, () -> sink.deliver(List.of(alert(1, "AAPL"))));
+    }
+
+    private WebhookAlertSink sink() {
+        return new WebhookAlertSink(new JsonMapper(),
+                "http://localhost:" + server.getAddress().getPort() + "/hook", 1000);
+    }
+
+    private static OutboxAlert alert(long id, String ticker) {
+        return new OutboxAlert(id, 1, id, "webhook", ticker, "SELL", new BigDecimal("150.00"),
+                new BigDecimal("151.25"), Instant.parse("2026-10-16T14:30:00Z"), 0);
+    }
+}
@@ -0,0 +1,61 @@
+package com.portfolio.backend.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class XirrSolverTest {
+
+    @Test
+    void matchesSpreadsheetXirrExample() {
+        LocalDate origin = LocalDate.of(2008, 1, 1);
+        double[] amounts = {-10000, 2750, 4250, 3250, 2750};
+        LocalDate[] dates = {
+                origin,
+                LocalDate.of(2008, 3, 1),
+                LocalDate.of(2008, 10, 30),
+                LocalDate.of(2009, 2, 15),
+                LocalDate.of(2009, 4, 1)
+        };
+        double[] years = new double[dates.length];
+        for (int i = 0; i < dates.length; i++) {
+            years[i] = ChronoUnit.DAYS.between(origin, dates[i]) / 365.0;
+        }
+
+        XirrSolver.Result r = XirrSolver.solve(amounts, years, amounts.length);
+        assertTrue(r.converged());
+        assertEquals(0.373362535, r.rate(), 1e-8);
+        assertEquals(0.0, r.residual(), 1e-6);
+    }
+
+    @Test
+    void reportsMissingSignChange() {
+        XirrSolver.Result r = XirrSolver.solve(new double[]{-100, -50}, new double[]{0, 1}, 2);
+        assertFalse(r.converged());
+        assertEquals(XirrSolver.Method.INSUFFICIENT_DATA, r.method());
+    }
+
+    @Test
+    void convergesOnThousandFlows() {
+        int n = 1000;
+        double[] amounts = new double[n];
+        double[] years = new double[n];
+        for (int i = 0; i < n - 1; i++) {
+            amounts[i] = -100.0 - (i % 7) * 10.0;
+            years[i] = i / 250.0;
+        }
+        amounts[n - 1] = 250_000.0;
+        years[n - 1] = (n - 1) / 250.0;
+
+        // how long it takes is measured by XirrSolverBenchmark
+        XirrSolver.Result r = XirrSolver.solve(amounts, years, n);
+        assertTrue(r.converged());
+        assertTrue(r.iterations() < XirrSolver.MAX_ITERATIONS);
+        assertEquals(0.0, XirrSolver.npv(amounts, years, n, r.rate()) / 250_000.0, 1e-9);
+    }
+}